@@ -0,0 +1,229 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.analysis.chromium.core.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+
+import org.eclipse.tracecompass.internal.analysis.chromium.core.event.TraceEventField;
+import org.eclipse.tracecompass.internal.analysis.chromium.core.event.TraceEventTokenizer;
+import org.eclipse.tracecompass.internal.analysis.chromium.core.trace.SortedEventFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the {@link SortedEventFile} class
+ */
+public class SortedEventFileTest {
+
+    private static final int NB_EVENTS = 3 * SortedEventFile.INDEX_INTERVAL + 10;
+
+    private File fFile;
+
+    /**
+     * Create the file
+     *
+     * @throws IOException
+     *             If the file cannot be created
+     */
+    @Before
+    public void setUp() throws IOException {
+        fFile = File.createTempFile("sorted", ".events");
+    }
+
+    /**
+     * Delete the file
+     */
+    @After
+    public void tearDown() {
+        fFile.delete();
+    }
+
+    private static TraceEventField parse(String json) {
+        TraceEventField field = TraceEventTokenizer.parse(json.getBytes(StandardCharsets.UTF_8));
+        assertNotNull(json, field);
+        return field;
+    }
+
+    private static byte[] createEvent(int i) {
+        return SortedEventFile.encode(parse("{\"name\":\"event" + i + "\",\"ph\":\"X\",\"ts\":" + i + ",\"dur\":1,\"pid\":1,\"tid\":" + i + "}"));
+    }
+
+    private void writeFile(int nbEvents) throws IOException {
+        try (SortedEventFile.Writer writer = new SortedEventFile.Writer(fFile)) {
+            for (int i = 0; i < nbEvents; i++) {
+                writer.append(createEvent(i));
+            }
+            writer.finish();
+        }
+    }
+
+    private SortedEventFile open() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(fFile, "r")) {
+            return SortedEventFile.open(file);
+        }
+    }
+
+    private static void assertSameField(TraceEventField expected, TraceEventField actual) {
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getTs(), actual.getTs());
+        assertEquals(expected.getPhase(), actual.getPhase());
+        assertEquals(expected.getPid(), actual.getPid());
+        assertEquals(expected.getTid(), actual.getTid());
+        assertEquals(expected.getCategory(), actual.getCategory());
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getDuration(), actual.getDuration());
+        assertEquals(expected.getArgs(), actual.getArgs());
+        assertEquals(expected.getContent(), actual.getContent());
+    }
+
+    /**
+     * Test that the events parsed from JSON are the same once encoded and
+     * decoded
+     *
+     * @throws IOException
+     *             Should not happen
+     */
+    @Test
+    public void testEncodeDecode() throws IOException {
+        String[] events = {
+                "{}",
+                "{\"name\":\"full\",\"cat\":\"c\",\"ph\":\"X\",\"ts\":12.345,\"dur\":0.5,\"pid\":3,\"tid\":4,\"id\":\"0x2\",\"args\":{\"a\":\"b\",\"n\":{\"x\":[1]}}}",
+                "{\"name\":\"\\u00e9\\\"\\n\",\"ph\":\"B\",\"ts\":1,\"pid\":\"renderer\"}",
+                "{\"name\":\"long pid\",\"ph\":\"E\",\"ts\":2,\"pid\":10000000000}",
+                "{\"name\":\"double pid\",\"ph\":\"i\",\"ts\":3,\"pid\":2.5}",
+        };
+        for (String json : events) {
+            TraceEventField field = parse(json);
+            byte[] encoded = SortedEventFile.encode(field);
+            assertEquals(json, field.getTs(), SortedEventFile.getTimestamp(encoded));
+            assertSameField(field, SortedEventFile.decode(encoded));
+        }
+    }
+
+    /**
+     * Test reading the events of a complete file through its index
+     *
+     * @throws IOException
+     *             Should not happen
+     */
+    @Test
+    public void testWriteRead() throws IOException {
+        writeFile(NB_EVENTS);
+        SortedEventFile sortedFile = open();
+        assertNotNull(sortedFile);
+        assertEquals(NB_EVENTS, sortedFile.getNbEvents());
+
+        try (RandomAccessFile file = new RandomAccessFile(fFile, "r")) {
+            file.seek(SortedEventFile.HEADER_SIZE);
+            for (int i = 0; i < NB_EVENTS; i++) {
+                assertArrayEquals(createEvent(i), SortedEventFile.readEvent(file));
+            }
+            assertEquals(sortedFile.getDataEnd(), file.getFilePointer());
+
+            for (long rank : new long[] { 0, 1, SortedEventFile.INDEX_INTERVAL, 2 * SortedEventFile.INDEX_INTERVAL + 5, NB_EVENTS - 1, NB_EVENTS + 5000 }) {
+                long indexedRank = sortedFile.getIndexedRank(rank);
+                file.seek(sortedFile.getPosition(rank));
+                byte[] event = SortedEventFile.readEvent(file);
+                assertEquals(indexedRank, SortedEventFile.getTimestamp(event) / 1000);
+            }
+        }
+    }
+
+    /**
+     * Test a complete file without events
+     *
+     * @throws IOException
+     *             Should not happen
+     */
+    @Test
+    public void testEmpty() throws IOException {
+        writeFile(0);
+        SortedEventFile sortedFile = open();
+        assertNotNull(sortedFile);
+        assertEquals(0, sortedFile.getNbEvents());
+        assertEquals(SortedEventFile.HEADER_SIZE, sortedFile.getDataEnd());
+        assertEquals(SortedEventFile.HEADER_SIZE, sortedFile.getPosition(10));
+    }
+
+    /**
+     * Test that a file whose writing was not finished is rejected
+     *
+     * @throws IOException
+     *             Should not happen
+     */
+    @Test
+    public void testIncomplete() throws IOException {
+        try (SortedEventFile.Writer writer = new SortedEventFile.Writer(fFile)) {
+            for (int i = 0; i < NB_EVENTS; i++) {
+                writer.append(createEvent(i));
+            }
+        }
+        assertNull(open());
+    }
+
+    /**
+     * Test that truncated files are rejected
+     *
+     * @throws IOException
+     *             Should not happen
+     */
+    @Test
+    public void testTruncated() throws IOException {
+        writeFile(NB_EVENTS);
+        long length = fFile.length();
+        for (long truncatedLength : new long[] { length - 1, length - Long.BYTES * 2, SortedEventFile.HEADER_SIZE, SortedEventFile.HEADER_SIZE - 1, 0 }) {
+            try (RandomAccessFile file = new RandomAccessFile(fFile, "rw")) {
+                file.setLength(truncatedLength);
+            }
+            assertNull(String.valueOf(truncatedLength), open());
+        }
+    }
+
+    /**
+     * Test that files with another magic number or version are rejected
+     *
+     * @throws IOException
+     *             Should not happen
+     */
+    @Test
+    public void testHeaderMismatch() throws IOException {
+        writeFile(NB_EVENTS);
+        int magic;
+        int version;
+        try (RandomAccessFile file = new RandomAccessFile(fFile, "rw")) {
+            magic = file.readInt();
+            version = file.readInt();
+            file.seek(0);
+            file.writeInt(magic + 1);
+        }
+        assertNull(open());
+
+        try (RandomAccessFile file = new RandomAccessFile(fFile, "rw")) {
+            file.writeInt(magic);
+            file.writeInt(version + 1);
+        }
+        assertNull(open());
+
+        try (RandomAccessFile file = new RandomAccessFile(fFile, "rw")) {
+            file.seek(Integer.BYTES);
+            file.writeInt(version);
+        }
+        assertNotNull(open());
+    }
+}
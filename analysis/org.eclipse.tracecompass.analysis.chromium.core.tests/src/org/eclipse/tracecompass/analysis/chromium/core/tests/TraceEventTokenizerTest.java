@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.analysis.chromium.core.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.eclipse.tracecompass.internal.analysis.chromium.core.event.TraceEventField;
+import org.eclipse.tracecompass.internal.analysis.chromium.core.event.TraceEventTokenizer;
+import org.junit.Test;
+
+/**
+ * Test the {@link TraceEventTokenizer} class
+ */
+public class TraceEventTokenizerTest {
+
+    private static TraceEventTokenizer createTokenizer(String json) {
+        return new TraceEventTokenizer(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static TraceEventField parse(String json) {
+        TraceEventField field = TraceEventTokenizer.parse(json.getBytes(StandardCharsets.UTF_8));
+        assertNotNull(json, field);
+        return field;
+    }
+
+    /**
+     * Test splitting the event array, with braces and quotes in the strings
+     * and nested objects in the events
+     *
+     * @throws IOException
+     *             Should not happen
+     */
+    @Test
+    public void testReadEvents() throws IOException {
+        String first = "{\"name\":\"a}{\\\"\",\"ph\":\"B\",\"ts\":1.5,\"pid\":1,\"tid\":2}";
+        String second = "{\"name\":\"b\",\"args\":{\"x\":{\"y\":[1,{\"z\":\"}\"}]}},\"ph\":\"E\",\"ts\":3}";
+        TraceEventTokenizer tokenizer = createTokenizer("{\"traceEvents\":[ " + first + " ,\n" + second + "\n],\"other\":{}}");
+        assertTrue(tokenizer.skipToEvents());
+
+        byte[] event = tokenizer.readNextEvent();
+        assertNotNull(event);
+        assertEquals(first, new String(event, StandardCharsets.UTF_8));
+        event = tokenizer.readNextEvent();
+        assertNotNull(event);
+        assertEquals(second, new String(event, StandardCharsets.UTF_8));
+        assertNull(tokenizer.readNextEvent());
+    }
+
+    /**
+     * Test a stream without event array, and a stream truncated in the middle
+     * of an event
+     *
+     * @throws IOException
+     *             Should not happen
+     */
+    @Test
+    public void testTruncatedStream() throws IOException {
+        assertFalse(createTokenizer("{\"traceEvents\":").skipToEvents());
+
+        TraceEventTokenizer tokenizer = createTokenizer("[{\"name\":\"a\",\"ts\":1},{\"name\":\"b");
+        assertTrue(tokenizer.skipToEvents());
+        assertNotNull(tokenizer.readNextEvent());
+        assertNull(tokenizer.readNextEvent());
+        assertNull(tokenizer.readNextEvent());
+    }
+
+    /**
+     * Test the fields of an event
+     */
+    @Test
+    public void testParseFields() {
+        TraceEventField field = parse("{ \"cat\" : \"c\", \"name\":\"n\", \"ph\":\"X\", \"ts\":1.5, \"dur\":2.25, \"pid\":12, \"tid\":34, \"id\":\"0x1\", \"unknown\":[1,2] }");
+        assertEquals("n", field.getName());
+        assertEquals('X', field.getPhase());
+        assertEquals(1500, field.getTs());
+        assertEquals(Long.valueOf(2250), field.getDuration());
+        assertEquals(12, field.getPid());
+        assertEquals(Integer.valueOf(34), field.getTid());
+        assertEquals("c", field.getCategory());
+        assertEquals("0x1", field.getId());
+        assertNull(field.getArgs());
+    }
+
+    /**
+     * Test the default values of an event without fields
+     */
+    @Test
+    public void testParseDefaults() {
+        TraceEventField field = parse("{}");
+        assertEquals("unknown", field.getName());
+        assertEquals('I', field.getPhase());
+        assertEquals(0, field.getTs());
+        assertNull(field.getDuration());
+        assertNull(field.getPid());
+        assertNull(field.getTid());
+
+        assertEquals("exit", parse("{\"ph\":\"E\"}").getName());
+    }
+
+    /**
+     * Test the types of process IDs
+     */
+    @Test
+    public void testParsePid() {
+        assertEquals(7, parse("{\"pid\":7}").getPid());
+        assertEquals(10000000000L, parse("{\"pid\":10000000000}").getPid());
+        assertEquals(1.5, parse("{\"pid\":1.5}").getPid());
+        assertEquals("browser", parse("{\"pid\":\"browser\"}").getPid());
+        assertNull(parse("{\"pid\":null}").getPid());
+    }
+
+    /**
+     * Test the escape sequences in strings
+     */
+    @Test
+    public void testEscapes() {
+        TraceEventField field = parse("{\"name\":\"a\\\"b\\\\c\\/d\\n\\t\\u00e9\\u4e2d\",\"args\":{\"k\\\"ey\":\"v\\r\\b\\f\"}}");
+        assertEquals("a\"b\\c/d\n\t\u00e9\u4e2d", field.getName());
+        Map<String, Object> args = field.getArgs();
+        assertNotNull(args);
+        assertEquals("v\r\b\f", args.get("k\"ey"));
+    }
+
+    /**
+     * Test that the arguments which are not strings are kept as their JSON
+     * text, including nested objects and arrays
+     */
+    @Test
+    public void testNestedArgs() {
+        TraceEventField field = parse("{\"name\":\"n\",\"args\":{\"s\":\"str\",\"n\":42,\"b\":true,\"o\":{\"a\":[1,{\"b\":\"}]\"}]},\"l\":[]}}");
+        Map<String, Object> args = field.getArgs();
+        assertNotNull(args);
+        assertEquals(5, args.size());
+        assertEquals("str", args.get("s"));
+        assertEquals("42", args.get("n"));
+        assertEquals("true", args.get("b"));
+        assertEquals("{\"a\":[1,{\"b\":\"}]\"}]}", args.get("o"));
+        assertEquals("[]", args.get("l"));
+
+        /* Arguments that are not an object are ignored */
+        assertNull(parse("{\"name\":\"n\",\"args\":[1,2]}").getArgs());
+    }
+
+    /**
+     * Test that malformed events are rejected
+     */
+    @Test
+    public void testMalformed() {
+        String[] malformed = {
+                "",
+                "[1]",
+                "{\"name\":\"a\"",
+                "{\"name\":\"a\",}",
+                "{\"name\" \"a\"}",
+                "{\"ts\":}",
+                "{\"ph\":\"\"}",
+                "{\"name\":\"unterminated}",
+                "{\"name\":\"bad escape \\u12\"}",
+                "{\"args\":{\"a\":1,}}",
+        };
+        for (String json : malformed) {
+            assertNull(json, TraceEventTokenizer.parse(json.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package org.eclipse.tracecompass.analysis.chromium.core.trace;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
@@ -19,6 +21,8 @@ import org.eclipse.tracecompass.internal.analysis.chromium.core.Activator;
 import org.eclipse.tracecompass.internal.analysis.chromium.core.event.TraceEventAspects;
 import org.eclipse.tracecompass.internal.analysis.chromium.core.event.TraceEventEvent;
 import org.eclipse.tracecompass.internal.analysis.chromium.core.event.TraceEventField;
+import org.eclipse.tracecompass.internal.analysis.chromium.core.event.TraceEventTokenizer;
+import org.eclipse.tracecompass.internal.analysis.chromium.core.trace.SortedEventFile;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
 import org.eclipse.tracecompass.tmf.core.event.aspect.ITmfEventAspect;
 import org.eclipse.tracecompass.tmf.core.exceptions.TmfTraceException;
@@ -41,16 +45,23 @@ import org.eclipse.tracecompass.tmf.core.trace.location.TmfLongLocation;
  */
 public class ChromiumTrace extends TmfTrace implements ITmfPersistentlyIndexable, ITmfPropertiesProvider, ITmfTraceKnownSize {
 
-    private static final int ESTIMATED_EVENT_SIZE = 90;
     private static final TmfLongLocation NULL_LOCATION = new TmfLongLocation(-1L);
     private static final TmfContext INVALID_CONTEXT = new TmfContext(NULL_LOCATION, ITmfContext.UNKNOWN_RANK);
     private static final int MAX_LINES = 100;
     private static final int MAX_CONFIDENCE = 100;
 
+    /**
+     * Suffix of the binary file of the sorted events, in the supplementary
+     * folder
+     */
+    private static final String SORTED_FILE_SUFFIX = ".sorted"; //$NON-NLS-1$
+
     private File fFile;
 
     private RandomAccessFile fFileInput;
 
+    private @Nullable SortedEventFile fSortedFile;
+
     @Override
     public IStatus validate(IProject project, String path) {
         File file = new File(path);
@@ -69,22 +80,18 @@ public class ChromiumTrace extends TmfTrace implements ITmfPersistentlyIndexable
             Activator.getInstance().logError("Error validating file: " + path, e); //$NON-NLS-1$
             return new Status(IStatus.ERROR, Activator.PLUGIN_ID, "IOException validating file: " + path, e); //$NON-NLS-1$
         }
-        try (BufferedRandomAccessFile rafile = new BufferedRandomAccessFile(path, "r")) { //$NON-NLS-1$
+        try (BufferedInputStream input = new BufferedInputStream(new FileInputStream(file))) {
+            TraceEventTokenizer tokenizer = new TraceEventTokenizer(input);
             int lineCount = 0;
             int matches = 0;
-            String line = readNextEventString(() -> (char) rafile.read());
-            while ((line != null) && (lineCount++ < MAX_LINES)) {
-                try {
-                    TraceEventField field = TraceEventEvent.parseJson(line);
-                    if (field != null) {
-                        matches++;
-                    }
-                } catch (RuntimeException e) {
-                    confidence = Integer.MIN_VALUE;
+            byte[] event = tokenizer.skipToEvents() ? tokenizer.readNextEvent() : null;
+            while ((event != null) && (lineCount++ < MAX_LINES)) {
+                TraceEventField field = TraceEventTokenizer.parse(event);
+                if (field != null) {
+                    matches++;
                 }
-
                 confidence = MAX_CONFIDENCE * matches / lineCount;
-                line = readNextEventString(() -> (char) rafile.read());
+                event = tokenizer.readNextEvent();
             }
         } catch (IOException e) {
             Activator.getInstance().logError("Error validating file: " + path, e); //$NON-NLS-1$
@@ -98,27 +105,44 @@ public class ChromiumTrace extends TmfTrace implements ITmfPersistentlyIndexable
     public void initTrace(IResource resource, String path, Class<? extends ITmfEvent> type) throws TmfTraceException {
         super.initTrace(resource, path, type);
         String dir = TmfTraceManager.getSupplementaryFileDir(this);
-        fFile = new File(dir + new File(path).getName());
-        if (!fFile.exists()) {
-            Job sortJob = new SortingJob(this, path);
-            sortJob.schedule();
-            try {
+        fFile = new File(dir + new File(path).getName() + SORTED_FILE_SUFFIX);
+        try {
+            fSortedFile = openSortedFile();
+            if (fSortedFile == null) {
+                /* No complete sorted file yet, sort the trace */
+                Job sortJob = new SortingJob(path, fFile);
+                sortJob.schedule();
                 sortJob.join();
-            } catch (InterruptedException e) {
-                throw new TmfTraceException(e.getMessage(), e);
-            }
-            IStatus result = sortJob.getResult();
-            if (!result.isOK()) {
-                throw new TmfTraceException("Job failed " + result.getMessage());
+                IStatus result = sortJob.getResult();
+                if (!result.isOK()) {
+                    throw new TmfTraceException("Job failed " + result.getMessage()); //$NON-NLS-1$
+                }
+                fSortedFile = openSortedFile();
+                if (fSortedFile == null) {
+                    throw new TmfTraceException("Invalid sorted trace file " + fFile); //$NON-NLS-1$
+                }
             }
-        }
-        try {
-            fFileInput = new BufferedRandomAccessFile(fFile, "r");
+        } catch (InterruptedException e) {
+            throw new TmfTraceException(e.getMessage(), e);
         } catch (IOException e) {
             throw new TmfTraceException(e.getMessage(), e);
         }
     }
 
+    private @Nullable SortedEventFile openSortedFile() throws IOException {
+        if (!fFile.exists()) {
+            return null;
+        }
+        RandomAccessFile fileInput = new BufferedRandomAccessFile(fFile, "r"); //$NON-NLS-1$
+        SortedEventFile sortedFile = SortedEventFile.open(fileInput);
+        if (sortedFile == null) {
+            fileInput.close();
+            return null;
+        }
+        fFileInput = fileInput;
+        return sortedFile;
+    }
+
     @Override
     public synchronized void dispose() {
         if (fFileInput != null) {
@@ -134,7 +158,15 @@ public class ChromiumTrace extends TmfTrace implements ITmfPersistentlyIndexable
 
     @Override
     public double getLocationRatio(ITmfLocation location) {
-        return (double) getCurrentLocation().getLocationInfo() / fFile.length();
+        SortedEventFile sortedFile = fSortedFile;
+        if (sortedFile == null || !(location.getLocationInfo() instanceof Long)) {
+            return 0;
+        }
+        long dataSize = sortedFile.getDataEnd() - SortedEventFile.HEADER_SIZE;
+        if (dataSize <= 0) {
+            return 0;
+        }
+        return (double) ((Long) location.getLocationInfo() - SortedEventFile.HEADER_SIZE) / dataSize;
     }
 
     @Override
@@ -148,7 +180,7 @@ public class ChromiumTrace extends TmfTrace implements ITmfPersistentlyIndexable
         }
         try {
             if (location == null) {
-                fFileInput.seek(1);
+                fFileInput.seek(SortedEventFile.HEADER_SIZE);
             } else if (location.getLocationInfo() instanceof Long) {
                 fFileInput.seek((Long) location.getLocationInfo());
             }
@@ -165,13 +197,14 @@ public class ChromiumTrace extends TmfTrace implements ITmfPersistentlyIndexable
 
     @Override
     public ITmfContext seekEvent(double ratio) {
-        File file = fFile;
-        if (file == null) {
+        SortedEventFile sortedFile = fSortedFile;
+        if (sortedFile == null) {
             return INVALID_CONTEXT;
         }
-        long filePos = (long) (file.length() * ratio);
-        long estimatedRank = filePos / ESTIMATED_EVENT_SIZE;
-        return seekEvent(new TmfLongLocation(estimatedRank));
+        long rank = (long) (sortedFile.getNbEvents() * ratio);
+        ITmfContext context = seekEvent(new TmfLongLocation(sortedFile.getPosition(rank)));
+        context.setRank(sortedFile.getIndexedRank(rank));
+        return context;
     }
 
     @Override
@@ -183,20 +216,20 @@ public class ChromiumTrace extends TmfTrace implements ITmfPersistentlyIndexable
     public ITmfEvent parseEvent(ITmfContext context) {
         @Nullable
         ITmfLocation location = context.getLocation();
-        if (location instanceof TmfLongLocation) {
+        SortedEventFile sortedFile = fSortedFile;
+        if (location instanceof TmfLongLocation && sortedFile != null) {
             TmfLongLocation tmfLongLocation = (TmfLongLocation) location;
             Long locationInfo = tmfLongLocation.getLocationInfo();
             if (location.equals(NULL_LOCATION)) {
-                locationInfo = 0L;
+                locationInfo = (long) SortedEventFile.HEADER_SIZE;
             }
             if (locationInfo != null) {
                 try {
                     if (!locationInfo.equals(fFileInput.getFilePointer())) {
                         fFileInput.seek(locationInfo);
                     }
-                    String nextJson = readNextEventString(() -> (char) fFileInput.read());
-                    if (nextJson != null) {
-                        TraceEventField field = TraceEventEvent.parseJson(nextJson);
+                    if (fFileInput.getFilePointer() < sortedFile.getDataEnd()) {
+                        TraceEventField field = SortedEventFile.decode(SortedEventFile.readEvent(fFileInput));
                         return new TraceEventEvent(this, context.getRank(), field);
                     }
                 } catch (IOException e) {
@@ -1,197 +1,219 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
 package org.eclipse.tracecompass.analysis.chromium.core.trace;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.List;
 import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jdt.annotation.Nullable;
-import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
-import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
-
+import org.eclipse.tracecompass.internal.analysis.chromium.core.Activator;
+import org.eclipse.tracecompass.internal.analysis.chromium.core.event.TraceEventField;
+import org.eclipse.tracecompass.internal.analysis.chromium.core.event.TraceEventTokenizer;
+import org.eclipse.tracecompass.internal.analysis.chromium.core.trace.SortedEventFile;
+
+/**
+ * Job sorting the events of a trace into a {@link SortedEventFile}. The JSON
+ * file is split into chunks of events, which are parsed, sorted and written
+ * to temporary files in parallel, then the chunks are merged.
+ */
 final class SortingJob extends Job {
     private static final int CHUNK_SIZE = 65535;
-
-    private static final class Pair implements Comparable<Pair> {
-        public Pair(String string, int i) {
-            line = string;
-            String key = "\"ts\":"; //$NON-NLS-1$
-            int indexOf = string.indexOf(key);
-            if (indexOf < 0) {
-                ts = -1;
-            } else {
-                int index = indexOf + key.length();
-                int end = string.indexOf(',', index);
-                if (end == -1) {
-                    end = string.indexOf('}', index);
-                }
-                String number = string.substring(index, end).trim();
-                ts = 0;
-                for (char s : number.toCharArray()) {
-                    if (s == '.') {
-                        continue;
-                    }
-                    if (s < '0' || s > '9') {
-                        throw new IllegalStateException("invalid string " + number); //$NON-NLS-1$
-                    }
-                    ts = (ts * 10) + (s - '0');
-                }
-                pos = i;
-            }
-        }
-
-        long ts;
-        String line;
-        int pos;
-
-        @Override
-        public int compareTo(Pair o) {
-            return Long.compare(ts, o.ts);
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Head of a sorted chunk during the merge
+     */
+    private static final class ChunkHead {
+        private final long fTs;
+        private final byte[] fEvent;
+        private final int fChunk;
+
+        public ChunkHead(byte[] event, int chunk) {
+            fTs = SortedEventFile.getTimestamp(event);
+            fEvent = event;
+            fChunk = chunk;
         }
     }
 
+    /* Equal timestamps keep the order of the trace */
+    private static final Comparator<ChunkHead> HEAD_COMPARATOR = Comparator.<ChunkHead> comparingLong(head -> head.fTs).thenComparingInt(head -> head.fChunk);
+
     private final String fPath;
-    private final ITmfTrace fTrace;
+    private final File fTarget;
+    private final File fTempDir;
 
-    public SortingJob(ITmfTrace trace, String path) {
+    public SortingJob(String path, File target) {
         super("Sorting Trace...");
-        fTrace = trace;
         fPath = path;
-
+        fTarget = target;
+        fTempDir = new File(target.getPath() + ".tmp"); //$NON-NLS-1$
     }
 
     @Override
     protected IStatus run(IProgressMonitor monitor) {
-        String dir = TmfTraceManager.getSupplementaryFileDir(fTrace);
-
         monitor.beginTask("Sorting", IProgressMonitor.UNKNOWN);
         monitor.subTask("Splitting up trace into segments");
-        File tempDir = new File(dir + ".tmp"); //$NON-NLS-1$
-        tempDir.mkdirs();
+        fTempDir.mkdirs();
+        int nbThreads = Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = Executors.newFixedThreadPool(nbThreads);
         List<File> tracelings = new ArrayList<>();
-        try (BufferedInputStream parser = new BufferedInputStream(new FileInputStream(fPath))) {
-            char data = (char) parser.read();
-            while (data != '[') {
-                data = (char) parser.read();
-            }
-            List<Pair> events = new ArrayList<>(CHUNK_SIZE);
-            String eventString = ChromiumTrace.readNextEventString(() -> (char) parser.read());
-            if (eventString == null) {
-                return new Status(IStatus.ERROR, "trace", "null");
-            }
-            Pair line = new Pair(eventString, 0);
-            line.line = data + '"' + line.line;
-            int cnt = 0;
-            int filen = 0;
-            while (eventString != null) {
-                while (cnt < CHUNK_SIZE) {
-                    events.add(line);
-                    monitor.worked(1);
+        boolean complete = false;
+        try {
+            Deque<Future<File>> pending = new ArrayDeque<>();
+            try (BufferedInputStream input = new BufferedInputStream(new FileInputStream(fPath), BUFFER_SIZE)) {
+                TraceEventTokenizer tokenizer = new TraceEventTokenizer(input);
+                if (!tokenizer.skipToEvents()) {
+                    return new Status(IStatus.ERROR, Activator.PLUGIN_ID, "No events in trace " + fPath); //$NON-NLS-1$
+                }
+                List<byte[]> events = new ArrayList<>(CHUNK_SIZE);
+                byte[] event = tokenizer.readNextEvent();
+                while (event != null) {
+                    events.add(event);
+                    if (events.size() == CHUNK_SIZE) {
+                        pending.add(submitChunk(pool, events, tracelings));
+                        events = new ArrayList<>(CHUNK_SIZE);
+                        /* Bound the number of chunks in memory */
+                        while (pending.size() > nbThreads) {
+                            pending.removeFirst().get();
+                        }
+                        monitor.worked(1);
+                    }
                     if (monitor.isCanceled()) {
                         return Status.CANCEL_STATUS;
                     }
-                    eventString = ChromiumTrace.readNextEventString(() -> (char) parser.read());
-                    if (eventString == null) {
-                        break;
-                    }
-                    line = new Pair(eventString, 0);
-                    cnt++;
-                }
-                events.sort((o1, o2) -> Long.compare(o1.ts, o2.ts));
-                cnt = 0;
-                File traceling = new File(tempDir + File.separator + "test" + filen + ".json"); //$NON-NLS-1$ //$NON-NLS-2$
-                tracelings.add(traceling);
-                traceling.createNewFile();
-                try (PrintWriter fs = new PrintWriter(traceling)) {
-                    fs.println('[');
-                    for (Pair sortedEvent : events) {
-                        fs.println(sortedEvent.line + ',');
-                    }
-                    fs.println(']');
+                    event = tokenizer.readNextEvent();
                 }
-                events.clear();
-                filen++;
-                monitor.worked(1);
-                if (monitor.isCanceled()) {
-                    return Status.CANCEL_STATUS;
+                if (!events.isEmpty()) {
+                    pending.add(submitChunk(pool, events, tracelings));
                 }
-
             }
-            monitor.subTask("Merging trace segments");
-            PriorityQueue<Pair> evs = new PriorityQueue<>();
-            List<BufferedInputStream> parsers = new ArrayList<>();
-            int i = 0;
-            for (File traceling : tracelings) {
-                @SuppressWarnings("resource")
-                BufferedInputStream createParser = new BufferedInputStream(new FileInputStream(traceling));
-                while (data != '{') {
-                    data = (char) parser.read();
-                    if (data == (char) -1) {
-                        break;
-                    }
-                }
-                eventString = ChromiumTrace.readNextEventString(() -> (char) createParser.read());
-                Pair parse = new Pair(eventString, i);
-                evs.add(parse);
-                i++;
-                parsers.add(createParser);
-                monitor.worked(1);
-                if (monitor.isCanceled()) {
-                    break;
-                }
+            for (Future<File> chunk : pending) {
+                chunk.get();
             }
             if (monitor.isCanceled()) {
                 return Status.CANCEL_STATUS;
             }
-            File file = new File(dir + File.separator + new File(fTrace.getPath()).getName());
-            file.createNewFile();
 
-            try (PrintWriter tempWriter = new PrintWriter(file)) {
-                tempWriter.println('[');
-                while (!evs.isEmpty()) {
-                    Pair sortedEvent = evs.poll();
-                    Pair parse = readNextEvent(parsers.get(sortedEvent.pos), sortedEvent.pos);
-                    if (parse != null) {
-                        tempWriter.println(sortedEvent.line.trim() + ",");
-                        evs.add(parse);
-                    } else {
-                        tempWriter.println(sortedEvent.line.trim() + (evs.isEmpty() ? "" : ","));
-                    }
-                    monitor.worked(1);
-                    if (monitor.isCanceled()) {
-                        return Status.CANCEL_STATUS;
-                    }
-                }
-                tempWriter.println(']');
-            }
-            for (BufferedInputStream tmpParser : parsers) {
-                tmpParser.close();
+            monitor.subTask("Merging trace segments");
+            if (!merge(tracelings, monitor)) {
+                return Status.CANCEL_STATUS;
             }
-        } catch (IOException e) {
-            // TODO Auto-generated catch block
+            complete = true;
+        } catch (IOException | ExecutionException e) {
+            return new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Error sorting trace " + fPath, e); //$NON-NLS-1$
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Status.CANCEL_STATUS;
         } finally {
+            pool.shutdownNow();
             for (File tl : tracelings) {
                 tl.delete();
             }
-            tempDir.delete();
-
+            fTempDir.delete();
+            if (!complete) {
+                fTarget.delete();
+            }
             monitor.done();
         }
         return Status.OK_STATUS;
+    }
+
+    private Future<File> submitChunk(ExecutorService pool, List<byte[]> events, List<File> tracelings) {
+        File traceling = new File(fTempDir, "chunk" + tracelings.size() + ".bin"); //$NON-NLS-1$ //$NON-NLS-2$
+        tracelings.add(traceling);
+        return pool.submit(() -> sortChunk(events, traceling));
+    }
 
+    /**
+     * Parse, sort and write a chunk of events. The invalid events are dropped.
+     */
+    private static File sortChunk(List<byte[]> events, File traceling) throws IOException {
+        List<byte[]> encoded = new ArrayList<>(events.size());
+        for (byte[] event : events) {
+            TraceEventField field = TraceEventTokenizer.parse(event);
+            if (field != null) {
+                encoded.add(SortedEventFile.encode(field));
+            }
+        }
+        /* The sort is stable, equal timestamps keep the order of the trace */
+        encoded.sort(Comparator.comparingLong(SortedEventFile::getTimestamp));
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(traceling), BUFFER_SIZE))) {
+            for (byte[] event : encoded) {
+                SortedEventFile.writeEvent(out, event);
+            }
+        }
+        return traceling;
     }
 
-    private static @Nullable Pair readNextEvent(BufferedInputStream parser, int i) throws IOException {
-        String event = ChromiumTrace.readNextEventString(() -> (char) parser.read());
-        return event == null ? null : new Pair(event, i);
+    private boolean merge(List<File> tracelings, IProgressMonitor monitor) throws IOException {
+        List<DataInputStream> inputs = new ArrayList<>();
+        try (SortedEventFile.Writer writer = new SortedEventFile.Writer(fTarget)) {
+            PriorityQueue<ChunkHead> heads = new PriorityQueue<>(Math.max(1, tracelings.size()), HEAD_COMPARATOR);
+            for (File traceling : tracelings) {
+                DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(traceling), BUFFER_SIZE));
+                inputs.add(input);
+                ChunkHead head = readNext(input, inputs.size() - 1);
+                if (head != null) {
+                    heads.add(head);
+                }
+            }
+            long count = 0;
+            while (!heads.isEmpty()) {
+                ChunkHead head = heads.poll();
+                writer.append(head.fEvent);
+                ChunkHead next = readNext(inputs.get(head.fChunk), head.fChunk);
+                if (next != null) {
+                    heads.add(next);
+                }
+                if (++count % CHUNK_SIZE == 0) {
+                    monitor.worked(1);
+                    if (monitor.isCanceled()) {
+                        return false;
+                    }
+                }
+            }
+            writer.finish();
+        } finally {
+            for (DataInputStream input : inputs) {
+                input.close();
+            }
+        }
+        return true;
+    }
 
+    private static @Nullable ChunkHead readNext(DataInputStream input, int chunk) throws IOException {
+        try {
+            return new ChunkHead(SortedEventFile.readEvent(input), chunk);
+        } catch (EOFException e) {
+            return null;
+        }
     }
-}
\ No newline at end of file
+}
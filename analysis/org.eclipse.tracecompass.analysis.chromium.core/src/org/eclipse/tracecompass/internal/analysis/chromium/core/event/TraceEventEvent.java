@@ -9,10 +9,8 @@
 
 package org.eclipse.tracecompass.internal.analysis.chromium.core.event;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
 import java.util.logging.Level;
 
 import org.apache.commons.lang3.StringUtils;
@@ -24,8 +22,6 @@ import org.eclipse.tracecompass.tmf.core.event.lookup.ITmfCallsite;
 import org.eclipse.tracecompass.tmf.core.event.lookup.ITmfSourceLookup;
 import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
-import org.json.JSONException;
-import org.json.JSONObject;
 
 /**
  * Trace compass log event
@@ -34,7 +30,6 @@ import org.json.JSONObject;
  */
 public class TraceEventEvent extends TmfEvent implements ITmfSourceLookup {
 
-    private static final double MICRO_TO_NANO = 1000.0;
     private final @Nullable ITmfCallsite fCallsite;
     private final Level fLogLevel;
     private @NonNull final String fName;
@@ -90,80 +85,12 @@ public class TraceEventEvent extends TmfEvent implements ITmfSourceLookup {
      *
      * @param fieldsString
      *            the string
-     * @return an event field
+     * @return an event field, or null if the string is not a valid event
      */
-    public static TraceEventField parseJson(String fieldsString) {
+    public static @Nullable TraceEventField parseJson(String fieldsString) {
         // looks like this
         // {"ts":94824347413117,"phase":"B","tid":39,"name":"TimeGraphView:BuildThread","args"={"trace":"django-httpd"}}
-        JSONObject root;
-        Map<@NonNull String, @NonNull Object> argsMap = new HashMap<>();
-        try {
-            root = new JSONObject(fieldsString);
-            long ts = 0;
-
-            Double tso = optDouble(root, ITraceEventConstants.TIMESTAMP);
-            if (Double.isFinite(tso)) {
-                ts = (long) (tso * MICRO_TO_NANO);
-            }
-            char phase = optString(root, ITraceEventConstants.PHASE, "I").charAt(0); //$NON-NLS-1$
-            String name = String.valueOf(optString(root,ITraceEventConstants.NAME, 'E' == phase ? "exit" : "unknown")); //$NON-NLS-1$ //$NON-NLS-2$
-            Integer tid = optInt(root, ITraceEventConstants.TID);
-            if (tid == Integer.MIN_VALUE) {
-                tid = null;
-            }
-            Object pid = root.opt(ITraceEventConstants.PID);
-            Double duration = optDouble(root, ITraceEventConstants.DURATION);
-            if (Double.isFinite(duration)) {
-                duration = (duration * MICRO_TO_NANO);
-            }
-            String category = optString(root, ITraceEventConstants.CATEGORY);
-            String id = optString(root, ITraceEventConstants.ID);
-            JSONObject args = optJSONObject(root, ITraceEventConstants.ARGS);
-            if (args != null) {
-                Iterator<?> keys = args.keys();
-                while (keys.hasNext()) {
-                    String key = String.valueOf(keys.next());
-                    String value = args.optString(key);
-                    argsMap.put("arg/" + key, String.valueOf(value));
-                }
-            }
-            argsMap.put(ITraceEventConstants.TIMESTAMP, ts);
-            argsMap.put(ITraceEventConstants.PHASE, phase);
-            argsMap.put(ITraceEventConstants.NAME, name);
-            if (tid != null) {
-                argsMap.put(ITraceEventConstants.TID, tid);
-            }
-            if (pid != null) {
-                argsMap.put(ITraceEventConstants.PID, pid);
-            }
-            if (Double.isFinite(duration)) {
-                argsMap.put(ITraceEventConstants.DURATION, duration);
-            }
-            return new TraceEventField(name, ts, phase, pid, tid, category, id, duration, argsMap);
-        } catch (JSONException e1) {
-            // invalid, return null and it will fail
-        }
-        return null;
-    }
-
-    private static double optDouble(JSONObject root, String key) {
-        return root.has(key) ? root.optDouble(key) : Double.NaN;
-    }
-
-    private static int optInt(JSONObject root, String key) {
-        return root.has(key) ? root.optInt(key) : Integer.MIN_VALUE;
-    }
-
-    private static JSONObject optJSONObject(JSONObject root, String key){
-        return root.has(key) ? root.optJSONObject(key) : null;
-    }
-
-    private static String optString(JSONObject root, String key, String defaultValue) {
-        return root.has(key) ? (String) root.optString(key) : defaultValue;
-    }
-
-    private static String optString(JSONObject root, String key) {
-        return optString(root, key, null);
+        return TraceEventTokenizer.parse(fieldsString.getBytes(StandardCharsets.UTF_8));
     }
 
     /**
@@ -0,0 +1,510 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.analysis.chromium.core.event;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Streaming tokenizer for trace event JSON files. It splits the event array
+ * into the bytes of each event object, working on the raw bytes of the file,
+ * and extracts the fields of an event without building a JSON object tree.
+ */
+@NonNullByDefault
+public class TraceEventTokenizer {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int INITIAL_EVENT_SIZE = 256;
+    private static final int EOF = -1;
+    private static final double MICRO_TO_NANO = 1000.0;
+    private static final String ARG_PREFIX = "arg/"; //$NON-NLS-1$
+
+    private final InputStream fInput;
+    private final byte[] fBuffer = new byte[BUFFER_SIZE];
+    private int fBufferPos = 0;
+    private int fBufferEnd = 0;
+    private long fPosition = 0;
+
+    private byte[] fEvent = new byte[INITIAL_EVENT_SIZE];
+
+    /**
+     * Constructor
+     *
+     * @param input
+     *            the stream of the JSON file, it is buffered by the tokenizer
+     */
+    public TraceEventTokenizer(InputStream input) {
+        fInput = input;
+    }
+
+    /**
+     * Get the number of bytes consumed from the stream so far
+     *
+     * @return the position in the stream
+     */
+    public long getPosition() {
+        return fPosition;
+    }
+
+    private int read() throws IOException {
+        if (fBufferPos == fBufferEnd) {
+            int read = fInput.read(fBuffer);
+            if (read <= 0) {
+                return EOF;
+            }
+            fBufferPos = 0;
+            fBufferEnd = read;
+        }
+        fPosition++;
+        return fBuffer[fBufferPos++] & 0xff;
+    }
+
+    /**
+     * Skip the stream up to the start of the event array
+     *
+     * @return true if the start of an array was found
+     * @throws IOException
+     *             if the stream cannot be read
+     */
+    public boolean skipToEvents() throws IOException {
+        int elem = read();
+        while (elem != EOF && elem != '[') {
+            elem = read();
+        }
+        return elem != EOF;
+    }
+
+    /**
+     * Read the bytes of the next event object in the array. The separators
+     * between the events are skipped.
+     *
+     * @return the JSON bytes of the event, or null at the end of the array or
+     *         of the stream
+     * @throws IOException
+     *             if the stream cannot be read
+     */
+    public byte @Nullable [] readNextEvent() throws IOException {
+        int elem = read();
+        while (elem != '{') {
+            if (elem == EOF || elem == ']') {
+                return null;
+            }
+            elem = read();
+        }
+        int length = 0;
+        int scope = 0;
+        boolean inQuotes = false;
+        boolean escaped = false;
+        while (elem != EOF) {
+            if (length == fEvent.length) {
+                fEvent = Arrays.copyOf(fEvent, length * 2);
+            }
+            fEvent[length++] = (byte) elem;
+            if (inQuotes) {
+                if (escaped) {
+                    escaped = false;
+                } else if (elem == '\\') {
+                    escaped = true;
+                } else if (elem == '"') {
+                    inQuotes = false;
+                }
+            } else if (elem == '"') {
+                inQuotes = true;
+            } else if (elem == '{') {
+                scope++;
+            } else if (elem == '}') {
+                scope--;
+                if (scope == 0) {
+                    return Arrays.copyOf(fEvent, length);
+                }
+            }
+            elem = read();
+        }
+        /* Truncated event */
+        return null;
+    }
+
+    // ------------------------------------------------------------------------
+    // Event parsing
+    // ------------------------------------------------------------------------
+
+    /**
+     * Parse the fields of an event
+     *
+     * @param data
+     *            the JSON bytes of the event object
+     * @return the event field, or null if the event is not valid JSON
+     */
+    public static @Nullable TraceEventField parse(byte[] data) {
+        try {
+            return new EventParser(data).parseEvent();
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            // invalid, return null and it will fail
+            return null;
+        }
+    }
+
+    /**
+     * Create an event field from the values of the event
+     *
+     * @param name
+     *            the event name
+     * @param ts
+     *            the timestamp in ns
+     * @param phase
+     *            the phase of the event
+     * @param pid
+     *            the process id
+     * @param tid
+     *            the thread id
+     * @param category
+     *            the category
+     * @param id
+     *            the ID of the event stream
+     * @param duration
+     *            the duration in ns
+     * @param args
+     *            the arguments of the event
+     * @return the event field
+     */
+    public static TraceEventField createField(String name, long ts, char phase, @Nullable Object pid, @Nullable Integer tid,
+            @Nullable String category, @Nullable String id, @Nullable Double duration, Map<String, String> args) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        for (Map.Entry<String, String> arg : args.entrySet()) {
+            fields.put(ARG_PREFIX + arg.getKey(), arg.getValue());
+        }
+        fields.put(ITraceEventConstants.TIMESTAMP, ts);
+        fields.put(ITraceEventConstants.PHASE, phase);
+        fields.put(ITraceEventConstants.NAME, name);
+        if (tid != null) {
+            fields.put(ITraceEventConstants.TID, tid);
+        }
+        if (pid != null) {
+            fields.put(ITraceEventConstants.PID, pid);
+        }
+        if (duration != null) {
+            fields.put(ITraceEventConstants.DURATION, duration);
+        }
+        return new TraceEventField(name, ts, phase, pid, tid, category, id, duration, fields);
+    }
+
+    /**
+     * Single use parser of the bytes of one event object. Only the top level
+     * fields of the event and the first level of its arguments are decoded,
+     * any other value is kept as its JSON text.
+     */
+    private static final class EventParser {
+
+        private final byte[] fData;
+        private int fPos = 0;
+
+        public EventParser(byte[] data) {
+            fData = data;
+        }
+
+        public TraceEventField parseEvent() {
+            double ts = Double.NaN;
+            char phase = 'I';
+            String name = null;
+            Integer tid = null;
+            Object pid = null;
+            double duration = Double.NaN;
+            String category = null;
+            String id = null;
+            Map<String, String> args = new LinkedHashMap<>();
+
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                fPos++;
+            } else {
+                do {
+                    String key = parseKey();
+                    switch (key) {
+                    case ITraceEventConstants.TIMESTAMP:
+                        ts = parseDouble();
+                        break;
+                    case ITraceEventConstants.PHASE:
+                        String phaseString = parseText();
+                        if (phaseString.isEmpty()) {
+                            throw new IllegalArgumentException("Empty phase"); //$NON-NLS-1$
+                        }
+                        phase = phaseString.charAt(0);
+                        break;
+                    case ITraceEventConstants.NAME:
+                        name = parseText();
+                        break;
+                    case ITraceEventConstants.TID:
+                        tid = parseInt();
+                        break;
+                    case ITraceEventConstants.PID:
+                        pid = parsePid();
+                        break;
+                    case ITraceEventConstants.DURATION:
+                        duration = parseDouble();
+                        break;
+                    case ITraceEventConstants.CATEGORY:
+                        category = parseText();
+                        break;
+                    case ITraceEventConstants.ID:
+                        id = parseText();
+                        break;
+                    case ITraceEventConstants.ARGS:
+                        parseArgs(args);
+                        break;
+                    default:
+                        skipValue();
+                        break;
+                    }
+                } while (nextMember());
+            }
+
+            long timestamp = Double.isFinite(ts) ? (long) (ts * MICRO_TO_NANO) : 0;
+            if (name == null) {
+                name = ('E' == phase) ? "exit" : "unknown"; //$NON-NLS-1$ //$NON-NLS-2$
+            }
+            Double dur = Double.isFinite(duration) ? duration * MICRO_TO_NANO : null;
+            return createField(name, timestamp, phase, pid, tid, category, id, dur, args);
+        }
+
+        private void parseArgs(Map<String, String> args) {
+            skipWhitespace();
+            if (peek() != '{') {
+                /* Not an object, ignore it */
+                skipValue();
+                return;
+            }
+            fPos++;
+            skipWhitespace();
+            if (peek() == '}') {
+                fPos++;
+                return;
+            }
+            do {
+                String key = parseKey();
+                args.put(key, parseText());
+            } while (nextMember());
+        }
+
+        /**
+         * Read the separator after a member of an object
+         *
+         * @return true if there is another member, false at the end of the
+         *         object
+         */
+        private boolean nextMember() {
+            skipWhitespace();
+            byte elem = fData[fPos++];
+            if (elem == ',') {
+                return true;
+            }
+            if (elem == '}') {
+                return false;
+            }
+            throw new IllegalArgumentException("Expected , or }"); //$NON-NLS-1$
+        }
+
+        private String parseKey() {
+            skipWhitespace();
+            String key = parseString();
+            skipWhitespace();
+            expect(':');
+            return key;
+        }
+
+        /**
+         * Parse a value as text: strings are unescaped, other values are kept
+         * as their JSON text
+         */
+        private String parseText() {
+            skipWhitespace();
+            if (peek() == '"') {
+                return parseString();
+            }
+            int start = fPos;
+            skipValue();
+            return new String(fData, start, fPos - start, StandardCharsets.UTF_8);
+        }
+
+        private double parseDouble() {
+            String text = parseText();
+            try {
+                return Double.parseDouble(text);
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+
+        private int parseInt() {
+            double value = parseDouble();
+            return Double.isFinite(value) ? (int) value : 0;
+        }
+
+        private @Nullable Object parsePid() {
+            skipWhitespace();
+            if (peek() == '"') {
+                return parseString();
+            }
+            String text = parseText();
+            if ("null".equals(text)) { //$NON-NLS-1$
+                return null;
+            }
+            try {
+                long value = Long.parseLong(text);
+                if (value == (int) value) {
+                    return (int) value;
+                }
+                return value;
+            } catch (NumberFormatException e) {
+                try {
+                    return Double.parseDouble(text);
+                } catch (NumberFormatException e2) {
+                    return text;
+                }
+            }
+        }
+
+        private String parseString() {
+            expect('"');
+            int start = fPos;
+            /* Fast path for strings without escape sequences */
+            while (fData[fPos] != '"') {
+                if (fData[fPos] == '\\') {
+                    return parseEscapedString(start);
+                }
+                fPos++;
+            }
+            String value = new String(fData, start, fPos - start, StandardCharsets.UTF_8);
+            fPos++;
+            return value;
+        }
+
+        private String parseEscapedString(int start) {
+            StringBuilder sb = new StringBuilder(new String(fData, start, fPos - start, StandardCharsets.UTF_8));
+            int chunkStart = fPos;
+            while (fData[fPos] != '"') {
+                if (fData[fPos] != '\\') {
+                    fPos++;
+                    continue;
+                }
+                sb.append(new String(fData, chunkStart, fPos - chunkStart, StandardCharsets.UTF_8));
+                fPos++;
+                byte escaped = fData[fPos++];
+                switch (escaped) {
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'u':
+                    sb.append((char) Integer.parseInt(new String(fData, fPos, 4, StandardCharsets.US_ASCII), 16));
+                    fPos += 4;
+                    break;
+                default:
+                    sb.append((char) escaped);
+                    break;
+                }
+                chunkStart = fPos;
+            }
+            sb.append(new String(fData, chunkStart, fPos - chunkStart, StandardCharsets.UTF_8));
+            fPos++;
+            return sb.toString();
+        }
+
+        /**
+         * Skip a value of any type, including nested objects and arrays
+         */
+        private void skipValue() {
+            skipWhitespace();
+            byte elem = peek();
+            if (elem == '"') {
+                skipString();
+                return;
+            }
+            if (elem == '{' || elem == '[') {
+                int depth = 0;
+                do {
+                    elem = fData[fPos];
+                    if (elem == '"') {
+                        skipString();
+                        continue;
+                    }
+                    if (elem == '{' || elem == '[') {
+                        depth++;
+                    } else if (elem == '}' || elem == ']') {
+                        depth--;
+                    }
+                    fPos++;
+                } while (depth > 0);
+                return;
+            }
+            /* Number or literal */
+            int start = fPos;
+            while (fPos < fData.length && !isDelimiter(fData[fPos])) {
+                fPos++;
+            }
+            if (start == fPos) {
+                throw new IllegalArgumentException("Expected a value"); //$NON-NLS-1$
+            }
+        }
+
+        private void skipString() {
+            expect('"');
+            while (fData[fPos] != '"') {
+                if (fData[fPos] == '\\') {
+                    fPos++;
+                }
+                fPos++;
+            }
+            fPos++;
+        }
+
+        private static boolean isDelimiter(byte elem) {
+            return elem == ',' || elem == '}' || elem == ']' || isWhitespace(elem);
+        }
+
+        private static boolean isWhitespace(byte elem) {
+            return elem == ' ' || elem == '\n' || elem == '\r' || elem == '\t';
+        }
+
+        private void skipWhitespace() {
+            while (isWhitespace(fData[fPos])) {
+                fPos++;
+            }
+        }
+
+        private byte peek() {
+            return fData[fPos];
+        }
+
+        private void expect(char expected) {
+            if (fData[fPos++] != expected) {
+                throw new IllegalArgumentException("Expected " + expected); //$NON-NLS-1$
+            }
+        }
+    }
+}
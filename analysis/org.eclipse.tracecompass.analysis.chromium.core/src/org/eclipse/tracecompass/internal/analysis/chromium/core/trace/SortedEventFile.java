@@ -0,0 +1,410 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.analysis.chromium.core.trace;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.internal.analysis.chromium.core.event.ITraceEventConstants;
+import org.eclipse.tracecompass.internal.analysis.chromium.core.event.TraceEventField;
+import org.eclipse.tracecompass.internal.analysis.chromium.core.event.TraceEventTokenizer;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEventField;
+
+/**
+ * Binary cache of the events of a trace, sorted by timestamp. Reopening a
+ * trace reads this file instead of parsing the JSON again.
+ *
+ * The file starts with a header (magic number, version, number of events and
+ * position of the index), followed by the events, each one an int length and
+ * the encoded event, and ends with an index of the position of every
+ * {@link #INDEX_INTERVAL}th event. The header is written last, so an
+ * incomplete file is never considered valid.
+ */
+public final class SortedEventFile {
+
+    /** Size of the header, in bytes */
+    public static final int HEADER_SIZE = Integer.BYTES * 2 + Long.BYTES * 2;
+
+    /** Number of events between two entries of the index */
+    public static final int INDEX_INTERVAL = 1024;
+
+    private static final int MAGIC = 0x54434A53;
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final byte PID_NULL = 0;
+    private static final byte PID_INT = 1;
+    private static final byte PID_LONG = 2;
+    private static final byte PID_DOUBLE = 3;
+    private static final byte PID_STRING = 4;
+
+    private final long fNbEvents;
+    private final long fDataEnd;
+    private final long[] fIndex;
+
+    private SortedEventFile(long nbEvents, long dataEnd, long[] index) {
+        fNbEvents = nbEvents;
+        fDataEnd = dataEnd;
+        fIndex = index;
+    }
+
+    /**
+     * Read the header and index of a sorted file
+     *
+     * @param file
+     *            the file
+     * @return the sorted file, or null if the file is not a complete sorted
+     *         file of this version
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    public static @Nullable SortedEventFile open(RandomAccessFile file) throws IOException {
+        long length = file.length();
+        if (length < HEADER_SIZE) {
+            return null;
+        }
+        file.seek(0);
+        if (file.readInt() != MAGIC || file.readInt() != VERSION) {
+            return null;
+        }
+        long nbEvents = file.readLong();
+        long indexPosition = file.readLong();
+        if (indexPosition < HEADER_SIZE || indexPosition + Integer.BYTES > length) {
+            return null;
+        }
+        file.seek(indexPosition);
+        int indexSize = file.readInt();
+        if (indexSize < 0 || indexPosition + Integer.BYTES + (long) indexSize * Long.BYTES > length) {
+            /* Truncated index */
+            return null;
+        }
+        long[] index = new long[indexSize];
+        for (int i = 0; i < index.length; i++) {
+            index[i] = file.readLong();
+        }
+        file.seek(HEADER_SIZE);
+        return new SortedEventFile(nbEvents, indexPosition, index);
+    }
+
+    /**
+     * Get the number of events in the file
+     *
+     * @return the number of events
+     */
+    public long getNbEvents() {
+        return fNbEvents;
+    }
+
+    /**
+     * Get the position of the end of the events
+     *
+     * @return the position after the last event
+     */
+    public long getDataEnd() {
+        return fDataEnd;
+    }
+
+    /**
+     * Get the position of the last indexed event at or before a rank
+     *
+     * @param rank
+     *            the rank of the event
+     * @return the position of an event at or before this rank
+     */
+    public long getPosition(long rank) {
+        if (fIndex.length == 0) {
+            return HEADER_SIZE;
+        }
+        long entry = Math.max(0, Math.min(rank / INDEX_INTERVAL, fIndex.length - 1));
+        return fIndex[(int) entry];
+    }
+
+    /**
+     * Get the rank of the event at the position returned by
+     * {@link #getPosition(long)}
+     *
+     * @param rank
+     *            the rank of the event
+     * @return the rank of the indexed event
+     */
+    public long getIndexedRank(long rank) {
+        if (fIndex.length == 0) {
+            return 0;
+        }
+        return Math.max(0, Math.min(rank / INDEX_INTERVAL, fIndex.length - 1)) * INDEX_INTERVAL;
+    }
+
+    // ------------------------------------------------------------------------
+    // Event encoding
+    // ------------------------------------------------------------------------
+
+    /**
+     * Encode an event. The encoded event starts with its timestamp.
+     *
+     * @param field
+     *            the event field
+     * @return the encoded event
+     */
+    public static byte[] encode(TraceEventField field) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(field.getTs());
+            out.writeChar(field.getPhase());
+            writeString(out, field.getName());
+            Object pid = field.getPid();
+            if (pid == null) {
+                out.writeByte(PID_NULL);
+            } else if (pid instanceof Integer) {
+                out.writeByte(PID_INT);
+                out.writeInt((Integer) pid);
+            } else if (pid instanceof Long) {
+                out.writeByte(PID_LONG);
+                out.writeLong((Long) pid);
+            } else if (pid instanceof Double) {
+                out.writeByte(PID_DOUBLE);
+                out.writeDouble((Double) pid);
+            } else {
+                out.writeByte(PID_STRING);
+                writeString(out, String.valueOf(pid));
+            }
+            Integer tid = field.getTid();
+            out.writeBoolean(tid != null);
+            if (tid != null) {
+                out.writeInt(tid);
+            }
+            writeString(out, field.getCategory());
+            writeString(out, field.getId());
+            /* The field keeps the duration in ns as a long, use the exact value */
+            ITmfEventField durationField = field.getContent().getField(ITraceEventConstants.DURATION);
+            Object duration = (durationField == null) ? null : durationField.getValue();
+            out.writeBoolean(duration instanceof Double);
+            if (duration instanceof Double) {
+                out.writeDouble((Double) duration);
+            }
+            Map<String, Object> args = field.getArgs();
+            if (args == null) {
+                out.writeInt(0);
+            } else {
+                out.writeInt(args.size());
+                for (Map.Entry<String, Object> arg : args.entrySet()) {
+                    writeString(out, arg.getKey());
+                    writeString(out, String.valueOf(arg.getValue()));
+                }
+            }
+        } catch (IOException e) {
+            /* Cannot happen when writing to memory */
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Get the timestamp of an encoded event
+     *
+     * @param event
+     *            the encoded event
+     * @return the timestamp in ns
+     */
+    public static long getTimestamp(byte[] event) {
+        return ByteBuffer.wrap(event).getLong(0);
+    }
+
+    /**
+     * Decode an event
+     *
+     * @param event
+     *            the encoded event
+     * @return the event field
+     * @throws IOException
+     *             if the event is not valid
+     */
+    public static TraceEventField decode(byte[] event) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(event));
+        long ts = in.readLong();
+        char phase = in.readChar();
+        String name = String.valueOf(readString(in));
+        Object pid;
+        byte pidType = in.readByte();
+        switch (pidType) {
+        case PID_NULL:
+            pid = null;
+            break;
+        case PID_INT:
+            pid = in.readInt();
+            break;
+        case PID_LONG:
+            pid = in.readLong();
+            break;
+        case PID_DOUBLE:
+            pid = in.readDouble();
+            break;
+        case PID_STRING:
+            pid = readString(in);
+            break;
+        default:
+            throw new IOException("Invalid pid type " + pidType); //$NON-NLS-1$
+        }
+        Integer tid = in.readBoolean() ? in.readInt() : null;
+        String category = readString(in);
+        String id = readString(in);
+        Double duration = in.readBoolean() ? in.readDouble() : null;
+        int nbArgs = in.readInt();
+        Map<String, String> args = new LinkedHashMap<>();
+        for (int i = 0; i < nbArgs; i++) {
+            args.put(String.valueOf(readString(in)), String.valueOf(readString(in)));
+        }
+        return TraceEventTokenizer.createField(name, ts, phase, pid, tid, category, id, duration, args);
+    }
+
+    /**
+     * Read the next event of a file of events, written by
+     * {@link #writeEvent(DataOutput, byte[])}
+     *
+     * @param in
+     *            the input
+     * @return the encoded event
+     * @throws IOException
+     *             if the event cannot be read
+     */
+    public static byte[] readEvent(DataInput in) throws IOException {
+        byte[] event = new byte[in.readInt()];
+        in.readFully(event);
+        return event;
+    }
+
+    /**
+     * Write an event to a file of events
+     *
+     * @param out
+     *            the output
+     * @param event
+     *            the encoded event
+     * @throws IOException
+     *             if the event cannot be written
+     */
+    public static void writeEvent(DataOutput out, byte[] event) throws IOException {
+        out.writeInt(event.length);
+        out.write(event);
+    }
+
+    private static void writeString(DataOutput out, @Nullable String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static @Nullable String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ------------------------------------------------------------------------
+    // Writer
+    // ------------------------------------------------------------------------
+
+    /**
+     * Writer of a sorted file, the events must be appended in order
+     */
+    public static final class Writer implements Closeable {
+
+        private final File fFile;
+        private final DataOutputStream fOut;
+        private long fPosition = HEADER_SIZE;
+        private long fNbEvents = 0;
+        private long[] fIndex = new long[16];
+        private int fIndexSize = 0;
+
+        /**
+         * Constructor
+         *
+         * @param file
+         *            the file to write, it is overwritten
+         * @throws IOException
+         *             if the file cannot be written
+         */
+        public Writer(File file) throws IOException {
+            fFile = file;
+            fOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+            /* The header is written when the file is complete */
+            fOut.write(new byte[HEADER_SIZE]);
+        }
+
+        /**
+         * Append an event
+         *
+         * @param event
+         *            the encoded event
+         * @throws IOException
+         *             if the event cannot be written
+         */
+        public void append(byte[] event) throws IOException {
+            if (fNbEvents % INDEX_INTERVAL == 0) {
+                if (fIndexSize == fIndex.length) {
+                    fIndex = Arrays.copyOf(fIndex, fIndexSize * 2);
+                }
+                fIndex[fIndexSize++] = fPosition;
+            }
+            writeEvent(fOut, event);
+            fPosition += Integer.BYTES + event.length;
+            fNbEvents++;
+        }
+
+        /**
+         * Write the index and the header, making the file valid
+         *
+         * @throws IOException
+         *             if the file cannot be written
+         */
+        public void finish() throws IOException {
+            long indexPosition = fPosition;
+            fOut.writeInt(fIndexSize);
+            for (int i = 0; i < fIndexSize; i++) {
+                fOut.writeLong(fIndex[i]);
+            }
+            fOut.close();
+            try (RandomAccessFile file = new RandomAccessFile(fFile, "rw")) { //$NON-NLS-1$
+                file.writeInt(MAGIC);
+                file.writeInt(VERSION);
+                file.writeLong(fNbEvents);
+                file.writeLong(indexPosition);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            fOut.close();
+        }
+    }
+}
@@ -133,6 +133,12 @@ public abstract class TmfGraphBuilderModule extends TmfAbstractAnalysisModule {
             fProvider.processEvent(event);
         }
 
+        @Override
+        public boolean isIndependent() {
+            /* The graph is only built from the events of this request */
+            return true;
+        }
+
         @Override
         public synchronized void done() {
             super.done();
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.analysis.os.linux.core.tests.inputoutput;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.eclipse.tracecompass.internal.analysis.os.linux.core.inputoutput.DiskWriteModel;
+import org.eclipse.tracecompass.internal.analysis.os.linux.core.inputoutput.Request;
+import org.eclipse.tracecompass.internal.analysis.os.linux.core.inputoutput.RequestQueue;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.tracecompass.statesystem.core.StateSystemFactory;
+import org.eclipse.tracecompass.statesystem.core.backend.StateHistoryBackendFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the {@link RequestQueue} class
+ */
+public class RequestQueueTest {
+
+    private DiskWriteModel fDisk;
+
+    /**
+     * Create the disk of the requests
+     */
+    @Before
+    public void setUp() {
+        ITmfStateSystemBuilder ss = StateSystemFactory.newStateSystem(StateHistoryBackendFactory.createNullBackend("RequestQueueTest"));
+        fDisk = new DiskWriteModel(1, ss);
+    }
+
+    /**
+     * Test adding, replacing and removing requests
+     */
+    @Test
+    public void testPutRemove() {
+        RequestQueue queue = new RequestQueue();
+        Request request = new Request(fDisk, 8, 0);
+        Request other = new Request(fDisk, 8, 1);
+
+        assertNull(queue.getRequest(8));
+        assertEquals(ITmfStateSystem.INVALID_ATTRIBUTE, queue.getQuark(8));
+        assertEquals(ITmfStateSystem.INVALID_ATTRIBUTE, queue.remove(8));
+
+        queue.put(8, request, 3);
+        assertEquals(1, queue.size());
+        assertSame(request, queue.getRequest(8));
+        assertEquals(3, queue.getQuark(8));
+
+        queue.put(8, other, 4);
+        assertEquals(1, queue.size());
+        assertSame(other, queue.getRequest(8));
+        assertEquals(4, queue.getQuark(8));
+
+        assertEquals(4, queue.remove(8));
+        assertEquals(0, queue.size());
+        assertNull(queue.getRequest(8));
+    }
+
+    /**
+     * Test a random sequence of operations against a map, so that the
+     * requests are still found after the table is resized and after entries
+     * are removed from the middle of a collision chain
+     */
+    @Test
+    public void testRandomOperations() {
+        RequestQueue queue = new RequestQueue();
+        Map<Long, Request> requests = new HashMap<>();
+        Map<Long, Integer> quarks = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100000; i++) {
+            /* Aligned sectors, like the ones of real requests */
+            long sector = 8L * random.nextInt(1000);
+            if (random.nextInt(3) == 0) {
+                Integer expected = quarks.remove(sector);
+                requests.remove(sector);
+                assertEquals(expected == null ? ITmfStateSystem.INVALID_ATTRIBUTE : expected.intValue(), queue.remove(sector));
+            } else {
+                Request request = new Request(fDisk, sector, 0);
+                queue.put(sector, request, i);
+                requests.put(sector, request);
+                quarks.put(sector, i);
+            }
+            assertEquals(requests.size(), queue.size());
+        }
+        for (long sector = 0; sector < 8000; sector++) {
+            assertSame(requests.get(sector), queue.getRequest(sector));
+            Integer quark = quarks.get(sector);
+            assertEquals(quark == null ? ITmfStateSystem.INVALID_ATTRIBUTE : quark.intValue(), queue.getQuark(sector));
+        }
+    }
+}
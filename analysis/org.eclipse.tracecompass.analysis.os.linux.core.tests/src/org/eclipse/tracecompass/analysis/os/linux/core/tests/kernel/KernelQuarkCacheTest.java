@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.analysis.os.linux.core.tests.kernel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.Attributes;
+import org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.handlers.KernelQuarkCache;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.tracecompass.statesystem.core.StateSystemFactory;
+import org.eclipse.tracecompass.statesystem.core.backend.StateHistoryBackendFactory;
+import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
+import org.junit.Test;
+
+/**
+ * Test the {@link KernelQuarkCache} class
+ */
+public class KernelQuarkCacheTest {
+
+    private static final int NB_CPUS = 8;
+    private static final int[] TIDS = { 1, 2, 100, 32768, 4194303, Integer.MAX_VALUE, -1 };
+
+    private static ITmfStateSystemBuilder createStateSystem() {
+        return StateSystemFactory.newStateSystem(StateHistoryBackendFactory.createNullBackend("KernelQuarkCacheTest"));
+    }
+
+    /**
+     * Test that the quarks of the CPU attributes are the ones of their paths
+     */
+    @Test
+    public void testCpuQuarks() {
+        ITmfStateSystemBuilder ss = createStateSystem();
+        KernelQuarkCache quarks = new KernelQuarkCache();
+        for (int i = 0; i < 2; i++) {
+            for (int cpu = 0; cpu < NB_CPUS; cpu++) {
+                String cpuName = String.valueOf(cpu);
+                assertEquals(ss.getQuarkAbsoluteAndAdd(Attributes.CPUS, cpuName), quarks.getCpuNode(ss, cpu));
+                assertEquals(ss.getQuarkAbsoluteAndAdd(Attributes.CPUS, cpuName, Attributes.CURRENT_THREAD), quarks.getCurrentThreadQuark(ss, cpu));
+                assertEquals(ss.getQuarkAbsoluteAndAdd(Attributes.CPUS, cpuName, Attributes.IRQS, "42"), quarks.getIrqQuark(ss, cpu, 42));
+                assertEquals(ss.getQuarkAbsoluteAndAdd(Attributes.CPUS, cpuName, Attributes.SOFT_IRQS, "3"), quarks.getSoftIrqQuark(ss, cpu, 3));
+            }
+        }
+    }
+
+    /**
+     * Test that the quarks of the thread attributes are the ones of their
+     * paths, with one thread 0 per CPU
+     */
+    @Test
+    public void testThreadQuarks() {
+        ITmfStateSystemBuilder ss = createStateSystem();
+        KernelQuarkCache quarks = new KernelQuarkCache();
+        for (int i = 0; i < 2; i++) {
+            for (int tid : TIDS) {
+                String threadName = String.valueOf(tid);
+                int threadNode = quarks.getThreadNode(ss, tid, null);
+                assertEquals(ss.getQuarkAbsoluteAndAdd(Attributes.THREADS, threadName), threadNode);
+                assertEquals(ss.getQuarkAbsoluteAndAdd(Attributes.THREADS, threadName, Attributes.PPID), quarks.getPpidQuark(ss, threadNode));
+                assertEquals(ss.getQuarkAbsoluteAndAdd(Attributes.THREADS, threadName, Attributes.EXEC_NAME), quarks.getExecNameQuark(ss, threadNode));
+                assertEquals(ss.getQuarkAbsoluteAndAdd(Attributes.THREADS, threadName, Attributes.PRIO), quarks.getPrioQuark(ss, threadNode));
+                assertEquals(ss.getQuarkAbsoluteAndAdd(Attributes.THREADS, threadName, Attributes.SYSTEM_CALL), quarks.getSystemCallQuark(ss, threadNode));
+            }
+            for (int cpu = 0; cpu < NB_CPUS; cpu++) {
+                assertEquals(ss.getQuarkAbsoluteAndAdd(Attributes.THREADS, Attributes.THREAD_0_PREFIX + cpu), quarks.getThreadNode(ss, 0, cpu));
+            }
+        }
+        assertEquals(ITmfStateSystem.INVALID_ATTRIBUTE, quarks.getThreadNode(ss, 0, null));
+    }
+
+    /**
+     * Test the node of the thread running on a CPU
+     */
+    @Test
+    public void testCurrentThreadNode() {
+        ITmfStateSystemBuilder ss = createStateSystem();
+        KernelQuarkCache quarks = new KernelQuarkCache();
+        int cpu = 1;
+        assertEquals(ss.getQuarkAbsoluteAndAdd(Attributes.THREADS, "-1"), quarks.getCurrentThreadNode(ss, cpu));
+        ss.modifyAttribute(10, TmfStateValue.newValueInt(0), quarks.getCurrentThreadQuark(ss, cpu));
+        assertEquals(ss.getQuarkAbsoluteAndAdd(Attributes.THREADS, "0_1"), quarks.getCurrentThreadNode(ss, cpu));
+        ss.modifyAttribute(20, TmfStateValue.newValueInt(1234), quarks.getCurrentThreadQuark(ss, cpu));
+        assertEquals(ss.getQuarkAbsoluteAndAdd(Attributes.THREADS, "1234"), quarks.getCurrentThreadNode(ss, cpu));
+    }
+
+    /**
+     * Test that the cache is cleared when it is used with another state system
+     */
+    @Test
+    public void testOtherStateSystem() {
+        ITmfStateSystemBuilder ss = createStateSystem();
+        KernelQuarkCache quarks = new KernelQuarkCache();
+        /* Create some attributes in the first state system only */
+        ss.getQuarkAbsoluteAndAdd("Other");
+        int threadNode = quarks.getThreadNode(ss, 1000, null);
+        int systemCallQuark = quarks.getSystemCallQuark(ss, threadNode);
+
+        ITmfStateSystemBuilder other = createStateSystem();
+        int otherThreadNode = quarks.getThreadNode(other, 1000, null);
+        assertNotEquals(threadNode, otherThreadNode);
+        assertEquals(other.getQuarkAbsoluteAndAdd(Attributes.THREADS, "1000"), otherThreadNode);
+        int otherSystemCallQuark = quarks.getSystemCallQuark(other, otherThreadNode);
+        assertNotEquals(systemCallQuark, otherSystemCallQuark);
+        assertEquals(other.getQuarkAbsoluteAndAdd(Attributes.THREADS, "1000", Attributes.SYSTEM_CALL), otherSystemCallQuark);
+    }
+}
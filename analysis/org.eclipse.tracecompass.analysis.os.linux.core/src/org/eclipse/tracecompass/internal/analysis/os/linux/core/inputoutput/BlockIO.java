@@ -18,7 +18,7 @@ import org.eclipse.tracecompass.analysis.os.linux.core.inputoutput.IoOperationTy
  */
 public class BlockIO {
 
-    private final Long fSector;
+    private final long fSector;
     private final int fNrSector;
     private final DiskWriteModel fDisk;
     private final IoOperationType fType;
@@ -35,7 +35,7 @@ public class BlockIO {
      * @param rwbs
      *            The rwbs value of a block operation
      */
-    public BlockIO(Long sector, int nr_sector, DiskWriteModel disk, int rwbs) {
+    public BlockIO(long sector, int nr_sector, DiskWriteModel disk, int rwbs) {
         fSector = sector;
         fNrSector = nr_sector;
         fDisk = disk;
@@ -47,7 +47,7 @@ public class BlockIO {
      *
      * @return The base sector
      */
-    public Long getSector() {
+    public long getSector() {
         return fSector;
     }
 
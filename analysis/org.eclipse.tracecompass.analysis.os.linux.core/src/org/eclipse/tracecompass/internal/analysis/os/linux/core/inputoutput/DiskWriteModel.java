@@ -9,8 +9,7 @@
 
 package org.eclipse.tracecompass.internal.analysis.os.linux.core.inputoutput;
 
-import java.util.HashMap;
-import java.util.Map;
+import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.analysis.os.linux.core.inputoutput.Attributes;
@@ -27,7 +26,6 @@ import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
 import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
 import org.eclipse.tracecompass.tmf.core.statesystem.TmfAttributePool;
 import org.eclipse.tracecompass.tmf.core.statesystem.TmfAttributePool.QueueType;
-import org.eclipse.tracecompass.tmf.core.util.Pair;
 
 /**
  * Class that represents a disk on a system. This class provides operation to
@@ -37,11 +35,18 @@ import org.eclipse.tracecompass.tmf.core.util.Pair;
  * @since 2.0
  */
 public class DiskWriteModel extends Disk {
-    private final Map<Long, Pair<Request, Integer>> fDriverQueue = new HashMap<>();
-    private final Map<Long, Pair<Request, Integer>> fWaitingQueue = new HashMap<>();
+    private final RequestQueue fDriverQueue = new RequestQueue();
+    private final RequestQueue fWaitingQueue = new RequestQueue();
     private final ITmfStateSystemBuilder fSs;
     private final TmfAttributePool fWaitingQueueAttrib;
     private final TmfAttributePool fDriverQueueAttrib;
+    private final int fSectorsWrittenQuark;
+    private final int fSectorsReadQuark;
+    private final int fWaitingQueueLengthQuark;
+    private final int fDriverQueueLengthQuark;
+    /* The queue lengths last saved to the state system, -1 if not saved yet */
+    private int fWaitingQueueLength = -1;
+    private int fDriverQueueLength = -1;
 
     /**
      * Constructor
@@ -56,14 +61,14 @@ public class DiskWriteModel extends Disk {
         fSs = ss;
         int diskQuark = getQuark();
         /* Initialize the state system for this disk */
-        fSs.getQuarkRelativeAndAdd(diskQuark, Attributes.SECTORS_WRITTEN);
-        fSs.getQuarkRelativeAndAdd(diskQuark, Attributes.SECTORS_READ);
+        fSectorsWrittenQuark = fSs.getQuarkRelativeAndAdd(diskQuark, Attributes.SECTORS_WRITTEN);
+        fSectorsReadQuark = fSs.getQuarkRelativeAndAdd(diskQuark, Attributes.SECTORS_READ);
         int wqQuark = fSs.getQuarkRelativeAndAdd(diskQuark, Attributes.WAITING_QUEUE);
         fWaitingQueueAttrib = new TmfAttributePool(fSs, wqQuark, QueueType.PRIORITY);
-        fSs.getQuarkRelativeAndAdd(diskQuark, Attributes.WAITING_QUEUE_LENGTH);
+        fWaitingQueueLengthQuark = fSs.getQuarkRelativeAndAdd(diskQuark, Attributes.WAITING_QUEUE_LENGTH);
         int dqQuark = fSs.getQuarkRelativeAndAdd(diskQuark, Attributes.DRIVER_QUEUE);
         fDriverQueueAttrib = new TmfAttributePool(fSs, dqQuark, QueueType.PRIORITY);
-        fSs.getQuarkRelativeAndAdd(diskQuark, Attributes.DRIVER_QUEUE_LENGTH);
+        fDriverQueueLengthQuark = fSs.getQuarkRelativeAndAdd(diskQuark, Attributes.DRIVER_QUEUE_LENGTH);
     }
 
     @Override
@@ -84,12 +89,8 @@ public class DiskWriteModel extends Disk {
      * @return The request corresponding to this sector, or null if no request
      *         available
      */
-    public @Nullable Request getWaitingRequest(Long sector) {
-        Pair<Request, Integer> reqQuark = fWaitingQueue.get(sector);
-        if (reqQuark == null) {
-            return null;
-        }
-        return reqQuark.getFirst();
+    public @Nullable Request getWaitingRequest(long sector) {
+        return fWaitingQueue.getRequest(sector);
     }
 
     /**
@@ -103,12 +104,11 @@ public class DiskWriteModel extends Disk {
      *         {@link ITmfStateSystem.INVALID_ATTRIBUTE} if the request was not
      *         present
      */
-    private int removeWaitingRequest(long ts, Long sector) {
-        Pair<Request, Integer> reqQuark = fWaitingQueue.remove(sector);
-        if (reqQuark == null) {
+    private int removeWaitingRequest(long ts, long sector) {
+        int slotQuark = fWaitingQueue.remove(sector);
+        if (slotQuark == ITmfStateSystem.INVALID_ATTRIBUTE) {
             return ITmfStateSystem.INVALID_ATTRIBUTE;
         }
-        int slotQuark = reqQuark.getSecond();
         fWaitingQueueAttrib.recycle(slotQuark, ts);
         return slotQuark;
     }
@@ -148,7 +148,7 @@ public class DiskWriteModel extends Disk {
         } catch (StateValueTypeException e) {
             Activator.getDefault().logError("Error inserting request", e); //$NON-NLS-1$
         }
-        fWaitingQueue.put(request.getSector(), new Pair<>(request, slotQuark));
+        fWaitingQueue.put(request.getSector(), request, slotQuark);
 
         return slotQuark;
     }
@@ -168,17 +168,16 @@ public class DiskWriteModel extends Disk {
      *            The original base sector of this request.
      * @return The quark of the request that has been updated
      */
-    public int updateWaitingRequest(long ts, Request request, Long initialSector) {
-        Pair<Request, Integer> reqQuark = fWaitingQueue.get(initialSector);
-        if (reqQuark == null) {
+    public int updateWaitingRequest(long ts, Request request, long initialSector) {
+        int slotQuark = fWaitingQueue.getQuark(initialSector);
+        if (slotQuark == ITmfStateSystem.INVALID_ATTRIBUTE) {
             return addWaitingRequest(ts, request);
-        } else if (!initialSector.equals(request.getSector())) {
+        } else if (initialSector != request.getSector()) {
+            Request queued = checkNotNull(fWaitingQueue.getRequest(initialSector));
             fWaitingQueue.remove(initialSector);
-            fWaitingQueue.put(request.getSector(), reqQuark);
+            fWaitingQueue.put(request.getSector(), queued, slotQuark);
         }
 
-        int slotQuark = reqQuark.getSecond();
-
         /*
          * Update the sector, number of sectors and merged in request in waiting
          * queue
@@ -217,12 +216,8 @@ public class DiskWriteModel extends Disk {
      * @return The request corresponding to this sector, or null if no request
      *         available
      */
-    public @Nullable Request getDriverRequest(Long sector) {
-        Pair<Request, Integer> reqQuark = fDriverQueue.get(sector);
-        if (reqQuark == null) {
-            return null;
-        }
-        return reqQuark.getFirst();
+    public @Nullable Request getDriverRequest(long sector) {
+        return fDriverQueue.getRequest(sector);
     }
 
     /**
@@ -233,12 +228,12 @@ public class DiskWriteModel extends Disk {
      * @param sector
      *            The sector where the requests starts
      */
-    private void removeDriverRequest(long ts, Long sector) {
-        Pair<Request, Integer> reqQuark = fDriverQueue.remove(sector);
-        if (reqQuark == null) {
+    private void removeDriverRequest(long ts, long sector) {
+        int slotQuark = fDriverQueue.remove(sector);
+        if (slotQuark == ITmfStateSystem.INVALID_ATTRIBUTE) {
             return;
         }
-        fDriverQueueAttrib.recycle(reqQuark.getSecond(), ts);
+        fDriverQueueAttrib.recycle(slotQuark, ts);
     }
 
     /**
@@ -279,7 +274,7 @@ public class DiskWriteModel extends Disk {
             Activator.getDefault().logError("Error issuing request", e); //$NON-NLS-1$
         }
 
-        fDriverQueue.put(request.getSector(), new Pair<>(request, slotQuark));
+        fDriverQueue.put(request.getSector(), request, slotQuark);
         updateQueuesLength(ts);
         return slotQuark;
     }
@@ -299,12 +294,10 @@ public class DiskWriteModel extends Disk {
         try {
             switch (request.getType()) {
             case READ:
-                int readQuark = fSs.getQuarkRelativeAndAdd(getQuark(), Attributes.SECTORS_READ);
-                StateSystemBuilderUtils.incrementAttributeInt(fSs, ts, readQuark, request.getNrSector());
+                StateSystemBuilderUtils.incrementAttributeInt(fSs, ts, fSectorsReadQuark, request.getNrSector());
                 break;
             case WRITE:
-                int writtenQuark = fSs.getQuarkRelativeAndAdd(getQuark(), Attributes.SECTORS_WRITTEN);
-                StateSystemBuilderUtils.incrementAttributeInt(fSs, ts, writtenQuark, request.getNrSector());
+                StateSystemBuilderUtils.incrementAttributeInt(fSs, ts, fSectorsWrittenQuark, request.getNrSector());
                 break;
             default:
                 throw new IllegalStateException("Complete request: the request cannot be other than READ or WRITE:" + request.getType()); //$NON-NLS-1$
@@ -331,7 +324,7 @@ public class DiskWriteModel extends Disk {
      */
     public void mergeRequests(long ts, Request baseRequest, Request mergedRequest) {
         int mergedQuark = removeWaitingRequest(ts, mergedRequest.getSector());
-        Long baseSector = baseRequest.getSector();
+        long baseSector = baseRequest.getSector();
         baseRequest.mergeRequest(mergedRequest);
         int baseQuark = updateWaitingRequest(ts, baseRequest, baseSector);
         if (mergedQuark != ITmfStateSystem.INVALID_ATTRIBUTE) {
@@ -357,12 +350,22 @@ public class DiskWriteModel extends Disk {
         return fDriverQueue.size();
     }
 
+    /**
+     * Save the lengths of the queues to the state system, if they changed
+     * since they were last saved
+     */
     private void updateQueuesLength(long ts) {
         try {
-            int fDriverQueueLength = fSs.getQuarkRelativeAndAdd(getQuark(), Attributes.DRIVER_QUEUE_LENGTH);
-            fSs.modifyAttribute(ts, TmfStateValue.newValueInt(getDriverQueueSize()), fDriverQueueLength);
-            int fWaitinQueueLength = fSs.getQuarkRelativeAndAdd(getQuark(), Attributes.WAITING_QUEUE_LENGTH);
-            fSs.modifyAttribute(ts, TmfStateValue.newValueInt(getWaitingQueueSize()), fWaitinQueueLength);
+            int driverQueueLength = getDriverQueueSize();
+            if (driverQueueLength != fDriverQueueLength) {
+                fSs.modifyAttribute(ts, TmfStateValue.newValueInt(driverQueueLength), fDriverQueueLengthQuark);
+                fDriverQueueLength = driverQueueLength;
+            }
+            int waitingQueueLength = getWaitingQueueSize();
+            if (waitingQueueLength != fWaitingQueueLength) {
+                fSs.modifyAttribute(ts, TmfStateValue.newValueInt(waitingQueueLength), fWaitingQueueLengthQuark);
+                fWaitingQueueLength = waitingQueueLength;
+            }
         } catch (StateValueTypeException e) {
             Activator.getDefault().logError("Error updating queues lengths", e); //$NON-NLS-1$
         }
@@ -23,7 +23,7 @@ import org.eclipse.tracecompass.analysis.os.linux.core.inputoutput.IoOperationTy
  */
 public class Request {
 
-    private Long fSector;
+    private long fSector;
     private int fNrSector;
     private final DiskWriteModel fDisk;
     private final List<BlockIO> fBios = new ArrayList<>();
@@ -40,7 +40,7 @@ public class Request {
      * @param rwbs
      *            The read/write bits
      */
-    public Request(DiskWriteModel disk, Long sector, int rwbs) {
+    public Request(DiskWriteModel disk, long sector, int rwbs) {
         fSector = sector;
         fNrSector = 0;
         fDisk = disk;
@@ -66,7 +66,7 @@ public class Request {
      *
      * @return The base sector
      */
-    public Long getSector() {
+    public long getSector() {
         return fSector;
     }
 
@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.analysis.os.linux.core.inputoutput;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+
+/**
+ * Queue of the requests of a disk, indexed by their base sector, with the
+ * quark of the slot each request uses in the state system.
+ *
+ * The sectors and quarks are kept in primitive arrays of an open addressing
+ * hash table, so adding, finding and removing a request does not box the
+ * sector nor allocate an entry.
+ */
+public final class RequestQueue {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] fSectors = new long[INITIAL_CAPACITY];
+    /* A null request is an empty slot of the table */
+    private @Nullable Request[] fRequests = new @Nullable Request[INITIAL_CAPACITY];
+    private int[] fQuarks = new int[INITIAL_CAPACITY];
+    private int fSize = 0;
+
+    /**
+     * Get the number of requests in the queue
+     *
+     * @return The queue size
+     */
+    public int size() {
+        return fSize;
+    }
+
+    /**
+     * Get the request starting at a sector
+     *
+     * @param sector
+     *            The base sector of the request
+     * @return The request, or null if there is no request at this sector
+     */
+    public @Nullable Request getRequest(long sector) {
+        int index = indexOf(sector);
+        return (index < 0 ? null : fRequests[index]);
+    }
+
+    /**
+     * Get the quark of the request starting at a sector
+     *
+     * @param sector
+     *            The base sector of the request
+     * @return The quark of the request's slot, or
+     *         {@link ITmfStateSystem#INVALID_ATTRIBUTE} if there is no request
+     *         at this sector
+     */
+    public int getQuark(long sector) {
+        int index = indexOf(sector);
+        return (index < 0 ? ITmfStateSystem.INVALID_ATTRIBUTE : fQuarks[index]);
+    }
+
+    /**
+     * Put a request in the queue, replacing the request that was at the same
+     * sector, if any
+     *
+     * @param sector
+     *            The base sector of the request
+     * @param request
+     *            The request
+     * @param quark
+     *            The quark of the request's slot
+     */
+    public void put(long sector, Request request, int quark) {
+        if (2 * (fSize + 1) > fSectors.length) {
+            resize(fSectors.length * 2);
+        }
+        int mask = fSectors.length - 1;
+        int index = hash(sector, mask);
+        while (fRequests[index] != null) {
+            if (fSectors[index] == sector) {
+                fRequests[index] = request;
+                fQuarks[index] = quark;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        fSectors[index] = sector;
+        fRequests[index] = request;
+        fQuarks[index] = quark;
+        fSize++;
+    }
+
+    /**
+     * Remove the request starting at a sector
+     *
+     * @param sector
+     *            The base sector of the request
+     * @return The quark of the removed request's slot, or
+     *         {@link ITmfStateSystem#INVALID_ATTRIBUTE} if there was no
+     *         request at this sector
+     */
+    public int remove(long sector) {
+        int index = indexOf(sector);
+        if (index < 0) {
+            return ITmfStateSystem.INVALID_ATTRIBUTE;
+        }
+        int quark = fQuarks[index];
+        fSize--;
+
+        /*
+         * Move back the following entries of the cluster that would not be
+         * found anymore with this slot emptied.
+         */
+        int mask = fSectors.length - 1;
+        int empty = index;
+        int next = (empty + 1) & mask;
+        while (fRequests[next] != null) {
+            int home = hash(fSectors[next], mask);
+            if (((next - home) & mask) >= ((next - empty) & mask)) {
+                fSectors[empty] = fSectors[next];
+                fRequests[empty] = fRequests[next];
+                fQuarks[empty] = fQuarks[next];
+                empty = next;
+            }
+            next = (next + 1) & mask;
+        }
+        fRequests[empty] = null;
+        return quark;
+    }
+
+    private int indexOf(long sector) {
+        int mask = fSectors.length - 1;
+        int index = hash(sector, mask);
+        while (fRequests[index] != null) {
+            if (fSectors[index] == sector) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static int hash(long sector, int mask) {
+        /* Sectors are often aligned, so mix the bits before masking */
+        long h = sector * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void resize(int capacity) {
+        long[] sectors = fSectors;
+        @Nullable Request[] requests = fRequests;
+        int[] quarks = fQuarks;
+        fSectors = new long[capacity];
+        fRequests = new @Nullable Request[capacity];
+        fQuarks = new int[capacity];
+        fSize = 0;
+        for (int i = 0; i < sectors.length; i++) {
+            Request request = requests[i];
+            if (request != null) {
+                put(sectors[i], request, quarks[i]);
+            }
+        }
+    }
+}
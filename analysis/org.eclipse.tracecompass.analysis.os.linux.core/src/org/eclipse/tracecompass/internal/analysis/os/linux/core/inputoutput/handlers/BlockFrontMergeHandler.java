@@ -48,8 +48,8 @@ public class BlockFrontMergeHandler extends KernelEventHandler {
         ITmfEventField content = event.getContent();
         long ts = event.getTimestamp().getValue();
 
-        Long sector = NonNullUtils.checkNotNull((Long) content.getField(getLayout().fieldBlockSector()).getValue());
-        Long rqSector = NonNullUtils.checkNotNull((Long) content.getField(getLayout().fieldBlockRqSector()).getValue());
+        long sector = NonNullUtils.checkNotNull((Long) content.getField(getLayout().fieldBlockSector()).getValue());
+        long rqSector = NonNullUtils.checkNotNull((Long) content.getField(getLayout().fieldBlockRqSector()).getValue());
         int nrSector = ((Long) content.getField(getLayout().fieldBlockNrSector()).getValue()).intValue();
         int dev = ((Long) content.getField(getLayout().fieldBlockDeviceId()).getValue()).intValue();
         int rwbs = ((Long) content.getField(getLayout().fieldBlockRwbs()).getValue()).intValue();
@@ -57,7 +57,7 @@ public class BlockFrontMergeHandler extends KernelEventHandler {
 
         Request request = disk.getWaitingRequest(rqSector);
         if (request == null) {
-            BlockIO bio = new BlockIO(rqSector, Long.valueOf(sector - rqSector).intValue(), disk, rwbs);
+            BlockIO bio = new BlockIO(rqSector, (int) (sector - rqSector), disk, rwbs);
             request = new Request(bio);
         }
         BlockIO bio = new BlockIO(sector, nrSector, disk, rwbs);
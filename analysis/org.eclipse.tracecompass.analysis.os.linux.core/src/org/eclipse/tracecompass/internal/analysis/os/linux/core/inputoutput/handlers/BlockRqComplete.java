@@ -48,7 +48,7 @@ public class BlockRqComplete extends KernelEventHandler {
         ITmfEventField content = event.getContent();
         long ts = event.getTimestamp().getValue();
 
-        Long sector = NonNullUtils.checkNotNull((Long) content.getField(getLayout().fieldBlockSector()).getValue());
+        long sector = NonNullUtils.checkNotNull((Long) content.getField(getLayout().fieldBlockSector()).getValue());
         int nrSector = ((Long) content.getField(getLayout().fieldBlockNrSector()).getValue()).intValue();
         int phydisk = ((Long) content.getField(getLayout().fieldBlockDeviceId()).getValue()).intValue();
         int rwbs = ((Long) content.getField(getLayout().fieldBlockRwbs()).getValue()).intValue();
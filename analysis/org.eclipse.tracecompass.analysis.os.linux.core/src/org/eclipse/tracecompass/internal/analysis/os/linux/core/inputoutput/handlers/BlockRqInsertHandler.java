@@ -50,7 +50,7 @@ public class BlockRqInsertHandler extends KernelEventHandler {
         long ts = event.getTimestamp().getValue();
 
         int phydisk = ((Long) content.getField(getLayout().fieldBlockDeviceId()).getValue()).intValue();
-        Long sector = NonNullUtils.checkNotNull((Long) content.getField(getLayout().fieldBlockSector()).getValue());
+        long sector = NonNullUtils.checkNotNull((Long) content.getField(getLayout().fieldBlockSector()).getValue());
         int nrSector = ((Long) content.getField(getLayout().fieldBlockNrSector()).getValue()).intValue();
         int rwbs = ((Long) content.getField(getLayout().fieldBlockRwbs()).getValue()).intValue();
         DiskWriteModel disk = fStateProvider.getDisk(phydisk);
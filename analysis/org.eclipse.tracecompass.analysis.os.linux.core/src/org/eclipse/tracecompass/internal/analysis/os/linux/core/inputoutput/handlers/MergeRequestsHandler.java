@@ -52,8 +52,8 @@ public class MergeRequestsHandler extends KernelEventHandler {
         long ts = event.getTimestamp().getValue();
 
         int phydisk = ((Long) content.getField(getLayout().fieldBlockDeviceId()).getValue()).intValue();
-        Long baseRequestSector = NonNullUtils.checkNotNull((Long) content.getField(getLayout().fieldBlockRqSector()).getValue());
-        Long mergedRequestSector = NonNullUtils.checkNotNull((Long) content.getField(getLayout().fieldBlockNextRqSector()).getValue());
+        long baseRequestSector = NonNullUtils.checkNotNull((Long) content.getField(getLayout().fieldBlockRqSector()).getValue());
+        long mergedRequestSector = NonNullUtils.checkNotNull((Long) content.getField(getLayout().fieldBlockNextRqSector()).getValue());
         DiskWriteModel disk = fStateProvider.getDisk(phydisk);
 
         Request baseRequest = disk.getWaitingRequest(baseRequestSector);
@@ -27,9 +27,11 @@ public class IPIExitHandler extends KernelEventHandler {
      *
      * @param layout
      *            event layout
+     * @param quarks
+     *            quark cache
      */
-    public IPIExitHandler(IKernelAnalysisEventLayout layout) {
-        super(layout);
+    public IPIExitHandler(IKernelAnalysisEventLayout layout, KernelQuarkCache quarks) {
+        super(layout, quarks);
     }
 
     @Override
@@ -38,18 +40,19 @@ public class IPIExitHandler extends KernelEventHandler {
         if (cpu == null) {
             return;
         }
-        int currentThreadNode = KernelEventHandlerUtils.getCurrentThreadNode(cpu, ss);
-        Integer irqId = ((Long) event.getContent().getField(getLayout().fieldIPIVector()).getValue()).intValue();
+        KernelQuarkCache quarks = getQuarks();
+        int currentThreadNode = quarks.getCurrentThreadNode(ss, cpu);
+        int irqId = (int) KernelEventHandlerUtils.getLongField(event, getLayout().fieldIPIVector());
         /* Put this IRQ back to inactive in the resource tree */
-        int quark = ss.getQuarkRelativeAndAdd(KernelEventHandlerUtils.getNodeIRQs(cpu, ss), irqId.toString());
+        int quark = quarks.getIrqQuark(ss, cpu, irqId);
         TmfStateValue value = TmfStateValue.nullValue();
         long timestamp = KernelEventHandlerUtils.getTimestamp(event);
         ss.modifyAttribute(timestamp, value, quark);
 
         /* Set the previous process back to running */
-        KernelEventHandlerUtils.setProcessToRunning(timestamp, currentThreadNode, ss);
+        KernelEventHandlerUtils.setProcessToRunning(timestamp, currentThreadNode, ss, quarks);
 
         /* Set the CPU status back to running or "idle" */
-        KernelEventHandlerUtils.cpuExitInterrupt(timestamp, cpu, ss);
+        KernelEventHandlerUtils.cpuExitInterrupt(timestamp, cpu, ss, quarks);
     }
 }
@@ -20,6 +20,7 @@ import org.eclipse.tracecompass.statesystem.core.exceptions.TimeRangeException;
 import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
 import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.event.ITmfLongFieldProvider;
 import org.eclipse.tracecompass.tmf.core.event.aspect.TmfCpuAspect;
 import org.eclipse.tracecompass.tmf.core.trace.TmfTraceUtils;
 
@@ -32,6 +33,12 @@ import org.eclipse.tracecompass.tmf.core.trace.TmfTraceUtils;
  */
 public final class KernelEventHandlerUtils {
 
+    /**
+     * Default value of the primitive field reads, used to detect the fields
+     * which are not integers
+     */
+    private static final long MISSING_FIELD = Long.MIN_VALUE;
+
     private KernelEventHandlerUtils() {
     }
 
@@ -78,6 +85,28 @@ public final class KernelEventHandlerUtils {
         return event.getTimestamp().toNanos();
     }
 
+    /**
+     * Get the value of an integer field of the event. The events which can
+     * read their fields as primitive values do not build their content.
+     *
+     * @param event
+     *            the event containing the field
+     * @param fieldName
+     *            the name of the field
+     *
+     * @return the value of the field
+     */
+    public static long getLongField(ITmfEvent event, String fieldName) {
+        if (event instanceof ITmfLongFieldProvider) {
+            long value = ((ITmfLongFieldProvider) event).getFieldLongValue(fieldName, MISSING_FIELD);
+            if (value != MISSING_FIELD) {
+                return value;
+            }
+        }
+        /* Not an integer field of a primitive event, read it from its content */
+        return ((Long) event.getContent().getField(fieldName).getValue()).longValue();
+    }
+
     /**
      * Get the current thread node
      *
@@ -111,18 +140,20 @@ public final class KernelEventHandlerUtils {
      *            The current thread node
      * @param ssb
      *            the state system
+     * @param quarks
+     *            the quark cache
      * @throws TimeRangeException
      *             the time is out of range
      * @throws StateValueTypeException
      *             the attribute was not set with int values
      */
-    public static void setProcessToRunning(long timestamp, int currentThreadNode, ITmfStateSystemBuilder ssb)
+    public static void setProcessToRunning(long timestamp, int currentThreadNode, ITmfStateSystemBuilder ssb, KernelQuarkCache quarks)
             throws TimeRangeException,
             StateValueTypeException {
         int quark;
         ITmfStateValue value;
 
-        quark = ssb.getQuarkRelativeAndAdd(currentThreadNode, Attributes.SYSTEM_CALL);
+        quark = quarks.getSystemCallQuark(ssb, currentThreadNode);
         if (ssb.queryOngoingState(quark).isNull()) {
             /* We were in user mode before the interruption */
             value = StateValues.PROCESS_STATUS_RUN_USERMODE_VALUE;
@@ -191,16 +222,18 @@ public final class KernelEventHandlerUtils {
      *
      * @param ssb
      *            State system
+     * @param quarks
+     *            the quark cache
      * @throws StateValueTypeException
      *             the attribute is not set as an int
      * @throws TimeRangeException
      *             the time is out of range
      */
-    public static void cpuExitInterrupt(long timestamp, Integer cpuNumber, ITmfStateSystemBuilder ssb)
+    public static void cpuExitInterrupt(long timestamp, int cpuNumber, ITmfStateSystemBuilder ssb, KernelQuarkCache quarks)
             throws StateValueTypeException, TimeRangeException {
-        int currentCPUNode = getCurrentCPUNode(cpuNumber, ssb);
+        int currentCPUNode = quarks.getCpuNode(ssb, cpuNumber);
 
-        ITmfStateValue value = getCpuStatus(ssb, currentCPUNode);
+        ITmfStateValue value = getCpuStatus(ssb, cpuNumber, quarks);
         ssb.modifyAttribute(timestamp, value, currentCPUNode);
     }
 
@@ -220,15 +253,16 @@ public final class KernelEventHandlerUtils {
      *
      * @param ssb
      *            The state system
-     * @param cpuQuark
-     *            The *quark* of the CPU we are looking for. Careful, this is
-     *            NOT the CPU number (or attribute name)!
+     * @param cpuNumber
+     *            The number of the CPU we are looking for
+     * @param quarks
+     *            The quark cache
      * @return The state value that represents the status of the given CPU
      */
-    private static ITmfStateValue getCpuStatus(ITmfStateSystemBuilder ssb, int cpuQuark) {
+    private static ITmfStateValue getCpuStatus(ITmfStateSystemBuilder ssb, int cpuNumber, KernelQuarkCache quarks) {
 
         /* Check if there is a IRQ running */
-        int irqQuarks = ssb.getQuarkRelativeAndAdd(cpuQuark, Attributes.IRQS);
+        int irqQuarks = quarks.getIrqsNode(ssb, cpuNumber);
         List<Integer> irqs = ssb.getSubAttributes(irqQuarks, false);
         for (Integer quark : irqs) {
             final ITmfStateValue irqState = ssb.queryOngoingState(quark.intValue());
@@ -238,7 +272,7 @@ public final class KernelEventHandlerUtils {
         }
 
         /* Check if there is a soft IRQ running */
-        int softIrqQuarks = ssb.getQuarkRelativeAndAdd(cpuQuark, Attributes.SOFT_IRQS);
+        int softIrqQuarks = quarks.getSoftIrqsNode(ssb, cpuNumber);
         List<Integer> softIrqs = ssb.getSubAttributes(softIrqQuarks, false);
         for (Integer quark : softIrqs) {
             final ITmfStateValue softIrqState = ssb.queryOngoingState(quark.intValue());
@@ -251,7 +285,7 @@ public final class KernelEventHandlerUtils {
          * Check if there is a thread running. If not, report IDLE. If there is,
          * report the running state of the thread (usermode or system call).
          */
-        int currentThreadQuark = ssb.getQuarkRelativeAndAdd(cpuQuark, Attributes.CURRENT_THREAD);
+        int currentThreadQuark = quarks.getCurrentThreadQuark(ssb, cpuNumber);
         ITmfStateValue currentThreadState = ssb.queryOngoingState(currentThreadQuark);
         if (currentThreadState.isNull()) {
             return TmfStateValue.nullValue();
@@ -260,7 +294,7 @@ public final class KernelEventHandlerUtils {
         if (tid == 0) {
             return StateValues.CPU_STATUS_IDLE_VALUE;
         }
-        int threadSystemCallQuark = ssb.getQuarkAbsoluteAndAdd(Attributes.THREADS, Integer.toString(tid), Attributes.SYSTEM_CALL);
+        int threadSystemCallQuark = quarks.getSystemCallQuark(ssb, quarks.getThreadNode(ssb, tid, cpuNumber));
         return (ssb.queryOngoingState(threadSystemCallQuark).isNull() ? StateValues.CPU_STATUS_RUN_USERMODE_VALUE : StateValues.CPU_STATUS_RUN_SYSCALL_VALUE);
     }
 }
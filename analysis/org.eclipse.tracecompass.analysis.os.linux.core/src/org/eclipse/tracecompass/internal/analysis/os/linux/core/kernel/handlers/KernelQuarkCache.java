@@ -0,0 +1,446 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.handlers;
+
+import java.util.Arrays;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.Attributes;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
+
+/**
+ * Cache of the quarks of the kernel state system, shared by the event handlers
+ * of a state provider.
+ *
+ * The CPU, thread and IRQ attributes are looked up by their number, and their
+ * sub-attributes by the quark of their parent, so that once an attribute is
+ * known, getting its quark again does not build any attribute name or resolve
+ * any path. The attributes are still created in the state system the first
+ * time they are requested, in the same order as the handlers would create
+ * them.
+ *
+ * Quarks are only valid for one state system, so the cache is cleared if it is
+ * used with another one.
+ */
+public final class KernelQuarkCache {
+
+    private @Nullable ITmfStateSystemBuilder fSs = null;
+
+    private int fCpusNode = ITmfStateSystem.INVALID_ATTRIBUTE;
+    private int fThreadsNode = ITmfStateSystem.INVALID_ATTRIBUTE;
+
+    /* CPU number -> CPU node */
+    private final NumberedQuarks fCpuNodes = new NumberedQuarks();
+    /* CPU number -> idle thread (thread 0) node */
+    private final NumberedQuarks fIdleThreadNodes = new NumberedQuarks();
+    /* Thread id -> thread node */
+    private final NumberedQuarks fThreadNodes = new NumberedQuarks();
+    /* (IRQs node, IRQ number) -> IRQ quark */
+    private final NumberedQuarks fIrqs = new NumberedQuarks();
+    /* (Soft IRQs node, Soft IRQ number) -> Soft IRQ quark */
+    private final NumberedQuarks fSoftIrqs = new NumberedQuarks();
+
+    /* Sub-attributes of the CPU nodes */
+    private final SubAttributeQuarks fCurrentThreads = new SubAttributeQuarks(Attributes.CURRENT_THREAD);
+    private final SubAttributeQuarks fIrqsNodes = new SubAttributeQuarks(Attributes.IRQS);
+    private final SubAttributeQuarks fSoftIrqsNodes = new SubAttributeQuarks(Attributes.SOFT_IRQS);
+
+    /* Sub-attributes of the thread nodes */
+    private final SubAttributeQuarks fPpids = new SubAttributeQuarks(Attributes.PPID);
+    private final SubAttributeQuarks fExecNames = new SubAttributeQuarks(Attributes.EXEC_NAME);
+    private final SubAttributeQuarks fPrios = new SubAttributeQuarks(Attributes.PRIO);
+    private final SubAttributeQuarks fSystemCalls = new SubAttributeQuarks(Attributes.SYSTEM_CALL);
+
+    private void checkStateSystem(ITmfStateSystemBuilder ss) {
+        if (ss == fSs) {
+            return;
+        }
+        fSs = ss;
+        fCpusNode = ITmfStateSystem.INVALID_ATTRIBUTE;
+        fThreadsNode = ITmfStateSystem.INVALID_ATTRIBUTE;
+        fCpuNodes.clear();
+        fIdleThreadNodes.clear();
+        fThreadNodes.clear();
+        fIrqs.clear();
+        fSoftIrqs.clear();
+        fCurrentThreads.clear();
+        fIrqsNodes.clear();
+        fSoftIrqsNodes.clear();
+        fPpids.clear();
+        fExecNames.clear();
+        fPrios.clear();
+        fSystemCalls.clear();
+    }
+
+    // ------------------------------------------------------------------------
+    // CPUs
+    // ------------------------------------------------------------------------
+
+    /**
+     * Get the CPUs node
+     *
+     * @param ss
+     *            the state system
+     * @return the CPUs node quark
+     */
+    public int getCpusNode(ITmfStateSystemBuilder ss) {
+        checkStateSystem(ss);
+        int quark = fCpusNode;
+        if (quark == ITmfStateSystem.INVALID_ATTRIBUTE) {
+            quark = ss.getQuarkAbsoluteAndAdd(Attributes.CPUS);
+            fCpusNode = quark;
+        }
+        return quark;
+    }
+
+    /**
+     * Get the node of a CPU
+     *
+     * @param ss
+     *            the state system
+     * @param cpu
+     *            the CPU number
+     * @return the CPU node quark
+     */
+    public int getCpuNode(ITmfStateSystemBuilder ss, int cpu) {
+        int cpusNode = getCpusNode(ss);
+        int quark = fCpuNodes.get(cpusNode, cpu);
+        if (quark == ITmfStateSystem.INVALID_ATTRIBUTE) {
+            quark = ss.getQuarkRelativeAndAdd(cpusNode, Integer.toString(cpu));
+            fCpuNodes.put(cpusNode, cpu, quark);
+        }
+        return quark;
+    }
+
+    /**
+     * Get the current thread attribute of a CPU
+     *
+     * @param ss
+     *            the state system
+     * @param cpu
+     *            the CPU number
+     * @return the current thread quark
+     */
+    public int getCurrentThreadQuark(ITmfStateSystemBuilder ss, int cpu) {
+        return fCurrentThreads.get(ss, getCpuNode(ss, cpu));
+    }
+
+    /**
+     * Get the IRQs node of a CPU
+     *
+     * @param ss
+     *            the state system
+     * @param cpu
+     *            the CPU number
+     * @return the IRQs node quark
+     */
+    public int getIrqsNode(ITmfStateSystemBuilder ss, int cpu) {
+        return fIrqsNodes.get(ss, getCpuNode(ss, cpu));
+    }
+
+    /**
+     * Get the Soft IRQs node of a CPU
+     *
+     * @param ss
+     *            the state system
+     * @param cpu
+     *            the CPU number
+     * @return the Soft IRQs node quark
+     */
+    public int getSoftIrqsNode(ITmfStateSystemBuilder ss, int cpu) {
+        return fSoftIrqsNodes.get(ss, getCpuNode(ss, cpu));
+    }
+
+    /**
+     * Get the attribute of an IRQ on a CPU
+     *
+     * @param ss
+     *            the state system
+     * @param cpu
+     *            the CPU number
+     * @param irq
+     *            the IRQ number
+     * @return the IRQ quark
+     */
+    public int getIrqQuark(ITmfStateSystemBuilder ss, int cpu, int irq) {
+        int irqsNode = getIrqsNode(ss, cpu);
+        int quark = fIrqs.get(irqsNode, irq);
+        if (quark == ITmfStateSystem.INVALID_ATTRIBUTE) {
+            quark = ss.getQuarkRelativeAndAdd(irqsNode, Integer.toString(irq));
+            fIrqs.put(irqsNode, irq, quark);
+        }
+        return quark;
+    }
+
+    /**
+     * Get the attribute of a Soft IRQ on a CPU
+     *
+     * @param ss
+     *            the state system
+     * @param cpu
+     *            the CPU number
+     * @param softIrq
+     *            the Soft IRQ number
+     * @return the Soft IRQ quark
+     */
+    public int getSoftIrqQuark(ITmfStateSystemBuilder ss, int cpu, int softIrq) {
+        int softIrqsNode = getSoftIrqsNode(ss, cpu);
+        int quark = fSoftIrqs.get(softIrqsNode, softIrq);
+        if (quark == ITmfStateSystem.INVALID_ATTRIBUTE) {
+            quark = ss.getQuarkRelativeAndAdd(softIrqsNode, Integer.toString(softIrq));
+            fSoftIrqs.put(softIrqsNode, softIrq, quark);
+        }
+        return quark;
+    }
+
+    // ------------------------------------------------------------------------
+    // Threads
+    // ------------------------------------------------------------------------
+
+    /**
+     * Get the threads node
+     *
+     * @param ss
+     *            the state system
+     * @return the threads node quark
+     */
+    public int getThreadsNode(ITmfStateSystemBuilder ss) {
+        checkStateSystem(ss);
+        int quark = fThreadsNode;
+        if (quark == ITmfStateSystem.INVALID_ATTRIBUTE) {
+            quark = ss.getQuarkAbsoluteAndAdd(Attributes.THREADS);
+            fThreadsNode = quark;
+        }
+        return quark;
+    }
+
+    /**
+     * Get the node of a thread. Like
+     * {@link Attributes#buildThreadAttributeName(int, Integer)}, thread 0 has
+     * one node per CPU.
+     *
+     * @param ss
+     *            the state system
+     * @param tid
+     *            the thread id
+     * @param cpu
+     *            the CPU number, only used for thread 0
+     * @return the thread node quark, or
+     *         {@link ITmfStateSystem#INVALID_ATTRIBUTE} if the thread is 0 and
+     *         the CPU is not known
+     */
+    public int getThreadNode(ITmfStateSystemBuilder ss, int tid, @Nullable Integer cpu) {
+        if (tid == 0) {
+            if (cpu == null) {
+                return ITmfStateSystem.INVALID_ATTRIBUTE;
+            }
+            int threadsNode = getThreadsNode(ss);
+            int quark = fIdleThreadNodes.get(threadsNode, cpu);
+            if (quark == ITmfStateSystem.INVALID_ATTRIBUTE) {
+                quark = ss.getQuarkRelativeAndAdd(threadsNode, Attributes.THREAD_0_PREFIX + cpu);
+                fIdleThreadNodes.put(threadsNode, cpu, quark);
+            }
+            return quark;
+        }
+        int threadsNode = getThreadsNode(ss);
+        int quark = fThreadNodes.get(threadsNode, tid);
+        if (quark == ITmfStateSystem.INVALID_ATTRIBUTE) {
+            quark = ss.getQuarkRelativeAndAdd(threadsNode, Integer.toString(tid));
+            fThreadNodes.put(threadsNode, tid, quark);
+        }
+        return quark;
+    }
+
+    /**
+     * Get the node of the thread currently running on a CPU
+     *
+     * @param ss
+     *            the state system
+     * @param cpu
+     *            the CPU number
+     * @return the current thread node quark
+     */
+    public int getCurrentThreadNode(ITmfStateSystemBuilder ss, int cpu) {
+        ITmfStateValue value = ss.queryOngoingState(getCurrentThreadQuark(ss, cpu));
+        int thread = value.isNull() ? -1 : value.unboxInt();
+        return getThreadNode(ss, thread, cpu);
+    }
+
+    /**
+     * Get the PPID attribute of a thread
+     *
+     * @param ss
+     *            the state system
+     * @param threadNode
+     *            the thread node quark
+     * @return the PPID quark
+     */
+    public int getPpidQuark(ITmfStateSystemBuilder ss, int threadNode) {
+        return fPpids.get(ss, threadNode);
+    }
+
+    /**
+     * Get the exec name attribute of a thread
+     *
+     * @param ss
+     *            the state system
+     * @param threadNode
+     *            the thread node quark
+     * @return the exec name quark
+     */
+    public int getExecNameQuark(ITmfStateSystemBuilder ss, int threadNode) {
+        return fExecNames.get(ss, threadNode);
+    }
+
+    /**
+     * Get the priority attribute of a thread
+     *
+     * @param ss
+     *            the state system
+     * @param threadNode
+     *            the thread node quark
+     * @return the priority quark
+     */
+    public int getPrioQuark(ITmfStateSystemBuilder ss, int threadNode) {
+        return fPrios.get(ss, threadNode);
+    }
+
+    /**
+     * Get the system call attribute of a thread
+     *
+     * @param ss
+     *            the state system
+     * @param threadNode
+     *            the thread node quark
+     * @return the system call quark
+     */
+    public int getSystemCallQuark(ITmfStateSystemBuilder ss, int threadNode) {
+        return fSystemCalls.get(ss, threadNode);
+    }
+
+    // ------------------------------------------------------------------------
+    // Caches
+    // ------------------------------------------------------------------------
+
+    /**
+     * Quarks of the sub-attributes with a given name, indexed by the quark of
+     * their parent. Quarks are dense, so a plain array is used.
+     */
+    private final class SubAttributeQuarks {
+
+        private final String fName;
+        private int[] fQuarks = new int[0];
+
+        public SubAttributeQuarks(String name) {
+            fName = name;
+        }
+
+        public int get(ITmfStateSystemBuilder ss, int parent) {
+            checkStateSystem(ss);
+            if (parent >= fQuarks.length) {
+                int oldLength = fQuarks.length;
+                fQuarks = Arrays.copyOf(fQuarks, Math.max(parent + 1, oldLength * 2));
+                Arrays.fill(fQuarks, oldLength, fQuarks.length, ITmfStateSystem.INVALID_ATTRIBUTE);
+            }
+            int quark = fQuarks[parent];
+            if (quark == ITmfStateSystem.INVALID_ATTRIBUTE) {
+                quark = ss.getQuarkRelativeAndAdd(parent, fName);
+                fQuarks[parent] = quark;
+            }
+            return quark;
+        }
+
+        public void clear() {
+            fQuarks = new int[0];
+        }
+    }
+
+    /**
+     * Quarks of the sub-attributes named after a number (CPU, thread id, IRQ),
+     * indexed by the quark of their parent and that number. The numbers can
+     * be sparse, like thread ids, so this is an open addressing hash map with
+     * linear probing.
+     */
+    private static final class NumberedQuarks {
+
+        private static final int INITIAL_CAPACITY = 64;
+
+        private long[] fKeys = new long[INITIAL_CAPACITY];
+        /* The quarks + 1, so that 0 is an empty slot */
+        private int[] fValues = new int[INITIAL_CAPACITY];
+        private int fSize = 0;
+
+        private static long key(int parent, int number) {
+            return ((long) parent << 32) | (number & 0xFFFFFFFFL);
+        }
+
+        private static int hash(long key, int mask) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+
+        public int get(int parent, int number) {
+            long key = key(parent, number);
+            int mask = fKeys.length - 1;
+            int i = hash(key, mask);
+            while (fValues[i] != 0) {
+                if (fKeys[i] == key) {
+                    return fValues[i] - 1;
+                }
+                i = (i + 1) & mask;
+            }
+            return ITmfStateSystem.INVALID_ATTRIBUTE;
+        }
+
+        public void put(int parent, int number, int quark) {
+            if (2 * (fSize + 1) > fKeys.length) {
+                rehash(fKeys.length * 2);
+            }
+            if (insert(key(parent, number), quark + 1)) {
+                fSize++;
+            }
+        }
+
+        private boolean insert(long key, int value) {
+            int mask = fKeys.length - 1;
+            int i = hash(key, mask);
+            while (fValues[i] != 0) {
+                if (fKeys[i] == key) {
+                    fValues[i] = value;
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+            fKeys[i] = key;
+            fValues[i] = value;
+            return true;
+        }
+
+        private void rehash(int capacity) {
+            long[] keys = fKeys;
+            int[] values = fValues;
+            fKeys = new long[capacity];
+            fValues = new int[capacity];
+            for (int i = 0; i < keys.length; i++) {
+                if (values[i] != 0) {
+                    insert(keys[i], values[i]);
+                }
+            }
+        }
+
+        public void clear() {
+            fKeys = new long[INITIAL_CAPACITY];
+            fValues = new int[INITIAL_CAPACITY];
+            fSize = 0;
+        }
+    }
+}
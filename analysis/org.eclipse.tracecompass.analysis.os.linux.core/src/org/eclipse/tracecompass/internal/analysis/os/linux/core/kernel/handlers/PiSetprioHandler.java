@@ -13,13 +13,12 @@
 package org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.handlers;
 
 import org.eclipse.tracecompass.analysis.os.linux.core.trace.IKernelAnalysisEventLayout;
-import org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.Attributes;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
 import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
 import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
 import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
-import org.eclipse.tracecompass.tmf.core.event.ITmfEventField;
 
 /**
  * Set Prio handler
@@ -29,27 +28,26 @@ public class PiSetprioHandler extends KernelEventHandler {
     /**
      * Constructor
      * @param layout event layout
+     * @param quarks quark cache
      */
-    public PiSetprioHandler(IKernelAnalysisEventLayout layout) {
-        super(layout);
+    public PiSetprioHandler(IKernelAnalysisEventLayout layout, KernelQuarkCache quarks) {
+        super(layout, quarks);
     }
 
     @Override
     public void handleEvent(ITmfStateSystemBuilder ss, ITmfEvent event) throws AttributeNotFoundException {
-        ITmfEventField content = event.getContent();
         Integer cpu = KernelEventHandlerUtils.getCpu(event);
-        Integer tid = ((Long) content.getField(getLayout().fieldTid()).getValue()).intValue();
-        Integer prio = ((Long) content.getField(getLayout().fieldNewPrio()).getValue()).intValue();
+        int tid = (int) KernelEventHandlerUtils.getLongField(event, getLayout().fieldTid());
+        int prio = (int) KernelEventHandlerUtils.getLongField(event, getLayout().fieldNewPrio());
 
-        String threadAttributeName = Attributes.buildThreadAttributeName(tid, cpu);
-        if (threadAttributeName == null) {
+        KernelQuarkCache quarks = getQuarks();
+        int updateThreadNode = quarks.getThreadNode(ss, tid, cpu);
+        if (updateThreadNode == ITmfStateSystem.INVALID_ATTRIBUTE) {
             return;
         }
 
-        Integer updateThreadNode = ss.getQuarkRelativeAndAdd(KernelEventHandlerUtils.getNodeThreads(ss), threadAttributeName);
-
         /* Set the current prio for the new process */
-        int quark = ss.getQuarkRelativeAndAdd(updateThreadNode, Attributes.PRIO);
+        int quark = quarks.getPrioQuark(ss, updateThreadNode);
         ITmfStateValue value = TmfStateValue.newValueInt(prio);
         ss.modifyAttribute(KernelEventHandlerUtils.getTimestamp(event), value, quark);
     }
@@ -14,7 +14,6 @@ package org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.handlers
 
 import org.eclipse.tracecompass.analysis.os.linux.core.kernel.StateValues;
 import org.eclipse.tracecompass.analysis.os.linux.core.trace.IKernelAnalysisEventLayout;
-import org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.Attributes;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
 import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
 import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
@@ -32,9 +31,11 @@ public class ProcessForkHandler extends KernelEventHandler {
      *
      * @param layout
      *            event layout
+     * @param quarks
+     *            quark cache
      */
-    public ProcessForkHandler(IKernelAnalysisEventLayout layout) {
-        super(layout);
+    public ProcessForkHandler(IKernelAnalysisEventLayout layout, KernelQuarkCache quarks) {
+        super(layout, quarks);
     }
 
     @Override
@@ -43,32 +44,25 @@ public class ProcessForkHandler extends KernelEventHandler {
         Integer cpu = KernelEventHandlerUtils.getCpu(event);
         String childProcessName = (String) content.getField(getLayout().fieldChildComm()).getValue();
 
-        Integer parentTid = ((Long) content.getField(getLayout().fieldParentTid()).getValue()).intValue();
-        Integer childTid = ((Long) content.getField(getLayout().fieldChildTid()).getValue()).intValue();
+        int parentTid = (int) KernelEventHandlerUtils.getLongField(event, getLayout().fieldParentTid());
+        int childTid = (int) KernelEventHandlerUtils.getLongField(event, getLayout().fieldChildTid());
 
-        String parentThreadAttributeName = Attributes.buildThreadAttributeName(parentTid, cpu);
-        if (parentThreadAttributeName == null) {
+        if (cpu == null && (parentTid == 0 || childTid == 0)) {
             return;
         }
 
-        String childThreadAttributeName = Attributes.buildThreadAttributeName(childTid, cpu);
-        if (childThreadAttributeName == null) {
-            return;
-        }
-
-        final int threadsNode = KernelEventHandlerUtils.getNodeThreads(ss);
-        Integer parentTidNode = ss.getQuarkRelativeAndAdd(threadsNode, parentThreadAttributeName);
-        Integer childTidNode = ss.getQuarkRelativeAndAdd(threadsNode, childThreadAttributeName);
-
+        KernelQuarkCache quarks = getQuarks();
+        int parentTidNode = quarks.getThreadNode(ss, parentTid, cpu);
+        int childTidNode = quarks.getThreadNode(ss, childTid, cpu);
 
         /* Assign the PPID to the new process */
-        int quark = ss.getQuarkRelativeAndAdd(childTidNode, Attributes.PPID);
+        int quark = quarks.getPpidQuark(ss, childTidNode);
         ITmfStateValue value = TmfStateValue.newValueInt(parentTid);
         long timestamp = KernelEventHandlerUtils.getTimestamp(event);
         ss.modifyAttribute(timestamp, value, quark);
 
         /* Set the new process' exec_name */
-        quark = ss.getQuarkRelativeAndAdd(childTidNode, Attributes.EXEC_NAME);
+        quark = quarks.getExecNameQuark(ss, childTidNode);
         value = TmfStateValue.newValueString(childProcessName);
         ss.modifyAttribute(timestamp, value, quark);
 
@@ -77,10 +71,10 @@ public class ProcessForkHandler extends KernelEventHandler {
         ss.modifyAttribute(timestamp, value, childTidNode);
 
         /* Set the process' syscall name, to be the same as the parent's */
-        quark = ss.getQuarkRelativeAndAdd(parentTidNode, Attributes.SYSTEM_CALL);
+        quark = quarks.getSystemCallQuark(ss, parentTidNode);
         value = ss.queryOngoingState(quark);
         if (!value.isNull()) {
-            quark = ss.getQuarkRelativeAndAdd(childTidNode, Attributes.SYSTEM_CALL);
+            quark = quarks.getSystemCallQuark(ss, childTidNode);
             ss.modifyAttribute(timestamp, value, quark);
         }
 
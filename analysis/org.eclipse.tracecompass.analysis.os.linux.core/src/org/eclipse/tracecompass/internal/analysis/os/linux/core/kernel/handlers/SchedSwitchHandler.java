@@ -17,7 +17,6 @@ import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
 import org.eclipse.tracecompass.analysis.os.linux.core.kernel.LinuxValues;
 import org.eclipse.tracecompass.analysis.os.linux.core.kernel.StateValues;
 import org.eclipse.tracecompass.analysis.os.linux.core.trace.IKernelAnalysisEventLayout;
-import org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.Attributes;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
 import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
 import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
@@ -35,9 +34,11 @@ public class SchedSwitchHandler extends KernelEventHandler {
      *
      * @param layout
      *            event layout
+     * @param quarks
+     *            quark cache
      */
-    public SchedSwitchHandler(IKernelAnalysisEventLayout layout) {
-        super(layout);
+    public SchedSwitchHandler(IKernelAnalysisEventLayout layout, KernelQuarkCache quarks) {
+        super(layout, quarks);
     }
 
     @Override
@@ -49,49 +50,46 @@ public class SchedSwitchHandler extends KernelEventHandler {
 
         ITmfEventField content = event.getContent();
         String prevProcessName = checkNotNull((String) content.getField(getLayout().fieldPrevComm()).getValue());
-        Integer prevTid = ((Long) content.getField(getLayout().fieldPrevTid()).getValue()).intValue();
-        Long prevState = checkNotNull((Long) content.getField(getLayout().fieldPrevState()).getValue());
-        Integer prevPrio = ((Long) content.getField(getLayout().fieldPrevPrio()).getValue()).intValue();
+        int prevTid = (int) KernelEventHandlerUtils.getLongField(event, getLayout().fieldPrevTid());
+        long prevState = KernelEventHandlerUtils.getLongField(event, getLayout().fieldPrevState());
+        int prevPrio = (int) KernelEventHandlerUtils.getLongField(event, getLayout().fieldPrevPrio());
         String nextProcessName = checkNotNull((String) content.getField(getLayout().fieldNextComm()).getValue());
-        Integer nextTid = ((Long) content.getField(getLayout().fieldNextTid()).getValue()).intValue();
-        Integer nextPrio = ((Long) content.getField(getLayout().fieldNextPrio()).getValue()).intValue();
+        int nextTid = (int) KernelEventHandlerUtils.getLongField(event, getLayout().fieldNextTid());
+        int nextPrio = (int) KernelEventHandlerUtils.getLongField(event, getLayout().fieldNextPrio());
 
-        /* Will never return null since "cpu" is null checked */
-        String formerThreadAttributeName = Attributes.buildThreadAttributeName(prevTid, cpu);
-        String currenThreadAttributeName = Attributes.buildThreadAttributeName(nextTid, cpu);
-
-        int nodeThreads = KernelEventHandlerUtils.getNodeThreads(ss);
-        int formerThreadNode = ss.getQuarkRelativeAndAdd(nodeThreads, formerThreadAttributeName);
-        int newCurrentThreadNode = ss.getQuarkRelativeAndAdd(nodeThreads, currenThreadAttributeName);
+        KernelQuarkCache quarks = getQuarks();
+        /* Will never be invalid since "cpu" is null checked */
+        int formerThreadNode = quarks.getThreadNode(ss, prevTid, cpu);
+        int newCurrentThreadNode = quarks.getThreadNode(ss, nextTid, cpu);
 
         long timestamp = KernelEventHandlerUtils.getTimestamp(event);
         /* Set the status of the process that got scheduled out. */
         setOldProcessStatus(ss, prevState, formerThreadNode, timestamp);
 
         /* Set the status of the new scheduled process */
-        KernelEventHandlerUtils.setProcessToRunning(timestamp, newCurrentThreadNode, ss);
+        KernelEventHandlerUtils.setProcessToRunning(timestamp, newCurrentThreadNode, ss, quarks);
 
         /* Set the exec name of the former process */
-        setProcessExecName(ss, prevProcessName, formerThreadNode, timestamp);
+        setProcessExecName(ss, prevProcessName, quarks.getExecNameQuark(ss, formerThreadNode), timestamp);
 
         /* Set the exec name of the new process */
-        setProcessExecName(ss, nextProcessName, newCurrentThreadNode, timestamp);
+        setProcessExecName(ss, nextProcessName, quarks.getExecNameQuark(ss, newCurrentThreadNode), timestamp);
 
         /* Set the current prio for the former process */
-        setProcessPrio(ss, prevPrio, formerThreadNode, timestamp);
+        setProcessPrio(ss, prevPrio, quarks.getPrioQuark(ss, formerThreadNode), timestamp);
 
         /* Set the current prio for the new process */
-        setProcessPrio(ss, nextPrio, newCurrentThreadNode, timestamp);
+        setProcessPrio(ss, nextPrio, quarks.getPrioQuark(ss, newCurrentThreadNode), timestamp);
 
         /* Set the current scheduled process on the relevant CPU */
-        int currentCPUNode = KernelEventHandlerUtils.getCurrentCPUNode(cpu, ss);
-        setCpuProcess(ss, nextTid, timestamp, currentCPUNode);
+        int currentCPUNode = quarks.getCpuNode(ss, cpu);
+        setCpuProcess(ss, nextTid, timestamp, quarks.getCurrentThreadQuark(ss, cpu));
 
         /* Set the status of the CPU itself */
-        setCpuStatus(ss, nextTid, newCurrentThreadNode, timestamp, currentCPUNode);
+        setCpuStatus(ss, nextTid, timestamp, currentCPUNode, quarks.getSystemCallQuark(ss, newCurrentThreadNode));
     }
 
-    private static void setOldProcessStatus(ITmfStateSystemBuilder ss, Long prevState, Integer formerThreadNode, long timestamp) {
+    private static void setOldProcessStatus(ITmfStateSystemBuilder ss, long prevState, int formerThreadNode, long timestamp) {
         ITmfStateValue value;
         /*
          * Empirical observations and look into the linux code have
@@ -132,13 +130,11 @@ public class SchedSwitchHandler extends KernelEventHandler {
         return state == 0;
     }
 
-    private static void setCpuStatus(ITmfStateSystemBuilder ss, Integer nextTid, Integer newCurrentThreadNode, long timestamp, int currentCPUNode) {
-        int quark;
+    private static void setCpuStatus(ITmfStateSystemBuilder ss, int nextTid, long timestamp, int currentCPUNode, int systemCallQuark) {
         ITmfStateValue value;
         if (nextTid > 0) {
             /* Check if the entering process is in kernel or user mode */
-            quark = ss.getQuarkRelativeAndAdd(newCurrentThreadNode, Attributes.SYSTEM_CALL);
-            ITmfStateValue queryOngoingState = ss.queryOngoingState(quark);
+            ITmfStateValue queryOngoingState = ss.queryOngoingState(systemCallQuark);
             if (queryOngoingState.isNull()) {
                 value = StateValues.CPU_STATUS_RUN_USERMODE_VALUE;
             } else {
@@ -150,28 +146,19 @@ public class SchedSwitchHandler extends KernelEventHandler {
         ss.modifyAttribute(timestamp, value, currentCPUNode);
     }
 
-    private static void setCpuProcess(ITmfStateSystemBuilder ss, Integer nextTid, long timestamp, int currentCPUNode) {
-        int quark;
-        ITmfStateValue value;
-        quark = ss.getQuarkRelativeAndAdd(currentCPUNode, Attributes.CURRENT_THREAD);
-        value = TmfStateValue.newValueInt(nextTid);
-        ss.modifyAttribute(timestamp, value, quark);
+    private static void setCpuProcess(ITmfStateSystemBuilder ss, int nextTid, long timestamp, int currentThreadQuark) {
+        ITmfStateValue value = TmfStateValue.newValueInt(nextTid);
+        ss.modifyAttribute(timestamp, value, currentThreadQuark);
     }
 
-    private static void setProcessPrio(ITmfStateSystemBuilder ss, Integer prio, Integer threadNode, long timestamp) {
-        int quark;
-        ITmfStateValue value;
-        quark = ss.getQuarkRelativeAndAdd(threadNode, Attributes.PRIO);
-        value = TmfStateValue.newValueInt(prio);
-        ss.modifyAttribute(timestamp, value, quark);
+    private static void setProcessPrio(ITmfStateSystemBuilder ss, int prio, int prioQuark, long timestamp) {
+        ITmfStateValue value = TmfStateValue.newValueInt(prio);
+        ss.modifyAttribute(timestamp, value, prioQuark);
     }
 
-    private static void setProcessExecName(ITmfStateSystemBuilder ss, String processName, Integer threadNode, long timestamp) {
-        int quark;
-        ITmfStateValue value;
-        quark = ss.getQuarkRelativeAndAdd(threadNode, Attributes.EXEC_NAME);
-        value = TmfStateValue.newValueString(processName);
-        ss.modifyAttribute(timestamp, value, quark);
+    private static void setProcessExecName(ITmfStateSystemBuilder ss, String processName, int execNameQuark, long timestamp) {
+        ITmfStateValue value = TmfStateValue.newValueString(processName);
+        ss.modifyAttribute(timestamp, value, execNameQuark);
     }
 
 }
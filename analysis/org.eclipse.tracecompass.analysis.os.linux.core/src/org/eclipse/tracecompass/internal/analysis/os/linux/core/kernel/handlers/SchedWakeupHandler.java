@@ -14,7 +14,7 @@ package org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.handlers
 
 import org.eclipse.tracecompass.analysis.os.linux.core.kernel.StateValues;
 import org.eclipse.tracecompass.analysis.os.linux.core.trace.IKernelAnalysisEventLayout;
-import org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.Attributes;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
 import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
 import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
@@ -33,24 +33,24 @@ public class SchedWakeupHandler extends KernelEventHandler {
     /**
      * Constructor
      * @param layout event layout
+     * @param quarks quark cache
      */
-    public SchedWakeupHandler(IKernelAnalysisEventLayout layout) {
-        super(layout);
+    public SchedWakeupHandler(IKernelAnalysisEventLayout layout, KernelQuarkCache quarks) {
+        super(layout, quarks);
     }
 
     @Override
     public void handleEvent(ITmfStateSystemBuilder ss, ITmfEvent event) throws AttributeNotFoundException {
         Integer cpu = KernelEventHandlerUtils.getCpu(event);
-        final int tid = ((Long) event.getContent().getField(getLayout().fieldTid()).getValue()).intValue();
-        final int prio = ((Long) event.getContent().getField(getLayout().fieldPrio()).getValue()).intValue();
+        final int tid = (int) KernelEventHandlerUtils.getLongField(event, getLayout().fieldTid());
+        final int prio = (int) KernelEventHandlerUtils.getLongField(event, getLayout().fieldPrio());
 
-        String threadAttributeName = Attributes.buildThreadAttributeName(tid, cpu);
-        if (threadAttributeName == null) {
+        KernelQuarkCache quarks = getQuarks();
+        final int threadNode = quarks.getThreadNode(ss, tid, cpu);
+        if (threadNode == ITmfStateSystem.INVALID_ATTRIBUTE) {
             return;
         }
 
-        final int threadNode = ss.getQuarkRelativeAndAdd(KernelEventHandlerUtils.getNodeThreads(ss), threadAttributeName);
-
         /*
          * The process indicated in the event's payload is now ready to run.
          * Assign it to the "wait for cpu" state, but only if it was not already
@@ -69,7 +69,7 @@ public class SchedWakeupHandler extends KernelEventHandler {
          * When a user changes a threads prio (e.g. with pthread_setschedparam),
          * it shows in ftrace with a sched_wakeup.
          */
-        int quark = ss.getQuarkRelativeAndAdd(threadNode, Attributes.PRIO);
+        int quark = quarks.getPrioQuark(ss, threadNode);
         value = TmfStateValue.newValueInt(prio);
         ss.modifyAttribute(timestamp, value, quark);
     }
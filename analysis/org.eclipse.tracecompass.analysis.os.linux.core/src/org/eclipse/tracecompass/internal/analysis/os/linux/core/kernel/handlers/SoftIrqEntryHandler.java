@@ -29,9 +29,11 @@ public class SoftIrqEntryHandler extends KernelEventHandler {
      *
      * @param layout
      *            event layout
+     * @param quarks
+     *            quark cache
      */
-    public SoftIrqEntryHandler(IKernelAnalysisEventLayout layout) {
-        super(layout);
+    public SoftIrqEntryHandler(IKernelAnalysisEventLayout layout, KernelQuarkCache quarks) {
+        super(layout, quarks);
     }
 
     @Override
@@ -42,14 +44,15 @@ public class SoftIrqEntryHandler extends KernelEventHandler {
         }
 
         long timestamp = KernelEventHandlerUtils.getTimestamp(event);
-        Integer softIrqId = ((Long) event.getContent().getField(getLayout().fieldVec()).getValue()).intValue();
-        int currentCPUNode = KernelEventHandlerUtils.getCurrentCPUNode(cpu, ss);
-        int currentThreadNode = KernelEventHandlerUtils.getCurrentThreadNode(cpu, ss);
+        int softIrqId = (int) KernelEventHandlerUtils.getLongField(event, getLayout().fieldVec());
+        KernelQuarkCache quarks = getQuarks();
+        int currentCPUNode = quarks.getCpuNode(ss, cpu);
+        int currentThreadNode = quarks.getCurrentThreadNode(ss, cpu);
 
         /*
          * Mark this SoftIRQ as active in the resource tree.
          */
-        int quark = ss.getQuarkRelativeAndAdd(KernelEventHandlerUtils.getNodeSoftIRQs(cpu, ss), softIrqId.toString());
+        int quark = quarks.getSoftIrqQuark(ss, cpu, softIrqId);
         ITmfStateValue value = StateValues.CPU_STATUS_SOFTIRQ_VALUE;
         ss.modifyAttribute(timestamp, value, quark);
 
@@ -30,14 +30,16 @@ public class SoftIrqRaiseHandler extends KernelEventHandler {
      *
      * @param layout
      *            event layout
+     * @param quarks
+     *            quark cache
      */
-    public SoftIrqRaiseHandler(IKernelAnalysisEventLayout layout) {
-        super(layout);
+    public SoftIrqRaiseHandler(IKernelAnalysisEventLayout layout, KernelQuarkCache quarks) {
+        super(layout, quarks);
     }
 
     @Override
     public void handleEvent(ITmfStateSystemBuilder ss, ITmfEvent event) throws AttributeNotFoundException {
-        Integer softIrqId = ((Long) event.getContent().getField(getLayout().fieldVec()).getValue()).intValue();
+        int softIrqId = (int) KernelEventHandlerUtils.getLongField(event, getLayout().fieldVec());
         Integer cpu = KernelEventHandlerUtils.getCpu(event);
         if (cpu == null) {
             return;
@@ -45,7 +47,7 @@ public class SoftIrqRaiseHandler extends KernelEventHandler {
         /*
          * Mark this SoftIRQ as *raised* in the resource tree.
          */
-        int quark = ss.getQuarkRelativeAndAdd(KernelEventHandlerUtils.getNodeSoftIRQs(cpu, ss), softIrqId.toString());
+        int quark = getQuarks().getSoftIrqQuark(ss, cpu, softIrqId);
 
         ITmfStateValue value = (isInSoftirq(ss.queryOngoingState(quark)) ?
                 StateValues.SOFT_IRQ_RAISED_RUNNING_VALUE :
@@ -44,10 +44,10 @@ public class StateDumpHandler extends KernelEventHandler {
     public void handleEvent(ITmfStateSystemBuilder ss, ITmfEvent event) throws AttributeNotFoundException {
         ITmfEventField content = event.getContent();
         Integer cpu = KernelEventHandlerUtils.getCpu(event);
-        int tid = ((Long) content.getField("tid").getValue()).intValue(); //$NON-NLS-1$
-        int pid = ((Long) content.getField("pid").getValue()).intValue(); //$NON-NLS-1$
-        int ppid = ((Long) content.getField("ppid").getValue()).intValue(); //$NON-NLS-1$
-        int status = ((Long) content.getField("status").getValue()).intValue(); //$NON-NLS-1$
+        int tid = (int) KernelEventHandlerUtils.getLongField(event, "tid"); //$NON-NLS-1$
+        int pid = (int) KernelEventHandlerUtils.getLongField(event, "pid"); //$NON-NLS-1$
+        int ppid = (int) KernelEventHandlerUtils.getLongField(event, "ppid"); //$NON-NLS-1$
+        int status = (int) KernelEventHandlerUtils.getLongField(event, "status"); //$NON-NLS-1$
         String name = checkNotNull((String) content.getField("name").getValue()); //$NON-NLS-1$
         /*
          * "mode" could be interesting too, but it doesn't seem to be populated
@@ -14,7 +14,6 @@ package org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.handlers
 
 import org.eclipse.tracecompass.analysis.os.linux.core.kernel.StateValues;
 import org.eclipse.tracecompass.analysis.os.linux.core.trace.IKernelAnalysisEventLayout;
-import org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.Attributes;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
 import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
 import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
@@ -31,9 +30,11 @@ public class SysEntryHandler extends KernelEventHandler {
      *
      * @param layout
      *            event layout
+     * @param quarks
+     *            quark cache
      */
-    public SysEntryHandler(IKernelAnalysisEventLayout layout) {
-        super(layout);
+    public SysEntryHandler(IKernelAnalysisEventLayout layout, KernelQuarkCache quarks) {
+        super(layout, quarks);
     }
 
     @Override
@@ -42,9 +43,10 @@ public class SysEntryHandler extends KernelEventHandler {
         if (cpu == null) {
             return;
         }
+        KernelQuarkCache quarks = getQuarks();
         /* Assign the new system call to the process */
-        int currentThreadNode = KernelEventHandlerUtils.getCurrentThreadNode(cpu, ss);
-        int quark = ss.getQuarkRelativeAndAdd(currentThreadNode, Attributes.SYSTEM_CALL);
+        int currentThreadNode = quarks.getCurrentThreadNode(ss, cpu);
+        int quark = quarks.getSystemCallQuark(ss, currentThreadNode);
         ITmfStateValue value = TmfStateValue.newValueString(event.getName());
         long timestamp = KernelEventHandlerUtils.getTimestamp(event);
         ss.modifyAttribute(timestamp, value, quark);
@@ -54,7 +56,7 @@ public class SysEntryHandler extends KernelEventHandler {
         ss.modifyAttribute(timestamp, value, currentThreadNode);
 
         /* Put the CPU in system call (kernel) mode */
-        int currentCPUNode = KernelEventHandlerUtils.getCurrentCPUNode(cpu, ss);
+        int currentCPUNode = quarks.getCpuNode(ss, cpu);
         value = StateValues.CPU_STATUS_RUN_SYSCALL_VALUE;
         ss.modifyAttribute(timestamp, value, currentCPUNode);
     }
@@ -82,6 +82,15 @@ public class SystemCallLatencyAnalysis extends AbstractSegmentStoreAnalysisEvent
         return DATA_FILENAME;
     }
 
+    /**
+     * A kernel trace can have hundreds of millions of system calls, keep them
+     * on disk
+     */
+    @Override
+    protected boolean isSegmentStoreOnDisk() {
+        return true;
+    }
+
     @Override
     public AbstractSegmentStoreAnalysisRequest createAnalysisRequest(ISegmentStore<ISegment> syscalls) {
         return new SyscallLatencyAnalysisRequest(syscalls);
@@ -21,8 +21,10 @@ import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.common.core.NonNullUtils;
+import org.eclipse.tracecompass.internal.analysis.timing.core.callgraph.AggregatedCalledFunction;
 import org.eclipse.tracecompass.internal.analysis.timing.core.callgraph.CallGraphAnalysis;
 import org.eclipse.tracecompass.internal.analysis.timing.core.callgraph.ICalledFunction;
+import org.eclipse.tracecompass.internal.analysis.timing.core.callgraph.ThreadNode;
 import org.eclipse.tracecompass.segmentstore.core.ISegment;
 import org.eclipse.tracecompass.segmentstore.core.ISegmentStore;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
@@ -51,6 +53,7 @@ public class CallGraphAnalysisTest {
     private static final String QUARK_2 = "2";
     private static final Integer SMALL_AMOUNT_OF_SEGMENT = 3;
     private static final int LARGE_AMOUNT_OF_SEGMENTS = 1000;
+    private static final int NB_THREADS = 50;
     private static final String @NonNull [] CSP = { CALLSTACK_PATH };
     private static final String @NonNull [] PP = { PROCESS_PATH };
     private static final String @NonNull [] TP = { THREAD_PATH };
@@ -400,4 +403,52 @@ public class CallGraphAnalysisTest {
         assertEquals("Test the address of two functions", firstChild.getSymbol(), thirdChild.getSymbol());
         cga.dispose();
     }
+
+    /**
+     * Test a state system with many threads, whose call graphs are built in
+     * parallel. Each thread calls a root function and its callee, the
+     * results must be in the order of the threads.
+     */
+    @Test
+    public void multiThreadTest() {
+        ITmfStateSystemBuilder fixture = createFixture();
+        for (int i = 0; i < NB_THREADS; i++) {
+            int parentQuark = fixture.getQuarkAbsoluteAndAdd(PROCESS_PATH, THREAD_PATH, Integer.toString(i), CALLSTACK_PATH);
+            int quark = fixture.getQuarkRelativeAndAdd(parentQuark, QUARK_0);
+            fixture.modifyAttribute(i, TmfStateValue.newValueLong(i), quark);
+            fixture.modifyAttribute(i + 100, TmfStateValue.nullValue(), quark);
+            quark = fixture.getQuarkRelativeAndAdd(parentQuark, QUARK_1);
+            fixture.modifyAttribute(i + 10, TmfStateValue.newValueLong(i + NB_THREADS), quark);
+            fixture.modifyAttribute(i + 20, TmfStateValue.nullValue(), quark);
+        }
+        fixture.closeHistory(NB_THREADS + 100);
+
+        // Execute the callGraphAnalysis
+        CGAnalysis cga = new CGAnalysis();
+        String @NonNull [] tp = { THREAD_PATH, "*" };
+        assertTrue(cga.iterateOverStateSystem(fixture, tp, PP, CSP, new NullProgressMonitor()));
+        ISegmentStore<@NonNull ISegment> segmentStore = cga.getSegmentStore();
+        assertNotNull(segmentStore);
+        assertEquals("Number of segments found", 2 * NB_THREADS, segmentStore.size());
+        List<@NonNull ICalledFunction> rootFunctions = cga.getRootFunctions();
+        List<ThreadNode> threads = cga.getThreadNodes();
+        assertEquals("Number of root functions", NB_THREADS, rootFunctions.size());
+        assertEquals("Number of threads", NB_THREADS, threads.size());
+        for (int i = 0; i < NB_THREADS; i++) {
+            ICalledFunction rootFunction = rootFunctions.get(i);
+            assertEquals("Root function's start", i, rootFunction.getStart());
+            assertEquals("Number of children", 1, rootFunction.getChildren().size());
+            ICalledFunction child = rootFunction.getChildren().get(0);
+            assertEquals("Child's start", i + 10, child.getStart());
+            assertEquals("Root function's self time", 90, rootFunction.getSelfTime());
+
+            ThreadNode thread = threads.get(i);
+            assertEquals("Thread id", i, thread.getId());
+            assertEquals("Number of aggregated functions", 1, thread.getChildren().size());
+            AggregatedCalledFunction function = thread.getChildren().iterator().next();
+            assertEquals("Aggregated function's duration", 100, function.getDuration());
+            assertEquals("Number of aggregated callees", 1, function.getChildren().size());
+        }
+        cga.dispose();
+    }
 }
@@ -106,6 +106,12 @@ public abstract class AbstractSegmentStoreAnalysisEventBasedModule extends Abstr
             return fSegmentStore;
         }
 
+        @Override
+        public boolean isIndependent() {
+            /* The segments are only built from the events of this request */
+            return true;
+        }
+
         @Override
         public void handleSuccess() {
             super.handleSuccess();
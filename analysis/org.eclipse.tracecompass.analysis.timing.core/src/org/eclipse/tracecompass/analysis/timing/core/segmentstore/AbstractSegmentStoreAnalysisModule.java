@@ -24,6 +24,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.ListenerList;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.common.core.NonNullUtils;
+import org.eclipse.tracecompass.internal.segmentstore.core.ondisk.OnDiskSegmentStore;
 import org.eclipse.tracecompass.segmentstore.core.ISegment;
 import org.eclipse.tracecompass.segmentstore.core.ISegmentStore;
 import org.eclipse.tracecompass.segmentstore.core.SegmentStoreFactory;
@@ -44,6 +45,8 @@ import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
  */
 public abstract class AbstractSegmentStoreAnalysisModule extends TmfAbstractAnalysisModule implements ISegmentStoreProvider {
 
+    private static final String ON_DISK_EXTENSION = ".segments"; //$NON-NLS-1$
+
     private final ListenerList fListeners = new ListenerList(ListenerList.IDENTITY);
 
     private @Nullable ISegmentStore<ISegment> fSegmentStore;
@@ -87,6 +90,22 @@ public abstract class AbstractSegmentStoreAnalysisModule extends TmfAbstractAnal
         return null;
     }
 
+    /**
+     * Get whether the segments of this analysis are kept in a file instead of
+     * in memory, for analyses that can produce too many segments to fit in
+     * memory. The file is then kept with the supplementary files of the trace,
+     * under a name based on {@link #getDataFileName()}, and is read directly
+     * when the trace is opened again. The default is to keep the segments in
+     * memory.
+     *
+     * @return True to keep the segments in a file. This is ignored if
+     *         {@link #getDataFileName()} returns null.
+     * @since 1.2
+     */
+    protected boolean isSegmentStoreOnDisk() {
+        return false;
+    }
+
     /**
      * Read an object from the ObjectInputStream.
      *
@@ -138,6 +157,9 @@ public abstract class AbstractSegmentStoreAnalysisModule extends TmfAbstractAnal
         ITmfTrace trace = checkNotNull(getTrace());
 
         final @Nullable String dataFileName = getDataFileName();
+        if (dataFileName != null && isSegmentStoreOnDisk()) {
+            return executeOnDisk(trace, dataFileName, monitor);
+        }
         if (dataFileName != null) {
             /* See if the data file already exists on disk */
             String dir = TmfTraceManager.getSupplementaryFileDir(trace);
@@ -191,6 +213,36 @@ public abstract class AbstractSegmentStoreAnalysisModule extends TmfAbstractAnal
         return true;
     }
 
+    private boolean executeOnDisk(ITmfTrace trace, String dataFileName, IProgressMonitor monitor) throws TmfAnalysisException {
+        Path file = Paths.get(TmfTraceManager.getSupplementaryFileDir(trace), dataFileName + ON_DISK_EXTENSION);
+        OnDiskSegmentStore<ISegment> store;
+        try {
+            store = new OnDiskSegmentStore<>(file);
+        } catch (IOException e) {
+            throw new TmfAnalysisException("Cannot open segment file " + file + ": " + e.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+
+        /*
+         * An incomplete file is emptied when it is opened. A complete file was
+         * built before, even if it has no segments.
+         */
+        if (!store.isComplete()) {
+            boolean completed = buildAnalysisSegments(store, monitor);
+            if (!completed) {
+                store.dispose();
+                return false;
+            }
+            /*
+             * Make sure the file is complete, closing twice does nothing. This
+             * also writes the file of an analysis without segments.
+             */
+            store.close(false);
+        }
+        fSegmentStore = store;
+        sendUpdate(store);
+        return true;
+    }
+
     /**
      * Send the segment store to all its listener
      *
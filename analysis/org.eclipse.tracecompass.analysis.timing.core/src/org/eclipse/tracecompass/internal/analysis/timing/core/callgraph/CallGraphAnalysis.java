@@ -12,7 +12,12 @@ package org.eclipse.tracecompass.internal.analysis.timing.core.callgraph;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 import java.util.stream.Collectors;
 
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -83,10 +88,6 @@ public abstract class CallGraphAnalysis extends TmfAbstractAnalysisModule implem
      */
     private final List<ICalledFunction> fRootFunctions = new ArrayList<>();
 
-    /**
-     * The sub attributes of a certain thread
-     */
-    private List<Integer> fCurrentQuarks = Collections.emptyList();
     /**
      * The List of thread nodes. Each thread has a virtual node having the root
      * function as children
@@ -161,7 +162,9 @@ public abstract class CallGraphAnalysis extends TmfAbstractAnalysisModule implem
 
     /**
      * Iterate over the process of the state system,then iterate over the
-     * different threads of each process.
+     * different threads of each process. The call graph of each thread is
+     * built in parallel, then the results are added in the order of the
+     * threads.
      *
      * @param ss
      *            The state system
@@ -180,153 +183,219 @@ public abstract class CallGraphAnalysis extends TmfAbstractAnalysisModule implem
         if (ss == null) {
             return false;
         }
+        List<ThreadCallGraph> threads = new ArrayList<>();
         List<Integer> processQuarks = ss.getQuarks(processesPattern);
         for (int processQuark : processQuarks) {
             int processId = getProcessId(ss, processQuark, ss.getCurrentEndTime());
             for (int threadQuark : ss.getQuarks(processQuark, threadsPattern)) {
-                if (!iterateOverQuark(ss, processId, threadQuark, callStackPath, monitor)) {
-                    return false;
-                }
+                threads.add(new ThreadCallGraph(ss, processId, threadQuark, callStackPath, monitor));
             }
         }
+        ForkJoinTask.invokeAll(threads);
+        for (ThreadCallGraph thread : threads) {
+            ThreadNode threadNode = thread.join();
+            if (threadNode == null) {
+                return false;
+            }
+            fStore.addAll(thread.fSegments);
+            fRootFunctions.addAll(thread.fRootFunctions);
+            fThreadNodes.add(threadNode);
+        }
         sendUpdate(fStore);
         return true;
     }
 
     /**
-     * Iterate over functions with the same quark,search for their callees then
-     * add them to the segment store
-     *
-     * @param stateSystem
-     *            The state system
-     * @param processId
-     *            The process ID of the traced application
-     * @param threadQuark
-     *            The thread quark
-     * @param subAttributePath
-     *            sub-Attributes path
-     * @param monitor
-     *            The monitor
-     * @return Boolean
+     * Task building the call graph of one thread. The intervals of all the
+     * call stack attributes of the thread are read at once, then the functions
+     * of each depth are visited in time order to find their callees.
      */
-    private boolean iterateOverQuark(ITmfStateSystem stateSystem, int processId, int threadQuark, String[] subAttributePath, IProgressMonitor monitor) {
-        String threadName = stateSystem.getAttributeName(threadQuark);
-        long threadId = -1;
-        ITmfStateInterval interval = null;
-        try {
-            interval = stateSystem.querySingleState(stateSystem.getStartTime(), threadQuark);
-            ITmfStateValue threadStateValue = interval.getStateValue();
-            if (threadStateValue.getType() == Type.LONG || threadStateValue.getType() == Type.INTEGER) {
-                threadId = threadStateValue.unboxLong();
-            } else {
-                try {
-                    threadId = Long.parseLong(threadName);
-                } catch (NumberFormatException e) {
-                    /* use default threadId */
+    private static class ThreadCallGraph extends RecursiveTask<@Nullable ThreadNode> {
+
+        private static final long serialVersionUID = 4353432937562937405L;
+
+        private final transient ITmfStateSystem fSs;
+        private final int fProcessId;
+        private final int fThreadQuark;
+        private final String[] fSubAttributePath;
+        private final transient IProgressMonitor fMonitor;
+
+        private final List<AbstractCalledFunction> fSegments = new ArrayList<>();
+        private final List<ICalledFunction> fRootFunctions = new ArrayList<>();
+
+        /* The intervals of each depth, sorted by start time */
+        private List<List<ITmfStateInterval>> fIntervals = Collections.emptyList();
+        /* The index of the first interval to visit at each depth */
+        private int[] fCursors = new int[0];
+
+        /**
+         * Constructor
+         *
+         * @param stateSystem
+         *            The state system
+         * @param processId
+         *            The process ID of the traced application
+         * @param threadQuark
+         *            The thread quark
+         * @param subAttributePath
+         *            sub-Attributes path
+         * @param monitor
+         *            The monitor
+         */
+        public ThreadCallGraph(ITmfStateSystem stateSystem, int processId, int threadQuark, String[] subAttributePath, IProgressMonitor monitor) {
+            fSs = stateSystem;
+            fProcessId = processId;
+            fThreadQuark = threadQuark;
+            fSubAttributePath = subAttributePath;
+            fMonitor = monitor;
+        }
+
+        /**
+         * Iterate over the functions of the first depth, search for their
+         * callees and add them to the thread node
+         *
+         * @return The thread node, or null if the thread could not be read or
+         *         the analysis was cancelled
+         */
+        @Override
+        protected @Nullable ThreadNode compute() {
+            ITmfStateSystem stateSystem = fSs;
+            String threadName = stateSystem.getAttributeName(fThreadQuark);
+            long threadId = -1;
+            try {
+                ITmfStateInterval interval = stateSystem.querySingleState(stateSystem.getStartTime(), fThreadQuark);
+                ITmfStateValue threadStateValue = interval.getStateValue();
+                if (threadStateValue.getType() == Type.LONG || threadStateValue.getType() == Type.INTEGER) {
+                    threadId = threadStateValue.unboxLong();
+                } else {
+                    try {
+                        threadId = Long.parseLong(threadName);
+                    } catch (NumberFormatException e) {
+                        /* use default threadId */
+                    }
                 }
+            } catch (StateSystemDisposedException error) {
+                Activator.getInstance().logError(Messages.QueringStateSystemError, error);
             }
-        } catch (StateSystemDisposedException error) {
-            Activator.getInstance().logError(Messages.QueringStateSystemError, error);
-        }
-        try {
-            long curTime = stateSystem.getStartTime();
+            long start = stateSystem.getStartTime();
             long limit = stateSystem.getCurrentEndTime();
-            AbstractCalledFunction initSegment = CalledFunctionFactory.create(0, 0, 0, threadName, processId, null);
+            AbstractCalledFunction initSegment = CalledFunctionFactory.create(0, 0, 0, threadName, fProcessId, null);
             ThreadNode init = new ThreadNode(initSegment, 0, threadId);
-            while (curTime < limit) {
-                if (monitor.isCanceled()) {
-                    return false;
-                }
-                int callStackQuark = stateSystem.getQuarkRelative(threadQuark, subAttributePath);
-                fCurrentQuarks = stateSystem.getSubAttributes(callStackQuark, false);
-                if (fCurrentQuarks.isEmpty()) {
-                    return false;
+            if (start >= limit) {
+                return init;
+            }
+            try {
+                int callStackQuark = stateSystem.getQuarkRelative(fThreadQuark, fSubAttributePath);
+                List<Integer> quarks = stateSystem.getSubAttributes(callStackQuark, false);
+                if (quarks.isEmpty()) {
+                    return null;
                 }
+                readIntervals(quarks, start, limit);
                 final int depth = 0;
-                int quarkParent = fCurrentQuarks.get(depth);
-                interval = stateSystem.querySingleState(curTime, quarkParent);
-                ITmfStateValue stateValue = interval.getStateValue();
-
-                if (!stateValue.isNull()) {
-                    long intervalStart = interval.getStartTime();
-                    long intervalEnd = interval.getEndTime();
-                    // Create the segment for the first call event.
-                    AbstractCalledFunction segment = CalledFunctionFactory.create(intervalStart, intervalEnd + 1, depth, stateValue, processId, null);
-                    fRootFunctions.add(segment);
-                    AggregatedCalledFunction firstNode = new AggregatedCalledFunction(segment, fCurrentQuarks.size());
-                    if (!findChildren(segment, depth, stateSystem, fCurrentQuarks.size() + fCurrentQuarks.get(depth), firstNode, processId, monitor)) {
-                        return false;
+                for (ITmfStateInterval interval : fIntervals.get(depth)) {
+                    if (fMonitor.isCanceled()) {
+                        return null;
+                    }
+                    if (interval.getStartTime() >= limit) {
+                        break;
+                    }
+                    ITmfStateValue stateValue = interval.getStateValue();
+                    if (!stateValue.isNull()) {
+                        // Create the segment for the first call event.
+                        AbstractCalledFunction segment = CalledFunctionFactory.create(interval.getStartTime(), interval.getEndTime() + 1, depth, stateValue, fProcessId, null);
+                        fRootFunctions.add(segment);
+                        AggregatedCalledFunction firstNode = new AggregatedCalledFunction(segment, quarks.size());
+                        if (!findChildren(segment, depth, firstNode)) {
+                            return null;
+                        }
+                        init.addChild(firstNode);
                     }
-                    init.addChild(firstNode);
                 }
-
-                curTime = interval.getEndTime() + 1;
+            } catch (AttributeNotFoundException | StateSystemDisposedException | TimeRangeException e) {
+                Activator.getInstance().logError(Messages.QueringStateSystemError, e);
+                return null;
             }
-            fThreadNodes.add(init);
-        } catch (AttributeNotFoundException | StateSystemDisposedException | TimeRangeException e) {
-            Activator.getInstance().logError(Messages.QueringStateSystemError, e);
-            return false;
+            return init;
         }
-        return true;
-    }
 
-    /**
-     * Find the functions called by a parent function in a call stack then add
-     * segments for each child, updating the self times of each node
-     * accordingly.
-     *
-     * @param node
-     *            The segment of the stack call event(the parent) callStackQuark
-     * @param depth
-     *            The depth of the parent function
-     * @param ss
-     *            The quark of the segment parent ss The actual state system
-     * @param maxQuark
-     *            The last quark in the state system
-     * @param aggregatedCalledFunction
-     *            A node in the aggregation tree
-     * @param processId
-     *            The process ID of the traced application
-     * @param monitor
-     *            The progress monitor The progress monitor TODO: if stack size
-     *            is an issue, convert to a stack instead of recursive function
-     */
-    private boolean findChildren(AbstractCalledFunction node, int depth, ITmfStateSystem ss, int maxQuark, AggregatedCalledFunction aggregatedCalledFunction, int processId, IProgressMonitor monitor) {
-        fStore.add(node);
-        long curTime = node.getStart();
-        long limit = node.getEnd();
-        ITmfStateInterval interval = null;
-        while (curTime < limit) {
-            if (monitor.isCanceled()) {
-                return false;
+        /**
+         * Read the intervals of the call stack attributes between two times,
+         * and sort them by depth and start time.
+         */
+        private void readIntervals(List<Integer> quarks, long start, long end) throws StateSystemDisposedException {
+            Map<Integer, Integer> depths = new HashMap<>();
+            List<List<ITmfStateInterval>> intervals = new ArrayList<>();
+            for (int i = 0; i < quarks.size(); i++) {
+                depths.put(quarks.get(i), i);
+                intervals.add(new ArrayList<>());
             }
-            try {
-                if (depth + 1 < fCurrentQuarks.size()) {
-                    interval = ss.querySingleState(curTime, fCurrentQuarks.get(depth + 1));
-                } else {
-                    return true;
+            for (ITmfStateInterval interval : fSs.query2D(quarks, start, end)) {
+                Integer depth = depths.get(interval.getAttribute());
+                if (depth != null) {
+                    intervals.get(depth).add(interval);
                 }
-            } catch (StateSystemDisposedException e) {
-                Activator.getInstance().logError(Messages.QueringStateSystemError, e);
-                return false;
             }
-            ITmfStateValue stateValue = interval.getStateValue();
-            if (!stateValue.isNull()) {
+            Comparator<ITmfStateInterval> comparator = Comparator.comparingLong(ITmfStateInterval::getStartTime);
+            intervals.forEach(list -> list.sort(comparator));
+            fIntervals = intervals;
+            fCursors = new int[quarks.size()];
+        }
+
+        /**
+         * Find the functions called by a parent function in a call stack then
+         * add segments for each child, updating the self times of each node
+         * accordingly. The functions of a depth are visited in time order, so
+         * the search for the callees starts where the one of the previous
+         * function of the same depth stopped.
+         *
+         * @param node
+         *            The segment of the stack call event(the parent)
+         * @param depth
+         *            The depth of the parent function
+         * @param aggregatedCalledFunction
+         *            A node in the aggregation tree
+         * @return false if the analysis was cancelled
+         */
+        private boolean findChildren(AbstractCalledFunction node, int depth, AggregatedCalledFunction aggregatedCalledFunction) {
+            fSegments.add(node);
+            int childDepth = depth + 1;
+            if (childDepth >= fIntervals.size()) {
+                return true;
+            }
+            List<ITmfStateInterval> intervals = fIntervals.get(childDepth);
+            long limit = node.getEnd();
+            int i = fCursors[childDepth];
+            while (i < intervals.size() && intervals.get(i).getEndTime() < node.getStart()) {
+                i++;
+            }
+            for (; i < intervals.size(); i++) {
+                if (fMonitor.isCanceled()) {
+                    return false;
+                }
+                ITmfStateInterval interval = intervals.get(i);
                 long intervalStart = interval.getStartTime();
                 long intervalEnd = interval.getEndTime();
-                if (intervalStart < node.getStart() || intervalEnd > limit) {
-                    return true;
+                if (intervalStart >= limit) {
+                    break;
+                }
+                ITmfStateValue stateValue = interval.getStateValue();
+                if (!stateValue.isNull()) {
+                    if (intervalStart < node.getStart() || intervalEnd > limit) {
+                        break;
+                    }
+                    AbstractCalledFunction segment = CalledFunctionFactory.create(intervalStart, intervalEnd + 1, node.getDepth() + 1, stateValue, fProcessId, node);
+                    AggregatedCalledFunction childNode = new AggregatedCalledFunction(segment, aggregatedCalledFunction);
+                    // Search for the children with the next quark.
+                    if (!findChildren(segment, childDepth, childNode)) {
+                        return false;
+                    }
+                    aggregatedCalledFunction.addChild(childNode);
+                    node.addChild(segment);
                 }
-                AbstractCalledFunction segment = CalledFunctionFactory.create(intervalStart, intervalEnd + 1, node.getDepth() + 1, stateValue, processId, node);
-                AggregatedCalledFunction childNode = new AggregatedCalledFunction(segment, aggregatedCalledFunction);
-                // Search for the children with the next quark.
-                findChildren(segment, depth + 1, ss, maxQuark, childNode, processId, monitor);
-                aggregatedCalledFunction.addChild(childNode);
-                node.addChild(segment);
             }
-            curTime = interval.getEndTime() + 1;
+            fCursors[childDepth] = i;
+            return true;
         }
-        return true;
     }
 
     @Override
@@ -43,7 +43,7 @@ public class TraceReadBenchmark {
      */
     @Test
     public void testKernelTrace() {
-        readTrace(CtfTestTrace.KERNEL, "trace-kernel", true);
+        readTrace(CtfTestTrace.KERNEL, "trace-kernel", true, 0);
     }
 
     /**
@@ -51,13 +51,57 @@ public class TraceReadBenchmark {
      */
     @Test
     public void testKernelVmTrace() {
-        readTrace(CtfTestTrace.KERNEL_VM, "trace-kernel-vm", false);
+        readTrace(CtfTestTrace.KERNEL_VM, "trace-kernel-vm", false, 0);
     }
 
-    private static void readTrace(CtfTestTrace testTrace, String testName, boolean inGlobalSummary) {
+    /**
+     * Benchmark reading the trace "kernel_vm" with packets decoded by one
+     * thread ahead of the reader
+     */
+    @Test
+    public void testKernelVmTrace1Decoder() {
+        readTrace(CtfTestTrace.KERNEL_VM, "trace-kernel-vm-1-decoder", false, 1);
+    }
+
+    /**
+     * Benchmark reading the trace "kernel_vm" with packets decoded by two
+     * threads ahead of the reader
+     */
+    @Test
+    public void testKernelVmTrace2Decoders() {
+        readTrace(CtfTestTrace.KERNEL_VM, "trace-kernel-vm-2-decoders", false, 2);
+    }
+
+    /**
+     * Benchmark reading the trace "kernel_vm" with packets decoded by four
+     * threads ahead of the reader
+     */
+    @Test
+    public void testKernelVmTrace4Decoders() {
+        readTrace(CtfTestTrace.KERNEL_VM, "trace-kernel-vm-4-decoders", false, 4);
+    }
+
+    /**
+     * Benchmark reading the trace "kernel_vm" with packets decoded by eight
+     * threads ahead of the reader
+     */
+    @Test
+    public void testKernelVmTrace8Decoders() {
+        readTrace(CtfTestTrace.KERNEL_VM, "trace-kernel-vm-8-decoders", false, 8);
+    }
+
+    private static void readTrace(CtfTestTrace testTrace, String testName, boolean inGlobalSummary, int decodeThreads) {
         Performance perf = Performance.getDefault();
         PerformanceMeter pm = perf.createPerformanceMeter(TEST_ID + '#' + testName);
-        perf.tagAsSummary(pm, TEST_SUITE_NAME + ':' + testName, Dimension.CPU_TIME);
+        if (decodeThreads > 0) {
+            /*
+             * The decode threads use more CPU time to read the trace in less
+             * time, so also report the elapsed time
+             */
+            perf.tagAsSummary(pm, TEST_SUITE_NAME + ':' + testName, new Dimension[] { Dimension.CPU_TIME, Dimension.ELAPSED_PROCESS });
+        } else {
+            perf.tagAsSummary(pm, TEST_SUITE_NAME + ':' + testName, Dimension.CPU_TIME);
+        }
 
         if (inGlobalSummary) {
             perf.tagAsGlobalSummary(pm, TEST_SUITE_NAME + ':' + testName, Dimension.CPU_TIME);
@@ -67,7 +111,7 @@ public class TraceReadBenchmark {
             pm.start();
             try {
                 CTFTrace trace = CtfTestTraceUtils.getTrace(testTrace);
-                try (CTFTraceReader traceReader = new CTFTraceReader(trace);) {
+                try (CTFTraceReader traceReader = new CTFTraceReader(trace, decodeThreads);) {
 
                     while (traceReader.hasMoreEvents()) {
                         IEventDefinition ed = traceReader.getCurrentEventDef();
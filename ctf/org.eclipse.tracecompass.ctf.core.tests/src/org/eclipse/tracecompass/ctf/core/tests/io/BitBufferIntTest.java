@@ -563,4 +563,36 @@ public class BitBufferIntTest {
         /* This will try writing past the buffer's end */
         fixture2.putInt(32, 1);
     }
+
+    /**
+     * Test {@link BitBuffer#get(int, boolean, ByteOrder)} against reading
+     * after setting the byte order of the buffer, for aligned and unaligned
+     * positions
+     *
+     * @throws CTFException
+     *             Not expected
+     */
+    @Test
+    public void testGetInOrder() throws CTFException {
+        BitBuffer reference = createBuffer(16);
+        for (ByteOrder bufferOrder : new ByteOrder[] { ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN }) {
+            for (ByteOrder order : new ByteOrder[] { ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN }) {
+                for (int length = 1; length <= 64; length++) {
+                    for (int position = 0; position <= 64; position++) {
+                        for (boolean signed : new boolean[] { true, false }) {
+                            reference.setByteOrder(order);
+                            reference.position(position);
+                            long expected = reference.get(length, signed);
+
+                            fixture.setByteOrder(bufferOrder);
+                            fixture.position(position);
+                            assertEquals(expected, fixture.get(length, signed, order));
+                            assertEquals(position + length, fixture.position());
+                            assertEquals(bufferOrder, fixture.getByteOrder());
+                        }
+                    }
+                }
+            }
+        }
+    }
 }
@@ -21,6 +21,7 @@ import org.eclipse.tracecompass.ctf.core.event.IEventDefinition;
 import org.eclipse.tracecompass.ctf.core.tests.shared.CtfTestTraceUtils;
 import org.eclipse.tracecompass.ctf.core.trace.CTFTrace;
 import org.eclipse.tracecompass.ctf.core.trace.CTFTraceReader;
+import org.eclipse.tracecompass.internal.ctf.core.trace.PacketDecoderPool;
 import org.eclipse.tracecompass.testtraces.ctf.CtfTestTrace;
 import org.junit.Before;
 import org.junit.Test;
@@ -298,6 +299,84 @@ public class CTFTraceReaderTest {
         assertTrue(result);
     }
 
+    /**
+     * Test that decoding the packets ahead of the reader returns the same
+     * events in the same order, before and after a seek
+     *
+     * @throws CTFException
+     *             error
+     */
+    @Test
+    public void testDecodeThreads() throws CTFException {
+        CTFTrace trace = CtfTestTraceUtils.getTrace(testTrace);
+        try (CTFTraceReader expected = new CTFTraceReader(trace);
+                CTFTraceReader actual = new CTFTraceReader(trace, 4);) {
+            assertSameEvents(expected, actual, 100000);
+
+            long timestamp = expected.getCurrentEventDef().getTimestamp() / 2 + expected.getStartTime() / 2;
+            assertEquals(expected.seek(timestamp), actual.seek(timestamp));
+            assertSameEvents(expected, actual, Integer.MAX_VALUE);
+            assertFalse(actual.hasMoreEvents());
+        }
+    }
+
+    /**
+     * Test that the readers using decode threads, and their copies, share one
+     * pool, which is shut down when the last of them is closed
+     *
+     * @throws CTFException
+     *             error
+     */
+    @Test
+    public void testSharedDecodePool() throws CTFException {
+        CTFTrace trace = CtfTestTraceUtils.getTrace(testTrace);
+        assertEquals(0, PacketDecoderPool.getNbUsers());
+        try (CTFTraceReader reader = new CTFTraceReader(trace, 2);
+                CTFTraceReader copy = reader.copyFrom();
+                CTFTraceReader other = new CTFTraceReader(trace, 4);) {
+            assertEquals(3, PacketDecoderPool.getNbUsers());
+            assertTrue(copy.hasMoreEvents());
+            copy.close();
+            assertEquals(2, PacketDecoderPool.getNbUsers());
+            assertTrue(reader.hasMoreEvents());
+            assertTrue(other.hasMoreEvents());
+        }
+        assertEquals(0, PacketDecoderPool.getNbUsers());
+    }
+
+    /**
+     * Test that the packets read ahead are counted in the budget of the pool
+     * until they are read or the reader is closed
+     *
+     * @throws CTFException
+     *             error
+     */
+    @Test
+    public void testReadAheadBudget() throws CTFException {
+        CTFTrace trace = CtfTestTraceUtils.getTrace(testTrace);
+        assertEquals(0, PacketDecoderPool.getReservedBytes());
+        try (CTFTraceReader reader = new CTFTraceReader(trace, 2);) {
+            assertTrue(PacketDecoderPool.getReservedBytes() > 0);
+            for (int i = 0; i < 10000 && reader.hasMoreEvents(); i++) {
+                reader.advance();
+            }
+        }
+        assertEquals(0, PacketDecoderPool.getReservedBytes());
+    }
+
+    private static void assertSameEvents(CTFTraceReader expected, CTFTraceReader actual, int count) throws CTFException {
+        for (int i = 0; i < count && expected.hasMoreEvents(); i++) {
+            assertTrue(actual.hasMoreEvents());
+            IEventDefinition expectedEvent = expected.getCurrentEventDef();
+            IEventDefinition actualEvent = actual.getCurrentEventDef();
+            assertEquals(expectedEvent.getTimestamp(), actualEvent.getTimestamp());
+            assertEquals(expectedEvent.getDeclaration().getName(), actualEvent.getDeclaration().getName());
+            assertEquals(expectedEvent.getCPU(), actualEvent.getCPU());
+            expected.advance();
+            actual.advance();
+        }
+    }
+
     /**
      * @return
      */
@@ -14,6 +14,7 @@ package org.eclipse.tracecompass.ctf.core.tests.types;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import java.nio.ByteBuffer;
 
@@ -129,6 +130,80 @@ public class StructDefinitionTest {
         assertNotNull(result);
     }
 
+    /**
+     * Run the long getLongValue(String, long) method test.
+     */
+    @Test
+    public void testGetLongValue() {
+        assertEquals(((IntegerDefinition) fixture.getDefinition(INT_ID)).getValue(), fixture.getLongValue(INT_ID, -1));
+        assertEquals(((EnumDefinition) fixture.getDefinition(ENUM_ID)).getIntegerValue().longValue(), fixture.getLongValue(ENUM_ID, -1));
+        assertEquals(-1, fixture.getLongValue(STRING_ID, -1));
+        assertEquals(-1, fixture.getLongValue("nonexistent", -1));
+    }
+
+    /**
+     * Test that the definitions of the integer fields, which are only read as
+     * values while decoding, are created once when they are looked up
+     */
+    @Test
+    public void testLazyIntegerDefinitions() {
+        long value = fixture.getLongValue(INT_ID, -1);
+        IDefinition definition = fixture.getDefinition(INT_ID);
+        assertNotNull(definition);
+        assertSame(IntegerDeclaration.INT_32B_DECL, definition.getDeclaration());
+        assertEquals(value, ((IntegerDefinition) definition).getValue());
+        assertSame(definition, fixture.getDefinition(INT_ID));
+        assertSame(definition, fixture.lookupDefinition(INT_ID));
+    }
+
+    /**
+     * Test that the integer fields escaped with an underscore are found by
+     * their unescaped name
+     *
+     * @throws CTFException
+     *             won't happen
+     */
+    @Test
+    public void testGetLongValueEscaped() throws CTFException {
+        StructDeclaration declaration = new StructDeclaration(8);
+        declaration.addField("_tid", IntegerDeclaration.UINT_8_DECL);
+        declaration.addField("prio", IntegerDeclaration.UINT_8_DECL);
+        BitBuffer bb = new BitBuffer(Util.testMemory(ByteBuffer.wrap(new byte[] { 42, 20 })));
+        StructDefinition definition = declaration.createDefinition(null, TEST_STRUCT_ID, bb);
+        assertEquals(42, definition.getLongValue("tid", -1));
+        assertEquals(42, definition.getLongValue("_tid", -1));
+        assertEquals(20, definition.getLongValue("prio", -1));
+        assertEquals(-1, definition.getLongValue("_prio", -1));
+    }
+
+    /**
+     * Test that the fields are found with the indexes cached by the
+     * declaration, including for a definition created before a field was
+     * added to its declaration
+     *
+     * @throws CTFException
+     *             won't happen
+     */
+    @Test
+    public void testFieldIndexes() throws CTFException {
+        StructDeclaration declaration = simpleStruct.getDeclaration();
+        assertEquals(0, declaration.getFieldIndex(INT_ID));
+        assertEquals(1, declaration.getFieldIndex(STRING_ID));
+        assertEquals(-1, declaration.getFieldIndex("nonexistent"));
+        assertSame(declaration.getFieldsList(), simpleStruct.getFieldNames());
+
+        declaration.addField(ENUM_ID, IntegerDeclaration.INT_32B_DECL);
+        assertEquals(2, declaration.getFieldIndex(ENUM_ID));
+        assertNotNull(simpleStruct.getDefinition(INT_ID));
+        assertNotNull(simpleStruct.getDefinition(STRING_ID));
+        assertNull(simpleStruct.getDefinition(ENUM_ID));
+        assertEquals(-1, simpleStruct.getLongValue(ENUM_ID, -1));
+
+        BitBuffer bb = new BitBuffer(Util.testMemory(ByteBuffer.wrap(new byte[100])));
+        StructDefinition extended = declaration.createDefinition(null, TEST_STRUCT_ID, bb);
+        assertEquals(0, extended.getLongValue(ENUM_ID, -1));
+    }
+
     /**
      * Run the ArrayDefinition lookupArray(String) method test.
      */
@@ -13,6 +13,9 @@ import java.util.Map;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.tracecompass.ctf.core.event.types.ICompositeDefinition;
+import org.eclipse.tracecompass.ctf.core.event.types.IDefinition;
+import org.eclipse.tracecompass.ctf.core.event.types.IntegerDefinition;
+import org.eclipse.tracecompass.ctf.core.event.types.StructDefinition;
 
 /**
  * IEventDefinition, an interface for representing individual events.
@@ -90,4 +93,30 @@ public interface IEventDefinition {
      */
     @NonNull Map<@NonNull String, @NonNull Object> getPacketAttributes();
 
+    /**
+     * Get the value of an integer field of the event payload as a primitive
+     * long, without creating any intermediate field object.
+     *
+     * @param fieldName
+     *            the name of the payload field
+     * @param defaultValue
+     *            the value to return if the event has no integer field with
+     *            this name
+     * @return the value of the field, or the default value
+     * @since 2.1
+     */
+    default long getFieldLongValue(String fieldName, long defaultValue) {
+        ICompositeDefinition fields = getFields();
+        if (fields instanceof StructDefinition) {
+            return ((StructDefinition) fields).getLongValue(fieldName, defaultValue);
+        }
+        if (fields != null) {
+            IDefinition definition = fields.getDefinition(fieldName);
+            if (definition instanceof IntegerDefinition) {
+                return ((IntegerDefinition) definition).getValue();
+            }
+        }
+        return defaultValue;
+    }
+
 }
\ No newline at end of file
@@ -149,6 +149,12 @@ public final class BitBuffer {
         if (length > BIT_LONG) {
             throw new CTFException("Cannot read a long longer than 64 bits. Rquested: " + length); //$NON-NLS-1$
         }
+        if (length == BIT_LONG && (fPosition & (BIT_CHAR - 1)) == 0 && canRead(BIT_LONG)) {
+            /* Byte-aligned quad word, read it in one go */
+            long retVal = fBuffer.getLong((int) (fPosition / BIT_CHAR));
+            fPosition += BIT_LONG;
+            return retVal;
+        }
         if (length > BIT_INT) {
             final int highShift = length - BIT_INT;
             long a = getInt();
@@ -170,6 +176,79 @@ public final class BitBuffer {
         return (signed ? retVal : (retVal & INT_MASK));
     }
 
+    /**
+     * Relative <i>get</i> method for reading an integer of <i>length</i> bits
+     * in a given byte order.
+     *
+     * When the current position is byte-aligned and the length is 8, 16, 32
+     * or 64 bits, the value is read directly from the underlying byte buffer,
+     * swapping its bytes if needed, without changing the byte order of this
+     * buffer. Other reads fall back to {@link #get(int, boolean)}.
+     *
+     * @param length
+     *            The length in bits of this integer
+     * @param signed
+     *            The sign extended flag
+     * @param order
+     *            The byte order of the integer
+     * @return The long value read from the buffer
+     * @throws CTFException
+     *             An error occurred reading the data. If more than 64 bits at a
+     *             time are read, or the buffer is read beyond its end, this
+     *             exception will be raised.
+     * @since 2.1
+     */
+    public long get(int length, boolean signed, ByteOrder order) throws CTFException {
+        if ((fPosition & (BIT_CHAR - 1)) == 0 && canRead(length)) {
+            int index = (int) (fPosition / BIT_CHAR);
+            boolean swap = (order != fByteOrder);
+            long retVal;
+            switch (length) {
+            case BIT_CHAR: {
+                byte val = fBuffer.get(index);
+                retVal = signed ? val : (val & BYTE_MASK);
+                break;
+            }
+            case BIT_SHORT: {
+                short val = fBuffer.getShort(index);
+                if (swap) {
+                    val = Short.reverseBytes(val);
+                }
+                retVal = signed ? val : (val & SHORT_MASK);
+                break;
+            }
+            case BIT_INT: {
+                int val = fBuffer.getInt(index);
+                if (swap) {
+                    val = Integer.reverseBytes(val);
+                }
+                retVal = signed ? val : (val & INT_MASK);
+                break;
+            }
+            case BIT_LONG: {
+                long val = fBuffer.getLong(index);
+                retVal = swap ? Long.reverseBytes(val) : val;
+                break;
+            }
+            default:
+                return getInOrder(length, signed, order);
+            }
+            fPosition += length;
+            return retVal;
+        }
+        return getInOrder(length, signed, order);
+    }
+
+    private long getInOrder(int length, boolean signed, ByteOrder order) throws CTFException {
+        ByteOrder previousOrder = fByteOrder;
+        setByteOrder(order);
+        try {
+            return get(length, signed);
+        } finally {
+            setByteOrder(previousOrder);
+        }
+    }
+
     /**
      * Relative bulk <i>get</i> method.
      *
@@ -352,10 +352,7 @@ public final class IntegerDeclaration extends Declaration implements ISimpleData
     @Override
     public IntegerDefinition createDefinition(@Nullable IDefinitionScope definitionScope,
             String fieldName, BitBuffer input) throws CTFException {
-        ByteOrder byteOrder = input.getByteOrder();
-        input.setByteOrder(fByteOrder);
         long value = read(input);
-        input.setByteOrder(byteOrder);
         return new IntegerDefinition(this, definitionScope, fieldName, value);
     }
 
@@ -404,38 +401,23 @@ public final class IntegerDeclaration extends Declaration implements ISimpleData
         return checkNotNull(BigInteger.ONE.shiftLeft(significantBits).negate());
     }
 
-    private long read(BitBuffer input) throws CTFException {
+    /**
+     * Read the value of this integer, without creating its definition
+     */
+    long read(BitBuffer input) throws CTFException {
         /* Offset the buffer position wrt the current alignment */
         alignRead(input);
 
-        boolean signed = isSigned();
         int length = getLength();
-        long bits = 0;
-
-        /*
-         * Is the endianness of this field the same as the endianness of the
-         * input buffer? If not, then temporarily set the buffer's endianness to
-         * this field's just to read the data
-         */
-        ByteOrder previousByteOrder = input.getByteOrder();
-        if ((getByteOrder() != input.getByteOrder())) {
-            input.setByteOrder(getByteOrder());
-        }
-
         if (length > SIZE_64) {
             throw new CTFException("Cannot read an integer with over 64 bits. Length given: " + length); //$NON-NLS-1$
         }
 
-        bits = input.get(length, signed);
-
         /*
-         * Put the input buffer's endianness back to original if it was changed
+         * Read the field in its own endianness, the aligned 8, 16, 32 and 64
+         * bit integers are read directly from the underlying byte buffer
          */
-        if (previousByteOrder != input.getByteOrder()) {
-            input.setByteOrder(previousByteOrder);
-        }
-
-        return bits;
+        return input.get(length, isSigned(), fByteOrder);
     }
 
     @Override
@@ -13,7 +13,9 @@
 package org.eclipse.tracecompass.ctf.core.event.types;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 import org.eclipse.core.runtime.IStatus;
@@ -25,6 +27,8 @@ import org.eclipse.tracecompass.ctf.core.event.scope.IDefinitionScope;
 import org.eclipse.tracecompass.ctf.core.event.scope.ILexicalScope;
 import org.eclipse.tracecompass.internal.ctf.core.Activator;
 
+import com.google.common.collect.ImmutableList;
+
 /**
  * A CTF structure declaration.
  *
@@ -51,6 +55,12 @@ public class StructDeclaration extends Declaration {
 
     /** Field names */
     private @NonNull String[] fFieldNames;
+    /** Field names, shared by the definitions of this declaration */
+    private @NonNull List<@NonNull String> fFieldNameList;
+    /** Index of each field name in the field names */
+    private final Map<String, Integer> fFieldIndexes = new HashMap<>();
+    /** Index of the fields escaped with an underscore, by unescaped name */
+    private final Map<String, Integer> fEscapedFieldIndexes = new HashMap<>();
     /** Field declarations */
     private @NonNull IDeclaration[] fFields;
 
@@ -72,6 +82,7 @@ public class StructDeclaration extends Declaration {
     public StructDeclaration(long align) {
         fMaxAlign = Math.max(align, 1);
         fFieldNames = new @NonNull String[0];
+        fFieldNameList = ImmutableList.of();
         fFields = new @NonNull IDeclaration[0];
     }
 
@@ -96,7 +107,21 @@ public class StructDeclaration extends Declaration {
      * @return does the field exist?
      */
     public boolean hasField(String name) {
-        return Arrays.asList(fFieldNames).contains(name);
+        return fFieldIndexes.containsKey(name);
+    }
+
+    /**
+     * Get the index of a field, which is also the index of its definition in
+     * the definitions of this structure.
+     *
+     * @param name
+     *            the name of the field, scopeless please
+     * @return the index of the field, or -1 if there is no such field
+     * @since 2.1
+     */
+    public int getFieldIndex(String name) {
+        Integer index = fFieldIndexes.get(name);
+        return (index == null ? -1 : index.intValue());
     }
 
     /**
@@ -108,20 +133,39 @@ public class StructDeclaration extends Declaration {
      */
     @Nullable
     public IDeclaration getField(String fieldName) {
-        final int indexOf = Arrays.asList(fFieldNames).indexOf(fieldName);
+        final int indexOf = getFieldIndex(fieldName);
         if (indexOf == -1) {
             return null;
         }
         return fFields[indexOf];
     }
 
+    /**
+     * Get the index of a field, also looking for the field escaped with an
+     * underscore, as "_tid" for "tid"
+     */
+    int getUnescapedFieldIndex(String name) {
+        Integer index = fFieldIndexes.get(name);
+        if (index == null) {
+            index = fEscapedFieldIndexes.get(name);
+        }
+        return (index == null ? -1 : index.intValue());
+    }
+
+    /**
+     * Get the declaration of a field from its index
+     */
+    IDeclaration getField(int index) {
+        return fFields[index];
+    }
+
     /**
      * Gets the field list.
      *
      * @return the field list.
      */
     public @NonNull Iterable<@NonNull String> getFieldsList() {
-        return Arrays.asList(fFieldNames);
+        return fFieldNameList;
     }
 
     @Override
@@ -147,15 +191,16 @@ public class StructDeclaration extends Declaration {
             String fieldName, BitBuffer input) throws CTFException {
         alignRead(input);
         final Definition[] myFields = new Definition[fFields.length];
+        final long[] values = new long[fFields.length];
         StructDefinition structDefinition = null;
         if (definitionScope == null) {
             InternalDef localDefinitionScope = new InternalDef(null, null);
-            structDefinition = new StructDefinition(this, localDefinitionScope, fieldName, myFields);
+            structDefinition = new StructDefinition(this, localDefinitionScope, fieldName, myFields, values);
             localDefinitionScope.setDefinition(structDefinition);
         } else {
-            structDefinition = new StructDefinition(this, definitionScope, fieldName, myFields);
+            structDefinition = new StructDefinition(this, definitionScope, fieldName, myFields, values);
         }
-        fillStruct(input, myFields, structDefinition);
+        fillStruct(input, myFields, values, structDefinition);
         return structDefinition;
     }
 
@@ -179,10 +224,11 @@ public class StructDeclaration extends Declaration {
             ILexicalScope fieldScope, @NonNull BitBuffer input) throws CTFException {
         alignRead(input);
         final Definition[] myFields = new Definition[fFields.length];
+        final long[] values = new long[fFields.length];
 
         StructDefinition structDefinition = new StructDefinition(this, definitionScope,
-                fieldScope, fieldScope.getName(), Arrays.asList(fFieldNames), myFields);
-        fillStruct(input, myFields, structDefinition);
+                fieldScope, fieldScope.getName(), fFieldNameList, myFields, values);
+        fillStruct(input, myFields, values, structDefinition);
         return structDefinition;
     }
 
@@ -207,16 +253,31 @@ public class StructDeclaration extends Declaration {
         names[length] = name;
         fields[length] = declaration;
         fFieldNames = names;
+        fFieldNameList = ImmutableList.copyOf(names);
+        fFieldIndexes.put(name, length);
+        if (name.startsWith("_")) { //$NON-NLS-1$
+            fEscapedFieldIndexes.putIfAbsent(name.substring(1), length);
+        }
         fFields = fields;
         fMaxAlign = Math.max(fMaxAlign, declaration.getAlignment());
     }
 
-    private void fillStruct(@NonNull BitBuffer input, final IDefinition[] myFields, StructDefinition structDefinition) throws CTFException {
+    /**
+     * Read the fields of a structure. The integer fields are only read into
+     * their value slot, their definitions are created by the structure
+     * definition when they are first looked up.
+     */
+    private void fillStruct(@NonNull BitBuffer input, final IDefinition[] myFields, final long[] values, StructDefinition structDefinition) throws CTFException {
         final @NonNull String[] fieldNames = fFieldNames;
         final @NonNull IDeclaration[] fields = fFields;
         for (int i = 0; i < fields.length; i++) {
-            /* We should not have inserted null keys... */
-            myFields[i] = fields[i].createDefinition(structDefinition, fieldNames[i], input);
+            IDeclaration field = fields[i];
+            if (field instanceof IntegerDeclaration) {
+                values[i] = ((IntegerDeclaration) field).read(input);
+            } else {
+                /* We should not have inserted null keys... */
+                myFields[i] = field.createDefinition(structDefinition, fieldNames[i], input);
+            }
         }
     }
 
@@ -243,13 +304,14 @@ public class StructDeclaration extends Declaration {
         if (eventHeaderDef != null) {
             merged = new InternalDef(definitionScope, eventHeaderDef);
         }
+        final long[] values = new long[fFields.length];
         StructDefinition structDefinition = new StructDefinition(this, merged,
-                fields, fields.getName(), Arrays.asList(fFieldNames), myFields);
+                fields, fields.getName(), fFieldNameList, myFields, values);
         if (merged instanceof InternalDef) {
             InternalDef internalDef = (InternalDef) merged;
             internalDef.setDefinition(structDefinition);
         }
-        fillStruct(input, myFields, structDefinition);
+        fillStruct(input, myFields, values, structDefinition);
         return structDefinition;
     }
 
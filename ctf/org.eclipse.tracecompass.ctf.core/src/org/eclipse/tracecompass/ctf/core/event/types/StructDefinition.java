@@ -12,20 +12,17 @@
 
 package org.eclipse.tracecompass.ctf.core.event.types;
 
-import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.ctf.core.event.scope.IDefinitionScope;
 import org.eclipse.tracecompass.ctf.core.event.scope.ILexicalScope;
 import org.eclipse.tracecompass.ctf.core.event.types.StructDeclaration.InternalDef;
 
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableMap.Builder;
 
 /**
  * A CTF structure definition (similar to a C structure).
@@ -48,7 +45,12 @@ public final class StructDefinition extends ScopedDefinition implements IComposi
 
     private final @NonNull List<@NonNull String> fFieldNames;
     private final Definition[] fDefinitions;
-    private Map<String, Definition> fDefinitionsMap = null;
+
+    /**
+     * Values of the integer fields whose definitions are not created yet, null
+     * if all the definitions were given
+     */
+    private final long @Nullable [] fValues;
 
     // ------------------------------------------------------------------------
     // Constructors
@@ -71,12 +73,22 @@ public final class StructDefinition extends ScopedDefinition implements IComposi
             IDefinitionScope definitionScope,
             @NonNull String structFieldName,
             Definition[] definitions) {
+        this(declaration, definitionScope, structFieldName, definitions, null);
+    }
+
+    /**
+     * Constructor with value slots. The definitions of the integer fields are
+     * null and created from their value when they are first looked up.
+     */
+    StructDefinition(@NonNull StructDeclaration declaration,
+            IDefinitionScope definitionScope,
+            @NonNull String structFieldName,
+            Definition[] definitions,
+            long @Nullable [] values) {
         super(declaration, definitionScope, structFieldName);
         fFieldNames = ImmutableList.copyOf(declaration.getFieldsList());
         fDefinitions = definitions;
-        if (fFieldNames.isEmpty()) {
-            fDefinitionsMap = Collections.EMPTY_MAP;
-        }
+        fValues = values;
     }
 
     /**
@@ -103,12 +115,25 @@ public final class StructDefinition extends ScopedDefinition implements IComposi
             @NonNull String structFieldName,
             @NonNull Iterable<@NonNull String> fieldNames,
             Definition[] definitions) {
+        this(declaration, definitionScope, scope, structFieldName, fieldNames, definitions, null);
+    }
+
+    /**
+     * Constructor with a scope and value slots. The definitions of the integer
+     * fields are null and created from their value when they are first looked
+     * up.
+     */
+    StructDefinition(@NonNull StructDeclaration declaration,
+            IDefinitionScope definitionScope,
+            @NonNull ILexicalScope scope,
+            @NonNull String structFieldName,
+            @NonNull Iterable<@NonNull String> fieldNames,
+            Definition[] definitions,
+            long @Nullable [] values) {
         super(declaration, definitionScope, structFieldName, scope);
         fFieldNames = ImmutableList.copyOf(fieldNames);
         fDefinitions = definitions;
-        if (fFieldNames.isEmpty()) {
-            fDefinitionsMap = Collections.EMPTY_MAP;
-        }
+        fValues = values;
     }
 
     // ------------------------------------------------------------------------
@@ -117,17 +142,75 @@ public final class StructDefinition extends ScopedDefinition implements IComposi
 
     @Override
     public Definition getDefinition(String fieldName) {
-        if (fDefinitionsMap == null) {
-            /* Build the definitions map */
-            Builder<String, Definition> mapBuilder = new ImmutableMap.Builder<>();
-            for (int i = 0; i < fFieldNames.size(); i++) {
-                if (fDefinitions[i] != null) {
-                    mapBuilder.put(fFieldNames.get(i), fDefinitions[i]);
-                }
+        int index = getFieldIndex(fieldName);
+        if (index == -1) {
+            return null;
+        }
+        return getDefinition(index);
+    }
+
+    /**
+     * Get the definition of a field, creating it from its value slot if it is
+     * an integer field looked up for the first time. Concurrent lookups may
+     * create it twice, the definitions are equivalent.
+     */
+    private Definition getDefinition(int index) {
+        Definition definition = fDefinitions[index];
+        long[] values = fValues;
+        if (definition == null && values != null) {
+            IDeclaration declaration = getDeclaration().getField(index);
+            if (declaration instanceof IntegerDeclaration) {
+                definition = new IntegerDefinition((IntegerDeclaration) declaration, this, fFieldNames.get(index), values[index]);
+                fDefinitions[index] = definition;
             }
-            fDefinitionsMap = mapBuilder.build();
         }
-        return fDefinitionsMap.get(fieldName);
+        return definition;
+    }
+
+    /**
+     * Get the index of a field. The index is cached by the declaration, unless
+     * this definition was created with other field names.
+     */
+    private int getFieldIndex(String fieldName) {
+        StructDeclaration declaration = getDeclaration();
+        if (fFieldNames == declaration.getFieldsList()) {
+            return declaration.getFieldIndex(fieldName);
+        }
+        return fFieldNames.indexOf(fieldName);
+    }
+
+    /**
+     * Get the value of an integer or enum field of this structure, using the
+     * index of the field cached by the declaration. A field escaped with an
+     * underscore, as "_tid", is also found by its unescaped name.
+     *
+     * @param fieldName
+     *            the name of the field
+     * @param defaultValue
+     *            the value to return if there is no integer field with this
+     *            name
+     * @return the value of the field, or the default value
+     * @since 2.1
+     */
+    public long getLongValue(String fieldName, long defaultValue) {
+        StructDeclaration declaration = getDeclaration();
+        int index = (fFieldNames == declaration.getFieldsList()) ? declaration.getUnescapedFieldIndex(fieldName) : getFieldIndex(fieldName);
+        if (index == -1) {
+            return defaultValue;
+        }
+        Definition definition = fDefinitions[index];
+        long[] values = fValues;
+        if (definition == null && values != null && declaration.getField(index) instanceof IntegerDeclaration) {
+            /* Read from the value slot, without creating the definition */
+            return values[index];
+        }
+        if (definition instanceof IntegerDefinition) {
+            return ((IntegerDefinition) definition).getValue();
+        }
+        if (definition instanceof EnumDefinition) {
+            return ((EnumDefinition) definition).getIntegerValue();
+        }
+        return defaultValue;
     }
 
     @Override
@@ -184,14 +267,14 @@ public final class StructDefinition extends ScopedDefinition implements IComposi
          * sequence refers to a field that is after it, the field's definition
          * will not be there yet in the hashmap.
          */
-        int val = fFieldNames.indexOf(lookupPath);
+        int val = getFieldIndex(lookupPath);
         if (val != -1) {
-            return fDefinitions[val];
+            return getDefinition(val);
         }
         String lookupUnderscored = "_" + lookupPath; //$NON-NLS-1$
-        val = fFieldNames.indexOf(lookupUnderscored);
+        val = getFieldIndex(lookupUnderscored);
         if (val != -1) {
-            return fDefinitions[val];
+            return getDefinition(val);
         }
         for (IDefinition child : fDefinitions) {
             if (child instanceof ScopedDefinition) {
@@ -18,7 +18,12 @@ import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
@@ -32,7 +37,9 @@ import org.eclipse.tracecompass.ctf.core.event.types.StructDeclaration;
 import org.eclipse.tracecompass.internal.ctf.core.Activator;
 import org.eclipse.tracecompass.internal.ctf.core.SafeMappedByteBuffer;
 import org.eclipse.tracecompass.internal.ctf.core.trace.CTFPacketReader;
+import org.eclipse.tracecompass.internal.ctf.core.trace.DecodedPacketReader;
 import org.eclipse.tracecompass.internal.ctf.core.trace.NullPacketReader;
+import org.eclipse.tracecompass.internal.ctf.core.trace.PacketDecoderPool;
 
 /**
  * A CTF trace event reader. Reads the events of a trace file.
@@ -46,6 +53,14 @@ public class CTFStreamInputReader implements AutoCloseable {
 
     private static final int BITS_PER_BYTE = Byte.SIZE;
 
+    /**
+     * Size, in bytes of packet content, of the packets decoded ahead of the
+     * current one when a decoder is set. This bounds the memory used by the
+     * decoded events of a stream, the shared budget of
+     * {@link PacketDecoderPool} bounds the memory of all the streams.
+     */
+    private static final long READ_AHEAD_BYTES = 8L * 1024 * 1024;
+
     // ------------------------------------------------------------------------
     // Attributes
     // ------------------------------------------------------------------------
@@ -82,6 +97,35 @@ public class CTFStreamInputReader implements AutoCloseable {
      */
     private boolean fLive = false;
 
+    /**
+     * Executor decoding the next packets, null to decode them on the reading
+     * thread
+     */
+    private @Nullable ExecutorService fDecoder = null;
+
+    /**
+     * Packets being decoded ahead of the current one, in packet index order
+     */
+    private final Deque<PendingPacket> fPendingPackets = new ArrayDeque<>();
+
+    /**
+     * Size of the packets in {@link #fPendingPackets}, reserved in the budget
+     * of the {@link PacketDecoderPool}
+     */
+    private long fPendingBytes = 0;
+
+    private static final class PendingPacket {
+        private final int fIndex;
+        private final Future<IPacketReader> fReader;
+        private final long fBytes;
+
+        public PendingPacket(int index, Future<IPacketReader> reader, long bytes) {
+            fIndex = index;
+            fReader = reader;
+            fBytes = bytes;
+        }
+    }
+
     // ------------------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------------------
@@ -180,6 +224,7 @@ public class CTFStreamInputReader implements AutoCloseable {
      */
     @Override
     public void close() throws IOException {
+        cancelPendingPackets();
         if (fFileChannel != null) {
             fFileChannel.close();
         }
@@ -275,6 +320,32 @@ public class CTFStreamInputReader implements AutoCloseable {
         return fLive;
     }
 
+    /**
+     * Set the executor used to decode the packets of this stream ahead of the
+     * reading thread. The events of the next few packets are then decoded
+     * concurrently, and reading an event only waits for its packet to be
+     * ready. The packets decoded in advance are bounded in bytes, per stream
+     * and for all the readers, so the memory used stays bounded. Read-ahead is
+     * not used while reading live.
+     *
+     * @param decoder
+     *            The executor decoding the packets, or null to decode them on
+     *            the reading thread
+     * @since 2.1
+     */
+    public void setDecoder(@Nullable ExecutorService decoder) {
+        cancelPendingPackets();
+        fDecoder = decoder;
+        if (decoder != null && !fLive) {
+            try {
+                scheduleReadAhead(decoder);
+            } catch (CTFException e) {
+                /* The packets will be indexed again when they are read */
+                Activator.log(e.getMessage());
+            }
+        }
+    }
+
     /**
      * Get the event context of the stream
      *
@@ -337,9 +408,85 @@ public class CTFStreamInputReader implements AutoCloseable {
             }
 
         }
-        ICTFPacketDescriptor packet = getPacket();
-        fPacketReader = getCurrentPacketReader(packet);
+        ExecutorService decoder = fDecoder;
+        if (decoder == null || fLive) {
+            ICTFPacketDescriptor packet = getPacket();
+            fPacketReader = getCurrentPacketReader(packet);
+            return;
+        }
+        PendingPacket pending = fPendingPackets.peekFirst();
+        if (pending == null || pending.fIndex != fPacketIndex) {
+            /* We seeked away from the packets read ahead */
+            cancelPendingPackets();
+            /* Needed right away, so not counted in the read-ahead budget */
+            pending = decodePacket(decoder, fPacketIndex, 0);
+        } else {
+            fPendingPackets.removeFirst();
+            releaseBytes(pending);
+        }
+        scheduleReadAhead(decoder);
+        fPacketReader = getDecodedPacket(pending);
+    }
+
+    /**
+     * Index and start decoding the packets following the current one, until
+     * the read-ahead budget of the stream or of the pool is used or there are
+     * no more packets.
+     */
+    private void scheduleReadAhead(ExecutorService decoder) throws CTFException {
+        PendingPacket last = fPendingPackets.peekLast();
+        int index = (last == null ? fPacketIndex : last.fIndex) + 1;
+        while (true) {
+            if (getPacketSize() < (index + 1) && !fStreamInput.addPacketHeaderIndex()) {
+                return;
+            }
+            long bytes = Math.max(0, fStreamInput.getIndex().getElement(index).getContentSizeBits() / BITS_PER_BYTE);
+            if (fPendingBytes + bytes > READ_AHEAD_BYTES || !PacketDecoderPool.reserve(bytes)) {
+                return;
+            }
+            fPendingBytes += bytes;
+            fPendingPackets.addLast(decodePacket(decoder, index, bytes));
+            index++;
+        }
+    }
 
+    private PendingPacket decodePacket(ExecutorService decoder, int index, long bytes) {
+        final ICTFPacketDescriptor packet = fStreamInput.getIndex().getElement(index);
+        Future<IPacketReader> reader = decoder.submit(() -> DecodedPacketReader.decode(getCurrentPacketReader(packet), packet));
+        return new PendingPacket(index, NonNullUtils.checkNotNull(reader), bytes);
+    }
+
+    private void releaseBytes(PendingPacket pending) {
+        if (pending.fBytes > 0) {
+            fPendingBytes -= pending.fBytes;
+            PacketDecoderPool.free(pending.fBytes);
+        }
+    }
+
+    private static IPacketReader getDecodedPacket(PendingPacket pending) throws CTFException {
+        try {
+            return NonNullUtils.checkNotNull(pending.fReader.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CTFIOException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CTFException) {
+                throw (CTFException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new CTFIOException(e);
+        }
+    }
+
+    private void cancelPendingPackets() {
+        for (PendingPacket pending : fPendingPackets) {
+            pending.fReader.cancel(false);
+            releaseBytes(pending);
+        }
+        fPendingPackets.clear();
     }
 
     /**
@@ -22,11 +22,15 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import org.eclipse.jdt.annotation.Nullable;
 
 import org.eclipse.tracecompass.ctf.core.CTFException;
 import org.eclipse.tracecompass.ctf.core.event.IEventDeclaration;
 import org.eclipse.tracecompass.ctf.core.event.IEventDefinition;
 import org.eclipse.tracecompass.internal.ctf.core.Activator;
+import org.eclipse.tracecompass.internal.ctf.core.trace.PacketDecoderPool;
 import org.eclipse.tracecompass.internal.ctf.core.trace.StreamInputReaderTimestampComparator;
 
 /**
@@ -81,6 +85,17 @@ public class CTFTraceReader implements AutoCloseable {
      */
     private boolean fClosed = false;
 
+    /**
+     * Number of threads decoding the packets ahead of the reader
+     */
+    private final int fDecodeThreads;
+
+    /**
+     * Shared pool decoding the packets ahead of the reader, null if the
+     * packets are decoded by the reading thread
+     */
+    private final @Nullable ExecutorService fDecoder;
+
     // ------------------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------------------
@@ -94,18 +109,49 @@ public class CTFTraceReader implements AutoCloseable {
      *             if an error occurs
      */
     public CTFTraceReader(CTFTrace trace) throws CTFException {
+        this(trace, 0);
+    }
+
+    /**
+     * Constructs a TraceReader to read a trace, decoding the packets of each
+     * stream ahead of time using a pool of threads. The events are still
+     * returned in timestamp order by the thread calling {@link #advance()},
+     * which only waits for the packets that are not decoded yet. The decode
+     * threads are shared by all the readers, and their number is bounded by the
+     * number of processors.
+     *
+     * @param trace
+     *            The trace to read from.
+     * @param decodeThreads
+     *            The number of threads decoding the packets, 0 to decode them
+     *            on the reading thread
+     * @throws CTFException
+     *             if an error occurs
+     * @since 2.1
+     */
+    public CTFTraceReader(CTFTrace trace, int decodeThreads) throws CTFException {
         fTrace = trace;
+        fDecodeThreads = decodeThreads;
+        fDecoder = (decodeThreads > 0) ? PacketDecoderPool.acquire(decodeThreads) : null;
         fStreamInputReaders.clear();
 
-        /**
-         * Create the trace file readers.
-         */
-        createStreamInputReaders();
+        try {
+            /**
+             * Create the trace file readers.
+             */
+            createStreamInputReaders();
 
-        /**
-         * Populate the timestamp-based priority queue.
-         */
-        populateStreamInputReaderHeap();
+            /**
+             * Populate the timestamp-based priority queue.
+             */
+            populateStreamInputReaderHeap();
+        } catch (CTFException | RuntimeException e) {
+            ExecutorService decoder = fDecoder;
+            if (decoder != null) {
+                PacketDecoderPool.release(decoder);
+            }
+            throw e;
+        }
 
         /**
          * Get the start Time of this trace bear in mind that the trace could be
@@ -128,7 +174,7 @@ public class CTFTraceReader implements AutoCloseable {
     public CTFTraceReader copyFrom() throws CTFException {
         CTFTraceReader newReader = null;
 
-        newReader = new CTFTraceReader(fTrace);
+        newReader = new CTFTraceReader(fTrace, fDecodeThreads);
         newReader.fStartTime = fStartTime;
         newReader.setEndTime(fEndTime);
         return newReader;
@@ -151,6 +197,11 @@ public class CTFTraceReader implements AutoCloseable {
             }
             fStreamInputReaders.clear();
         }
+        ExecutorService decoder = fDecoder;
+        if (decoder != null && !fClosed) {
+            /* The pending packets were cancelled when closing the readers */
+            PacketDecoderPool.release(decoder);
+        }
         fPrio.clear();
         fClosed = true;
     }
@@ -212,7 +263,9 @@ public class CTFTraceReader implements AutoCloseable {
                 /*
                  * Create a reader and add it to the group.
                  */
-                fStreamInputReaders.add(new CTFStreamInputReader(checkNotNull(streamInput)));
+                CTFStreamInputReader reader = new CTFStreamInputReader(checkNotNull(streamInput));
+                reader.setDecoder(fDecoder);
+                fStreamInputReaders.add(reader);
             }
         }
 
@@ -249,6 +302,7 @@ public class CTFTraceReader implements AutoCloseable {
                 try (CTFStreamInputReader streamInputReader = new CTFStreamInputReader(checkNotNull(streamInput))) {
                     if (!fStreamInputReaders.contains(streamInputReader)) {
                         CTFStreamInputReader streamInputReaderToAdd = new CTFStreamInputReader(checkNotNull(streamInput));
+                        streamInputReaderToAdd.setDecoder(fDecoder);
                         streamInputReaderToAdd.readNextEvent();
                         fStreamInputReaders.add(streamInputReaderToAdd);
                         readers.add(streamInputReaderToAdd);
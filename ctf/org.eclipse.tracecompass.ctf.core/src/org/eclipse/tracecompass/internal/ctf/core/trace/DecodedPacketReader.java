@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.ctf.core.trace;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.ctf.core.CTFException;
+import org.eclipse.tracecompass.ctf.core.event.IEventDefinition;
+import org.eclipse.tracecompass.ctf.core.event.types.ICompositeDefinition;
+import org.eclipse.tracecompass.ctf.core.trace.CTFIOException;
+import org.eclipse.tracecompass.ctf.core.trace.ICTFPacketDescriptor;
+import org.eclipse.tracecompass.ctf.core.trace.IPacketReader;
+
+/**
+ * Packet reader over the events of a packet that was already decoded, possibly
+ * by another thread. The events are returned in the order they were read from
+ * the packet. If the decoding failed part way through the packet, the events
+ * read before the error are returned first, then the error is thrown.
+ */
+@NonNullByDefault
+public final class DecodedPacketReader implements IPacketReader {
+
+    private final ICTFPacketDescriptor fPacket;
+    private final int fCPU;
+    private final List<IEventDefinition> fEvents;
+    private final List<@Nullable ICompositeDefinition> fEventHeaders;
+    private final @Nullable CTFException fError;
+
+    private int fPosition = 0;
+    private @Nullable ICompositeDefinition fEventHeader = null;
+
+    private DecodedPacketReader(ICTFPacketDescriptor packet, int cpu, List<IEventDefinition> events, List<@Nullable ICompositeDefinition> eventHeaders, @Nullable CTFException error) {
+        fPacket = packet;
+        fCPU = cpu;
+        fEvents = events;
+        fEventHeaders = eventHeaders;
+        fError = error;
+    }
+
+    /**
+     * Decode all the events of a packet
+     *
+     * @param reader
+     *            The packet reader, positioned at the start of the packet
+     * @param packet
+     *            The packet being read
+     * @return A packet reader over the decoded events
+     */
+    public static DecodedPacketReader decode(IPacketReader reader, ICTFPacketDescriptor packet) {
+        List<IEventDefinition> events = new ArrayList<>();
+        List<@Nullable ICompositeDefinition> eventHeaders = new ArrayList<>();
+        CTFException error = null;
+        try {
+            while (reader.hasMoreEvents()) {
+                events.add(reader.readNextEvent());
+                eventHeaders.add(reader.getCurrentPacketEventHeader());
+            }
+        } catch (CTFException e) {
+            error = e;
+        }
+        return new DecodedPacketReader(packet, reader.getCPU(), events, eventHeaders, error);
+    }
+
+    @Override
+    public int getCPU() {
+        return fCPU;
+    }
+
+    @Override
+    public boolean hasMoreEvents() {
+        return fPosition < fEvents.size() || (fError != null && fPosition == fEvents.size());
+    }
+
+    @Override
+    public IEventDefinition readNextEvent() throws CTFException {
+        int position = fPosition++;
+        if (position < fEvents.size()) {
+            fEventHeader = fEventHeaders.get(position);
+            return fEvents.get(position);
+        }
+        CTFException error = fError;
+        if (error != null) {
+            throw error;
+        }
+        throw new CTFIOException("No more events in packet"); //$NON-NLS-1$
+    }
+
+    @Override
+    public ICTFPacketDescriptor getCurrentPacket() {
+        return fPacket;
+    }
+
+    @Override
+    public @Nullable ICompositeDefinition getCurrentPacketEventHeader() {
+        return fEventHeader;
+    }
+}
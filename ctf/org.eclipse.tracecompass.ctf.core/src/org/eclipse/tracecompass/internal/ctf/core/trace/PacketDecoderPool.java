@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.ctf.core.trace;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Pool of threads decoding CTF packets ahead of the trace readers. A single
+ * pool is shared by all the readers using decode threads, including the copies
+ * of a reader. Its number of threads is the largest number requested by a
+ * reader, bounded by the number of processors. The pool is shut down when the
+ * last reader using it releases it.
+ *
+ * The pool also holds the budget of the packets decoded ahead of time, which
+ * is shared by all the readers. A packet is only read ahead if its size fits in
+ * what remains of the budget, so the decoded events waiting to be read stay
+ * bounded no matter how many readers or streams are open.
+ */
+@NonNullByDefault
+public final class PacketDecoderPool {
+
+    private static final int MAX_THREADS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Maximum size, in bytes of packet content, of the packets decoded ahead of
+     * all the readers and not read yet
+     */
+    private static final long READ_AHEAD_BUDGET = 64L * 1024 * 1024;
+
+    private static @Nullable ThreadPoolExecutor fPool = null;
+    private static int fUsers = 0;
+    private static long fReservedBytes = 0;
+
+    private PacketDecoderPool() {
+        // Do nothing
+    }
+
+    /**
+     * Get the shared pool, creating it or adding threads to it if needed. Each
+     * call must be matched by a call to {@link #release(ExecutorService)}.
+     *
+     * @param nbThreads
+     *            The number of threads requested by the reader
+     * @return The shared pool
+     */
+    public static synchronized ExecutorService acquire(int nbThreads) {
+        int threads = Math.max(1, Math.min(nbThreads, MAX_THREADS));
+        ThreadPoolExecutor pool = fPool;
+        if (pool == null) {
+            pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+                Thread thread = new Thread(r, "CTF packet decoder"); //$NON-NLS-1$
+                thread.setDaemon(true);
+                return thread;
+            });
+            fPool = pool;
+        } else if (pool.getMaximumPoolSize() < threads) {
+            pool.setMaximumPoolSize(threads);
+            pool.setCorePoolSize(threads);
+        }
+        fUsers++;
+        return pool;
+    }
+
+    /**
+     * Release the shared pool. It is shut down when no reader uses it anymore.
+     * The tasks of the reader must be cancelled before.
+     *
+     * @param pool
+     *            The pool returned by {@link #acquire(int)}
+     */
+    public static synchronized void release(ExecutorService pool) {
+        if (pool != fPool) {
+            /* Already shut down */
+            return;
+        }
+        fUsers--;
+        if (fUsers == 0) {
+            pool.shutdownNow();
+            fPool = null;
+        }
+    }
+
+    /**
+     * Get the number of readers using the shared pool
+     *
+     * @return The number of users of the pool, 0 if there is no pool
+     */
+    public static synchronized int getNbUsers() {
+        return fUsers;
+    }
+
+    /**
+     * Reserve part of the read-ahead budget for a packet to decode ahead of
+     * time. Each successful reservation must be matched by a call to
+     * {@link #free(long)} once the packet is read or cancelled.
+     *
+     * @param bytes
+     *            The size of the packet content, in bytes
+     * @return true if the packet fits in the budget, false if it should not be
+     *         read ahead
+     */
+    public static synchronized boolean reserve(long bytes) {
+        if (fReservedBytes + bytes > READ_AHEAD_BUDGET) {
+            return false;
+        }
+        fReservedBytes += bytes;
+        return true;
+    }
+
+    /**
+     * Give back part of the read-ahead budget
+     *
+     * @param bytes
+     *            The size reserved with {@link #reserve(long)}
+     */
+    public static synchronized void free(long bytes) {
+        fReservedBytes -= bytes;
+    }
+
+    /**
+     * Get the size of the packets decoded ahead of time and not read yet
+     *
+     * @return The reserved part of the budget, in bytes
+     */
+    public static synchronized long getReservedBytes() {
+        return fReservedBytes;
+    }
+}
@@ -15,6 +15,7 @@ package org.eclipse.tracecompass.tmf.ctf.core.tests.perf.experiment;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
@@ -44,6 +45,7 @@ public class ExperimentBenchmark {
 
     private static final String TEST_ID = "org.eclipse.linuxtools#Experiment benchmark#";
     private static final int MAX_TRACES = 160;
+    private static final int MANY_TRACES = 400;
     private static final int BLOCK_SIZE = 100;
     private static final String TRACES_ROOT_PATH;
     static {
@@ -55,6 +57,7 @@ public class ExperimentBenchmark {
     }
     private static final int SAMPLE_SIZE_SLOW = 20;
     private static final int SAMPLE_SIZE = 100;
+    private static final int SAMPLE_SIZE_MANY = 5;
 
     private TmfExperimentStub fExperiment;
 
@@ -106,6 +109,31 @@ public class ExperimentBenchmark {
         }
     }
 
+    /**
+     * Run the benchmark of an experiment with hundreds of traces, reading only
+     * the experiment. The traces of the directory are opened several times to
+     * reach the number of traces.
+     */
+    @Test
+    public void benchmarkExperimentManyTraces() {
+        Performance perf = Performance.getDefault();
+        PerformanceMeter pm = perf.createPerformanceMeter(TEST_ID + MANY_TRACES + " traces, experiment only");
+        perf.tagAsSummary(pm, "Experiment Benchmark:" + MANY_TRACES + " traces, experiment only", Dimension.CPU_TIME);
+
+        for (int s = 0; s < SAMPLE_SIZE_MANY; s++) {
+            InnerEventRequest expReq = new InnerEventRequest(ITmfEvent.class, 0, ITmfEventRequest.ALL_DATA, ExecutionType.BACKGROUND);
+            initCyclic(MANY_TRACES);
+
+            pm.start();
+            fExperiment.sendRequest(expReq);
+            waitForRequest(expReq, new InnerEventRequest[0]);
+            pm.stop();
+
+            fExperiment.dispose();
+        }
+        pm.commit();
+    }
+
     /**
      * Initialization
      *
@@ -139,6 +167,37 @@ public class ExperimentBenchmark {
         }
     }
 
+    /**
+     * Initialization, opening the valid traces of the directory as many
+     * times as needed
+     *
+     * @param nbTraces
+     *            number of traces to open
+     */
+    private void initCyclic(int nbTraces) {
+        File parentDir = new File(TRACES_ROOT_PATH);
+        List<String> paths = new ArrayList<>();
+        for (File traceFile : parentDir.listFiles()) {
+            String absolutePath = traceFile.getAbsolutePath();
+            if (new CtfTmfTrace().validate(null, absolutePath).isOK()) {
+                paths.add(absolutePath);
+            }
+        }
+        if (paths.isEmpty()) {
+            throw new IllegalStateException("No valid trace in directory");
+        }
+        ITmfTrace[] traces = new CtfTmfTrace[nbTraces];
+        try {
+            for (int i = 0; i < nbTraces; i++) {
+                traces[i] = new CtfTmfTrace();
+                traces[i].initTrace(null, paths.get(i % paths.size()), ITmfEvent.class, "Trace " + i, null);
+            }
+        } catch (TmfTraceException e) {
+            throw new IllegalStateException(e);
+        }
+        fExperiment = new TmfExperimentStub("MegaExperiment", traces, BLOCK_SIZE);
+    }
+
     private static void waitForRequest(InnerEventRequest expReq, InnerEventRequest[] traceReqs) {
         try {
             expReq.waitForCompletion();
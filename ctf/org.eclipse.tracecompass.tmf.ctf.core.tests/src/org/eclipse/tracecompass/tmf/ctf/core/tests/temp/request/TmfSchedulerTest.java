@@ -20,6 +20,7 @@ import static org.junit.Assert.fail;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.jdt.annotation.NonNull;
@@ -333,6 +334,34 @@ public class TmfSchedulerTest {
         assertFalse(background9.isCompleted());
     }
 
+    /**
+     * Two foreground requests on different time ranges run at the same time:
+     * each request waits in its first event for the other one to start.
+     */
+    @Test
+    public void concurrentRequests() {
+        TmfTimeRange firstHalf = new TmfTimeRange(TmfTimestamp.fromNanos(fStartTime),
+                TmfTimestamp.fromNanos(fStartTime + ((fEndTime - fStartTime) / 2)));
+        TmfTimeRange secondHalf = new TmfTimeRange(TmfTimestamp.fromNanos(fStartTime + ((fEndTime - fStartTime) / 2) + 1),
+                TmfTimestamp.fromNanos(fEndTime));
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch secondStarted = new CountDownLatch(1);
+        WaitingRequest first = new WaitingRequest(firstHalf, firstStarted, secondStarted);
+        WaitingRequest second = new WaitingRequest(secondHalf, secondStarted, firstStarted);
+
+        fixture.sendRequest(first);
+        fixture.sendRequest(second);
+        try {
+            first.waitForCompletion();
+            second.waitForCompletion();
+        } catch (InterruptedException e) {
+            fail();
+        }
+        assertTrue(first.sawOtherRequest());
+        assertTrue(second.sawOtherRequest());
+        assertEquals(NB_EVENTS_TRACE, first.getNbRead() + second.getNbRead());
+    }
+
     /**
      * Test if the scheduler is working as expected
      */
@@ -415,6 +444,39 @@ public class TmfSchedulerTest {
         }
     }
 
+    private class WaitingRequest extends TmfEventRequest {
+        private final CountDownLatch fStarted;
+        private final CountDownLatch fOtherStarted;
+        private boolean fSawOther = false;
+
+        WaitingRequest(TmfTimeRange timeRange, CountDownLatch started, CountDownLatch otherStarted) {
+            super(fixture.getEventType(),
+                    timeRange,
+                    0,
+                    ITmfEventRequest.ALL_DATA,
+                    ExecutionType.FOREGROUND);
+            fStarted = started;
+            fOtherStarted = otherStarted;
+        }
+
+        @Override
+        public void handleData(final ITmfEvent event) {
+            super.handleData(event);
+            if (fStarted.getCount() > 0) {
+                fStarted.countDown();
+                try {
+                    fSawOther = fOtherStarted.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    fail();
+                }
+            }
+        }
+
+        public boolean sawOtherRequest() {
+            return fSawOther;
+        }
+    }
+
     private class ForegroundRequest extends TmfEventRequest {
         private int nbEvents = 0;
         private String foregroundName;
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.ctf.core.tests.trace.indexer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.testtraces.ctf.CtfTestTrace;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.synchronization.TimestampTransformFactory;
+import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
+import org.eclipse.tracecompass.tmf.ctf.core.context.CtfLocation;
+import org.eclipse.tracecompass.tmf.ctf.core.context.CtfLocationInfo;
+import org.eclipse.tracecompass.tmf.ctf.core.tests.shared.CtfTmfTestTraceUtils;
+import org.eclipse.tracecompass.tmf.ctf.core.trace.CtfTmfTrace;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test seeking a CTF trace by timestamp while it is being indexed
+ */
+public class CtfTmfTraceIndexerTest {
+
+    private static final @NonNull CtfTestTrace TEST_TRACE = CtfTestTrace.KERNEL;
+    private static final int TARGET_EVENT = 10000;
+    private static final long SHIFT = 1000000000L;
+
+    private CtfTmfTrace fTrace;
+
+    /**
+     * Open the trace without its supplementary files, so it is not indexed
+     */
+    @Before
+    public void setUp() {
+        CtfTmfTrace trace = CtfTmfTestTraceUtils.getTrace(TEST_TRACE);
+        CtfTmfTestTraceUtils.dispose(TEST_TRACE);
+        TmfTraceManager.deleteSupplementaryFiles(trace);
+        fTrace = CtfTmfTestTraceUtils.getTrace(TEST_TRACE);
+    }
+
+    /**
+     * Dispose the trace and delete its index
+     */
+    @After
+    public void tearDown() {
+        fTrace.setTimestampTransform(TimestampTransformFactory.getDefaultTransform());
+        CtfTmfTestTraceUtils.dispose(TEST_TRACE);
+        TmfTraceManager.deleteSupplementaryFiles(fTrace);
+    }
+
+    /**
+     * Test that a timestamp after the last checkpoint of a partial index is
+     * found from the packet index, and that the rank is known once the index
+     * is complete.
+     */
+    @Test
+    public void testSeekAfterPartialIndex() {
+        /* Read the target event without updating the index */
+        ITmfContext context = fTrace.seekEvent(new CtfLocation(new CtfLocationInfo(0L, 0L)));
+        ITmfEvent event = null;
+        for (int i = 0; i <= TARGET_EVENT; i++) {
+            event = fTrace.getNext(context);
+        }
+        assertNotNull(event);
+        ITmfTimestamp target = event.getTimestamp();
+        context.dispose();
+
+        /* Read the first event to insert the first checkpoint */
+        context = fTrace.seekEvent(0);
+        assertNotNull(fTrace.getNext(context));
+        context.dispose();
+
+        context = fTrace.seekEvent(target);
+        assertFalse(context.hasValidRank());
+        event = fTrace.getNext(context);
+        assertNotNull(event);
+        assertEquals(target, event.getTimestamp());
+        context.dispose();
+
+        fTrace.indexTrace(true);
+        context = fTrace.seekEvent(target);
+        assertTrue(context.hasValidRank());
+        assertTrue(context.getRank() <= TARGET_EVENT);
+        event = fTrace.getNext(context);
+        assertNotNull(event);
+        assertEquals(target, event.getTimestamp());
+        context.dispose();
+    }
+
+    /**
+     * Test that a trace with a shifted timestamp transform is not split in
+     * ranges, whose boundaries are raw timestamps, and that it is indexed
+     * sequentially with the same events as without the transform.
+     */
+    @Test
+    public void testShiftedTransform() {
+        assertFalse(fTrace.getRangeLocations(4).isEmpty());
+        fTrace.indexTrace(true);
+        long nbEvents = fTrace.getNbEvents();
+        ITmfContext context = fTrace.seekEvent(TARGET_EVENT);
+        ITmfEvent event = fTrace.getNext(context);
+        assertNotNull(event);
+        long target = event.getTimestamp().toNanos();
+        context.dispose();
+
+        CtfTmfTestTraceUtils.dispose(TEST_TRACE);
+        TmfTraceManager.deleteSupplementaryFiles(fTrace);
+        fTrace = CtfTmfTestTraceUtils.getTrace(TEST_TRACE);
+        fTrace.setTimestampTransform(TimestampTransformFactory.createWithOffset(SHIFT));
+        assertTrue(fTrace.getRangeLocations(4).isEmpty());
+
+        fTrace.indexTrace(true);
+        assertEquals(nbEvents, fTrace.getNbEvents());
+        context = fTrace.seekEvent(TARGET_EVENT);
+        event = fTrace.getNext(context);
+        assertNotNull(event);
+        assertEquals(target + SHIFT, event.getTimestamp().toNanos());
+        context.dispose();
+    }
+}
@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.tmf.ctf.core.trace;
+
+import org.eclipse.tracecompass.tmf.core.synchronization.TimestampTransformFactory;
+import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.TmfBTreeTraceIndexer;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint.ITmfCheckpoint;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint.ITmfCheckpointIndex;
+import org.eclipse.tracecompass.tmf.ctf.core.context.CtfLocation;
+import org.eclipse.tracecompass.tmf.ctf.core.context.CtfLocationInfo;
+import org.eclipse.tracecompass.tmf.ctf.core.trace.CtfTmfTrace;
+
+/**
+ * Checkpoint indexer of CTF traces.
+ *
+ * The streams of a CTF trace have a packet index giving the time range of
+ * each packet, so a timestamp can be located without reading the events
+ * before it. While the index is not complete, seeking a timestamp after the
+ * last checkpoint uses the packet index instead of reading all the events
+ * from the last checkpoint. The rank of the resulting context is unknown,
+ * since the packets do not give their number of events. Seeking by rank
+ * still uses the checkpoints.
+ */
+public class CtfTmfTraceIndexer extends TmfBTreeTraceIndexer {
+
+    private final CtfTmfTrace fCtfTrace;
+
+    /**
+     * Constructor
+     *
+     * @param trace
+     *            the trace to index
+     * @param interval
+     *            the checkpoint interval
+     */
+    public CtfTmfTraceIndexer(CtfTmfTrace trace, int interval) {
+        super(trace, interval);
+        fCtfTrace = trace;
+    }
+
+    @Override
+    public synchronized ITmfContext seekIndex(final ITmfTimestamp timestamp) {
+        if (timestamp == null || !isAfterIndex(timestamp)) {
+            return super.seekIndex(timestamp);
+        }
+        /*
+         * The location timestamps are not transformed, only seek directly if
+         * the event timestamps are the same.
+         */
+        if (!TimestampTransformFactory.getDefaultTransform().equals(fCtfTrace.getTimestampTransform())) {
+            return super.seekIndex(timestamp);
+        }
+        return fCtfTrace.seekEvent(new CtfLocation(new CtfLocationInfo(timestamp.toNanos(), 0L)));
+    }
+
+    /**
+     * Check if the index is being built and the timestamp is after its last
+     * checkpoint.
+     */
+    private boolean isAfterIndex(ITmfTimestamp timestamp) {
+        ITmfCheckpointIndex index = getTraceIndex();
+        synchronized (index) {
+            /* The number of events is only set once the index is complete */
+            if (index.getNbEvents() > 0 || index.isEmpty()) {
+                return false;
+            }
+            ITmfCheckpoint last = index.get(index.size() - 1);
+            return last != null && timestamp.compareTo(last.getTimestamp()) > 0;
+        }
+    }
+}
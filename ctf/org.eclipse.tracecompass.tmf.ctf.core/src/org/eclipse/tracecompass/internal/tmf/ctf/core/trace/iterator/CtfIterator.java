@@ -72,7 +72,7 @@ public class CtfIterator extends CTFTraceReader
      *             a read error.
      */
     public CtfIterator(CTFTrace ctfTrace, @NonNull CtfTmfTrace ctfTmfTrace) throws CTFException {
-        super(ctfTrace);
+        super(ctfTrace, ctfTmfTrace.getDecodeThreads());
         fTrace = ctfTmfTrace;
         if (hasMoreEvents()) {
             fCurLocation = new CtfLocation(ctfTmfTrace.getStartTime());
@@ -101,7 +101,7 @@ public class CtfIterator extends CTFTraceReader
      */
     public CtfIterator(CTFTrace ctfTrace, @NonNull CtfTmfTrace ctfTmfTrace, CtfLocationInfo ctfLocationData, long rank)
             throws CTFException {
-        super(ctfTrace);
+        super(ctfTrace, ctfTmfTrace.getDecodeThreads());
 
         this.fTrace = ctfTmfTrace;
         if (this.hasMoreEvents()) {
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.tmf.ctf.core.trace.iterator;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.ctf.core.CTFException;
+import org.eclipse.tracecompass.ctf.core.trace.CTFTrace;
+import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfRangeReader;
+import org.eclipse.tracecompass.tmf.core.trace.location.ITmfLocation;
+import org.eclipse.tracecompass.tmf.ctf.core.context.CtfLocation;
+import org.eclipse.tracecompass.tmf.ctf.core.context.CtfLocationInfo;
+import org.eclipse.tracecompass.tmf.ctf.core.trace.CtfTmfTrace;
+
+/**
+ * Reader of the events of a CTF trace between two timestamps. It has its own
+ * iterator, so several ranges can be read concurrently. The events are not
+ * created, only their location and timestamp are read.
+ */
+public class CtfRangeReader implements ITmfRangeReader {
+
+    private final @NonNull CtfTmfTrace fTrace;
+    private final CtfIterator fIterator;
+    private final long fEnd;
+    private boolean fStarted = false;
+
+    /**
+     * Constructor
+     *
+     * @param ctfTrace
+     *            The {@link CTFTrace} linked to the trace
+     * @param trace
+     *            The trace to read
+     * @param start
+     *            The location of the first event of the range
+     * @param end
+     *            The location of the first event after the range, or null to
+     *            read until the end of the trace
+     * @throws CTFException
+     *             If the iterator cannot be created
+     */
+    public CtfRangeReader(CTFTrace ctfTrace, @NonNull CtfTmfTrace trace, CtfLocationInfo start, @Nullable CtfLocationInfo end) throws CTFException {
+        fTrace = trace;
+        fIterator = new CtfIterator(ctfTrace, trace);
+        fIterator.seek(start);
+        fEnd = (end == null) ? Long.MAX_VALUE : end.getTimestamp();
+    }
+
+    @Override
+    public boolean next() {
+        if (fStarted) {
+            fIterator.advance();
+        }
+        fStarted = true;
+        CtfLocationInfo location = fIterator.getLocation().getLocationInfo();
+        return !CtfLocation.INVALID_LOCATION.equals(location) && location.getTimestamp() < fEnd;
+    }
+
+    @Override
+    public void seek(ITmfLocation location) {
+        fIterator.seek(((CtfLocation) location).getLocationInfo());
+        fStarted = false;
+    }
+
+    @Override
+    public ITmfLocation getLocation() {
+        return fIterator.getLocation();
+    }
+
+    @Override
+    public ITmfTimestamp getTimestamp() {
+        return fTrace.createTimestamp(fIterator.getCurrentTimestamp());
+    }
+
+    @Override
+    public void close() {
+        fIterator.dispose();
+    }
+}
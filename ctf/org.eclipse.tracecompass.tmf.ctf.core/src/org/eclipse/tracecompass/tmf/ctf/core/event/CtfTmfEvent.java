@@ -33,6 +33,7 @@ import org.eclipse.tracecompass.ctf.core.trace.ICTFStream;
 import org.eclipse.tracecompass.tmf.core.event.ITmfCustomAttributes;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEventField;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEventType;
+import org.eclipse.tracecompass.tmf.core.event.ITmfLongFieldProvider;
 import org.eclipse.tracecompass.tmf.core.event.TmfEvent;
 import org.eclipse.tracecompass.tmf.core.event.TmfEventField;
 import org.eclipse.tracecompass.tmf.core.event.lookup.ITmfModelLookup;
@@ -50,7 +51,7 @@ import org.eclipse.tracecompass.tmf.ctf.core.trace.CtfTmfTrace;
  */
 @NonNullByDefault
 public class CtfTmfEvent extends TmfEvent
-        implements ITmfModelLookup, ITmfCustomAttributes {
+        implements ITmfModelLookup, ITmfCustomAttributes, ITmfLongFieldProvider {
 
     // ------------------------------------------------------------------------
     // Constants
@@ -239,6 +240,24 @@ public class CtfTmfEvent extends TmfEvent
         return stream.getId();
     }
 
+    /**
+     * Get the value of an integer field of the event payload. Unlike going
+     * through {@link #getContent()}, this does not build the event fields, so
+     * it is cheaper for analyses which only need a few numerical fields.
+     *
+     * @param fieldName
+     *            The name of the payload field
+     * @param defaultValue
+     *            The value to return if the event has no integer field with
+     *            this name
+     * @return The value of the field, or the default value
+     * @since 2.1
+     */
+    @Override
+    public long getFieldLongValue(String fieldName, long defaultValue) {
+        return fEvent.getFieldLongValue(fieldName, defaultValue);
+    }
+
     // ------------------------------------------------------------------------
     // TmfEvent
     // ------------------------------------------------------------------------
@@ -33,6 +33,7 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.ctf.core.CTFException;
 import org.eclipse.tracecompass.ctf.core.event.CTFClock;
 import org.eclipse.tracecompass.ctf.core.event.IEventDeclaration;
@@ -43,8 +44,10 @@ import org.eclipse.tracecompass.ctf.core.trace.CTFTraceReader;
 import org.eclipse.tracecompass.ctf.core.trace.ICTFStream;
 import org.eclipse.tracecompass.ctf.core.trace.Metadata;
 import org.eclipse.tracecompass.internal.tmf.ctf.core.Activator;
+import org.eclipse.tracecompass.internal.tmf.ctf.core.trace.CtfTmfTraceIndexer;
 import org.eclipse.tracecompass.internal.tmf.ctf.core.trace.iterator.CtfIterator;
 import org.eclipse.tracecompass.internal.tmf.ctf.core.trace.iterator.CtfIteratorManager;
+import org.eclipse.tracecompass.internal.tmf.ctf.core.trace.iterator.CtfRangeReader;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEventField;
 import org.eclipse.tracecompass.tmf.core.event.TmfEventField;
@@ -52,6 +55,7 @@ import org.eclipse.tracecompass.tmf.core.event.aspect.TmfBaseAspects;
 import org.eclipse.tracecompass.tmf.core.event.aspect.ITmfEventAspect;
 import org.eclipse.tracecompass.tmf.core.exceptions.TmfTraceException;
 import org.eclipse.tracecompass.tmf.core.project.model.ITmfPropertiesProvider;
+import org.eclipse.tracecompass.tmf.core.synchronization.TimestampTransformFactory;
 import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
 import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
@@ -59,9 +63,9 @@ import org.eclipse.tracecompass.tmf.core.trace.ITmfTraceKnownSize;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTraceWithPreDefinedEvents;
 import org.eclipse.tracecompass.tmf.core.trace.TmfTrace;
 import org.eclipse.tracecompass.tmf.core.trace.TraceValidationStatus;
-import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfPersistentlyIndexable;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfRangeIndexable;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfRangeReader;
 import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfTraceIndexer;
-import org.eclipse.tracecompass.tmf.core.trace.indexer.TmfBTreeTraceIndexer;
 import org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint.ITmfCheckpoint;
 import org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint.TmfCheckpoint;
 import org.eclipse.tracecompass.tmf.core.trace.location.ITmfLocation;
@@ -85,7 +89,7 @@ import com.google.common.collect.ImmutableSet;
  * @author Matthew khouzam
  */
 public class CtfTmfTrace extends TmfTrace
-        implements ITmfPropertiesProvider, ITmfPersistentlyIndexable,
+        implements ITmfPropertiesProvider, ITmfRangeIndexable,
         ITmfTraceWithPreDefinedEvents, ITmfTraceKnownSize {
 
     // -------------------------------------------
@@ -138,6 +142,18 @@ public class CtfTmfTrace extends TmfTrace
      */
     private static final int CTF_AVG_EVENT_SIZE = 16;
 
+    /**
+     * System property setting the default number of threads decoding the
+     * packets ahead of the iterators of CTF traces. Set it to 0 to decode the
+     * packets on the reading thread.
+     *
+     * @since 2.1
+     */
+    public static final String DECODE_THREADS_PROPERTY = "org.eclipse.tracecompass.ctf.decodeThreads"; //$NON-NLS-1$
+
+    private static final int DEFAULT_DECODE_THREADS = Math.max(0, Integer.getInteger(DECODE_THREADS_PROPERTY,
+            Math.min(2, Runtime.getRuntime().availableProcessors() - 1)));
+
     // -------------------------------------------
     // Fields
     // -------------------------------------------
@@ -151,6 +167,8 @@ public class CtfTmfTrace extends TmfTrace
     /** Reference to the CTF Trace */
     private CTFTrace fTrace;
 
+    private volatile int fDecodeThreads = DEFAULT_DECODE_THREADS;
+
     // -------------------------------------------
     // Constructor
     // -------------------------------------------
@@ -579,6 +597,32 @@ public class CtfTmfTrace extends TmfTrace
         return fEventFactory;
     }
 
+    /**
+     * Get the number of threads decoding the packets ahead of the iterators of
+     * this trace
+     *
+     * @return The number of decode threads, 0 if the packets are decoded on
+     *         the reading thread
+     * @since 2.1
+     */
+    public int getDecodeThreads() {
+        return fDecodeThreads;
+    }
+
+    /**
+     * Set the number of threads decoding the packets ahead of the iterators of
+     * this trace. It only applies to the iterators created afterwards. The
+     * default is given by the {@link #DECODE_THREADS_PROPERTY} system property.
+     *
+     * @param decodeThreads
+     *            The number of decode threads, 0 to decode the packets on the
+     *            reading thread
+     * @since 2.1
+     */
+    public void setDecodeThreads(int decodeThreads) {
+        fDecodeThreads = Math.max(0, decodeThreads);
+    }
+
     /**
      * Get an iterator to the trace
      *
@@ -666,7 +710,7 @@ public class CtfTmfTrace extends TmfTrace
 
     @Override
     protected ITmfTraceIndexer createIndexer(int interval) {
-        return new TmfBTreeTraceIndexer(this, interval);
+        return new CtfTmfTraceIndexer(this, interval);
     }
 
     @Override
@@ -674,6 +718,76 @@ public class CtfTmfTrace extends TmfTrace
         return new CtfLocation(bufferIn);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The ranges split the time range of the trace evenly. The packets of all
+     * the streams are indexed to find the end of the trace. A trace with a
+     * timestamp transform is not split, since its locations hold the raw
+     * event timestamps while its events are compared with transformed ones.
+     *
+     * @since 2.1
+     */
+    @Override
+    public List<ITmfLocation> getRangeLocations(int nbRanges) {
+        CTFTrace trace = fTrace;
+        if (trace == null || nbRanges < 1) {
+            return Collections.emptyList();
+        }
+        if (!TimestampTransformFactory.getDefaultTransform().equals(getTimestampTransform())) {
+            /* Index the trace sequentially, as the indexer seeks it */
+            return Collections.emptyList();
+        }
+        long start;
+        try (CTFTraceReader reader = new CTFTraceReader(trace)) {
+            if (!reader.hasMoreEvents()) {
+                return Collections.emptyList();
+            }
+            reader.populateIndex();
+            start = reader.getStartTime();
+        } catch (CTFException e) {
+            Activator.getDefault().logError(e.getMessage(), e);
+            return Collections.emptyList();
+        }
+        long end = start;
+        for (ICTFStream stream : trace.getStreams()) {
+            for (CTFStreamInput si : stream.getStreamInputs()) {
+                /* Packets without a context have no end time */
+                if (si.getTimestampEnd() != Long.MAX_VALUE) {
+                    end = Math.max(end, si.getTimestampEnd());
+                }
+            }
+        }
+        long startNanos = timestampCyclesToNanos(start);
+        double step = (timestampCyclesToNanos(end) - startNanos) / (double) nbRanges;
+
+        /* The first range starts at the beginning of the trace */
+        List<ITmfLocation> locations = new ArrayList<>(nbRanges);
+        locations.add(new CtfLocation(new CtfLocationInfo(0L, 0L)));
+        long previous = startNanos;
+        for (int i = 1; i < nbRanges; i++) {
+            long ts = startNanos + Math.round(step * i);
+            if (ts > previous) {
+                locations.add(new CtfLocation(new CtfLocationInfo(ts, 0L)));
+                previous = ts;
+            }
+        }
+        return locations;
+    }
+
+    /**
+     * @since 2.1
+     */
+    @Override
+    public ITmfRangeReader createRangeReader(ITmfLocation start, @Nullable ITmfLocation end) throws TmfTraceException {
+        CtfLocationInfo endInfo = (end == null) ? null : ((CtfLocation) end).getLocationInfo();
+        try {
+            return new CtfRangeReader(fTrace, this, ((CtfLocation) start).getLocationInfo(), endInfo);
+        } catch (CTFException e) {
+            throw new TmfTraceException(e.getMessage(), e);
+        }
+    }
+
     @Override
     public boolean isComplete() {
         if (getResource() == null) {
@@ -78,7 +78,8 @@ public class EventMatchingBenchmark {
 
         Set<@NonNull ITmfTrace> traces = ImmutableSet.of(trace1, trace2, trace3);
         runCpuTest(traces, "Django traces", 10);
-        runMemoryTest(traces, "Django traces", 10);
+        runMemoryTest(traces, "Django traces", 10, false);
+        runMemoryTest(traces, "Django traces (bounded)", 10, true);
 
         trace1.dispose();
         trace2.dispose();
@@ -101,14 +102,22 @@ public class EventMatchingBenchmark {
 
     }
 
-    /* Benchmark memory used by the algorithm */
-    private static void runMemoryTest(Set<@NonNull ITmfTrace> testTraces, String testName, int loop_count) {
+    /*
+     * Benchmark memory used by the algorithm. When bounded, the unmatched
+     * events expire and are kept as compact records, as for the trace
+     * synchronization.
+     */
+    private static void runMemoryTest(Set<@NonNull ITmfTrace> testTraces, String testName, int loop_count, boolean bounded) {
         Performance perf = Performance.getDefault();
         PerformanceMeter pm = perf.createPerformanceMeter(TEST_ID + testName + MEMORY);
         perf.tagAsSummary(pm, TEST_SUMMARY + ':' + testName + MEMORY, Dimension.USED_JAVA_HEAP);
 
         for (int i = 0; i < loop_count; i++) {
             TmfEventMatching traceMatch = new TmfEventMatching(testTraces);
+            if (bounded) {
+                traceMatch.setUnmatchedEventTimeout(traceMatch.getBoundedUnmatchedEventTimeout());
+                traceMatch.setCompactUnmatchedEvents(true);
+            }
 
             System.gc();
             pm.start();
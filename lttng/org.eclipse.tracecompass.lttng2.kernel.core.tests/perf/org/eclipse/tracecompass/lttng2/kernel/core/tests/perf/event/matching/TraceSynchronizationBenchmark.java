@@ -25,6 +25,7 @@ import org.eclipse.tracecompass.internal.lttng2.kernel.core.event.matching.TcpLt
 import org.eclipse.tracecompass.testtraces.ctf.CtfTestTrace;
 import org.eclipse.tracecompass.tmf.core.event.matching.TmfEventMatching;
 import org.eclipse.tracecompass.tmf.core.synchronization.SynchronizationAlgorithm;
+import org.eclipse.tracecompass.tmf.core.synchronization.SynchronizationAlgorithmFactory;
 import org.eclipse.tracecompass.tmf.core.synchronization.SynchronizationManager;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
 import org.eclipse.tracecompass.tmf.core.trace.experiment.TmfExperiment;
@@ -84,6 +85,9 @@ public class TraceSynchronizationBenchmark {
         TmfExperiment experiment = new TmfExperiment(CtfTmfEvent.class, "Test experiment", traces, TmfExperiment.DEFAULT_INDEX_PAGE_SIZE, null);
         runCpuTest(experiment, "Django traces", 10);
         runMemoryTest(experiment, "Django traces", 10);
+        runMatchingMemoryTest(experiment, "Django traces (unmatched events)", 10, false);
+        runMatchingMemoryTest(experiment, "Django traces (unmatched events, bounded)", 10, true);
+        runCpuTest(experiment, "Django traces (parallel)", 10, 4);
 
         trace1.dispose();
         trace2.dispose();
@@ -91,13 +95,18 @@ public class TraceSynchronizationBenchmark {
     }
 
     private static void runCpuTest(@NonNull TmfExperiment experiment, String testName, int loop_count) {
+        runCpuTest(experiment, testName, loop_count, 0);
+    }
+
+    private static void runCpuTest(@NonNull TmfExperiment experiment, String testName, int loop_count, int nbThreads) {
         Performance perf = Performance.getDefault();
         PerformanceMeter pm = perf.createPerformanceMeter(TEST_ID + testName + TIME);
         perf.tagAsSummary(pm, TEST_SUMMARY + ':' + testName + TIME, Dimension.CPU_TIME);
 
         for (int i = 0; i < loop_count; i++) {
+            SynchronizationAlgorithm algo = (nbThreads > 0) ? SynchronizationAlgorithmFactory.getParallelFullyIncrementalAlgorithm(nbThreads) : SynchronizationAlgorithmFactory.getDefaultAlgorithm();
             pm.start();
-            SynchronizationManager.synchronizeTraces(null, Collections.singleton(experiment), true);
+            SynchronizationManager.synchronizeTraces(null, Collections.singleton(experiment), algo, true);
             pm.stop();
         }
         pm.commit();
@@ -122,4 +131,32 @@ public class TraceSynchronizationBenchmark {
         }
         pm.commit();
     }
+
+    /*
+     * Benchmark memory used by the event matching of the synchronization,
+     * including the unmatched events still kept at the end, with and without
+     * the bounds set by the synchronization manager
+     */
+    private static void runMatchingMemoryTest(@NonNull TmfExperiment experiment, String testName, int loop_count, boolean bounded) {
+        Performance perf = Performance.getDefault();
+        PerformanceMeter pm = perf.createPerformanceMeter(TEST_ID + testName + MEMORY);
+        perf.tagAsSummary(pm, TEST_SUMMARY + ':' + testName + MEMORY, Dimension.USED_JAVA_HEAP);
+
+        for (int i = 0; i < loop_count; i++) {
+            SynchronizationAlgorithm algo = SynchronizationAlgorithmFactory.getDefaultAlgorithm();
+            TmfEventMatching matching = new TmfEventMatching(Collections.singleton(experiment), algo);
+            if (bounded) {
+                matching.setUnmatchedEventTimeout(matching.getBoundedUnmatchedEventTimeout());
+                matching.setCompactUnmatchedEvents(true);
+            }
+
+            System.gc();
+            pm.start();
+            matching.matchEvents();
+            System.gc();
+            pm.stop();
+            algo.dispose();
+        }
+        pm.commit();
+    }
 }
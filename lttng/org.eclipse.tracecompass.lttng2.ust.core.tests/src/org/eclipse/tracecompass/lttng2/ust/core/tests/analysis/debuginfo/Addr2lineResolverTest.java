@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.lttng2.ust.core.tests.analysis.debuginfo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.tracecompass.internal.lttng2.ust.core.analysis.debuginfo.Addr2lineResolver;
+import org.eclipse.tracecompass.internal.lttng2.ust.core.analysis.debuginfo.FileOffsetMapper.Addr2lineInfo;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link Addr2lineResolver}, parsing the output of 'addr2line'
+ * and the format of its store files
+ */
+public class Addr2lineResolverTest {
+
+    private static final String SENTINEL_OUTPUT = "0x0000000000000000\n??\n??:0\n";
+
+    private static BufferedReader reader(String output) {
+        return new BufferedReader(new StringReader(output));
+    }
+
+    private static void assertInfo(String fileName, String functionName, Long lineNumber, Addr2lineInfo info) {
+        assertEquals(fileName, info.getSourceFileName());
+        assertEquals(functionName, info.getFunctionName());
+        assertEquals(lineNumber, info.getSourceLineNumber());
+    }
+
+    /**
+     * Test reading the output of a batch, with inlined functions, unknown
+     * locations and discriminators
+     *
+     * @throws IOException
+     *             Should not happen
+     */
+    @Test
+    public void testReadOutput() throws IOException {
+        String output = "0x0000000000001000\n" +
+                "inlined\n" +
+                "/src/inlined.h:12\n" +
+                "caller\n" +
+                "/src/caller.c:34 (discriminator 2)\n" +
+                "0x0000000000002000\n" +
+                "??\n" +
+                "??:0\n" +
+                "0x0000000000003000\n" +
+                "func\n" +
+                "/src/func.c:?\n" +
+                SENTINEL_OUTPUT;
+        List<List<Addr2lineInfo>> infos = Addr2lineResolver.readOutput(reader(output), 3);
+        assertEquals(3, infos.size());
+
+        List<Addr2lineInfo> first = infos.get(0);
+        assertEquals(2, first.size());
+        assertInfo("/src/inlined.h", "inlined", 12L, first.get(0));
+        assertInfo("/src/caller.c", "caller", 34L, first.get(1));
+
+        List<Addr2lineInfo> second = infos.get(1);
+        assertEquals(1, second.size());
+        assertInfo(null, null, 0L, second.get(0));
+
+        List<Addr2lineInfo> third = infos.get(2);
+        assertEquals(1, third.size());
+        assertInfo("/src/func.c", "func", null, third.get(0));
+    }
+
+    /**
+     * Test that the output of the sentinel of the previous batch is skipped,
+     * and that the output of the sentinel of this batch is not read
+     *
+     * @throws IOException
+     *             Should not happen
+     */
+    @Test
+    public void testSentinel() throws IOException {
+        /* The address line of the previous sentinel was already read */
+        String output = "??\n??:0\n" +
+                "0x0000000000001000\n" +
+                "func\n" +
+                "/src/func.c:1\n" +
+                SENTINEL_OUTPUT +
+                "0x0000000000002000\n";
+        BufferedReader reader = reader(output);
+        List<List<Addr2lineInfo>> infos = Addr2lineResolver.readOutput(reader, 1);
+        assertEquals(1, infos.size());
+        assertInfo("/src/func.c", "func", 1L, infos.get(0).get(0));
+
+        /* The next batch starts with the rest of the sentinel output */
+        assertEquals("??", reader.readLine());
+    }
+
+    /**
+     * Test that an output ending before the sentinel is an error
+     *
+     * @throws IOException
+     *             Expected
+     */
+    @Test(expected = IOException.class)
+    public void testTerminated() throws IOException {
+        String output = "0x0000000000001000\n" +
+                "func\n" +
+                "/src/func.c:1\n";
+        Addr2lineResolver.readOutput(reader(output), 1);
+    }
+
+    private static byte[] writeStore(Map<Long, List<Addr2lineInfo>> records) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for (Map.Entry<Long, List<Addr2lineInfo>> entry : records.entrySet()) {
+                Addr2lineResolver.writeRecord(out, entry.getKey(), entry.getValue());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Test writing and reading back the records of a store, including
+     * offsets without information and unknown values
+     *
+     * @throws IOException
+     *             Should not happen
+     */
+    @Test
+    public void testStoreFormat() throws IOException {
+        Map<Long, List<Addr2lineInfo>> records = new HashMap<>();
+        records.put(0x1000L, Arrays.asList(
+                new Addr2lineInfo("/src/inlined.h", "inlined", 12L),
+                new Addr2lineInfo("/src/caller.c", "caller", 34L)));
+        records.put(0x2000L, Collections.singletonList(new Addr2lineInfo(null, null, null)));
+        records.put(0x3000L, Collections.emptyList());
+        byte[] store = writeStore(records);
+
+        Map<Long, List<Addr2lineInfo>> read = new HashMap<>();
+        assertEquals(store.length, Addr2lineResolver.readStore(new ByteArrayInputStream(store), read));
+        assertEquals(records.keySet(), read.keySet());
+
+        List<Addr2lineInfo> first = read.get(0x1000L);
+        assertEquals(2, first.size());
+        assertInfo("/src/inlined.h", "inlined", 12L, first.get(0));
+        assertInfo("/src/caller.c", "caller", 34L, first.get(1));
+        assertInfo(null, null, null, read.get(0x2000L).get(0));
+        assertTrue(read.get(0x3000L).isEmpty());
+    }
+
+    /**
+     * Test that an incomplete last record is ignored, and that the length of
+     * the complete records is returned so the store can be truncated
+     *
+     * @throws IOException
+     *             Should not happen
+     */
+    @Test
+    public void testTruncatedStore() throws IOException {
+        byte[] complete = writeStore(Collections.singletonMap(0x1000L, Collections.singletonList(new Addr2lineInfo("/src/func.c", "func", 1L))));
+        byte[] store = writeStore(Collections.singletonMap(0x2000L, Collections.singletonList(new Addr2lineInfo("/src/other.c", "other", 2L))));
+
+        for (int length = 0; length < store.length; length++) {
+            byte[] truncated = new byte[complete.length + length];
+            System.arraycopy(complete, 0, truncated, 0, complete.length);
+            System.arraycopy(store, 0, truncated, complete.length, length);
+
+            Map<Long, List<Addr2lineInfo>> read = new HashMap<>();
+            assertEquals(complete.length, Addr2lineResolver.readStore(new ByteArrayInputStream(truncated), read));
+            assertEquals(Collections.singleton(0x1000L), read.keySet());
+            assertNull(read.get(0x2000L));
+        }
+    }
+}
@@ -0,0 +1,471 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.lttng2.ust.core.analysis.debuginfo;
+
+import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.common.core.log.TraceCompassLog;
+import org.eclipse.tracecompass.internal.lttng2.ust.core.analysis.debuginfo.FileOffsetMapper.Addr2lineInfo;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * Resolver of the offsets of one binary file. It keeps a long-lived
+ * 'addr2line' process reading the offsets from its standard input, so many
+ * offsets can be resolved without starting a process for each of them, and
+ * optionally persists the results in a file named after the build-id of the
+ * binary, so they are available the next time the trace is opened.
+ * <p>
+ * The resolvers of different copies of a binary share the same store file, so
+ * the accesses to a store file are serialized by a lock shared by these
+ * resolvers.
+ */
+public final class Addr2lineResolver implements Closeable {
+
+    private static final Logger LOGGER = TraceCompassLog.getLogger(Addr2lineResolver.class);
+
+    private static final String ADDR2LINE_EXECUTABLE = "addr2line"; //$NON-NLS-1$
+    private static final String DISCRIMINATOR = "\\(discriminator.*\\)"; //$NON-NLS-1$
+    private static final String UNKNOWN_VALUE = "??"; //$NON-NLS-1$
+    private static final String ADDRESS_PREFIX = "0x"; //$NON-NLS-1$
+    private static final String STORE_DIRECTORY = "debuginfo"; //$NON-NLS-1$
+    private static final String STORE_SUFFIX = ".addr2line"; //$NON-NLS-1$
+    private static final Pattern HEX_PATTERN = Pattern.compile("[0-9a-fA-F]+"); //$NON-NLS-1$
+
+    /**
+     * Maximum number of offsets written to addr2line at once. The whole batch
+     * must fit in the pipe buffer, since the output is only read once all the
+     * offsets are written.
+     */
+    private static final int BATCH_SIZE = 1024;
+
+    /**
+     * The locks of the store files, kept as long as a resolver uses them
+     */
+    private static final LoadingCache<File, Object> STORE_LOCKS = checkNotNull(CacheBuilder.newBuilder()
+            .weakValues()
+            .build(CacheLoader.from(Object::new)));
+
+    private final String fFilePath;
+    private final @Nullable File fStoreFile;
+    private final Object fStoreLock;
+    private final Map<Long, List<Addr2lineInfo>> fStoredInfos = new HashMap<>();
+
+    private @Nullable Process fProcess;
+    private @Nullable BufferedWriter fProcessInput;
+    private @Nullable BufferedReader fProcessOutput;
+    private @Nullable DataOutputStream fStoreOutput;
+    private boolean fFailed = false;
+
+    /**
+     * Constructor
+     *
+     * @param filePath
+     *            The binary file
+     * @param buildId
+     *            The build-id of the binary, the results are only persisted
+     *            if it is known
+     * @param storeDir
+     *            The directory where to persist the results, or null to keep
+     *            them in memory only
+     */
+    public Addr2lineResolver(String filePath, @Nullable String buildId, @Nullable String storeDir) {
+        fFilePath = filePath;
+        if (storeDir != null && buildId != null && HEX_PATTERN.matcher(buildId).matches()) {
+            File storeFile = getCanonicalFile(new File(new File(storeDir, STORE_DIRECTORY), buildId + STORE_SUFFIX));
+            fStoreFile = storeFile;
+            fStoreLock = STORE_LOCKS.getUnchecked(storeFile);
+            synchronized (fStoreLock) {
+                loadStore(storeFile);
+            }
+        } else {
+            fStoreFile = null;
+            fStoreLock = new Object();
+        }
+    }
+
+    /**
+     * Resolve offsets in the binary file
+     *
+     * @param offsets
+     *            The offsets to resolve
+     * @return The addr2line information of each offset. Offsets which could
+     *         not be resolved are mapped to an empty list.
+     */
+    public synchronized Map<Long, List<Addr2lineInfo>> resolve(Collection<Long> offsets) {
+        Map<Long, List<Addr2lineInfo>> results = new HashMap<>();
+        List<Long> toResolve = new ArrayList<>();
+        for (Long offset : offsets) {
+            List<Addr2lineInfo> stored = fStoredInfos.get(offset);
+            if (stored != null) {
+                results.put(offset, stored);
+            } else if (!results.containsKey(offset)) {
+                results.put(offset, Collections.emptyList());
+                toResolve.add(offset);
+            }
+        }
+        for (int i = 0; i < toResolve.size(); i += BATCH_SIZE) {
+            List<Long> batch = toResolve.subList(i, Math.min(i + BATCH_SIZE, toResolve.size()));
+            List<List<Addr2lineInfo>> infos = callAddr2line(batch);
+            if (infos == null) {
+                /* addr2line failed, the remaining offsets stay unresolved */
+                break;
+            }
+            /*
+             * Write the whole batch at once, so its records are not
+             * interleaved with the ones of another resolver
+             */
+            synchronized (fStoreLock) {
+                for (int j = 0; j < batch.size(); j++) {
+                    Long offset = batch.get(j);
+                    List<Addr2lineInfo> info = infos.get(j);
+                    results.put(offset, info);
+                    fStoredInfos.put(offset, info);
+                    store(offset, info);
+                }
+                flushStore();
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public synchronized void close() {
+        Process process = fProcess;
+        if (process != null) {
+            process.destroy();
+            fProcess = null;
+        }
+        synchronized (fStoreLock) {
+            DataOutputStream storeOutput = fStoreOutput;
+            if (storeOutput != null) {
+                try {
+                    storeOutput.close();
+                } catch (IOException e) {
+                    LOGGER.warning(() -> "[Addr2lineResolver:StoreCloseFailed] file=" + fStoreFile + ", error=" + e); //$NON-NLS-1$ //$NON-NLS-2$
+                }
+                fStoreOutput = null;
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // addr2line process
+    // ------------------------------------------------------------------------
+
+    /**
+     * Send a batch of offsets to the addr2line process and read the results.
+     *
+     * @return The information of each offset, in the same order, or null if
+     *         addr2line could not be run
+     */
+    private @Nullable List<List<Addr2lineInfo>> callAddr2line(List<Long> batch) {
+        if (!startProcess()) {
+            return null;
+        }
+        BufferedWriter input = fProcessInput;
+        BufferedReader output = fProcessOutput;
+        if (input == null || output == null) {
+            return null;
+        }
+        try {
+            for (Long offset : batch) {
+                input.write(ADDRESS_PREFIX + Long.toHexString(offset));
+                input.newLine();
+            }
+            /* Sentinel */
+            input.write(ADDRESS_PREFIX + '0');
+            input.newLine();
+            input.flush();
+
+            return readOutput(output, batch.size());
+        } catch (IOException e) {
+            LOGGER.warning(() -> "[Addr2lineResolver:ProcessFailed] file=" + fFilePath + ", error=" + e); //$NON-NLS-1$ //$NON-NLS-2$
+            fFailed = true;
+            close();
+            return null;
+        }
+    }
+
+    /**
+     * Read the output of addr2line for a batch of offsets followed by a
+     * sentinel offset. With the -a flag, the output of each offset starts with
+     * the address, so the output of the last offset of the batch ends where
+     * the sentinel output starts. The output of the sentinel itself is not
+     * read, and is skipped at the start of the next batch.
+     *
+     * @param output
+     *            The output of the addr2line process, run with the -a, -i and
+     *            -f flags
+     * @param nbOffsets
+     *            The number of offsets in the batch, without the sentinel
+     * @return The information of each offset, in the same order
+     * @throws IOException
+     *             If the output ends before the sentinel
+     */
+    public static List<List<Addr2lineInfo>> readOutput(BufferedReader output, int nbOffsets) throws IOException {
+        List<List<Addr2lineInfo>> results = new ArrayList<>(nbOffsets);
+        List<Addr2lineInfo> current = null;
+        String currentFunctionName = null;
+        boolean functionLine = true;
+        while (true) {
+            String line = output.readLine();
+            if (line == null) {
+                throw new IOException("addr2line terminated"); //$NON-NLS-1$
+            }
+            if (isAddressLine(line)) {
+                if (results.size() == nbOffsets) {
+                    /* Start of the sentinel output, the batch is done */
+                    return results;
+                }
+                current = new ArrayList<>();
+                results.add(current);
+                functionLine = true;
+                continue;
+            }
+            if (current == null) {
+                /* Remaining output of the previous sentinel */
+                continue;
+            }
+            /*
+             * When passing the -f flag, the output alternates between function
+             * names and file/line location.
+             */
+            // Remove discriminator part, for example: /build/buildd/glibc-2.21/elf/dl-object.c:78 (discriminator 8)
+            line = line.replaceFirst(DISCRIMINATOR, "").trim(); //$NON-NLS-1$
+            if (functionLine) {
+                currentFunctionName = line.equals(UNKNOWN_VALUE) ? null : line;
+            } else {
+                current.add(parseLocation(line, currentFunctionName));
+            }
+            functionLine = !functionLine;
+        }
+    }
+
+    private boolean startProcess() {
+        if (fProcess != null) {
+            return true;
+        }
+        if (fFailed) {
+            return false;
+        }
+        // FIXME Could eventually use CDT's Addr2line class once it implements --inlines
+        ProcessBuilder builder = new ProcessBuilder(ADDR2LINE_EXECUTABLE, "-a", "-i", "-f", "-C", "-e", fFilePath); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        try {
+            Process process = builder.start();
+            fProcessInput = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+            fProcessOutput = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+            fProcess = process;
+            LOGGER.fine(() -> "[Addr2lineResolver:ProcessStarted] file=" + fFilePath); //$NON-NLS-1$
+            return true;
+        } catch (IOException e) {
+            LOGGER.warning(() -> "[Addr2lineResolver:ProcessStartFailed] file=" + fFilePath + ", error=" + e); //$NON-NLS-1$ //$NON-NLS-2$
+            fFailed = true;
+            return false;
+        }
+    }
+
+    private static boolean isAddressLine(String line) {
+        return line.startsWith(ADDRESS_PREFIX) && HEX_PATTERN.matcher(line.substring(ADDRESS_PREFIX.length())).matches();
+    }
+
+    private static Addr2lineInfo parseLocation(String line, @Nullable String functionName) {
+        String[] elems = line.split(":"); //$NON-NLS-1$
+        String fileName = elems[0];
+        if (fileName.equals(UNKNOWN_VALUE)) {
+            fileName = null;
+        }
+        Long lineNumber;
+        try {
+            lineNumber = Long.valueOf(elems[1]);
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            /* Probably a '?' output, meaning unknown line number. */
+            lineNumber = null;
+        }
+        return new Addr2lineInfo(fileName, functionName, lineNumber);
+    }
+
+    // ------------------------------------------------------------------------
+    // Persistent store
+    // ------------------------------------------------------------------------
+
+    /**
+     * Read the results stored by a previous session. An incomplete last record
+     * (if the application was killed while writing it) is truncated so new
+     * records can be appended.
+     */
+    private void loadStore(File storeFile) {
+        if (!storeFile.exists()) {
+            return;
+        }
+        long validLength = 0;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(storeFile))) {
+            validLength = readStore(in, fStoredInfos);
+        } catch (IOException e) {
+            LOGGER.warning(() -> "[Addr2lineResolver:StoreReadFailed] file=" + storeFile + ", error=" + e); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        if (validLength < storeFile.length()) {
+            try (RandomAccessFile file = new RandomAccessFile(storeFile, "rw")) { //$NON-NLS-1$
+                file.setLength(validLength);
+            } catch (IOException e) {
+                LOGGER.warning(() -> "[Addr2lineResolver:StoreWriteFailed] file=" + storeFile + ", error=" + e); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+        }
+        LOGGER.fine(() -> "[Addr2lineResolver:StoreLoaded] file=" + storeFile + ", entries=" + fStoredInfos.size()); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    /**
+     * Read the records of a store. Each record is prefixed by its length, and
+     * contains the offset followed by the number of its addr2line information
+     * and by each of them.
+     *
+     * @param in
+     *            The content of the store
+     * @param infos
+     *            The map where to put the information of each offset
+     * @return The length of the complete records that were read. An
+     *         incomplete last record is ignored.
+     * @throws IOException
+     *             If the store cannot be read
+     */
+    public static long readStore(InputStream in, Map<Long, List<Addr2lineInfo>> infos) throws IOException {
+        DataInputStream dataIn = new DataInputStream(in);
+        long validLength = 0;
+        try {
+            while (true) {
+                byte[] record = new byte[dataIn.readInt()];
+                dataIn.readFully(record);
+                DataInputStream recordIn = new DataInputStream(new ByteArrayInputStream(record));
+                long offset = recordIn.readLong();
+                int count = recordIn.readInt();
+                List<Addr2lineInfo> offsetInfos = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    String fileName = readString(recordIn);
+                    String functionName = readString(recordIn);
+                    long lineNumber = recordIn.readLong();
+                    offsetInfos.add(new Addr2lineInfo(fileName, functionName, lineNumber < 0 ? null : lineNumber));
+                }
+                infos.put(offset, offsetInfos);
+                validLength += Integer.BYTES + record.length;
+            }
+        } catch (EOFException e) {
+            /* End of the store */
+        }
+        return validLength;
+    }
+
+    /**
+     * Write the record of an offset to a store
+     *
+     * @param out
+     *            The store
+     * @param offset
+     *            The offset
+     * @param infos
+     *            The addr2line information of the offset
+     * @throws IOException
+     *             If the store cannot be written
+     */
+    public static void writeRecord(DataOutputStream out, long offset, List<Addr2lineInfo> infos) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream record = new DataOutputStream(bytes)) {
+            record.writeLong(offset);
+            record.writeInt(infos.size());
+            for (Addr2lineInfo info : infos) {
+                writeString(record, info.fSourceFileName);
+                writeString(record, info.fFunctionName);
+                Long lineNumber = info.fSourceLineNumber;
+                record.writeLong(lineNumber == null ? -1 : lineNumber);
+            }
+        }
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+    }
+
+    private void store(long offset, List<Addr2lineInfo> infos) {
+        File storeFile = fStoreFile;
+        if (storeFile == null) {
+            return;
+        }
+        try {
+            DataOutputStream out = fStoreOutput;
+            if (out == null) {
+                storeFile.getParentFile().mkdirs();
+                out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(storeFile, true)));
+                fStoreOutput = out;
+            }
+            writeRecord(out, offset, infos);
+        } catch (IOException e) {
+            LOGGER.warning(() -> "[Addr2lineResolver:StoreWriteFailed] file=" + storeFile + ", error=" + e); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+    }
+
+    private void flushStore() {
+        DataOutputStream out = fStoreOutput;
+        if (out != null) {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                LOGGER.warning(() -> "[Addr2lineResolver:StoreWriteFailed] file=" + fStoreFile + ", error=" + e); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+        }
+    }
+
+    private static File getCanonicalFile(File file) {
+        try {
+            return file.getCanonicalFile();
+        } catch (IOException e) {
+            return file.getAbsoluteFile();
+        }
+    }
+
+    private static void writeString(DataOutputStream out, @Nullable String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static @Nullable String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
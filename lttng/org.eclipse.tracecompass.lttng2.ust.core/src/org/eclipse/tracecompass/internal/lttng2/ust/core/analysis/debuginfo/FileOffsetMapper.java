@@ -13,22 +13,28 @@ import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
 
 import java.io.File;
 import java.nio.file.Files;
-import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.common.core.log.TraceCompassLog;
-import org.eclipse.tracecompass.common.core.process.ProcessUtils;
 import org.eclipse.tracecompass.tmf.core.event.lookup.TmfCallsite;
 
 import com.google.common.base.Objects;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.Collections2;
 import com.google.common.collect.Iterables;
 
 /**
@@ -41,10 +47,9 @@ public final class FileOffsetMapper {
 
     private static final Logger LOGGER = TraceCompassLog.getLogger(FileOffsetMapper.class);
 
-    private static final String DISCRIMINATOR = "\\(discriminator.*\\)"; //$NON-NLS-1$
-    private static final String ADDR2LINE_EXECUTABLE = "addr2line"; //$NON-NLS-1$
-
     private static final long CACHE_SIZE = 1000;
+    private static final long RESOLVER_CACHE_SIZE = 16;
+    private static final long RESOLVER_TIMEOUT_SECONDS = 60;
 
     private FileOffsetMapper() {}
 
@@ -56,16 +61,22 @@ public final class FileOffsetMapper {
         private final String fFilePath;
         private final @Nullable String fBuildId;
         private final long fOffset;
+        private final @Nullable String fStoreDir;
 
-        public FileOffset(String filePath, @Nullable String buildId, long offset) {
+        public FileOffset(String filePath, @Nullable String buildId, long offset, @Nullable String storeDir) {
             fFilePath = filePath;
             fBuildId = buildId;
             fOffset = offset;
+            fStoreDir = storeDir;
+        }
+
+        public BinaryKey getBinary() {
+            return new BinaryKey(fFilePath, fBuildId, fStoreDir);
         }
 
         @Override
         public int hashCode() {
-            return Objects.hashCode(fFilePath, fBuildId, fOffset);
+            return Objects.hashCode(fFilePath, fBuildId, fOffset, fStoreDir);
         }
 
         @Override
@@ -82,7 +93,8 @@ public final class FileOffsetMapper {
             FileOffset other = (FileOffset) obj;
             return Objects.equal(fFilePath, other.fFilePath) &&
                     Objects.equal(fBuildId, other.fBuildId) &&
-                    Objects.equal(fOffset, other.fOffset);
+                    Objects.equal(fOffset, other.fOffset) &&
+                    Objects.equal(fStoreDir, other.fStoreDir);
         }
 
         @Override
@@ -91,10 +103,50 @@ public final class FileOffsetMapper {
                     .add("fFilePath", fFilePath) //$NON-NLS-1$
                     .add("fBuildId", fBuildId) //$NON-NLS-1$
                     .add("fOffset", String.format("0x%h", fOffset)) //$NON-NLS-1$ //$NON-NLS-2$
+                    .add("fStoreDir", fStoreDir) //$NON-NLS-1$
                     .toString();
         }
     }
 
+    /**
+     * Class representing a binary file, and where its resolved offsets are
+     * persisted
+     */
+    private static class BinaryKey {
+
+        private final String fFilePath;
+        private final @Nullable String fBuildId;
+        private final @Nullable String fStoreDir;
+
+        public BinaryKey(String filePath, @Nullable String buildId, @Nullable String storeDir) {
+            fFilePath = filePath;
+            fBuildId = buildId;
+            fStoreDir = storeDir;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(fFilePath, fBuildId, fStoreDir);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            BinaryKey other = (BinaryKey) obj;
+            return Objects.equal(fFilePath, other.fFilePath) &&
+                    Objects.equal(fBuildId, other.fBuildId) &&
+                    Objects.equal(fStoreDir, other.fStoreDir);
+        }
+    }
+
 
     /**
      * Generate the callsite from a given binary file and address offset.
@@ -113,7 +165,28 @@ public final class FileOffsetMapper {
      * @return The corresponding call site
      */
     public static @Nullable TmfCallsite getCallsiteFromOffset(File file, @Nullable String buildId, long offset) {
-       Iterable<Addr2lineInfo> output = getAddr2lineInfo(file, buildId, offset);
+        return getCallsiteFromOffset(file, buildId, offset, null);
+    }
+
+    /**
+     * Generate the callsite from a given binary file and address offset,
+     * persisting the resolved offsets of the binary in a directory.
+     *
+     * @param file
+     *            The binary file to look at
+     * @param buildId
+     *            The expected buildId of the binary file (is not verified at
+     *            the moment)
+     * @param offset
+     *            The memory offset in the file
+     * @param storeDir
+     *            The directory where the resolved offsets are persisted, per
+     *            build-id, typically the supplementary files directory of the
+     *            trace. If null, they are only kept in memory.
+     * @return The corresponding call site
+     */
+    public static @Nullable TmfCallsite getCallsiteFromOffset(File file, @Nullable String buildId, long offset, @Nullable String storeDir) {
+       Iterable<Addr2lineInfo> output = getAddr2lineInfo(file, buildId, offset, storeDir);
        if (output == null || Iterables.isEmpty(output)) {
            return null;
        }
@@ -141,6 +214,27 @@ public final class FileOffsetMapper {
      * @return The corresponding function/symbol name
      */
     public static @Nullable String getFunctionNameFromOffset(File file, @Nullable String buildId, long offset) {
+        return getFunctionNameFromOffset(file, buildId, offset, null);
+    }
+
+    /**
+     * Get the function/symbol name corresponding to binary file and offset,
+     * persisting the resolved offsets of the binary in a directory.
+     *
+     * @param file
+     *            The binary file to look at
+     * @param buildId
+     *            The expected buildId of the binary file (is not verified at
+     *            the moment)
+     * @param offset
+     *            The memory offset in the file
+     * @param storeDir
+     *            The directory where the resolved offsets are persisted, per
+     *            build-id, typically the supplementary files directory of the
+     *            trace. If null, they are only kept in memory.
+     * @return The corresponding function/symbol name
+     */
+    public static @Nullable String getFunctionNameFromOffset(File file, @Nullable String buildId, long offset, @Nullable String storeDir) {
         /*
          * TODO We are currently also using 'addr2line' to resolve function
          * names, which requires the binary's DWARF information to be available.
@@ -148,7 +242,7 @@ public final class FileOffsetMapper {
          * not stripped), since this is usually more readily available than
          * DWARF.
          */
-        Iterable<Addr2lineInfo> output = getAddr2lineInfo(file, buildId, offset);
+        Iterable<Addr2lineInfo> output = getAddr2lineInfo(file, buildId, offset, storeDir);
         if (output == null || Iterables.isEmpty(output)) {
             return null;
         }
@@ -156,16 +250,42 @@ public final class FileOffsetMapper {
         return info.fFunctionName;
     }
 
+    /**
+     * Resolve many offsets of a binary file at once. The results are cached,
+     * so the callsites and function names of these offsets are then available
+     * without calling 'addr2line' again. Resolving the offsets in one batch is
+     * much faster than resolving them one at a time.
+     *
+     * @param file
+     *            The binary file to look at
+     * @param buildId
+     *            The expected buildId of the binary file (is not verified at
+     *            the moment)
+     * @param offsets
+     *            The memory offsets in the file
+     * @param storeDir
+     *            The directory where the resolved offsets are persisted, per
+     *            build-id. If null, they are only kept in memory.
+     */
+    public static void resolveOffsets(File file, @Nullable String buildId, Collection<Long> offsets, @Nullable String storeDir) {
+        if (!Files.exists((file.toPath()))) {
+            return;
+        }
+        String filePath = checkNotNull(file.toString());
+        List<FileOffset> fileOffsets = offsets.stream()
+                .map(offset -> new FileOffset(filePath, buildId, offset, storeDir))
+                .collect(Collectors.toList());
+        try {
+            ADDR2LINE_INFO_CACHE.getAll(fileOffsets);
+        } catch (ExecutionException e) {
+            LOGGER.warning(() -> "[FileOffsetMapper:ResolveFailed] file=" + filePath + ", error=" + e); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+    }
+
     // ------------------------------------------------------------------------
     // Utility methods making use of 'addr2line'
     // ------------------------------------------------------------------------
 
-    /**
-     * Value used in addr2line output to represent unknown function names or
-     * source files.
-     */
-    private static final String UNKNOWN_VALUE = "??"; //$NON-NLS-1$
-
     /**
      * Cache of all calls to 'addr2line', so that we can avoid recalling the
      * external process repeatedly.
@@ -181,23 +301,103 @@ public final class FileOffsetMapper {
                 @Override
                 public @NonNull Iterable<Addr2lineInfo> load(FileOffset fo) {
                     LOGGER.fine(() -> "[FileOffsetMapper:CacheMiss] file/offset=" + fo.toString()); //$NON-NLS-1$
-                    return callAddr2line(fo);
+                    Iterable<Addr2lineInfo> infos = RESOLVER_CACHE.getUnchecked(fo.getBinary())
+                            .resolve(Collections.singleton(fo.fOffset))
+                            .get(fo.fOffset);
+                    return infos == null ? Collections.emptyList() : infos;
+                }
+
+                @Override
+                public Map<FileOffset, @NonNull Iterable<Addr2lineInfo>> loadAll(Iterable<? extends FileOffset> keys) {
+                    /* Resolve the offsets of each binary in a single batch */
+                    Map<FileOffset, @NonNull Iterable<Addr2lineInfo>> results = new HashMap<>();
+                    Map<BinaryKey, List<FileOffset>> byBinary = StreamSupport.stream(keys.spliterator(), false)
+                            .collect(Collectors.groupingBy(FileOffset::getBinary));
+                    for (Map.Entry<BinaryKey, List<FileOffset>> entry : byBinary.entrySet()) {
+                        List<FileOffset> fileOffsets = entry.getValue();
+                        LOGGER.fine(() -> "[FileOffsetMapper:CacheMissBatch] file=" + entry.getKey().fFilePath + ", offsets=" + fileOffsets.size()); //$NON-NLS-1$ //$NON-NLS-2$
+                        Map<Long, List<Addr2lineInfo>> infos = RESOLVER_CACHE.getUnchecked(entry.getKey())
+                                .resolve(Collections2.transform(fileOffsets, fo -> fo.fOffset));
+                        for (FileOffset fo : fileOffsets) {
+                            Iterable<Addr2lineInfo> info = infos.get(fo.fOffset);
+                            results.put(fo, info == null ? Collections.emptyList() : info);
+                        }
+                    }
+                    return results;
                 }
             }));
     }
 
-    private static class Addr2lineInfo {
-
-        private final @Nullable String fSourceFileName;
-        private final @Nullable Long fSourceLineNumber;
-        private final @Nullable String fFunctionName;
+    /**
+     * The resolvers of the binary files, each one keeping an 'addr2line'
+     * process running. The processes of the binaries which are not used
+     * anymore are terminated.
+     */
+    private static final LoadingCache<BinaryKey, Addr2lineResolver> RESOLVER_CACHE;
+    static {
+        RESOLVER_CACHE = checkNotNull(CacheBuilder.newBuilder()
+            .maximumSize(RESOLVER_CACHE_SIZE)
+            .expireAfterAccess(RESOLVER_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .removalListener((RemovalNotification<BinaryKey, Addr2lineResolver> notification) -> {
+                Addr2lineResolver resolver = notification.getValue();
+                if (resolver != null) {
+                    resolver.close();
+                }
+            })
+            .build(new CacheLoader<BinaryKey, Addr2lineResolver>() {
+                @Override
+                public Addr2lineResolver load(BinaryKey key) {
+                    return new Addr2lineResolver(key.fFilePath, key.fBuildId, key.fStoreDir);
+                }
+            }));
+    }
 
+    /**
+     * The information given by 'addr2line' for an offset
+     */
+    public static class Addr2lineInfo {
+
+        final @Nullable String fSourceFileName;
+        final @Nullable Long fSourceLineNumber;
+        final @Nullable String fFunctionName;
+
+        /**
+         * Constructor
+         *
+         * @param sourceFileName
+         *            The source file name, or null if unknown
+         * @param functionName
+         *            The function name, or null if unknown
+         * @param sourceLineNumber
+         *            The line number, or null if unknown
+         */
         public Addr2lineInfo(@Nullable String sourceFileName,  @Nullable String functionName, @Nullable Long sourceLineNumber) {
             fSourceFileName = sourceFileName;
             fSourceLineNumber = sourceLineNumber;
             fFunctionName = functionName;
         }
 
+        /**
+         * @return The source file name, or null if unknown
+         */
+        public @Nullable String getSourceFileName() {
+            return fSourceFileName;
+        }
+
+        /**
+         * @return The line number, or null if unknown
+         */
+        public @Nullable Long getSourceLineNumber() {
+            return fSourceLineNumber;
+        }
+
+        /**
+         * @return The function name, or null if unknown
+         */
+        public @Nullable String getFunctionName() {
+            return fFunctionName;
+        }
+
         @Override
         public String toString() {
             return Objects.toStringHelper(this)
@@ -208,7 +408,7 @@ public final class FileOffsetMapper {
         }
     }
 
-    private static @Nullable Iterable<Addr2lineInfo> getAddr2lineInfo(File file, @Nullable String buildId, long offset) {
+    private static @Nullable Iterable<Addr2lineInfo> getAddr2lineInfo(File file, @Nullable String buildId, long offset, @Nullable String storeDir) {
         LOGGER.finer(() -> String.format("[FileOffsetMapper:Addr2lineRequest] file=%s, buildId=%s, offset=0x%h", //$NON-NLS-1$
                 file.toString(), buildId, offset));
 
@@ -218,66 +418,10 @@ public final class FileOffsetMapper {
         }
         // TODO We should also eventually verify that the passed buildId matches
         // the file we are attempting to open.
-        FileOffset fo = new FileOffset(checkNotNull(file.toString()), buildId, offset);
+        FileOffset fo = new FileOffset(checkNotNull(file.toString()), buildId, offset, storeDir);
 
         @Nullable Iterable<Addr2lineInfo> callsites = ADDR2LINE_INFO_CACHE.getUnchecked(fo);
         LOGGER.finer(() -> String.format("[FileOffsetMapper:RequestComplete] callsites=%s", callsites)); //$NON-NLS-1$
         return callsites;
     }
-
-    private static Iterable<Addr2lineInfo> callAddr2line(FileOffset fo) {
-        String filePath = fo.fFilePath;
-        long offset = fo.fOffset;
-
-        List<Addr2lineInfo> callsites = new LinkedList<>();
-
-        // FIXME Could eventually use CDT's Addr2line class once it implements --inlines
-        List<String> command = Arrays.asList(ADDR2LINE_EXECUTABLE, "-i", "-f", "-C", "-e", filePath, "0x" + Long.toHexString(offset)); //$NON-NLS-1$//$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
-        List<String> output = ProcessUtils.getOutputFromCommand(command);
-
-        if (output == null) {
-            /* Command returned an error */
-            return Collections.EMPTY_SET;
-        }
-
-        /*
-         * When passing the -f flag, the output alternates between function
-         * names and file/line location.
-         */
-        boolean oddLine = false; // We flip at the start, first loop will be odd
-        String currentFunctionName = null;
-        for (String outputLine : output) {
-            /* Flip the boolean for the following line */
-            oddLine = !oddLine;
-
-            // Remove discriminator part, for example: /build/buildd/glibc-2.21/elf/dl-object.c:78 (discriminator 8)
-            outputLine = outputLine.replaceFirst(DISCRIMINATOR, "").trim(); //$NON-NLS-1$
-
-            if (oddLine) {
-                /* This is a line indicating the function name */
-                if (outputLine.equals(UNKNOWN_VALUE)) {
-                    currentFunctionName = null;
-                } else {
-                    currentFunctionName = outputLine;
-                }
-            } else {
-                /* This is a line indicating a call site */
-                String[] elems = outputLine.split(":"); //$NON-NLS-1$
-                String fileName = elems[0];
-                if (fileName.equals(UNKNOWN_VALUE)) {
-                    fileName = null;
-                }
-                Long lineNumber;
-                try {
-                    lineNumber = Long.valueOf(elems[1]);
-                } catch (NumberFormatException e) {
-                    /* Probably a '?' output, meaning unknown line number. */
-                    lineNumber = null;
-                }
-                callsites.add(new Addr2lineInfo(fileName, currentFunctionName, lineNumber));
-            }
-        }
-
-        return callsites;
-    }
 }
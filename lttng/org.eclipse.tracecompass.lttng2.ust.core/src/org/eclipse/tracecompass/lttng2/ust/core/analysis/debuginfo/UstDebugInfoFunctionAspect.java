@@ -12,11 +12,17 @@ package org.eclipse.tracecompass.lttng2.ust.core.analysis.debuginfo;
 import static org.eclipse.tracecompass.common.core.NonNullUtils.nullToEmptyString;
 
 import java.io.File;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.internal.lttng2.ust.core.analysis.debuginfo.FileOffsetMapper;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
 import org.eclipse.tracecompass.tmf.core.event.aspect.ITmfEventAspect;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
+import org.eclipse.tracecompass.tmf.core.util.Pair;
 
 /**
  * Aspect for the function location obtained with the UST debug info.
@@ -49,7 +55,7 @@ public class UstDebugInfoFunctionAspect implements ITmfEventAspect<FunctionLocat
             return null;
         }
 
-        return getFunctionFromBinaryLocation(bc);
+        return getFunctionFromBinaryLocation(bc, TmfTraceManager.getSupplementaryFileDir(event.getTrace()));
     }
 
     /**
@@ -63,10 +69,29 @@ public class UstDebugInfoFunctionAspect implements ITmfEventAspect<FunctionLocat
      * @since 2.1
      */
     public static @Nullable FunctionLocation getFunctionFromBinaryLocation(BinaryCallsite bc) {
+        return getFunctionFromBinaryLocation(bc, null);
+    }
+
+    /**
+     * Get a function location starting directly from a binary callsite,
+     * persisting the resolved functions of the binary in a directory.
+     *
+     * @param bc
+     *            The binary callsite, representing a binary and offset within
+     *            this binary
+     * @param storeDir
+     *            The directory where the resolved functions are persisted,
+     *            typically the supplementary files directory of the trace. If
+     *            null, they are only kept in memory.
+     * @return The corresponding function location
+     * @since 2.1
+     */
+    public static @Nullable FunctionLocation getFunctionFromBinaryLocation(BinaryCallsite bc, @Nullable String storeDir) {
         String functionName = FileOffsetMapper.getFunctionNameFromOffset(
                 new File(bc.getBinaryFilePath()),
                 bc.getBuildId(),
-                bc.getOffset());
+                bc.getOffset(),
+                storeDir);
         if (functionName == null) {
             return null;
         }
@@ -75,4 +100,28 @@ public class UstDebugInfoFunctionAspect implements ITmfEventAspect<FunctionLocat
         return new FunctionLocation(functionName, null);
     }
 
+    /**
+     * Resolve the function locations of many binary callsites at once, so
+     * that they are then available without calling 'addr2line' for each of
+     * them. The offsets of each binary are resolved in a single batch.
+     *
+     * @param callsites
+     *            The binary callsites to resolve
+     * @param storeDir
+     *            The directory where the resolved functions are persisted,
+     *            typically the supplementary files directory of the trace. If
+     *            null, they are only kept in memory.
+     * @since 2.1
+     */
+    public static void resolveFunctions(Collection<BinaryCallsite> callsites, @Nullable String storeDir) {
+        Map<Pair<String, @Nullable String>, List<Long>> offsetsPerBinary = callsites.stream()
+                .collect(Collectors.groupingBy(bc -> new Pair<>(bc.getBinaryFilePath(), bc.getBuildId()),
+                        Collectors.mapping(BinaryCallsite::getOffset, Collectors.toList())));
+        offsetsPerBinary.forEach((binary, offsets) -> FileOffsetMapper.resolveOffsets(
+                new File(binary.getFirst()),
+                binary.getSecond(),
+                offsets,
+                storeDir));
+    }
+
 }
@@ -19,6 +19,7 @@ import org.eclipse.tracecompass.lttng2.ust.core.trace.LttngUstTrace;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
 import org.eclipse.tracecompass.tmf.core.event.aspect.ITmfEventAspect;
 import org.eclipse.tracecompass.tmf.core.event.lookup.TmfCallsite;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
 
 /**
  * Event aspect of UST traces to generate a {@link TmfCallsite} using the debug
@@ -67,7 +68,8 @@ public class UstDebugInfoSourceAspect implements ITmfEventAspect<TmfCallsite> {
         TmfCallsite callsite = FileOffsetMapper.getCallsiteFromOffset(
                 new File(bc.getBinaryFilePath()),
                 bc.getBuildId(),
-                bc.getOffset());
+                bc.getOffset(),
+                TmfTraceManager.getSupplementaryFileDir(trace));
         if (callsite == null) {
             return null;
         }
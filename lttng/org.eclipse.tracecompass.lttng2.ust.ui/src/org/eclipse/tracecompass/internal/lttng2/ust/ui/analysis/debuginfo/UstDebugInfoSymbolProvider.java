@@ -9,8 +9,17 @@
 
 package org.eclipse.tracecompass.internal.lttng2.ust.ui.analysis.debuginfo;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.internal.lttng2.ust.core.callstack.LttngUstCallStackAnalysis;
 import org.eclipse.tracecompass.lttng2.ust.core.analysis.debuginfo.BinaryCallsite;
 import org.eclipse.tracecompass.lttng2.ust.core.analysis.debuginfo.FunctionLocation;
 import org.eclipse.tracecompass.lttng2.ust.core.analysis.debuginfo.UstDebugInfoAnalysisModule;
@@ -18,7 +27,16 @@ import org.eclipse.tracecompass.lttng2.ust.core.analysis.debuginfo.UstDebugInfoB
 import org.eclipse.tracecompass.lttng2.ust.core.analysis.debuginfo.UstDebugInfoFunctionAspect;
 import org.eclipse.tracecompass.lttng2.ust.core.analysis.debuginfo.UstDebugInfoSourceAspect;
 import org.eclipse.tracecompass.lttng2.ust.core.trace.LttngUstTrace;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
+import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue.Type;
+import org.eclipse.tracecompass.tmf.core.callstack.CallStackStateProvider;
 import org.eclipse.tracecompass.tmf.core.event.lookup.TmfCallsite;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceUtils;
+import org.eclipse.tracecompass.tmf.core.util.Pair;
 import org.eclipse.tracecompass.tmf.ui.symbols.DefaultSymbolProvider;
 import org.eclipse.tracecompass.tmf.ui.symbols.ISymbolProviderPreferencePage;
 
@@ -57,6 +75,61 @@ public class UstDebugInfoSymbolProvider extends DefaultSymbolProvider {
         return (LttngUstTrace) super.getTrace();
     }
 
+    /**
+     * Resolve at once the functions of the call stack of the trace, if it is
+     * already built, instead of calling 'addr2line' for each function when
+     * its name is requested.
+     */
+    @Override
+    public void loadConfiguration(@Nullable IProgressMonitor monitor) {
+        LttngUstTrace trace = getTrace();
+        LttngUstCallStackAnalysis module = TmfTraceUtils.getAnalysisModuleOfClass(trace, LttngUstCallStackAnalysis.class, LttngUstCallStackAnalysis.ID);
+        if (module == null) {
+            return;
+        }
+        ITmfStateSystem ss = module.getStateSystem();
+        if (ss == null || !ss.waitUntilBuilt(0)) {
+            return;
+        }
+
+        Set<BinaryCallsite> callsites = new HashSet<>();
+        Set<Pair<Integer, Long>> addresses = new HashSet<>();
+        Map<Integer, Integer> pids = new HashMap<>();
+        try {
+            List<Integer> quarks = new ArrayList<>();
+            for (int callStackQuark : ss.getQuarks(CallStackStateProvider.PROCESSES, "*", "*", CallStackStateProvider.CALL_STACK)) { //$NON-NLS-1$ //$NON-NLS-2$
+                quarks.addAll(ss.getSubAttributes(callStackQuark, false));
+            }
+            for (ITmfStateInterval interval : ss.query2D(quarks, ss.getStartTime(), ss.getCurrentEndTime())) {
+                if (monitor != null && monitor.isCanceled()) {
+                    return;
+                }
+                ITmfStateValue value = interval.getStateValue();
+                if (value.getType() != Type.LONG) {
+                    continue;
+                }
+                /* Depth -> CallStack -> thread -> process */
+                int processQuark = ss.getParentAttributeQuark(ss.getParentAttributeQuark(ss.getParentAttributeQuark(interval.getAttribute())));
+                Integer pid = pids.get(processQuark);
+                if (pid == null) {
+                    ITmfStateValue pidValue = ss.querySingleState(interval.getStartTime(), processQuark).getStateValue();
+                    pid = (pidValue.getType() == Type.INTEGER ? pidValue.unboxInt() : CallStackStateProvider.UNKNOWN_PID);
+                    pids.put(processQuark, pid);
+                }
+                long address = value.unboxLong();
+                if (addresses.add(new Pair<>(pid, address))) {
+                    BinaryCallsite bc = UstDebugInfoBinaryAspect.getBinaryCallsite(trace, pid, interval.getStartTime(), address);
+                    if (bc != null) {
+                        callsites.add(bc);
+                    }
+                }
+            }
+        } catch (StateSystemDisposedException e) {
+            return;
+        }
+        UstDebugInfoFunctionAspect.resolveFunctions(callsites, TmfTraceManager.getSupplementaryFileDir(trace));
+    }
+
     @Override
     public @Nullable String getSymbolText(int pid, long timestamp, long address) {
         BinaryCallsite bc = UstDebugInfoBinaryAspect.getBinaryCallsite(getTrace(), pid, timestamp, address);
@@ -64,7 +137,7 @@ public class UstDebugInfoSymbolProvider extends DefaultSymbolProvider {
             return null;
         }
 
-        FunctionLocation loc = UstDebugInfoFunctionAspect.getFunctionFromBinaryLocation(bc);
+        FunctionLocation loc = UstDebugInfoFunctionAspect.getFunctionFromBinaryLocation(bc, TmfTraceManager.getSupplementaryFileDir(getTrace()));
         return (loc == null ? null : loc.getFunctionName());
     }
 
@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2017 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.datastore.core.interval;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * Writes and reads the elements of an {@link IntervalFile}. All the elements
+ * of a node are written to the same stream, so class descriptors and shared
+ * objects are only written once per node.
+ *
+ * @param <E>
+ *            The type of elements
+ */
+public interface IElementSerializer<E> {
+
+    /**
+     * Serializer using the standard Java serialization, for elements that are
+     * {@link java.io.Serializable}
+     *
+     * @return The serializer
+     */
+    @SuppressWarnings("unchecked")
+    static <E> IElementSerializer<E> javaSerialization() {
+        return (IElementSerializer<E>) JavaElementSerializer.INSTANCE;
+    }
+
+    /**
+     * Write an element
+     *
+     * @param out
+     *            The stream of the node
+     * @param element
+     *            The element to write
+     * @throws IOException
+     *             If the element cannot be written
+     */
+    void write(ObjectOutput out, E element) throws IOException;
+
+    /**
+     * Read an element written by {@link #write}
+     *
+     * @param in
+     *            The stream of the node
+     * @return The element
+     * @throws IOException
+     *             If the element cannot be read
+     * @throws ClassNotFoundException
+     *             If the class of a serialized object cannot be found
+     */
+    E read(ObjectInput in) throws IOException, ClassNotFoundException;
+}
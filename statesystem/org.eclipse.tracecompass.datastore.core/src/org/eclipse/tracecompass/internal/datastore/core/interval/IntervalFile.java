@@ -0,0 +1,458 @@
+/*******************************************************************************
+ * Copyright (c) 2017 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.datastore.core.interval;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * File of elements covering a time range, for example segments, grouped in
+ * nodes.
+ *
+ * Nodes are appended to the file as they are filled, and are never modified
+ * afterwards. The time range and position of every node is kept in memory, so
+ * a query only reads the nodes that intersect it, through a cache of a bounded
+ * number of nodes. Once the file is {@link #finish() finished}, this index is
+ * written at its end, so the file can be opened again without rebuilding it.
+ *
+ * Nodes are appended by one thread at a time, but can be read concurrently by
+ * any number of threads.
+ *
+ * File format: a header (magic number, version, position of the index), the
+ * nodes, then the index.
+ *
+ * @param <E>
+ *            The type of elements
+ */
+public class IntervalFile<E> {
+
+    private static final int MAGIC_NUMBER = 0x05E65E65;
+    private static final int FILE_VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int INDEX_POSITION_OFFSET = 8;
+
+    private static final int INITIAL_INDEX_SIZE = 64;
+
+    private final Path fPath;
+    private final IElementSerializer<E> fSerializer;
+    private final FileChannel fChannel;
+
+    /* Bounded node cache, in access order */
+    private final Map<Integer, List<E>> fCache;
+    /* Incremented when the nodes are removed, guarded by fCache */
+    private int fGeneration = 0;
+
+    /*
+     * Node index. The arrays are replaced when they grow, before the node
+     * count is incremented, so a reader that reads the count first always
+     * sees the nodes it counts.
+     */
+    private volatile long[] fNodePositions = new long[INITIAL_INDEX_SIZE];
+    private volatile int[] fNodeSizes = new int[INITIAL_INDEX_SIZE];
+    private volatile int[] fNodeCounts = new int[INITIAL_INDEX_SIZE];
+    private volatile long[] fNodeStarts = new long[INITIAL_INDEX_SIZE];
+    private volatile long[] fNodeEnds = new long[INITIAL_INDEX_SIZE];
+    private volatile int fNbNodes = 0;
+    private volatile long fNbElements = 0;
+
+    private long fFileEnd = HEADER_SIZE;
+    private boolean fFinished = false;
+
+    /**
+     * Open an interval file. If the file exists and was finished, its nodes
+     * are loaded, otherwise a new, empty file is created.
+     *
+     * @param path
+     *            The path of the file
+     * @param serializer
+     *            The serializer of the elements
+     * @param cacheSize
+     *            The maximum number of nodes to keep in memory
+     * @throws IOException
+     *             If the file cannot be opened
+     */
+    public IntervalFile(Path path, IElementSerializer<E> serializer, int cacheSize) throws IOException {
+        fPath = path;
+        fSerializer = serializer;
+        fCache = new LinkedHashMap<Integer, List<E>>(cacheSize, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.@Nullable Entry<Integer, List<E>> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        fChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (!readIndex()) {
+                reset();
+            }
+        } catch (IOException e) {
+            fChannel.close();
+            throw e;
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Accessors
+    // ------------------------------------------------------------------------
+
+    /**
+     * Get whether this file was finished, either by {@link #finish()} or
+     * when it was opened, and no node was appended since
+     *
+     * @return True if the file is finished
+     */
+    public synchronized boolean isFinished() {
+        return fFinished;
+    }
+
+    /**
+     * Get the number of nodes in the file
+     *
+     * @return The number of nodes
+     */
+    public int getNbNodes() {
+        return fNbNodes;
+    }
+
+    /**
+     * Get the total number of elements in the nodes of the file
+     *
+     * @return The number of elements
+     */
+    public long getNbElements() {
+        return fNbElements;
+    }
+
+    /**
+     * Get the start of a node, as given to {@link #appendNode}
+     *
+     * @param node
+     *            The index of the node
+     * @return The start of the node
+     */
+    public long getNodeStart(int node) {
+        return fNodeStarts[node];
+    }
+
+    /**
+     * Get the end of a node, as given to {@link #appendNode}
+     *
+     * @param node
+     *            The index of the node
+     * @return The end of the node
+     */
+    public long getNodeEnd(int node) {
+        return fNodeEnds[node];
+    }
+
+    /**
+     * Get the number of elements in a node
+     *
+     * @param node
+     *            The index of the node
+     * @return The number of elements
+     */
+    public int getNodeCount(int node) {
+        return fNodeCounts[node];
+    }
+
+    // ------------------------------------------------------------------------
+    // Operations
+    // ------------------------------------------------------------------------
+
+    /**
+     * Append a node to the file. If the file was finished, its index is
+     * overwritten, it must be finished again to be persisted.
+     *
+     * @param elements
+     *            The elements of the node, in the order they will be read
+     * @param start
+     *            The start of the node, the minimum start of its elements
+     * @param end
+     *            The end of the node, the maximum end of its elements
+     * @return The index of the new node
+     * @throws IOException
+     *             If the node cannot be written
+     */
+    public synchronized int appendNode(List<E> elements, long start, long end) throws IOException {
+        if (fFinished) {
+            writeIndexPosition(0);
+            fFinished = false;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            for (E element : elements) {
+                fSerializer.write(out, element);
+            }
+        }
+        int size = bytes.size();
+        writeFully(ByteBuffer.wrap(bytes.toByteArray()), fFileEnd);
+
+        int node = fNbNodes;
+        if (node == fNodePositions.length) {
+            int newLength = node * 2;
+            fNodePositions = Arrays.copyOf(fNodePositions, newLength);
+            fNodeSizes = Arrays.copyOf(fNodeSizes, newLength);
+            fNodeCounts = Arrays.copyOf(fNodeCounts, newLength);
+            fNodeStarts = Arrays.copyOf(fNodeStarts, newLength);
+            fNodeEnds = Arrays.copyOf(fNodeEnds, newLength);
+        }
+        fNodePositions[node] = fFileEnd;
+        fNodeSizes[node] = size;
+        fNodeCounts[node] = elements.size();
+        fNodeStarts[node] = start;
+        fNodeEnds[node] = end;
+        fFileEnd += size;
+        fNbElements += elements.size();
+        fNbNodes = node + 1;
+        return node;
+    }
+
+    /**
+     * Read the elements of a node, from the cache if possible
+     *
+     * @param node
+     *            The index of the node
+     * @return The unmodifiable list of the elements of the node
+     * @throws IOException
+     *             If the node cannot be read
+     */
+    public List<E> readNode(int node) throws IOException {
+        Integer key = node;
+        int generation;
+        synchronized (fCache) {
+            List<E> elements = fCache.get(key);
+            if (elements != null) {
+                return elements;
+            }
+            generation = fGeneration;
+        }
+
+        /* Read outside of the lock, positional reads can be concurrent */
+        ByteBuffer buffer = ByteBuffer.allocate(fNodeSizes[node]);
+        long position = fNodePositions[node];
+        while (buffer.hasRemaining()) {
+            int read = fChannel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of file reading node " + node + " of " + fPath); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+        }
+
+        int count = fNodeCounts[node];
+        List<E> elements = new ArrayList<>(count);
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(buffer.array()))) {
+            for (int i = 0; i < count; i++) {
+                elements.add(fSerializer.read(in));
+            }
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Cannot read node " + node + " of " + fPath, e); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        List<E> unmodifiable = Collections.unmodifiableList(elements);
+        synchronized (fCache) {
+            /* Do not cache a node that was removed while it was read */
+            if (generation == fGeneration) {
+                fCache.put(key, unmodifiable);
+            }
+        }
+        return unmodifiable;
+    }
+
+    /**
+     * Write the index of the nodes at the end of the file, so it can be opened
+     * again later.
+     *
+     * @throws IOException
+     *             If the index cannot be written
+     */
+    public synchronized void finish() throws IOException {
+        if (fFinished) {
+            return;
+        }
+        int nbNodes = fNbNodes;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(nbNodes);
+            out.writeLong(fNbElements);
+            for (int i = 0; i < nbNodes; i++) {
+                out.writeLong(fNodePositions[i]);
+                out.writeInt(fNodeSizes[i]);
+                out.writeInt(fNodeCounts[i]);
+                out.writeLong(fNodeStarts[i]);
+                out.writeLong(fNodeEnds[i]);
+            }
+        }
+        writeFully(ByteBuffer.wrap(bytes.toByteArray()), fFileEnd);
+        fChannel.truncate(fFileEnd + bytes.size());
+        fChannel.force(false);
+        /* The index is only valid once it is completely on disk */
+        writeIndexPosition(fFileEnd);
+        fChannel.force(false);
+        fFinished = true;
+    }
+
+    /**
+     * Remove all the nodes of the file
+     *
+     * @throws IOException
+     *             If the file cannot be truncated
+     */
+    public synchronized void clear() throws IOException {
+        reset();
+    }
+
+    /**
+     * Close the file. The nodes are not accessible anymore.
+     *
+     * @throws IOException
+     *             If the file cannot be closed
+     */
+    public synchronized void close() throws IOException {
+        fNbNodes = 0;
+        fNbElements = 0;
+        clearCache();
+        fChannel.close();
+    }
+
+    /**
+     * Close and delete the file
+     *
+     * @throws IOException
+     *             If the file cannot be deleted
+     */
+    public synchronized void delete() throws IOException {
+        close();
+        Files.deleteIfExists(fPath);
+    }
+
+    // ------------------------------------------------------------------------
+    // Helpers
+    // ------------------------------------------------------------------------
+
+    private void reset() throws IOException {
+        fNbNodes = 0;
+        fNbElements = 0;
+        clearCache();
+        fChannel.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC_NUMBER);
+        header.putInt(FILE_VERSION);
+        header.putLong(0);
+        header.flip();
+        writeFully(header, 0);
+        fFileEnd = HEADER_SIZE;
+        fFinished = false;
+    }
+
+    /**
+     * Read the index of an existing file
+     *
+     * @return False if the file is not a finished interval file
+     */
+    private boolean readIndex() throws IOException {
+        long fileSize = fChannel.size();
+        if (fileSize < HEADER_SIZE) {
+            return false;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (fChannel.read(header, header.position()) < 0) {
+                return false;
+            }
+        }
+        header.flip();
+        if (header.getInt() != MAGIC_NUMBER || header.getInt() != FILE_VERSION) {
+            return false;
+        }
+        long indexPosition = header.getLong();
+        if (indexPosition < HEADER_SIZE || indexPosition >= fileSize) {
+            return false;
+        }
+
+        ByteBuffer index = ByteBuffer.allocate((int) (fileSize - indexPosition));
+        while (index.hasRemaining()) {
+            if (fChannel.read(index, indexPosition + index.position()) < 0) {
+                return false;
+            }
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(index.array()))) {
+            int nbNodes = in.readInt();
+            long nbElements = in.readLong();
+            int length = Math.max(INITIAL_INDEX_SIZE, nbNodes);
+            long[] positions = new long[length];
+            int[] sizes = new int[length];
+            int[] counts = new int[length];
+            long[] starts = new long[length];
+            long[] ends = new long[length];
+            for (int i = 0; i < nbNodes; i++) {
+                positions[i] = in.readLong();
+                sizes[i] = in.readInt();
+                counts[i] = in.readInt();
+                starts[i] = in.readLong();
+                ends[i] = in.readLong();
+            }
+            fNodePositions = positions;
+            fNodeSizes = sizes;
+            fNodeCounts = counts;
+            fNodeStarts = starts;
+            fNodeEnds = ends;
+            fNbElements = nbElements;
+            fNbNodes = nbNodes;
+        } catch (EOFException e) {
+            /* Truncated index */
+            return false;
+        }
+        fFileEnd = indexPosition;
+        fFinished = true;
+        return true;
+    }
+
+    private void clearCache() {
+        synchronized (fCache) {
+            fCache.clear();
+            fGeneration++;
+        }
+    }
+
+    private void writeIndexPosition(long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        buffer.putLong(position);
+        buffer.flip();
+        writeFully(buffer, INDEX_POSITION_OFFSET);
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        long pos = position;
+        while (buffer.hasRemaining()) {
+            pos += fChannel.write(buffer, pos);
+        }
+    }
+}
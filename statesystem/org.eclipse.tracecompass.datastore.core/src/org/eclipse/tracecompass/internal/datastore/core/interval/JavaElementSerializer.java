@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright (c) 2017 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.datastore.core.interval;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * Element serializer using {@link ObjectOutput#writeObject}
+ */
+final class JavaElementSerializer implements IElementSerializer<Object> {
+
+    static final JavaElementSerializer INSTANCE = new JavaElementSerializer();
+
+    private JavaElementSerializer() {
+    }
+
+    @Override
+    public void write(ObjectOutput out, Object element) throws IOException {
+        out.writeObject(element);
+    }
+
+    @Override
+    public Object read(ObjectInput in) throws IOException, ClassNotFoundException {
+        Object element = in.readObject();
+        if (element == null) {
+            throw new IOException("Null element in interval file"); //$NON-NLS-1$
+        }
+        return element;
+    }
+}
@@ -10,7 +10,11 @@
 package org.eclipse.tracecompass.analysis.timing.core.tests.store;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Iterator;
@@ -20,12 +24,14 @@ import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.test.performance.Performance;
 import org.eclipse.test.performance.PerformanceMeter;
 import org.eclipse.tracecompass.internal.segmentstore.core.arraylist.ArrayListStore;
+import org.eclipse.tracecompass.internal.segmentstore.core.arraylist.ChunkedArrayListStore;
 import org.eclipse.tracecompass.internal.segmentstore.core.arraylist.LazyArrayListStore;
 import org.eclipse.tracecompass.internal.segmentstore.core.treemap.TreeMapStore;
 import org.eclipse.tracecompass.segmentstore.core.BasicSegment;
 import org.eclipse.tracecompass.segmentstore.core.ISegment;
 import org.eclipse.tracecompass.segmentstore.core.ISegmentStore;
 import org.eclipse.tracecompass.segmentstore.core.SegmentComparators;
+import org.eclipse.tracecompass.segmentstore.core.SegmentStoreFactory;
 import org.junit.FixMethodOrder;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -50,9 +56,13 @@ public class SegmentStoreBenchmark {
 
     private static final int DEFAULT_SAMPLE = 1000;
     private static final int DEFAULT_LOOP_COUNT = 10;
+    private static final long DEFAULT_SIZE = 1000000;
+    private static final int QUERY_COUNT = 1000;
+    private static final long QUERY_WIDTH = 1000;
 
     private final ISegmentStore<@NonNull ISegment> fSegStore;
     private final String fName;
+    private final long fSize;
     private final Performance fPerf;
 
     /**
@@ -61,12 +71,33 @@ public class SegmentStoreBenchmark {
     @Parameters(name = "{index}: {0}")
     public static Iterable<Object[]> getParameters() {
         return Arrays.asList(new Object[][] {
-                { "Array list store", new ArrayListStore<>() },
-                { "Lazy array list store", new LazyArrayListStore<>() },
-                { "Treemap store", new TreeMapStore<>() },
+                { "Array list store", new ArrayListStore<>(), DEFAULT_SIZE },
+                { "Lazy array list store", new LazyArrayListStore<>(), DEFAULT_SIZE },
+                { "Chunked array list store", new ChunkedArrayListStore<>(), DEFAULT_SIZE },
+                { "Treemap store", new TreeMapStore<>(), DEFAULT_SIZE },
+                { "On-disk store", createOnDiskStore(), DEFAULT_SIZE },
+                { "Array list store 10M", new ArrayListStore<>(), 10 * DEFAULT_SIZE },
+                { "Lazy array list store 10M", new LazyArrayListStore<>(), 10 * DEFAULT_SIZE },
+                { "Chunked array list store 10M", new ChunkedArrayListStore<>(), 10 * DEFAULT_SIZE },
+                { "Treemap store 10M", new TreeMapStore<>(), 10 * DEFAULT_SIZE },
+                { "On-disk store 10M", createOnDiskStore(), 10 * DEFAULT_SIZE },
+                { "Array list store 100M", new ArrayListStore<>(), 100 * DEFAULT_SIZE },
+                { "Lazy array list store 100M", new LazyArrayListStore<>(), 100 * DEFAULT_SIZE },
+                { "Chunked array list store 100M", new ChunkedArrayListStore<>(), 100 * DEFAULT_SIZE },
+                { "On-disk store 100M", createOnDiskStore(), 100 * DEFAULT_SIZE },
         });
     }
 
+    private static ISegmentStore<@NonNull ISegment> createOnDiskStore() {
+        try {
+            Path file = Files.createTempFile("segments", ".bench");
+            file.toFile().deleteOnExit();
+            return SegmentStoreFactory.createOnDiskSegmentStore(file);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     /**
      * Constructor
      *
@@ -74,10 +105,13 @@ public class SegmentStoreBenchmark {
      *            The name of this test
      * @param segStore
      *            The segment store to fill for the benchmarks
+     * @param size
+     *            The number of segments to add to the segment store
      */
-    public SegmentStoreBenchmark(String name, ISegmentStore<@NonNull ISegment> segStore) {
+    public SegmentStoreBenchmark(String name, ISegmentStore<@NonNull ISegment> segStore, long size) {
         fSegStore = segStore;
         fName = name;
+        fSize = size;
         fPerf = Performance.getDefault();
     }
 
@@ -87,7 +121,7 @@ public class SegmentStoreBenchmark {
      * @return The number of segments to add to the segment store
      */
     protected long getSegmentStoreSize() {
-        return 1000000;
+        return fSize;
     }
 
     /**
@@ -148,6 +182,32 @@ public class SegmentStoreBenchmark {
         insertIterTwice(DEFAULT_SAMPLE, fuzz, "Random");
     }
 
+    /**
+     * Add elements almost in order, then run intersecting queries on random
+     * time ranges, as views do when zooming in the trace.
+     */
+    @Test
+    public void test6FuzzyIntersectingQueries() {
+        PerformanceMeter pMquery = fPerf.createPerformanceMeter("Fuzzy Intersecting Queries: " + fName);
+        int[] fuzz = fuzzyArray(DEFAULT_SAMPLE);
+        fSegStore.clear();
+        populate(DEFAULT_SAMPLE, fuzz, fSegStore, 0, getSegmentStoreSize());
+        /* Make sure the segments are complete, for stores that need it */
+        fSegStore.close(false);
+
+        Random rng = new Random(10);
+        for (int i = 0; i < DEFAULT_LOOP_COUNT; i++) {
+            pMquery.start();
+            for (int j = 0; j < QUERY_COUNT; j++) {
+                long start = (long) (rng.nextDouble() * getSegmentStoreSize());
+                Iterable<@NonNull ISegment> segments = fSegStore.getIntersectingElements(start, start + QUERY_WIDTH);
+                assertTrue(segments.iterator().hasNext());
+            }
+            pMquery.stop();
+        }
+        pMquery.commit();
+    }
+
     private static int[] randomArray(int size) {
         int[] fuzz = new int[DEFAULT_SAMPLE];
         Random rng = new Random(10);
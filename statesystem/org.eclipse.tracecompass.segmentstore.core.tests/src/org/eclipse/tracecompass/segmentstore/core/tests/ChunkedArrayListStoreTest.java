@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2017 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.segmentstore.core.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.internal.segmentstore.core.arraylist.ChunkedArrayListStore;
+import org.eclipse.tracecompass.segmentstore.core.BasicSegment;
+import org.eclipse.tracecompass.segmentstore.core.ISegment;
+import org.eclipse.tracecompass.segmentstore.core.ISegmentStore;
+import org.eclipse.tracecompass.segmentstore.core.SegmentComparators;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Unit tests for intersecting elements in a ChunkedArrayListStore
+ */
+public class ChunkedArrayListStoreTest extends AbstractTestSegmentStore {
+
+    @Override
+    protected ISegmentStore<@NonNull ISegment> getSegmentStore() {
+        return new ChunkedArrayListStore<>();
+    }
+
+    @Override
+    protected ISegmentStore<@NonNull ISegment> getSegmentStore(@NonNull ISegment @NonNull [] data) {
+        return new ChunkedArrayListStore<>(data);
+    }
+
+    /**
+     * Test that the sorted indexes are kept up to date when segments are
+     * added between reads, over many chunks
+     */
+    @Test
+    public void testIncrementalIndexes() {
+        ISegmentStore<@NonNull ISegment> store = getSegmentStore();
+        List<@NonNull ISegment> expected = new ArrayList<>();
+        Random rng = new Random(10);
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 10000; j++) {
+                long start = rng.nextInt(100000);
+                ISegment segment = new BasicSegment(start, start + rng.nextInt(1000));
+                store.add(segment);
+                expected.add(segment);
+            }
+            expected.sort(null);
+            assertEquals(expected, Lists.newArrayList(store));
+            assertSorted(store, SegmentComparators.INTERVAL_END_COMPARATOR, expected.size());
+            assertSorted(store, SegmentComparators.INTERVAL_LENGTH_COMPARATOR, expected.size());
+
+            List<@NonNull ISegment> intersecting = expected.stream()
+                    .filter(s -> s.getStart() <= 50500 && s.getEnd() >= 50000)
+                    .collect(Collectors.toList());
+            assertEquals(intersecting, Lists.newArrayList(store.getIntersectingElements(50000, 50500)));
+        }
+        store.dispose();
+    }
+
+    /**
+     * Test that readers updating the indexes while segments are added always
+     * see sorted indexes, and that the indexes end up covering all the
+     * segments
+     *
+     * @throws InterruptedException
+     *             If the test is interrupted
+     */
+    @Test
+    public void testConcurrentIndexUpdates() throws InterruptedException {
+        ISegmentStore<@NonNull ISegment> store = getSegmentStore();
+        int nbSegments = 50000;
+        AtomicReference<@Nullable Throwable> failure = new AtomicReference<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Comparator<ISegment> comparator = (i % 2 == 0 ? SegmentComparators.INTERVAL_END_COMPARATOR : SegmentComparators.INTERVAL_LENGTH_COMPARATOR);
+            Thread reader = new Thread(() -> {
+                try {
+                    int size = 0;
+                    while (size < nbSegments) {
+                        size = store.size();
+                        List<@NonNull ISegment> sorted = Lists.newArrayList(store.iterator(comparator));
+                        assertEquals(true, sorted.size() >= size);
+                        for (int j = 1; j < sorted.size(); j++) {
+                            assertEquals(true, comparator.compare(sorted.get(j - 1), sorted.get(j)) <= 0);
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+
+        Random rng = new Random(10);
+        for (int i = 0; i < nbSegments; i++) {
+            long start = rng.nextInt(100000);
+            store.add(new BasicSegment(start, start + rng.nextInt(1000)));
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertNull(failure.get());
+        assertSorted(store, SegmentComparators.INTERVAL_END_COMPARATOR, nbSegments);
+        assertSorted(store, SegmentComparators.INTERVAL_LENGTH_COMPARATOR, nbSegments);
+        store.dispose();
+    }
+
+    private static void assertSorted(ISegmentStore<@NonNull ISegment> store, Comparator<ISegment> comparator, int expectedSize) {
+        List<@NonNull ISegment> sorted = Lists.newArrayList(store.iterator(comparator));
+        assertEquals(expectedSize, sorted.size());
+        for (int i = 1; i < sorted.size(); i++) {
+            assertEquals(true, comparator.compare(sorted.get(i - 1), sorted.get(i)) <= 0);
+        }
+    }
+}
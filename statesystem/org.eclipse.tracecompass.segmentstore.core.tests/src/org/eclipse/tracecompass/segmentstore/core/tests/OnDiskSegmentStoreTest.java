@@ -0,0 +1,250 @@
+/*******************************************************************************
+ * Copyright (c) 2017 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.segmentstore.core.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.internal.datastore.core.interval.IElementSerializer;
+import org.eclipse.tracecompass.internal.segmentstore.core.ondisk.OnDiskSegmentStore;
+import org.eclipse.tracecompass.segmentstore.core.BasicSegment;
+import org.eclipse.tracecompass.segmentstore.core.ISegment;
+import org.eclipse.tracecompass.segmentstore.core.ISegmentStore;
+import org.junit.Test;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+
+/**
+ * Unit tests for the {@link OnDiskSegmentStore}. The nodes are small, so the
+ * segments of the tests are spread over many nodes.
+ */
+public class OnDiskSegmentStoreTest extends AbstractTestSegmentStore {
+
+    private static final int NODE_SIZE = 2;
+
+    @Override
+    protected ISegmentStore<@NonNull ISegment> getSegmentStore() {
+        try {
+            return createStore(createTempFile());
+        } catch (IOException e) {
+            fail(e.getMessage());
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    protected ISegmentStore<@NonNull ISegment> getSegmentStore(@NonNull ISegment @NonNull [] data) {
+        ISegmentStore<@NonNull ISegment> store = getSegmentStore();
+        for (ISegment segment : data) {
+            store.add(segment);
+        }
+        return store;
+    }
+
+    private static Path createTempFile() throws IOException {
+        Path file = Files.createTempFile("segments", ".tmp"); //$NON-NLS-1$ //$NON-NLS-2$
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    private static OnDiskSegmentStore<@NonNull ISegment> createStore(Path file) throws IOException {
+        return new OnDiskSegmentStore<>(file, NODE_SIZE);
+    }
+
+    /**
+     * Test that a closed store can be opened again without adding its
+     * segments again
+     *
+     * @throws IOException
+     *             If the file cannot be used
+     */
+    @Test
+    public void testReopen() throws IOException {
+        Path file = createTempFile();
+        OnDiskSegmentStore<@NonNull ISegment> store = createStore(file);
+        for (ISegment segment : SEGMENTS) {
+            store.add(segment);
+        }
+        assertFalse(store.isComplete());
+        store.close(false);
+        assertTrue(store.isComplete());
+        store.dispose();
+
+        OnDiskSegmentStore<@NonNull ISegment> reopened = createStore(file);
+        try {
+            assertTrue(reopened.isComplete());
+            assertEquals(SEGMENTS, Lists.newArrayList(reopened));
+            assertEquals(3, Iterables.size(reopened.getIntersectingElements(7, 14)));
+
+            /* Adding to a complete store makes it incomplete again */
+            reopened.add(new BasicSegment(20, 30));
+            assertFalse(reopened.isComplete());
+            assertEquals(SEGMENTS.size() + 1, reopened.size());
+        } finally {
+            reopened.dispose();
+        }
+    }
+
+    /**
+     * Test that a store that was not closed is empty when opened again
+     *
+     * @throws IOException
+     *             If the file cannot be used
+     */
+    @Test
+    public void testReopenIncomplete() throws IOException {
+        Path file = createTempFile();
+        OnDiskSegmentStore<@NonNull ISegment> store = createStore(file);
+        for (ISegment segment : SEGMENTS) {
+            store.add(segment);
+        }
+        store.dispose();
+
+        OnDiskSegmentStore<@NonNull ISegment> reopened = createStore(file);
+        try {
+            assertFalse(reopened.isComplete());
+            assertTrue(reopened.isEmpty());
+        } finally {
+            reopened.dispose();
+        }
+    }
+
+    /**
+     * Test that a closed store without segments is complete when opened
+     * again, so its segments are not computed again
+     *
+     * @throws IOException
+     *             If the file cannot be used
+     */
+    @Test
+    public void testReopenEmpty() throws IOException {
+        Path file = createTempFile();
+        OnDiskSegmentStore<@NonNull ISegment> store = createStore(file);
+        store.close(false);
+        assertTrue(store.isComplete());
+        store.dispose();
+
+        OnDiskSegmentStore<@NonNull ISegment> reopened = createStore(file);
+        try {
+            assertTrue(reopened.isComplete());
+            assertTrue(reopened.isEmpty());
+            assertFalse(reopened.iterator().hasNext());
+        } finally {
+            reopened.dispose();
+        }
+    }
+
+    /**
+     * Test the queries and iteration order on overlapping nodes, with more
+     * nodes than the node cache holds
+     *
+     * @throws IOException
+     *             If the file cannot be used
+     */
+    @Test
+    public void testManyNodes() throws IOException {
+        OnDiskSegmentStore<@NonNull ISegment> store = new OnDiskSegmentStore<>(createTempFile(), IElementSerializer.javaSerialization(), 10);
+        try {
+            List<@NonNull ISegment> expected = new ArrayList<>();
+            /* Long segments added when they end, as an analysis would */
+            for (int i = 0; i < 10000; i++) {
+                long start = (i % 7 == 0 ? i - 500 : i);
+                ISegment segment = new BasicSegment(start, i);
+                store.add(segment);
+                expected.add(segment);
+            }
+            store.close(false);
+
+            assertEquals(expected.size(), store.size());
+            expected.sort(null);
+            assertEquals(expected, Lists.newArrayList(store));
+
+            long count = expected.stream().filter(s -> s.getStart() <= 5000 && s.getEnd() >= 4000).count();
+            assertEquals(count, Iterables.size(store.getIntersectingElements(4000, 5000)));
+            assertTrue(store.contains(new BasicSegment(4505, 5005)));
+            assertFalse(store.contains(new BasicSegment(4506, 5005)));
+        } finally {
+            store.dispose();
+        }
+    }
+
+    /**
+     * Test that the intersecting segments are the ones of the store when the
+     * query was made, even if segments are added while they are read
+     *
+     * @throws IOException
+     *             If the file cannot be used
+     */
+    @Test
+    public void testIntersectingSnapshot() throws IOException {
+        OnDiskSegmentStore<@NonNull ISegment> store = createStore(createTempFile());
+        try {
+            for (int i = 0; i < 5; i++) {
+                store.add(new BasicSegment(i, i + 10));
+            }
+            Iterable<@NonNull ISegment> intersecting = store.getIntersectingElements(5, 6);
+            Iterator<@NonNull ISegment> iter = intersecting.iterator();
+            assertEquals(new BasicSegment(0, 10), iter.next());
+            /* Fill and write the current node */
+            for (int i = 5; i < 10; i++) {
+                store.add(new BasicSegment(i, i + 10));
+            }
+            assertEquals(4, Iterators.size(iter));
+            assertEquals(5, Iterables.size(intersecting));
+        } finally {
+            store.dispose();
+        }
+    }
+
+    /**
+     * Test that basic segments take less space in the file than with the Java
+     * serialization, and are read back the same
+     *
+     * @throws IOException
+     *             If the file cannot be used
+     */
+    @Test
+    public void testCompactSegments() throws IOException {
+        Path compactFile = createTempFile();
+        Path javaFile = createTempFile();
+        OnDiskSegmentStore<@NonNull ISegment> compact = new OnDiskSegmentStore<>(compactFile);
+        OnDiskSegmentStore<@NonNull ISegment> java = new OnDiskSegmentStore<>(javaFile, IElementSerializer.javaSerialization(), OnDiskSegmentStore.DEFAULT_NODE_SIZE);
+        try {
+            List<@NonNull ISegment> expected = new ArrayList<>();
+            for (int i = 0; i < 10000; i++) {
+                ISegment segment = new BasicSegment(1500000000000000000L + i * 1000L, 1500000000000000000L + i * 1000L + i % 5000);
+                compact.add(segment);
+                java.add(segment);
+                expected.add(segment);
+            }
+            compact.close(false);
+            java.close(false);
+
+            assertEquals(expected, Lists.newArrayList(compact));
+            /* About 11 bytes per segment instead of 22 */
+            assertTrue(Files.size(compactFile) * 5 < Files.size(javaFile) * 3);
+        } finally {
+            compact.dispose();
+            java.dispose();
+        }
+    }
+}
@@ -0,0 +1,461 @@
+/*******************************************************************************
+ * Copyright (c) 2017 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.segmentstore.core.arraylist;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.segmentstore.core.ISegment;
+import org.eclipse.tracecompass.segmentstore.core.ISegmentStore;
+import org.eclipse.tracecompass.segmentstore.core.SegmentComparators;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+
+/**
+ * Implementation of an {@link ISegmentStore} using append-only arrays, for
+ * stores that are read while they are built.
+ *
+ * Segments are appended, in the order they are added, to fixed-size chunks
+ * that are never moved. The number of segments is published after the
+ * segment itself is written, so readers always see a consistent prefix of the
+ * segments, without taking any lock and without copying them. Only writers
+ * are synchronized between themselves.
+ *
+ * The iteration order is by ascending order of start times, then of end times.
+ * Readers use indexes of the positions of the segments sorted by start, end
+ * and length. An index is updated incrementally when it is read: only the
+ * segments added since its last update are sorted, then merged into it. If the
+ * segments are added in order of start times, no start index is needed.
+ *
+ * Removal operations are not supported.
+ *
+ * @param <E>
+ *            The type of segment held in this store
+ */
+public class ChunkedArrayListStore<@NonNull E extends ISegment> implements ISegmentStore<E> {
+
+    private static final Comparator<ISegment> START_COMPARATOR = Ordering.from(SegmentComparators.INTERVAL_START_COMPARATOR)
+            .compound(SegmentComparators.INTERVAL_END_COMPARATOR);
+
+    private static final int CHUNK_BITS = 13;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int INITIAL_CHUNKS = 16;
+
+    /**
+     * Segments of the store. A new instance replaces it when the store is
+     * cleared, so readers that already have it are not affected.
+     */
+    private static final class Data {
+        /* Replaced when it grows, before the size is incremented */
+        volatile Object[][] fChunks = new Object[INITIAL_CHUNKS][];
+        /* Published size, written after the segment it counts */
+        volatile int fSize = 0;
+        /* Position of the first segment out of start order */
+        volatile int fFirstUnsorted = Integer.MAX_VALUE;
+
+        final AtomicReference<@Nullable SortedIndex> fStartIndex = new AtomicReference<>();
+        final AtomicReference<@Nullable SortedIndex> fEndIndex = new AtomicReference<>();
+        final AtomicReference<@Nullable SortedIndex> fLengthIndex = new AtomicReference<>();
+
+        Object get(Object[][] chunks, int position) {
+            return chunks[position >>> CHUNK_BITS][position & CHUNK_MASK];
+        }
+    }
+
+    /**
+     * Immutable positions of the first segments, sorted by a comparator
+     */
+    private static final class SortedIndex {
+        final int fSize;
+        final int[] fPositions;
+
+        SortedIndex(int size, int[] positions) {
+            fSize = size;
+            fPositions = positions;
+        }
+    }
+
+    private final Object fWriteLock = new Object();
+
+    private volatile Data fData = new Data();
+
+    /**
+     * Constructor
+     */
+    public ChunkedArrayListStore() {
+        // do nothing
+    }
+
+    /**
+     * Constructor
+     *
+     * @param array
+     *            an array of elements to wrap in the segment store
+     */
+    public ChunkedArrayListStore(Object[] array) {
+        for (Object element : array) {
+            if (element instanceof ISegment) {
+                add((E) element);
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Methods from Collection
+    // ------------------------------------------------------------------------
+
+    @Override
+    public Iterator<E> iterator() {
+        Data data = fData;
+        int size = data.fSize;
+        int[] order = getStartOrder(data, size);
+        return new PositionIterator(data, size, order, (order == null ? size : order.length), Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    @Override
+    public boolean add(@Nullable E val) {
+        if (val == null) {
+            throw new IllegalArgumentException("Cannot add null value"); //$NON-NLS-1$
+        }
+
+        synchronized (fWriteLock) {
+            Data data = fData;
+            int position = data.fSize;
+            Object[][] chunks = data.fChunks;
+            int chunk = position >>> CHUNK_BITS;
+            if (chunk == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunks.length * 2);
+                data.fChunks = chunks;
+            }
+            if (chunks[chunk] == null) {
+                chunks[chunk] = new Object[CHUNK_SIZE];
+            }
+            chunks[chunk][position & CHUNK_MASK] = val;
+            if (position > 0 && position < data.fFirstUnsorted
+                    && START_COMPARATOR.compare((ISegment) data.get(chunks, position - 1), val) > 0) {
+                data.fFirstUnsorted = position;
+            }
+            /* Publish the segment */
+            data.fSize = position + 1;
+            return true;
+        }
+    }
+
+    @Override
+    public int size() {
+        return fData.fSize;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean contains(@Nullable Object o) {
+        if (!(o instanceof ISegment)) {
+            return false;
+        }
+        ISegment segment = (ISegment) o;
+        for (E element : getIntersectingElements(segment.getStart(), segment.getStart())) {
+            if (element.equals(segment)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean containsAll(@Nullable Collection<?> c) {
+        if (c == null) {
+            throw new IllegalArgumentException();
+        }
+        for (Object o : c) {
+            if (!contains(o)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Object[] toArray() {
+        return Lists.newArrayList(iterator()).toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        return Lists.newArrayList(iterator()).toArray(a);
+    }
+
+    @Override
+    public boolean addAll(@Nullable Collection<? extends E> c) {
+        if (c == null) {
+            throw new IllegalArgumentException();
+        }
+
+        synchronized (fWriteLock) {
+            boolean changed = false;
+            for (E elem : c) {
+                if (add(elem)) {
+                    changed = true;
+                }
+            }
+            return changed;
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (fWriteLock) {
+            fData = new Data();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Methods added by ISegmentStore
+    // ------------------------------------------------------------------------
+
+    @Override
+    public Iterable<E> getIntersectingElements(long start, long end) {
+        Data data = fData;
+        int size = data.fSize;
+        int[] order = getStartOrder(data, size);
+        /* Only the segments starting before the end can intersect */
+        int count = upperBound(data, order, size, end);
+        return () -> new PositionIterator(data, size, order, count, start, end);
+    }
+
+    @Override
+    public Iterable<E> getIntersectingElements(long start, long end, Comparator<ISegment> order) {
+        Data data = fData;
+        int size = data.fSize;
+        int @Nullable [] positions;
+        if (order == SegmentComparators.INTERVAL_START_COMPARATOR) {
+            positions = getStartOrder(data, size);
+        } else if (order == SegmentComparators.INTERVAL_END_COMPARATOR) {
+            positions = getIndex(data, size, SegmentComparators.INTERVAL_END_COMPARATOR, data.fEndIndex);
+        } else if (order == SegmentComparators.INTERVAL_LENGTH_COMPARATOR) {
+            positions = getIndex(data, size, SegmentComparators.INTERVAL_LENGTH_COMPARATOR, data.fLengthIndex);
+        } else {
+            return ISegmentStore.super.getIntersectingElements(start, end, order);
+        }
+        int count = (positions == null ? size : positions.length);
+        return () -> new PositionIterator(data, size, positions, count, start, end);
+    }
+
+    @Override
+    public void dispose() {
+        clear();
+    }
+
+    // ------------------------------------------------------------------------
+    // Helpers
+    // ------------------------------------------------------------------------
+
+    /**
+     * Get the positions of the first segments in start order
+     *
+     * @return The sorted positions, which may contain positions of segments
+     *         added later, or null if the segments were added in order
+     */
+    private static int @Nullable [] getStartOrder(Data data, int size) {
+        if (size <= data.fFirstUnsorted) {
+            return null;
+        }
+        return getIndex(data, size, START_COMPARATOR, data.fStartIndex);
+    }
+
+    /**
+     * Get an index covering at least the first segments, updating it if
+     * needed. Concurrent readers may update it at the same time, an index is
+     * only replaced by one covering more segments.
+     */
+    private static int[] getIndex(Data data, int size, Comparator<ISegment> comparator, AtomicReference<@Nullable SortedIndex> indexRef) {
+        SortedIndex current = indexRef.get();
+        if (current != null && current.fSize >= size) {
+            return current.fPositions;
+        }
+        int[] indexed = (current == null ? new int[0] : current.fPositions);
+        int nbIndexed = (current == null ? 0 : current.fSize);
+        Object[][] chunks = data.fChunks;
+        PositionComparator positionComparator = (a, b) -> comparator.compare((ISegment) data.get(chunks, a), (ISegment) data.get(chunks, b));
+
+        /* Sort the new segments, the sort is stable */
+        int[] added = new int[size - nbIndexed];
+        for (int i = 0; i < added.length; i++) {
+            added[i] = nbIndexed + i;
+        }
+        sort(added, positionComparator);
+
+        /* Merge them into the index, keeping older segments first on ties */
+        int[] merged = new int[size];
+        merge(indexed, nbIndexed, added, added.length, merged, 0, positionComparator);
+
+        SortedIndex update = new SortedIndex(size, merged);
+        while (!indexRef.compareAndSet(current, update)) {
+            current = indexRef.get();
+            if (current != null && current.fSize >= size) {
+                /* Another reader published a larger index, keep it */
+                break;
+            }
+        }
+        return merged;
+    }
+
+    @FunctionalInterface
+    private interface PositionComparator {
+        int compare(int a, int b);
+    }
+
+    /**
+     * Stable merge sort of positions, without boxing them
+     */
+    private static void sort(int[] positions, PositionComparator comparator) {
+        int length = positions.length;
+        int[] src = positions;
+        int[] dst = new int[length];
+        for (int width = 1; width < length; width *= 2) {
+            for (int low = 0; low < length; low += 2 * width) {
+                int mid = Math.min(low + width, length);
+                int high = Math.min(low + 2 * width, length);
+                merge(src, low, mid, mid, high, dst, low, comparator);
+            }
+            int[] tmp = src;
+            src = dst;
+            dst = tmp;
+        }
+        if (src != positions) {
+            System.arraycopy(src, 0, positions, 0, length);
+        }
+    }
+
+    private static void merge(int[] first, int firstLength, int[] second, int secondLength, int[] dst, int dstStart, PositionComparator comparator) {
+        int i = 0;
+        int j = 0;
+        int k = dstStart;
+        while (i < firstLength && j < secondLength) {
+            dst[k++] = (comparator.compare(second[j], first[i]) < 0 ? second[j++] : first[i++]);
+        }
+        System.arraycopy(first, i, dst, k, firstLength - i);
+        System.arraycopy(second, j, dst, k + firstLength - i, secondLength - j);
+    }
+
+    /**
+     * Merge two consecutive sorted runs of an array, keeping the elements of
+     * the first run first on ties
+     */
+    private static void merge(int[] src, int firstStart, int firstEnd, int secondStart, int secondEnd, int[] dst, int dstStart, PositionComparator comparator) {
+        int i = firstStart;
+        int j = secondStart;
+        int k = dstStart;
+        while (i < firstEnd && j < secondEnd) {
+            dst[k++] = (comparator.compare(src[j], src[i]) < 0 ? src[j++] : src[i++]);
+        }
+        System.arraycopy(src, i, dst, k, firstEnd - i);
+        System.arraycopy(src, j, dst, k + firstEnd - i, secondEnd - j);
+    }
+
+    /**
+     * Get the number of segments, in start order, whose start is before or at
+     * a time
+     */
+    private static int upperBound(Data data, int @Nullable [] order, int size, long time) {
+        Object[][] chunks = data.fChunks;
+        int low = 0;
+        int high = (order == null ? size : order.length);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int position = (order == null ? mid : order[mid]);
+            if (((ISegment) data.get(chunks, position)).getStart() <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Iterator over the segments at some positions, skipping the segments
+     * that do not intersect a range or that were added after it was created
+     */
+    private final class PositionIterator implements Iterator<E> {
+        private final Data fIteratedData;
+        private final Object[][] fChunks;
+        private final int fSize;
+        private final int @Nullable [] fOrder;
+        private final int fCount;
+        private final long fStart;
+        private final long fEnd;
+
+        private int fIndex = 0;
+        private @Nullable E fNext = null;
+
+        /**
+         * @param size
+         *            The number of segments when the iteration started
+         * @param order
+         *            The positions to iterate over, or null to iterate in
+         *            the order the segments were added
+         * @param count
+         *            The number of positions to iterate over
+         */
+        public PositionIterator(Data data, int size, int @Nullable [] order, int count, long start, long end) {
+            fIteratedData = data;
+            fChunks = data.fChunks;
+            fSize = size;
+            fOrder = order;
+            fCount = count;
+            fStart = start;
+            fEnd = end;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (fNext == null && fIndex < fCount) {
+                int[] order = fOrder;
+                int position = (order == null ? fIndex : order[fIndex]);
+                fIndex++;
+                if (position >= fSize) {
+                    /* Added after this iterator was created */
+                    continue;
+                }
+                @SuppressWarnings("unchecked")
+                E element = (E) fIteratedData.get(fChunks, position);
+                if (element.getStart() <= fEnd && element.getEnd() >= fStart) {
+                    fNext = element;
+                }
+            }
+            return fNext != null;
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            E next = fNext;
+            fNext = null;
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            return next;
+        }
+    }
+}
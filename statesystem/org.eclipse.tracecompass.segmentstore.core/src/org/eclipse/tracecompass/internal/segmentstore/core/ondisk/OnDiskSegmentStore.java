@@ -0,0 +1,513 @@
+/*******************************************************************************
+ * Copyright (c) 2017 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.segmentstore.core.ondisk;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.internal.datastore.core.interval.IElementSerializer;
+import org.eclipse.tracecompass.internal.datastore.core.interval.IntervalFile;
+import org.eclipse.tracecompass.segmentstore.core.ISegment;
+import org.eclipse.tracecompass.segmentstore.core.ISegmentStore;
+import org.eclipse.tracecompass.segmentstore.core.SegmentComparators;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+
+/**
+ * Implementation of an {@link ISegmentStore} that keeps its segments in a
+ * file, so it can hold more segments than would fit in memory.
+ *
+ * Segments are added to an in-memory node. When it is full, the node is sorted
+ * and appended to an {@link IntervalFile}, which keeps the time range of every
+ * node in memory. Queries only read the nodes that intersect the requested
+ * range, through a cache of a bounded number of nodes. Segments are usually
+ * added close to their time order, so each node covers a short time range.
+ *
+ * Once the store is closed with {@link #close(boolean) close(false)}, the file
+ * is complete, and opening a store on the same file gives the same segments
+ * back without adding them again.
+ *
+ * The iteration order is by ascending order of start times, then of end times.
+ * Iterating merges the nodes, loading each of them only when the iteration
+ * reaches its start time.
+ *
+ * Removal operations are not supported.
+ *
+ * @param <E>
+ *            The type of segment held in this store
+ */
+public class OnDiskSegmentStore<@NonNull E extends ISegment> implements ISegmentStore<E> {
+
+    private static final Comparator<ISegment> COMPARATOR = Ordering.from(SegmentComparators.INTERVAL_START_COMPARATOR)
+            .compound(SegmentComparators.INTERVAL_END_COMPARATOR);
+
+    /** Default number of segments per node */
+    public static final int DEFAULT_NODE_SIZE = 4096;
+
+    /* Number of nodes kept in memory */
+    private static final int CACHE_SIZE = 256;
+
+    private final ReadWriteLock fLock = new ReentrantReadWriteLock(false);
+
+    private final Path fPath;
+    private final IntervalFile<E> fFile;
+    private final int fNodeSize;
+
+    /* The node being filled, not sorted */
+    private List<E> fCurrentNode;
+
+    /* Sorted copy of the current node, for iterators */
+    private @Nullable List<E> fLastSnapshot = null;
+
+    /**
+     * Constructor. If the file is a complete segment file, the store contains
+     * its segments, otherwise the file is overwritten.
+     *
+     * @param path
+     *            The file of the segments
+     * @param serializer
+     *            The serializer of the segments
+     * @param nodeSize
+     *            The number of segments per node
+     * @throws IOException
+     *             If the file cannot be opened
+     */
+    public OnDiskSegmentStore(Path path, IElementSerializer<E> serializer, int nodeSize) throws IOException {
+        fPath = path;
+        fNodeSize = nodeSize;
+        fFile = new IntervalFile<>(path, serializer, CACHE_SIZE);
+        fCurrentNode = new ArrayList<>();
+    }
+
+    /**
+     * Constructor using the default serializer and node size. Basic segments
+     * are written compactly, other segments must be
+     * {@link java.io.Serializable}.
+     *
+     * @param path
+     *            The file of the segments
+     * @throws IOException
+     *             If the file cannot be opened
+     */
+    public OnDiskSegmentStore(Path path) throws IOException {
+        this(path, DEFAULT_NODE_SIZE);
+    }
+
+    /**
+     * Constructor using the default serializer, see
+     * {@link #OnDiskSegmentStore(Path)}
+     *
+     * @param path
+     *            The file of the segments
+     * @param nodeSize
+     *            The number of segments per node
+     * @throws IOException
+     *             If the file cannot be opened
+     */
+    public OnDiskSegmentStore(Path path, int nodeSize) throws IOException {
+        this(path, SegmentSerializer.getInstance(), nodeSize);
+    }
+
+    /**
+     * Get whether the file of this store is complete, that is it was complete
+     * when it was opened or the store was closed, and no segment was added
+     * since.
+     *
+     * @return True if the file contains all the segments and can be opened
+     *         again
+     */
+    public boolean isComplete() {
+        fLock.readLock().lock();
+        try {
+            return fCurrentNode.isEmpty() && fFile.isFinished();
+        } finally {
+            fLock.readLock().unlock();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Methods from Collection
+    // ------------------------------------------------------------------------
+
+    @Override
+    public Iterator<E> iterator() {
+        fLock.readLock().lock();
+        try {
+            List<E> lastSnapshot = fLastSnapshot;
+            if (lastSnapshot == null) {
+                lastSnapshot = new ArrayList<>(fCurrentNode);
+                lastSnapshot.sort(COMPARATOR);
+                fLastSnapshot = lastSnapshot;
+            }
+            return new MergeIterator(fFile.getNbNodes(), lastSnapshot);
+        } finally {
+            fLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean add(@Nullable E val) {
+        if (val == null) {
+            throw new IllegalArgumentException("Cannot add null value"); //$NON-NLS-1$
+        }
+
+        fLock.writeLock().lock();
+        try {
+            fCurrentNode.add(val);
+            fLastSnapshot = null;
+            if (fCurrentNode.size() >= fNodeSize) {
+                flushCurrentNode();
+            }
+            return true;
+        } finally {
+            fLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        fLock.readLock().lock();
+        try {
+            return (int) Math.min(Integer.MAX_VALUE, fFile.getNbElements() + fCurrentNode.size());
+        } finally {
+            fLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean contains(@Nullable Object o) {
+        if (!(o instanceof ISegment)) {
+            return false;
+        }
+        ISegment segment = (ISegment) o;
+        for (E element : getIntersectingElements(segment.getStart(), segment.getEnd())) {
+            if (element.equals(segment)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean containsAll(@Nullable Collection<?> c) {
+        if (c == null) {
+            throw new IllegalArgumentException();
+        }
+        for (Object o : c) {
+            if (!contains(o)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Object[] toArray() {
+        return Lists.newArrayList(iterator()).toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        return Lists.newArrayList(iterator()).toArray(a);
+    }
+
+    @Override
+    public boolean addAll(@Nullable Collection<? extends E> c) {
+        if (c == null) {
+            throw new IllegalArgumentException();
+        }
+
+        fLock.writeLock().lock();
+        try {
+            boolean changed = false;
+            for (E elem : c) {
+                if (this.add(elem)) {
+                    changed = true;
+                }
+            }
+            return changed;
+        } finally {
+            fLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        fLock.writeLock().lock();
+        try {
+            fFile.clear();
+            fCurrentNode = new ArrayList<>();
+            fLastSnapshot = null;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot clear segment file " + fPath, e); //$NON-NLS-1$
+        } finally {
+            fLock.writeLock().unlock();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Methods added by ISegmentStore
+    // ------------------------------------------------------------------------
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The segments are read lazily, one node at a time, as the returned
+     * iterable is iterated. It contains the segments that were added when
+     * this method was called.
+     */
+    @Override
+    public Iterable<E> getIntersectingElements(long start, long end) {
+        fLock.readLock().lock();
+        try {
+            int nbNodes = fFile.getNbNodes();
+            List<E> current = new ArrayList<>();
+            for (E element : fCurrentNode) {
+                if (element.getStart() <= end && element.getEnd() >= start) {
+                    current.add(element);
+                }
+            }
+            return () -> new IntersectingIterator(nbNodes, current, start, end);
+        } finally {
+            fLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void dispose() {
+        fLock.writeLock().lock();
+        try {
+            fCurrentNode = new ArrayList<>();
+            fLastSnapshot = null;
+            fFile.close();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot close segment file " + fPath, e); //$NON-NLS-1$
+        } finally {
+            fLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Write the segments being added to the file, and complete it so it can
+     * be opened again. The store can still be read, and segments added to it
+     * afterwards.
+     */
+    @Override
+    public void close(boolean deleteFiles) {
+        fLock.writeLock().lock();
+        try {
+            if (deleteFiles) {
+                fCurrentNode = new ArrayList<>();
+                fLastSnapshot = null;
+                fFile.delete();
+                return;
+            }
+            if (!fCurrentNode.isEmpty()) {
+                flushCurrentNode();
+            }
+            fFile.finish();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot close segment file " + fPath, e); //$NON-NLS-1$
+        } finally {
+            fLock.writeLock().unlock();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Helpers
+    // ------------------------------------------------------------------------
+
+    private void flushCurrentNode() {
+        List<E> node = fCurrentNode;
+        node.sort(COMPARATOR);
+        long end = Long.MIN_VALUE;
+        for (E element : node) {
+            end = Math.max(end, element.getEnd());
+        }
+        try {
+            fFile.appendNode(node, node.get(0).getStart(), end);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write segments to " + fPath, e); //$NON-NLS-1$
+        }
+        fCurrentNode = new ArrayList<>(fNodeSize);
+        fLastSnapshot = null;
+    }
+
+    private List<E> readNode(int node) {
+        try {
+            return fFile.readNode(node);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read segments from " + fPath, e); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Position of an iteration in one node. A node that was not read yet is
+     * positioned at its start time, before its first segment.
+     */
+    private final class NodeCursor implements Comparable<NodeCursor> {
+        private final int fNode;
+        private @Nullable List<E> fElements;
+        private int fIndex = 0;
+
+        public NodeCursor(int node, @Nullable List<E> elements) {
+            fNode = node;
+            fElements = elements;
+        }
+
+        public boolean isLoaded() {
+            return fElements != null;
+        }
+
+        public boolean load() {
+            List<E> elements = readNode(fNode);
+            fElements = elements;
+            return !elements.isEmpty();
+        }
+
+        public E current() {
+            List<E> elements = fElements;
+            if (elements == null) {
+                throw new IllegalStateException();
+            }
+            return elements.get(fIndex);
+        }
+
+        /** @return False if the node has no more segments */
+        public boolean advance() {
+            List<E> elements = fElements;
+            return elements != null && ++fIndex < elements.size();
+        }
+
+        @Override
+        public int compareTo(NodeCursor other) {
+            long start = (isLoaded() ? current().getStart() : fFile.getNodeStart(fNode));
+            long otherStart = (other.isLoaded() ? other.current().getStart() : fFile.getNodeStart(other.fNode));
+            int cmp = Long.compare(start, otherStart);
+            if (cmp != 0) {
+                return cmp;
+            }
+            /* Load the nodes before returning segments with their start time */
+            long end = (isLoaded() ? current().getEnd() : Long.MIN_VALUE);
+            long otherEnd = (other.isLoaded() ? other.current().getEnd() : Long.MIN_VALUE);
+            return Long.compare(end, otherEnd);
+        }
+    }
+
+    /**
+     * Iterator over the segments intersecting a time range, reading the
+     * intersecting nodes of the file one at a time, then the segments of the
+     * current node
+     */
+    private final class IntersectingIterator extends AbstractIterator<E> {
+        private final int fNbNodes;
+        private final Iterator<E> fCurrentNodeIter;
+        private final long fStart;
+        private final long fEnd;
+        private int fNextNode = 0;
+        private Iterator<E> fNodeIter = Collections.emptyIterator();
+
+        public IntersectingIterator(int nbNodes, List<E> currentNode, long start, long end) {
+            fNbNodes = nbNodes;
+            fCurrentNodeIter = currentNode.iterator();
+            fStart = start;
+            fEnd = end;
+        }
+
+        @Override
+        protected @Nullable E computeNext() {
+            while (true) {
+                while (fNodeIter.hasNext()) {
+                    E element = fNodeIter.next();
+                    /* Nodes are sorted by start time */
+                    if (element.getStart() > fEnd) {
+                        fNodeIter = Collections.emptyIterator();
+                        break;
+                    }
+                    if (element.getEnd() >= fStart) {
+                        return element;
+                    }
+                }
+                while (fNextNode < fNbNodes && (fFile.getNodeStart(fNextNode) > fEnd || fFile.getNodeEnd(fNextNode) < fStart)) {
+                    fNextNode++;
+                }
+                if (fNextNode < fNbNodes) {
+                    fNodeIter = readNode(fNextNode++).iterator();
+                } else if (fCurrentNodeIter.hasNext()) {
+                    return fCurrentNodeIter.next();
+                } else {
+                    return endOfData();
+                }
+            }
+        }
+    }
+
+    /**
+     * Iterator merging the sorted nodes of the file and the sorted snapshot
+     * of the current node
+     */
+    private final class MergeIterator implements Iterator<E> {
+        private final PriorityQueue<NodeCursor> fQueue = new PriorityQueue<>();
+
+        public MergeIterator(int nbNodes, List<E> currentNode) {
+            for (int i = 0; i < nbNodes; i++) {
+                fQueue.add(new NodeCursor(i, null));
+            }
+            if (!currentNode.isEmpty()) {
+                fQueue.add(new NodeCursor(-1, currentNode));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            NodeCursor cursor = fQueue.peek();
+            while (cursor != null && !cursor.isLoaded()) {
+                fQueue.poll();
+                if (cursor.load()) {
+                    fQueue.add(cursor);
+                }
+                cursor = fQueue.peek();
+            }
+            return cursor != null;
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            NodeCursor cursor = fQueue.poll();
+            E element = cursor.current();
+            if (cursor.advance()) {
+                fQueue.add(cursor);
+            }
+            return element;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2017 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.segmentstore.core.ondisk;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import org.eclipse.tracecompass.internal.datastore.core.interval.IElementSerializer;
+import org.eclipse.tracecompass.segmentstore.core.BasicSegment;
+import org.eclipse.tracecompass.segmentstore.core.ISegment;
+
+/**
+ * Default serializer of the segments of an {@link OnDiskSegmentStore}.
+ *
+ * {@link BasicSegment}s are written as their start time followed by their
+ * duration as a variable-length integer, which takes 10 to 13 bytes for most
+ * segments. The other segments are written with the Java serialization.
+ */
+final class SegmentSerializer implements IElementSerializer<ISegment> {
+
+    private static final SegmentSerializer INSTANCE = new SegmentSerializer();
+
+    private static final byte BASIC_SEGMENT = 0;
+    private static final byte SERIALIZED_SEGMENT = 1;
+
+    private SegmentSerializer() {
+    }
+
+    /**
+     * Get the serializer, for any type of segments
+     *
+     * @return The serializer
+     */
+    @SuppressWarnings("unchecked")
+    static <E extends ISegment> IElementSerializer<E> getInstance() {
+        return (IElementSerializer<E>) INSTANCE;
+    }
+
+    @Override
+    public void write(ObjectOutput out, ISegment element) throws IOException {
+        /* Not the subclasses, they may have other fields */
+        if (element.getClass() == BasicSegment.class) {
+            out.writeByte(BASIC_SEGMENT);
+            out.writeLong(element.getStart());
+            writeVarLong(out, element.getEnd() - element.getStart());
+        } else {
+            out.writeByte(SERIALIZED_SEGMENT);
+            out.writeObject(element);
+        }
+    }
+
+    @Override
+    public ISegment read(ObjectInput in) throws IOException, ClassNotFoundException {
+        byte type = in.readByte();
+        switch (type) {
+        case BASIC_SEGMENT:
+            long start = in.readLong();
+            return new BasicSegment(start, start + readVarLong(in));
+        case SERIALIZED_SEGMENT:
+            Object element = in.readObject();
+            if (!(element instanceof ISegment)) {
+                throw new IOException("Not a segment: " + element); //$NON-NLS-1$
+            }
+            return (ISegment) element;
+        default:
+            throw new IOException("Unknown segment type " + type); //$NON-NLS-1$
+        }
+    }
+
+    private static void writeVarLong(ObjectOutput out, long value) throws IOException {
+        long v = value;
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long readVarLong(ObjectInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer"); //$NON-NLS-1$
+    }
+}
@@ -9,9 +9,19 @@
 
 package org.eclipse.tracecompass.segmentstore.core;
 
+import java.util.Objects;
+
+import org.eclipse.jdt.annotation.Nullable;
+
 /**
  * Basic implementation of {@link ISegment}.
  *
+ * Basic segments are values: two basic segments with the same start and end
+ * are equal. Stores that keep their segments outside of the heap, like the
+ * on-disk segment store, return copies of the segments that were added, and
+ * {@link java.util.Collection#contains} must still find them. Subclasses with
+ * more fields should override {@link #equals} and {@link #hashCode}.
+ *
  * @author Alexandre Montplaisir
  */
 public class BasicSegment implements ISegment {
@@ -49,6 +59,34 @@ public class BasicSegment implements ISegment {
         return fEnd;
     }
 
+    /**
+     * The hash code of a basic segment only depends on its start and end.
+     *
+     * @since 1.1
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(fStart, fEnd);
+    }
+
+    /**
+     * Basic segments are equal if they have the same start and end, so a
+     * segment read back from a file is equal to the one that was written.
+     *
+     * @since 1.1
+     */
+    @Override
+    public boolean equals(@Nullable Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        BasicSegment other = (BasicSegment) obj;
+        return fStart == other.fStart && fEnd == other.fEnd;
+    }
+
     @Override
     public String toString() {
         return new String('[' + String.valueOf(fStart) + ", " + String.valueOf(fEnd) + ']'); //$NON-NLS-1$
@@ -12,6 +12,8 @@
 
 package org.eclipse.tracecompass.segmentstore.core;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -19,6 +21,7 @@ import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.internal.segmentstore.core.arraylist.ArrayListStore;
 import org.eclipse.tracecompass.internal.segmentstore.core.arraylist.LazyArrayListStore;
+import org.eclipse.tracecompass.internal.segmentstore.core.ondisk.OnDiskSegmentStore;
 import org.eclipse.tracecompass.internal.segmentstore.core.treemap.TreeMapStore;
 
 /**
@@ -113,6 +116,27 @@ public final class SegmentStoreFactory<E> {
         return new LazyArrayListStore<>(array);
     }
 
+    /**
+     * New SegmentStore factory method to create a store that keeps its
+     * segments in a file instead of in memory, for stores too big to fit in
+     * memory. {@link BasicSegment}s are written compactly, the other segments
+     * must be {@link java.io.Serializable}.
+     *
+     * If the file is complete, that is it was written by a store closed with
+     * {@link ISegmentStore#close(boolean) close(false)}, the returned store
+     * contains its segments. Otherwise, the file is overwritten and the
+     * store is empty.
+     *
+     * @param file
+     *            The file of the segment store
+     * @return The new segment store
+     * @throws IOException
+     *             If the file cannot be opened
+     */
+    public static <E extends ISegment> ISegmentStore<E> createOnDiskSegmentStore(Path file) throws IOException {
+        return new OnDiskSegmentStore<>(file);
+    }
+
     private static Set<@NonNull SegmentStoreType> getListOfFlags(SegmentStoreType... segmentTypes) {
         Set<@NonNull SegmentStoreType> segments = new HashSet<>();
         for(@Nullable SegmentStoreType segmentType : segmentTypes ) {
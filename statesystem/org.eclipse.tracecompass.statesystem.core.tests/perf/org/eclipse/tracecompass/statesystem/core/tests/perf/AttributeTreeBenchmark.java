@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.statesystem.core.tests.perf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.test.performance.Dimension;
+import org.eclipse.test.performance.Performance;
+import org.eclipse.test.performance.PerformanceMeter;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.tracecompass.statesystem.core.StateSystemFactory;
+import org.eclipse.tracecompass.statesystem.core.backend.StateHistoryBackendFactory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Benchmarks the resolution of attribute paths in the attribute tree of a
+ * state system, from one thread and from many threads at once, like the
+ * views, tooltips and statistics reading the same state system.
+ */
+public class AttributeTreeBenchmark {
+
+    private static final @NonNull String TEST_PREFIX = "org.eclipse.tracecompass#Attribute Tree#";
+    private static final @NonNull String TEST_SINGLE_ID = "Path resolution";
+    private static final @NonNull String TEST_CONCURRENT_ID = "Concurrent path resolution";
+
+    private static final @NonNull String THREADS = "Threads";
+    private static final @NonNull String STATUS = "Status";
+    private static final String[] THREAD_ATTRIBUTES = { STATUS, "PPID", "Exec_name", "Prio", "System_call" };
+
+    private static final int NB_THREAD_ATTRIBUTES = 2000;
+    private static final int NB_LOOKUPS = 200000;
+    private static final int NB_READERS = 8;
+    private static final int LOOP_COUNT = 25;
+
+    private static ITmfStateSystemBuilder fSs;
+    private static String[] fTids;
+
+    /**
+     * Create the attribute tree
+     */
+    @BeforeClass
+    public static void setUp() {
+        ITmfStateSystemBuilder ss = StateSystemFactory.newStateSystem(StateHistoryBackendFactory.createNullBackend("AttributeTreeBenchmark"));
+        String[] tids = new String[NB_THREAD_ATTRIBUTES];
+        for (int i = 0; i < NB_THREAD_ATTRIBUTES; i++) {
+            tids[i] = String.valueOf(i);
+            int threadQuark = ss.getQuarkAbsoluteAndAdd(THREADS, tids[i]);
+            for (String attribute : THREAD_ATTRIBUTES) {
+                ss.getQuarkRelativeAndAdd(threadQuark, attribute);
+            }
+        }
+        fSs = ss;
+        fTids = tids;
+    }
+
+    /**
+     * Dispose the state system
+     */
+    @AfterClass
+    public static void tearDown() {
+        fSs.dispose();
+    }
+
+    /**
+     * Resolve paths of existing attributes, the way the state providers and
+     * the views do
+     *
+     * @param ss
+     *            The state system
+     * @param tids
+     *            The thread attributes
+     * @param seed
+     *            The first thread attribute to resolve
+     * @return A sum of the quarks, so the lookups are not optimized away
+     */
+    private static long resolvePaths(ITmfStateSystem ss, String[] tids, int seed) {
+        long sum = 0;
+        int threadsQuark = ss.optQuarkAbsolute(THREADS);
+        for (int i = 0; i < NB_LOOKUPS; i++) {
+            String tid = tids[(seed + i * 31) % tids.length];
+            if (i % 2 == 0) {
+                sum += ss.optQuarkAbsolute(THREADS, tid, STATUS);
+            } else {
+                sum += ss.optQuarkRelative(threadsQuark, tid, THREAD_ATTRIBUTES[i % THREAD_ATTRIBUTES.length]);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Benchmark the resolution of paths from a single thread
+     */
+    @Test
+    public void testPathResolution() {
+        Performance perf = Performance.getDefault();
+        PerformanceMeter pm = perf.createPerformanceMeter(TEST_PREFIX + TEST_SINGLE_ID);
+        perf.tagAsSummary(pm, TEST_SINGLE_ID, Dimension.CPU_TIME);
+
+        long expected = resolvePaths(fSs, fTids, 0);
+        for (int i = 0; i < LOOP_COUNT; i++) {
+            pm.start();
+            long sum = resolvePaths(fSs, fTids, 0);
+            pm.stop();
+            assertEquals(expected, sum);
+        }
+        pm.commit();
+    }
+
+    /**
+     * Benchmark the resolution of paths from many threads at the same time,
+     * while new attributes are still being added
+     */
+    @Test
+    public void testConcurrentPathResolution() {
+        Performance perf = Performance.getDefault();
+        PerformanceMeter pm = perf.createPerformanceMeter(TEST_PREFIX + TEST_CONCURRENT_ID);
+        perf.tagAsSummary(pm, TEST_CONCURRENT_ID, Dimension.CPU_TIME);
+
+        ExecutorService executor = Executors.newFixedThreadPool(NB_READERS);
+        try {
+            for (int i = 0; i < LOOP_COUNT; i++) {
+                List<Future<Long>> results = new ArrayList<>();
+                pm.start();
+                for (int j = 0; j < NB_READERS; j++) {
+                    final int seed = j;
+                    results.add(executor.submit(() -> resolvePaths(fSs, fTids, seed)));
+                }
+                /* Add attributes while the other threads are reading */
+                int quark = fSs.getQuarkAbsoluteAndAdd(THREADS, "new" + i);
+                for (String attribute : THREAD_ATTRIBUTES) {
+                    assertNotEquals(ITmfStateSystem.INVALID_ATTRIBUTE, fSs.getQuarkRelativeAndAdd(quark, attribute));
+                }
+                for (Future<Long> result : results) {
+                    result.get();
+                }
+                pm.stop();
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            fail(e.getMessage());
+        } finally {
+            executor.shutdown();
+        }
+        pm.commit();
+    }
+}
@@ -15,10 +15,19 @@ package org.eclipse.tracecompass.statesystem.core.tests;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.eclipse.tracecompass.internal.statesystem.core.AttributeTree;
 import org.eclipse.tracecompass.internal.statesystem.core.StateSystem;
@@ -123,4 +132,52 @@ public class AttributeTreeTest {
             file.delete();
         }
     }
+
+    /**
+     * Test that attributes added concurrently from many threads each get a
+     * single quark, and that they are found by the other threads.
+     *
+     * @throws InterruptedException
+     *             if a thread is interrupted
+     * @throws ExecutionException
+     *             if a thread fails
+     */
+    @Test
+    public void testConcurrentGetQuarkAndAdd() throws InterruptedException, ExecutionException {
+        final int nbThreads = 8;
+        IStateHistoryBackend backend = StateHistoryBackendFactory.createNullBackend("test");
+        StateSystem ss = new StateSystem(backend);
+        AttributeTree attributeTree = new AttributeTree(ss);
+        ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+        try {
+            List<Future<int[]>> results = new ArrayList<>();
+            for (int i = 0; i < nbThreads; i++) {
+                results.add(executor.submit(() -> {
+                    int[] quarks = new int[NAMES.length];
+                    for (int j = 0; j < NAMES.length; j++) {
+                        quarks[j] = attributeTree.getQuarkAndAdd(ITmfStateSystem.ROOT_ATTRIBUTE, THREADS, NAMES[j], STATUS);
+                        assertEquals(quarks[j], attributeTree.getQuarkDontAdd(ITmfStateSystem.ROOT_ATTRIBUTE, THREADS, NAMES[j], STATUS));
+                    }
+                    return quarks;
+                }));
+            }
+            int[] expected = results.get(0).get();
+            for (Future<int[]> result : results) {
+                assertArrayEquals(expected, result.get());
+            }
+
+            /* "Threads", then one attribute and its "Status" per name */
+            assertEquals(1 + 2 * NAMES.length, attributeTree.getNbAttributes());
+            int threadsQuark = attributeTree.getQuarkDontAdd(ITmfStateSystem.ROOT_ATTRIBUTE, THREADS);
+            List<Integer> children = attributeTree.getSubAttributes(threadsQuark, false);
+            assertEquals(NAMES.length, children.size());
+            Set<Integer> quarks = new HashSet<>(children);
+            for (int quark : expected) {
+                assertTrue(quarks.contains(attributeTree.getParentAttributeQuark(quark)));
+            }
+        } finally {
+            executor.shutdown();
+            ss.dispose();
+        }
+    }
 }
@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.statesystem.core.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.internal.statesystem.core.TransientState;
+import org.eclipse.tracecompass.statesystem.core.backend.IStateHistoryBackend;
+import org.eclipse.tracecompass.statesystem.core.backend.StateHistoryBackendFactory;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateValueTypeException;
+import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
+import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the {@link TransientState} class
+ */
+public class TransientStateTest {
+
+    private static final long START_TIME = 1000;
+
+    private static final List<ITmfStateValue> VALUES = Arrays.asList(
+            TmfStateValue.nullValue(),
+            TmfStateValue.newValueInt(-42),
+            TmfStateValue.newValueInt(100000),
+            TmfStateValue.newValueLong(Long.MIN_VALUE),
+            TmfStateValue.newValueLong(1234567890123L),
+            TmfStateValue.newValueDouble(Double.NaN),
+            TmfStateValue.newValueDouble(-0.5),
+            TmfStateValue.newValueString("a string"));
+
+    private IStateHistoryBackend fBackend;
+    private TransientState fTransientState;
+
+    /**
+     * Initialize the transient state with one attribute per value
+     */
+    @Before
+    public void setUp() {
+        fBackend = StateHistoryBackendFactory.createInMemoryBackend("TransientStateTest", START_TIME);
+        fTransientState = new TransientState(fBackend);
+        for (int i = 0; i < VALUES.size(); i++) {
+            fTransientState.addEmptyEntry();
+        }
+    }
+
+    /**
+     * Test that the ongoing values of each type are the values that were set
+     *
+     * @throws StateValueTypeException
+     *             Should not happen
+     */
+    @Test
+    public void testOngoingValues() throws StateValueTypeException {
+        for (int quark = 0; quark < VALUES.size(); quark++) {
+            assertEquals(TmfStateValue.nullValue(), fTransientState.getOngoingStateValue(quark));
+            assertEquals(START_TIME, fTransientState.getOngoingStartTime(quark));
+            fTransientState.processStateChange(START_TIME + quark, VALUES.get(quark), quark);
+        }
+        for (int quark = 0; quark < VALUES.size(); quark++) {
+            ITmfStateInterval interval = fTransientState.getOngoingInterval(quark);
+            assertEquals(VALUES.get(quark), interval.getStateValue());
+            assertEquals(VALUES.get(quark).getType(), interval.getStateValue().getType());
+            long expectedStart = (quark == 0 ? START_TIME : START_TIME + quark);
+            assertEquals(expectedStart, interval.getStartTime());
+        }
+    }
+
+    /**
+     * Test that the past states are sent to the backend with their values,
+     * and that setting the same value again does not close the ongoing state
+     *
+     * @throws StateValueTypeException
+     *             Should not happen
+     * @throws StateSystemDisposedException
+     *             Should not happen
+     */
+    @Test
+    public void testPastStates() throws StateValueTypeException, StateSystemDisposedException {
+        int quark = 4;
+        fTransientState.processStateChange(START_TIME + 10, TmfStateValue.newValueLong(5), quark);
+        fTransientState.processStateChange(START_TIME + 20, TmfStateValue.newValueLong(5), quark);
+        fTransientState.processStateChange(START_TIME + 30, TmfStateValue.newValueLong(Long.MAX_VALUE), quark);
+        fTransientState.closeTransientState(START_TIME + 40);
+
+        ITmfStateInterval interval = fBackend.doSingularQuery(START_TIME + 5, quark);
+        assertEquals(TmfStateValue.nullValue(), interval.getStateValue());
+        interval = fBackend.doSingularQuery(START_TIME + 25, quark);
+        assertEquals(TmfStateValue.newValueLong(5), interval.getStateValue());
+        assertEquals(START_TIME + 10, interval.getStartTime());
+        assertEquals(START_TIME + 29, interval.getEndTime());
+        interval = fBackend.doSingularQuery(START_TIME + 35, quark);
+        assertEquals(TmfStateValue.newValueLong(Long.MAX_VALUE), interval.getStateValue());
+        assertEquals(START_TIME + 40, interval.getEndTime());
+    }
+
+    /**
+     * Test the state changes of primitive values, mixed with state changes of
+     * the equivalent value objects
+     *
+     * @throws StateValueTypeException
+     *             Should not happen
+     * @throws StateSystemDisposedException
+     *             Should not happen
+     */
+    @Test
+    public void testPrimitiveValues() throws StateValueTypeException, StateSystemDisposedException {
+        fTransientState.processStateChange(START_TIME + 10, 100000, 2);
+        fTransientState.processStateChange(START_TIME + 10, 1234567890123L, 4);
+        fTransientState.processStateChange(START_TIME + 10, -0.5, 6);
+        for (int quark : new int[] { 2, 4, 6 }) {
+            assertEquals(VALUES.get(quark), fTransientState.getOngoingStateValue(quark));
+            /* The same value as an object does not close the ongoing state */
+            fTransientState.processStateChange(START_TIME + 20, VALUES.get(quark), quark);
+            assertEquals(START_TIME + 10, fTransientState.getOngoingStartTime(quark));
+        }
+
+        /* The value object of the caller is the one sent to the backend */
+        ITmfStateValue value = TmfStateValue.newValueInt(-42);
+        fTransientState.processStateChange(START_TIME + 10, value, 1);
+        fTransientState.processStateChange(START_TIME + 30, 0, 1);
+        fTransientState.processStateChange(START_TIME + 30, Double.NaN, 6);
+        try {
+            fTransientState.processStateChange(START_TIME + 40, 1L, 1);
+            fail("Expected a StateValueTypeException");
+        } catch (StateValueTypeException e) {
+            assertTrue(e.getMessage().contains("Expected:INTEGER"));
+        }
+        fTransientState.closeTransientState(START_TIME + 50);
+
+        assertSame(value, fBackend.doSingularQuery(START_TIME + 20, 1).getStateValue());
+        assertEquals(TmfStateValue.newValueInt(0), fBackend.doSingularQuery(START_TIME + 40, 1).getStateValue());
+        assertEquals(TmfStateValue.newValueDouble(-0.5), fBackend.doSingularQuery(START_TIME + 20, 6).getStateValue());
+        assertEquals(TmfStateValue.newValueDouble(Double.NaN), fBackend.doSingularQuery(START_TIME + 40, 6).getStateValue());
+    }
+
+    /**
+     * Test that an attribute only accepts values of its first non-null type
+     *
+     * @throws StateValueTypeException
+     *             Should not happen
+     */
+    @Test
+    public void testTypeMismatch() throws StateValueTypeException {
+        int quark = 1;
+        fTransientState.processStateChange(START_TIME + 1, TmfStateValue.newValueInt(1), quark);
+        fTransientState.processStateChange(START_TIME + 2, TmfStateValue.nullValue(), quark);
+        try {
+            fTransientState.processStateChange(START_TIME + 3, TmfStateValue.newValueLong(1), quark);
+            fail("Expected a StateValueTypeException");
+        } catch (StateValueTypeException e) {
+            assertTrue(e.getMessage().contains("Expected:INTEGER"));
+        }
+        assertEquals(TmfStateValue.nullValue(), fTransientState.getOngoingStateValue(quark));
+    }
+
+    /**
+     * Test a full query of the transient state after its arrays are grown
+     *
+     * @throws StateValueTypeException
+     *             Should not happen
+     */
+    @Test
+    public void testQueryAfterGrowing() throws StateValueTypeException {
+        int nbAttributes = 1000;
+        for (int quark = VALUES.size(); quark < nbAttributes; quark++) {
+            fTransientState.addEmptyEntry();
+        }
+        for (int quark = 0; quark < nbAttributes; quark++) {
+            fTransientState.processStateChange(START_TIME + 1, TmfStateValue.newValueDouble(quark / 2.0), quark);
+        }
+
+        List<@Nullable ITmfStateInterval> stateInfo = new ArrayList<>();
+        for (int quark = 0; quark < nbAttributes; quark++) {
+            stateInfo.add(null);
+        }
+        fTransientState.doQuery(stateInfo, START_TIME);
+        for (ITmfStateInterval interval : stateInfo) {
+            assertNull(interval);
+        }
+        fTransientState.doQuery(stateInfo, START_TIME + 1);
+        for (int quark = 0; quark < nbAttributes; quark++) {
+            ITmfStateInterval interval = stateInfo.get(quark);
+            assertEquals(TmfStateValue.newValueDouble(quark / 2.0), interval.getStateValue());
+        }
+    }
+}
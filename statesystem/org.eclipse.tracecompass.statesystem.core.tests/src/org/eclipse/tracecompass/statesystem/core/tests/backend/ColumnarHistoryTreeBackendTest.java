@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.statesystem.core.tests.backend;
+
+import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTConfig.NodeFormat;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HistoryTreeBackend;
+import org.eclipse.tracecompass.statesystem.core.backend.HistoryTreeNodeFormat;
+import org.eclipse.tracecompass.statesystem.core.backend.IStateHistoryBackend;
+import org.eclipse.tracecompass.statesystem.core.backend.StateHistoryBackendFactory;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.tracecompass.statesystem.core.interval.TmfStateInterval;
+import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Test the {@link HistoryTreeBackend} class with the columnar node formats.
+ */
+@RunWith(Parameterized.class)
+public class ColumnarHistoryTreeBackendTest extends HistoryTreeBackendTest {
+
+    private final NodeFormat fNodeFormat;
+
+    /**
+     * @return the test parameters
+     */
+    @Parameters(name = "{1}, ReOpen={0}")
+    public static Collection<Object[]> formatParameters() {
+        return Arrays.asList(new Object[][] {
+                { Boolean.FALSE, NodeFormat.COLUMNAR },
+                { Boolean.TRUE, NodeFormat.COLUMNAR },
+                { Boolean.FALSE, NodeFormat.COLUMNAR_COMPRESSED },
+                { Boolean.TRUE, NodeFormat.COLUMNAR_COMPRESSED }
+        });
+    }
+
+    /**
+     * Constructor
+     *
+     * @param reOpen
+     *            True if the backend should be disposed and re-opened as a new
+     *            backend from the file, or false to use the backend as-is
+     * @param nodeFormat
+     *            The format of the intervals in the nodes
+     */
+    public ColumnarHistoryTreeBackendTest(Boolean reOpen, NodeFormat nodeFormat) {
+        super(reOpen);
+        fNodeFormat = nodeFormat;
+    }
+
+    @Override
+    protected IStateHistoryBackend getBackendForBuilding(long startTime) throws IOException {
+        File historyTreeFile = checkNotNull(File.createTempFile("ColumnarHistoryTreeBackendTest", ".ht"));
+        fHistoryTreeFiles.add(historyTreeFile);
+        HistoryTreeBackend backend = new HistoryTreeBackend(SSID, historyTreeFile, PROVIDER_VERSION, startTime, fBlockSize, fMaxChildren, fNodeFormat);
+        fBackendMap.put(backend, historyTreeFile);
+        return backend;
+    }
+
+    /**
+     * Test that the same intervals take less space than with the classic
+     * format
+     *
+     * @throws IOException
+     *             if the history files cannot be written
+     */
+    @Test
+    public void testFileSize() throws IOException {
+        File classicFile = checkNotNull(File.createTempFile("HistoryTreeBackendTest", ".ht"));
+        fHistoryTreeFiles.add(classicFile);
+        HistoryTreeBackend classic = new HistoryTreeBackend(SSID, classicFile, PROVIDER_VERSION, 0, fBlockSize, fMaxChildren);
+        fBackendMap.put(classic, classicFile);
+        HistoryTreeBackend columnar = (HistoryTreeBackend) getBackendForBuilding(0);
+
+        for (int i = 0; i < 10000; i++) {
+            int quark = i % 10;
+            long start = i * 10L;
+            TmfStateValue value = TmfStateValue.newValueInt(i % 3);
+            classic.insertPastState(start, start + 9, quark, value);
+            columnar.insertPastState(start, start + 9, quark, value);
+        }
+        classic.finishedBuilding(100000);
+        columnar.finishedBuilding(100000);
+
+        assertTrue(columnar.getFileSize() < classic.getFileSize() / 2);
+    }
+
+    /**
+     * Test that the compressed nodes do not overflow their block when the
+     * intervals switch between values which compress well and values which
+     * barely compress, so the estimated size of the nodes is wrong
+     *
+     * @throws IOException
+     *             if the history file cannot be written
+     * @throws StateSystemDisposedException
+     *             if the backend is disposed, should not happen
+     */
+    @Test
+    public void testVaryingCompression() throws IOException, StateSystemDisposedException {
+        final int nbAttr = 20;
+        final int nbIntervals = 5000;
+        Random random = new Random(42);
+        IStateHistoryBackend backend = getBackendForBuilding(0);
+        List<ITmfStateInterval> intervals = new ArrayList<>();
+        for (int i = 0; i < nbIntervals; i++) {
+            long start = i * 10L;
+            String value;
+            if ((i / 300) % 2 == 0) {
+                char[] chars = new char[random.nextInt(200)];
+                for (int c = 0; c < chars.length; c++) {
+                    chars[c] = (char) ('!' + random.nextInt(94));
+                }
+                value = new String(chars);
+            } else {
+                value = "value" + (i % 7);
+            }
+            ITmfStateInterval interval = new TmfStateInterval(start, start + 9, i % nbAttr, TmfStateValue.newValueString(value));
+            backend.insertPastState(interval.getStartTime(), interval.getEndTime(), interval.getAttribute(), interval.getStateValue());
+            intervals.add(interval);
+        }
+        backend.finishedBuilding(nbIntervals * 10L - 1);
+
+        IStateHistoryBackend queryBackend = getBackendForQuerying(backend);
+        for (ITmfStateInterval interval : intervals) {
+            ITmfStateInterval queried = queryBackend.doSingularQuery(interval.getStartTime(), interval.getAttribute());
+            assertNotNull(queried);
+            assertEquals(interval.getEndTime(), queried.getEndTime());
+            assertEquals(interval.getStateValue(), queried.getStateValue());
+        }
+    }
+
+    /**
+     * Test that the factory creates the history files in the requested node
+     * format
+     *
+     * @throws IOException
+     *             if the history files cannot be written
+     */
+    @Test
+    public void testFactoryNodeFormat() throws IOException {
+        File classicFile = checkNotNull(File.createTempFile("HistoryTreeBackendTest", ".ht"));
+        fHistoryTreeFiles.add(classicFile);
+        IStateHistoryBackend classic = StateHistoryBackendFactory.createHistoryTreeBackendNewFile(SSID, classicFile, PROVIDER_VERSION, 0, 0, HistoryTreeNodeFormat.CLASSIC);
+        fBackendMap.put(classic, classicFile);
+        File columnarFile = checkNotNull(File.createTempFile("ColumnarHistoryTreeBackendTest", ".ht"));
+        fHistoryTreeFiles.add(columnarFile);
+        IStateHistoryBackend columnar = StateHistoryBackendFactory.createHistoryTreeBackendNewFile(SSID, columnarFile, PROVIDER_VERSION, 0, 0, HistoryTreeNodeFormat.valueOf(fNodeFormat.name()));
+        fBackendMap.put(columnar, columnarFile);
+
+        for (int i = 0; i < 100000; i++) {
+            int quark = i % 10;
+            long start = i * 10L;
+            TmfStateValue value = TmfStateValue.newValueInt(i % 3);
+            classic.insertPastState(start, start + 9, quark, value);
+            columnar.insertPastState(start, start + 9, quark, value);
+        }
+        classic.finishedBuilding(1000000);
+        columnar.finishedBuilding(1000000);
+
+        assertTrue(((HistoryTreeBackend) columnar).getFileSize() < ((HistoryTreeBackend) classic).getFileSize() / 2);
+    }
+}
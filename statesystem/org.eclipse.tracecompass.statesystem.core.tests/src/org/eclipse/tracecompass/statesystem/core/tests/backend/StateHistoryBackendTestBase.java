@@ -16,10 +16,13 @@ import static org.junit.Assert.fail;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.statesystem.core.backend.IStateHistoryBackend;
+import org.eclipse.tracecompass.statesystem.core.backend.TimeRangeCondition;
 import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
 import org.eclipse.tracecompass.statesystem.core.exceptions.TimeRangeException;
 import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
@@ -30,6 +33,7 @@ import org.eclipse.tracecompass.statesystem.core.tests.stubs.statevalues.CustomS
 import org.junit.Test;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 
 /**
  * Abstract class to test implementations of the {@link IStateHistoryBackend}
@@ -439,6 +443,64 @@ public abstract class StateHistoryBackendTestBase {
         }
     }
 
+    /**
+     * Test the bulk query method on the "stair-like" intervals of
+     * {@link #testCascadingIntervals()}, with and without sampling, making
+     * sure it returns exactly the intervals that intersect the sampled
+     * timestamps for the requested attributes.
+     */
+    @Test
+    public void testQuery2D() {
+        final int nbAttr = 10;
+        final long duration = 10;
+        final long startTime = 0;
+        final long endTime = 1000;
+
+        List<ITmfStateInterval> intervals = new ArrayList<>();
+        for (long t = startTime + 1; t <= endTime + duration; t++) {
+            intervals.add(new TmfStateInterval(
+                    Math.max(startTime, t - duration),
+                    Math.min(endTime, t - 1),
+                    (int) t % nbAttr,
+                    TmfStateValue.newValueLong(t)));
+        }
+
+        final IStateHistoryBackend backend = prepareBackend(startTime, endTime, intervals);
+        assertNotNull(backend);
+
+        Set<Integer> quarks = ImmutableSet.of(1, 4, 7);
+        long[][] ranges = { { 0, 1000, 1 }, { 100, 200, 1 }, { 100, 500, 33 }, { 990, 1000, 7 }, { 500, 500, 1 } };
+        try {
+            for (long[] range : ranges) {
+                TimeRangeCondition times = new TimeRangeCondition(range[0], range[1], range[2]);
+                /* Intervals do not implement equals(), compare their string representations */
+                Set<String> expected = new HashSet<>();
+                for (ITmfStateInterval interval : intervals) {
+                    if (quarks.contains(interval.getAttribute())) {
+                        for (long t : times) {
+                            if (interval.intersects(t)) {
+                                expected.add(intervalKey(interval));
+                            }
+                        }
+                    }
+                }
+
+                List<String> actual = new ArrayList<>();
+                for (ITmfStateInterval interval : backend.query2D(quarks, times)) {
+                    actual.add(intervalKey(interval));
+                }
+                assertEquals("Number of intervals for " + times, expected.size(), actual.size());
+                assertEquals("Intervals for " + times, expected, new HashSet<>(actual));
+            }
+        } catch (StateSystemDisposedException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    private static String intervalKey(ITmfStateInterval interval) {
+        return interval.getAttribute() + ":" + interval.getStartTime() + "-" + interval.getEndTime() + "=" + interval.getStateValue();
+    }
+
     /**
      * Test inserting an interval before the start of the backend
      */
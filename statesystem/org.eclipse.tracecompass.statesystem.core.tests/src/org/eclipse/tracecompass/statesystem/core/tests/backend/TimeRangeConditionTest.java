@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.statesystem.core.tests.backend;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.eclipse.tracecompass.statesystem.core.backend.TimeRangeCondition;
+import org.junit.Test;
+
+/**
+ * Test the sampled timestamps of the {@link TimeRangeCondition}
+ */
+public class TimeRangeConditionTest {
+
+    private static List<Long> samples(TimeRangeCondition times) {
+        List<Long> samples = new ArrayList<>();
+        for (long t : times) {
+            samples.add(t);
+        }
+        return samples;
+    }
+
+    /**
+     * Test the iteration over the sampled timestamps
+     */
+    @Test
+    public void testIterator() {
+        assertEquals(Arrays.asList(0L, 1L, 2L, 3L), samples(new TimeRangeCondition(0, 3, 1)));
+        assertEquals(Arrays.asList(10L, 20L, 25L), samples(new TimeRangeCondition(10, 25, 10)));
+        assertEquals(Arrays.asList(10L, 20L, 30L), samples(new TimeRangeCondition(10, 30, 10)));
+        assertEquals(Arrays.asList(5L), samples(new TimeRangeCondition(5, 5, 3)));
+    }
+
+    /**
+     * Test that the next sample after any time is the one the iterator would
+     * return next
+     */
+    @Test
+    public void testGetNextSample() {
+        long[][] ranges = { { 0, 100, 1 }, { 100, 500, 33 }, { 990, 1000, 7 }, { -50, 50, 10 } };
+        for (long[] range : ranges) {
+            TimeRangeCondition times = new TimeRangeCondition(range[0], range[1], range[2]);
+            List<Long> samples = samples(times);
+            int next = 0;
+            for (long t = range[0] - 5; t < range[1]; t++) {
+                while (samples.get(next) <= t) {
+                    next++;
+                }
+                assertEquals("Next sample after " + t + " in " + times, (long) samples.get(next), times.getNextSample(t));
+            }
+        }
+    }
+
+    /**
+     * Test that there is no next sample at the end of the range
+     */
+    @Test(expected = NoSuchElementException.class)
+    public void testNoNextSample() {
+        new TimeRangeCondition(0, 100, 10).getNextSample(100);
+    }
+}
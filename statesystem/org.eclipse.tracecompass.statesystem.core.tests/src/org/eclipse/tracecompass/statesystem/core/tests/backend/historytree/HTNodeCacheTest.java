@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2017 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.statesystem.core.tests.backend.historytree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTConfig;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTNode;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTNodeCache;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTNodeCache.Segment;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.LeafNode;
+import org.junit.Test;
+
+import com.google.common.cache.CacheStats;
+
+/**
+ * Tests the node cache shared by the history trees
+ */
+public class HTNodeCacheTest {
+
+    private static final int BLOCK_SIZE = 4096;
+    private static final HTConfig CONFIG = new HTConfig(new File("dummy"), BLOCK_SIZE, 3, 1, 0);
+
+    private static final long CACHE_SIZE = 64L * BLOCK_SIZE;
+
+    /* A private cache, so the tests do not depend on the shared instance */
+    private final HTNodeCache fCache = new HTNodeCache(CACHE_SIZE);
+
+    private static Segment createSegment(HTNodeCache cache, AtomicInteger loadCount) {
+        return cache.createSegment("test", BLOCK_SIZE, seq -> {
+            loadCount.incrementAndGet();
+            return new LeafNode(CONFIG, seq, -1, seq * 10L);
+        });
+    }
+
+    /**
+     * Test that nodes are loaded only once and then served from the cache
+     *
+     * @throws IOException
+     *             If the loader fails, should not happen
+     */
+    @Test
+    public void testHitsAndMisses() throws IOException {
+        AtomicInteger loads = new AtomicInteger();
+        Segment segment = createSegment(fCache, loads);
+        try {
+            CacheStats before = fCache.getStats();
+            HTNode node = segment.get(3);
+            assertEquals(3, node.getSequenceNumber());
+            assertSame(node, segment.get(3));
+            assertEquals(1, loads.get());
+            assertEquals(BLOCK_SIZE, segment.getUsedBytes());
+
+            CacheStats stats = fCache.getStats().minus(before);
+            assertEquals(1, stats.hitCount());
+            assertEquals(1, stats.missCount());
+        } finally {
+            segment.close();
+        }
+        assertEquals(0, segment.getUsedBytes());
+    }
+
+    /**
+     * Test that the memory budget is respected, and that the segment using
+     * more than its share is the one that gets evicted
+     *
+     * @throws IOException
+     *             If the loader fails, should not happen
+     */
+    @Test
+    public void testFairEviction() throws IOException {
+        AtomicInteger loads1 = new AtomicInteger();
+        AtomicInteger loads2 = new AtomicInteger();
+        Segment small = createSegment(fCache, loads1);
+        Segment big = createSegment(fCache, loads2);
+        try {
+            fCache.setMaxBytes(8L * BLOCK_SIZE);
+            small.get(0);
+            small.get(1);
+            for (int i = 0; i < 20; i++) {
+                big.get(i);
+            }
+            assertTrue(fCache.getUsedBytes() <= fCache.getMaxBytes());
+            assertEquals(2 * BLOCK_SIZE, small.getUsedBytes());
+
+            /* The least recently used nodes of the big segment are gone */
+            big.get(19);
+            assertEquals(20, loads2.get());
+            big.get(0);
+            assertEquals(21, loads2.get());
+        } finally {
+            small.close();
+            big.close();
+        }
+    }
+
+    /**
+     * Test that setting a smaller budget evicts nodes right away
+     *
+     * @throws IOException
+     *             If the loader fails, should not happen
+     */
+    @Test
+    public void testShrink() throws IOException {
+        AtomicInteger loads = new AtomicInteger();
+        Segment segment = createSegment(fCache, loads);
+        try {
+            for (int i = 0; i < 10; i++) {
+                segment.get(i);
+            }
+            assertEquals(10 * BLOCK_SIZE, segment.getUsedBytes());
+            fCache.setMaxBytes(0);
+            assertEquals(0, segment.getUsedBytes());
+        } finally {
+            segment.close();
+        }
+    }
+
+    /**
+     * Test that nodes put in a segment after it is closed are not kept
+     *
+     * @throws IOException
+     *             If the loader fails, should not happen
+     */
+    @Test
+    public void testPutAfterClose() throws IOException {
+        AtomicInteger loads = new AtomicInteger();
+        Segment segment = createSegment(fCache, loads);
+        HTNode node = segment.get(1);
+        segment.close();
+        segment.put(node);
+        assertEquals(0, segment.getUsedBytes());
+        assertEquals(0, fCache.getUsedBytes());
+    }
+}
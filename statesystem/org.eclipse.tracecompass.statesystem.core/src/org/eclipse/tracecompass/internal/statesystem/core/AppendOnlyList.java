@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.statesystem.core;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * List to which elements are only appended, by one writer at a time, and that
+ * can be read concurrently without locking.
+ *
+ * The writer fills the slot of the new element before publishing the new size,
+ * and a full array is copied to a larger one before being replaced, so a
+ * reader that reads the size first always sees the elements before that size.
+ *
+ * @param <E>
+ *            The type of elements
+ */
+final class AppendOnlyList<E> {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private volatile Object[] fElements = new Object[INITIAL_CAPACITY];
+    private volatile int fSize = 0;
+
+    /**
+     * Append an element. The callers must make sure there is only one writer
+     * at a time.
+     *
+     * @param element
+     *            The element to append
+     */
+    void add(E element) {
+        int size = fSize;
+        Object[] elements = fElements;
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size * 2);
+            fElements = elements;
+        }
+        elements[size] = element;
+        fSize = size + 1;
+    }
+
+    /**
+     * Get an element of the list
+     *
+     * @param index
+     *            The index of the element
+     * @return The element
+     * @throws IndexOutOfBoundsException
+     *             If the index is out of range
+     */
+    @SuppressWarnings("unchecked")
+    E get(int index) {
+        int size = fSize;
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        return (E) fElements[index];
+    }
+
+    /**
+     * Get the number of elements in the list
+     *
+     * @return The size of the list
+     */
+    int size() {
+        return fSize;
+    }
+
+    /**
+     * Get a snapshot of the elements of the list
+     *
+     * @return The elements that were added so far, in order
+     */
+    @SuppressWarnings("unchecked")
+    List<E> snapshot() {
+        int size = fSize;
+        Object[] elements = fElements;
+        ImmutableList.Builder<E> builder = ImmutableList.builder();
+        for (int i = 0; i < size; i++) {
+            builder.add((E) elements[i]);
+        }
+        return builder.build();
+    }
+}
@@ -18,16 +18,13 @@ import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
 import static org.eclipse.tracecompass.statesystem.core.ITmfStateSystem.INVALID_ATTRIBUTE;
 
 import java.io.PrintWriter;
-import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
 
-import com.google.common.collect.ImmutableList;
-
 /**
  * An Attribute is a "node" in the Attribute Tree. It represents a smallest
  * unit of the model which can be in a particular state at a given time.
@@ -44,9 +41,15 @@ public final class Attribute {
     private final @NonNull String name;
     private final int quark;
 
-    /** The sub-attributes (<basename, attribute>) of this attribute */
+    /**
+     * The sub-attributes (<basename, attribute>) of this attribute. They can
+     * be looked up without locking.
+     */
     private final Map<String, Attribute> subAttributes;
 
+    /** The sub-attributes of this attribute, in the order they were added */
+    private final AppendOnlyList<Attribute> subAttributesList;
+
     /**
      * Constructor
      *
@@ -62,7 +65,8 @@ public final class Attribute {
         this.parent = parent;
         this.quark = quark;
         this.name = name;
-        this.subAttributes = Collections.synchronizedMap(new LinkedHashMap<String, Attribute>());
+        this.subAttributes = new ConcurrentHashMap<>();
+        this.subAttributesList = new AppendOnlyList<>();
     }
 
     // ------------------------------------------------------------------------
@@ -93,7 +97,7 @@ public final class Attribute {
      * @return The child attributes.
      */
     public Iterable<Attribute> getSubAttributes() {
-        return ImmutableList.copyOf(subAttributes.values());
+        return subAttributesList.snapshot();
     }
 
     /**
@@ -158,7 +162,8 @@ public final class Attribute {
     /* The methods how to access children are left to derived classes */
 
     /**
-     * Add a sub-attribute to this attribute
+     * Add a sub-attribute to this attribute. The sub-attributes can be read
+     * concurrently, but only one thread at a time can add them.
      *
      * @param newSubAttribute The new attribute to add
      */
@@ -166,6 +171,7 @@ public final class Attribute {
         if (newSubAttribute == null) {
             throw new IllegalArgumentException();
         }
+        subAttributesList.add(newSubAttribute);
         subAttributes.put(newSubAttribute.getName(), newSubAttribute);
     }
 
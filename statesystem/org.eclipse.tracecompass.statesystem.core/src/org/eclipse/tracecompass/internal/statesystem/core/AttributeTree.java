@@ -39,6 +39,11 @@ import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
  * Each node of this tree is both like a file and a directory in the
  * "file system".
  *
+ * The attributes can be looked up concurrently without locking, only the
+ * creation of new attributes is synchronized. A new attribute is added to the
+ * quark list and to the state system before it is added to its parent, so a
+ * lookup never returns a quark that is not completely created.
+ *
  * @author alexmont
  *
  */
@@ -54,7 +59,7 @@ public final class AttributeTree {
     private static final String SERIALIZATION_WILDCARD = "*"; //$NON-NLS-1$
 
     private final StateSystem ss;
-    private final List<Attribute> attributeList;
+    private final AppendOnlyList<Attribute> attributeList;
     private final Attribute attributeTreeRoot;
 
     /**
@@ -65,7 +70,7 @@ public final class AttributeTree {
      */
     public AttributeTree(StateSystem ss) {
         this.ss = ss;
-        this.attributeList = new ArrayList<>();
+        this.attributeList = new AppendOnlyList<>();
         this.attributeTreeRoot = new Attribute(null, "root", ROOT_ATTRIBUTE); //$NON-NLS-1$
     }
 
@@ -133,7 +138,7 @@ public final class AttributeTree {
                 /* Compute the serialized list of attributes and write it */
                 List<String[]> list = new ArrayList<>(attributeList.size());
                 String[] prevFullAttribute = null, curFullAttribute = null, curEncodedAttribute = null;
-                for (Attribute entry : this.attributeList) {
+                for (Attribute entry : this.attributeList.snapshot()) {
                     curFullAttribute = entry.getFullAttribute();
                     curEncodedAttribute = encodeFullAttribute(prevFullAttribute, entry.getFullAttribute());
                     list.add(curEncodedAttribute);
@@ -208,7 +213,7 @@ public final class AttributeTree {
      *
      * @return The current number of attributes in the tree
      */
-    public synchronized int getNbAttributes() {
+    public int getNbAttributes() {
         return attributeList.size();
     }
 
@@ -229,7 +234,7 @@ public final class AttributeTree {
      * @throws IndexOutOfBoundsException
      *             If the starting node quark is out of range
      */
-    public synchronized int getQuarkDontAdd(int startingNodeQuark, String... subPath) {
+    public int getQuarkDontAdd(int startingNodeQuark, String... subPath) {
         Attribute prevNode;
 
         /* If subPath is empty, simply return the starting quark */
@@ -262,44 +267,48 @@ public final class AttributeTree {
      * @throws IndexOutOfBoundsException
      *             If the starting node quark is out of range
      */
-    public synchronized int getQuarkAndAdd(int startingNodeQuark, String... subPath) {
-        // FIXME synchronized here is probably quite costly... maybe only locking
-        // the "for" would be enough?
-
-        Attribute nextNode = null;
-        Attribute prevNode;
+    public int getQuarkAndAdd(int startingNodeQuark, String... subPath) {
+        Attribute startingNode;
 
         /* Get the "starting node" */
         if (startingNodeQuark == ROOT_ATTRIBUTE) {
-            prevNode = attributeTreeRoot;
+            startingNode = attributeTreeRoot;
         } else {
-            prevNode = attributeList.get(startingNodeQuark);
+            startingNode = attributeList.get(startingNodeQuark);
         }
 
-        int knownQuark = prevNode.getSubAttributeQuark(subPath);
-        if (knownQuark == INVALID_ATTRIBUTE) {
+        int knownQuark = startingNode.getSubAttributeQuark(subPath);
+        if (knownQuark != INVALID_ATTRIBUTE) {
             /*
-             * The attribute was not in the table previously, and we want to add
-             * it
+             * The attribute was already existing, return the quark of that
+             * attribute
              */
-            for (String curDirectory : subPath) {
-                nextNode = prevNode.getSubAttributeNode(curDirectory);
-                if (nextNode == null) {
-                    /* This is where we need to start adding */
-                    nextNode = new Attribute(prevNode, checkNotNull(curDirectory), attributeList.size());
-                    prevNode.addSubAttribute(nextNode);
-                    attributeList.add(nextNode);
-                    ss.addEmptyAttribute();
-                }
-                prevNode = nextNode;
+            return knownQuark;
+        }
+        return addAttributes(startingNode, subPath);
+    }
+
+    /**
+     * Create the missing attributes of a path. Another thread may have created
+     * some of them since they were looked up, so they are looked up again
+     * with the lock taken.
+     */
+    private synchronized int addAttributes(Attribute startingNode, String... subPath) {
+        Attribute nextNode = startingNode;
+        Attribute prevNode = startingNode;
+        for (String curDirectory : subPath) {
+            nextNode = prevNode.getSubAttributeNode(curDirectory);
+            if (nextNode == null) {
+                /* This is where we need to start adding */
+                nextNode = new Attribute(prevNode, checkNotNull(curDirectory), attributeList.size());
+                attributeList.add(nextNode);
+                ss.addEmptyAttribute();
+                /* Publish the attribute once it is completely created */
+                prevNode.addSubAttribute(nextNode);
             }
-            return attributeList.size() - 1;
+            prevNode = nextNode;
         }
-        /*
-         * The attribute was already existing, return the quark of that
-         * attribute
-         */
-        return knownQuark;
+        return nextNode.getQuark();
     }
 
     /**
@@ -315,7 +324,7 @@ public final class AttributeTree {
      * @throws IndexOutOfBoundsException
      *             If the attribute quark is out of range
      */
-    public synchronized @NonNull List<@NonNull Integer> getSubAttributes(int attributeQuark, boolean recursive) {
+    public @NonNull List<@NonNull Integer> getSubAttributes(int attributeQuark, boolean recursive) {
         List<@NonNull Integer> listOfChildren = new ArrayList<>();
         Attribute startingAttribute;
 
@@ -343,7 +352,7 @@ public final class AttributeTree {
      * @throws IndexOutOfBoundsException
      *             If the quark is out of range
      */
-    public synchronized int getParentAttributeQuark(int quark) {
+    public int getParentAttributeQuark(int quark) {
         if (quark == ROOT_ATTRIBUTE) {
             return quark;
         }
@@ -369,7 +378,7 @@ public final class AttributeTree {
      * @throws IndexOutOfBoundsException
      *             If the quark is out of range
      */
-    public synchronized @NonNull String getAttributeName(int quark) {
+    public @NonNull String getAttributeName(int quark) {
         return attributeList.get(quark).getName();
     }
 
@@ -382,7 +391,7 @@ public final class AttributeTree {
      * @throws IndexOutOfBoundsException
      *             If the quark is out of range
      */
-    public synchronized @NonNull String getFullAttributeName(int quark) {
+    public @NonNull String getFullAttributeName(int quark) {
         return attributeList.get(quark).getFullAttributeName();
     }
 
@@ -396,7 +405,7 @@ public final class AttributeTree {
      * @throws IndexOutOfBoundsException
      *             If the quark is out of range
      */
-    public synchronized String @NonNull [] getFullAttributePathArray(int quark) {
+    public String @NonNull [] getFullAttributePathArray(int quark) {
         return attributeList.get(quark).getFullAttribute();
     }
 
@@ -19,8 +19,11 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
@@ -30,6 +33,7 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.common.core.log.TraceCompassLog;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
 import org.eclipse.tracecompass.statesystem.core.backend.IStateHistoryBackend;
+import org.eclipse.tracecompass.statesystem.core.backend.TimeRangeCondition;
 import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
 import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
 import org.eclipse.tracecompass.statesystem.core.exceptions.StateValueTypeException;
@@ -41,6 +45,7 @@ import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
 
 import com.google.common.collect.ImmutableCollection.Builder;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 
 /**
  * This is the core class of the Generic State System. It contains all the
@@ -363,6 +368,24 @@ public class StateSystem implements ITmfStateSystemBuilder {
         transState.processStateChange(t, value, attributeQuark);
     }
 
+    @Override
+    public void modifyAttribute(long t, int value, int attributeQuark)
+            throws TimeRangeException, StateValueTypeException {
+        transState.processStateChange(t, value, attributeQuark);
+    }
+
+    @Override
+    public void modifyAttribute(long t, long value, int attributeQuark)
+            throws TimeRangeException, StateValueTypeException {
+        transState.processStateChange(t, value, attributeQuark);
+    }
+
+    @Override
+    public void modifyAttribute(long t, double value, int attributeQuark)
+            throws TimeRangeException, StateValueTypeException {
+        transState.processStateChange(t, value, attributeQuark);
+    }
+
     @Deprecated
     @Override
     public void incrementAttribute(long t, int attributeQuark)
@@ -601,6 +624,48 @@ public class StateSystem implements ITmfStateSystemBuilder {
         return ret;
     }
 
+    @Override
+    public Iterable<@NonNull ITmfStateInterval> query2D(Collection<@NonNull Integer> quarks, long start, long end, long resolution)
+            throws TimeRangeException, StateSystemDisposedException {
+        if (isDisposed) {
+            throw new StateSystemDisposedException();
+        }
+        if (start > end) {
+            throw new TimeRangeException(getSSID() + " Start:" + start + ", End:" + end); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+
+        LOGGER.info(() -> "[StateSystem:2DQueryStart] ssid=" + this.getSSID() + ", start=" + start + ", end=" + end + ", resolution=" + resolution + ", nbAttributes=" + quarks.size());  //$NON-NLS-1$//$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+
+        /* Clamp the range to the history's current range */
+        long rangeStart = Math.max(start, getStartTime());
+        long rangeEnd = Math.min(end, getCurrentEndTime());
+        if (quarks.isEmpty() || rangeStart > rangeEnd) {
+            return Collections.emptyList();
+        }
+
+        Set<@NonNull Integer> quarkSet = ImmutableSet.copyOf(quarks);
+        List<@NonNull ITmfStateInterval> ongoing = new ArrayList<>();
+        TimeRangeCondition times = new TimeRangeCondition(rangeStart, rangeEnd, resolution);
+
+        /*
+         * Like the other queries, first look in the transient state, for the
+         * intervals that are not yet in the history.
+         */
+        if (transState.isActive()) {
+            transState.doQuery2D(quarkSet, times, ongoing);
+        }
+
+        /* Then query the backend, up to where it has intervals */
+        long backendEnd = Math.min(rangeEnd, backend.getEndTime());
+        if (rangeStart > backendEnd) {
+            return ongoing;
+        }
+        Iterable<@NonNull ITmfStateInterval> stored = backend.query2D(quarkSet,
+                backendEnd == rangeEnd ? times : new TimeRangeCondition(rangeStart, backendEnd, resolution));
+        LOGGER.info(() -> "[StateSystem:2DQueryEnd]");  //$NON-NLS-1$
+        return ongoing.isEmpty() ? stored : Iterables.concat(ongoing, stored);
+    }
+
     @Override
     public void removeFiles() {
         backend.removeFiles();
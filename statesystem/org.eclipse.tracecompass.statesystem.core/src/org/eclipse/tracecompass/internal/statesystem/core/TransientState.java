@@ -15,14 +15,18 @@
 
 package org.eclipse.tracecompass.internal.statesystem.core;
 
+import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
+
 import java.io.PrintWriter;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.statesystem.core.backend.IStateHistoryBackend;
+import org.eclipse.tracecompass.statesystem.core.backend.TimeRangeCondition;
 import org.eclipse.tracecompass.statesystem.core.exceptions.StateValueTypeException;
 import org.eclipse.tracecompass.statesystem.core.exceptions.TimeRangeException;
 import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
@@ -41,6 +45,12 @@ import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
  * of the interval will be the recorded time we have here, and the "end time"
  * will be the timestamp of the new state-changing event we just read.
  *
+ * The ongoing states are kept in parallel arrays indexed by quark: the start
+ * times, the types and, for integer, long and double values, the value itself
+ * in a long slot. The value object given by the caller, if any, is kept as
+ * well, so it is reused when the state is closed. This way, state changes of
+ * numerical values do not box anything.
+ *
  * @author Alexandre Montplaisir
  */
 @NonNullByDefault
@@ -54,10 +64,21 @@ public class TransientState {
     private volatile boolean fIsActive;
     private volatile long fLatestTime;
 
+    private static final int INITIAL_CAPACITY = 64;
+    private static final Type[] TYPES = Type.values();
+
     /* A method accessing these arrays will have to go through the lock */
-    private List<ITmfStateValue> fOngoingStateInfo;
-    private List<Long> fOngoingStateStartTimes;
-    private List<Type> fStateValueTypes;
+    private int fSize;
+    /* Start times of the ongoing states */
+    private long[] fOngoingStateStartTimes;
+    /* Types expected for each attribute, as Type ordinals */
+    private byte[] fStateValueTypes;
+    /* Types of the ongoing values, as Type ordinals */
+    private byte[] fOngoingValueTypes;
+    /* Integer, long or double (as long bits) ongoing values */
+    private long[] fOngoingPrimitiveValues;
+    /* Ongoing value objects, null if only the primitive value is known */
+    private @Nullable ITmfStateValue[] fOngoingObjectValues;
 
     /**
      * Constructor
@@ -68,9 +89,12 @@ public class TransientState {
     public TransientState(IStateHistoryBackend backend) {
         fBackend = backend;
         fIsActive = true;
-        fOngoingStateInfo = new ArrayList<>();
-        fOngoingStateStartTimes = new ArrayList<>();
-        fStateValueTypes = new ArrayList<>();
+        fSize = 0;
+        fOngoingStateStartTimes = new long[INITIAL_CAPACITY];
+        fStateValueTypes = new byte[INITIAL_CAPACITY];
+        fOngoingValueTypes = new byte[INITIAL_CAPACITY];
+        fOngoingPrimitiveValues = new long[INITIAL_CAPACITY];
+        fOngoingObjectValues = new @Nullable ITmfStateValue[INITIAL_CAPACITY];
 
         fLatestTime = backend.getStartTime();
     }
@@ -84,6 +108,124 @@ public class TransientState {
         return fLatestTime;
     }
 
+    // ------------------------------------------------------------------------
+    // Access to the arrays, with the lock taken
+    // ------------------------------------------------------------------------
+
+    private void checkQuark(int quark) {
+        if (quark < 0 || quark >= fSize) {
+            throw new IndexOutOfBoundsException("Quark: " + quark + ", Size: " + fSize); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+    }
+
+    private long getStartTime(int quark) {
+        checkQuark(quark);
+        return fOngoingStateStartTimes[quark];
+    }
+
+    /**
+     * Get the ongoing value of an attribute. The numerical values set without
+     * a value object are retrieved from the state value caches.
+     */
+    private ITmfStateValue getValue(int quark) {
+        checkQuark(quark);
+        ITmfStateValue value = fOngoingObjectValues[quark];
+        if (value != null) {
+            return value;
+        }
+        long primitive = fOngoingPrimitiveValues[quark];
+        switch (TYPES[fOngoingValueTypes[quark]]) {
+        case NULL:
+            return TmfStateValue.nullValue();
+        case INTEGER:
+            return TmfStateValue.newValueInt((int) primitive);
+        case LONG:
+            return TmfStateValue.newValueLong(primitive);
+        case DOUBLE:
+            return TmfStateValue.newValueDouble(Double.longBitsToDouble(primitive));
+        case STRING:
+        case CUSTOM:
+        default:
+            return checkNotNull(fOngoingObjectValues[quark]);
+        }
+    }
+
+    /**
+     * Get the primitive slot of a value, as stored in
+     * {@link #fOngoingPrimitiveValues}
+     */
+    private static long toPrimitive(ITmfStateValue value) {
+        switch (value.getType()) {
+        case INTEGER:
+            return value.unboxInt();
+        case LONG:
+            return value.unboxLong();
+        case DOUBLE:
+            return Double.doubleToLongBits(value.unboxDouble());
+        case NULL:
+        case STRING:
+        case CUSTOM:
+        default:
+            return 0;
+        }
+    }
+
+    /**
+     * Set the ongoing value of an attribute. The value object may be null for
+     * the null, integer, long and double types.
+     */
+    private void setValue(int quark, Type type, long primitive, @Nullable ITmfStateValue value) {
+        checkQuark(quark);
+        fOngoingValueTypes[quark] = (byte) type.ordinal();
+        fOngoingPrimitiveValues[quark] = primitive;
+        fOngoingObjectValues[quark] = value;
+    }
+
+    private void setValue(int quark, ITmfStateValue value) {
+        setValue(quark, value.getType(), toPrimitive(value), value);
+    }
+
+    /**
+     * Check if a value is equal to the ongoing value of an attribute, without
+     * creating the ongoing value object. The object is only used for the
+     * string and custom values.
+     */
+    private boolean isOngoingValue(int quark, Type type, long primitive, @Nullable ITmfStateValue value) {
+        if (fOngoingValueTypes[quark] != type.ordinal()) {
+            return false;
+        }
+        switch (type) {
+        case NULL:
+            return true;
+        case INTEGER:
+            return (int) fOngoingPrimitiveValues[quark] == (int) primitive;
+        case LONG:
+        case DOUBLE:
+            /* For doubles, same as Double.compare() == 0 */
+            return fOngoingPrimitiveValues[quark] == primitive;
+        case STRING:
+        case CUSTOM:
+        default:
+            return checkNotNull(value).equals(fOngoingObjectValues[quark]);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= fOngoingStateStartTimes.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, fOngoingStateStartTimes.length * 2);
+        fOngoingStateStartTimes = Arrays.copyOf(fOngoingStateStartTimes, newCapacity);
+        fStateValueTypes = Arrays.copyOf(fStateValueTypes, newCapacity);
+        fOngoingValueTypes = Arrays.copyOf(fOngoingValueTypes, newCapacity);
+        fOngoingPrimitiveValues = Arrays.copyOf(fOngoingPrimitiveValues, newCapacity);
+        fOngoingObjectValues = Arrays.copyOf(fOngoingObjectValues, newCapacity);
+    }
+
+    // ------------------------------------------------------------------------
+    // Operations
+    // ------------------------------------------------------------------------
+
     /**
      * Retrieve the ongoing state value for a given index (attribute quark).
      *
@@ -96,7 +238,7 @@ public class TransientState {
     public ITmfStateValue getOngoingStateValue(int quark) {
         fRWLock.readLock().lock();
         try {
-            return fOngoingStateInfo.get(quark);
+            return getValue(quark);
         } finally {
             fRWLock.readLock().unlock();
         }
@@ -114,7 +256,7 @@ public class TransientState {
     public long getOngoingStartTime(int quark) {
         fRWLock.readLock().lock();
         try {
-            return fOngoingStateStartTimes.get(quark);
+            return getStartTime(quark);
         } finally {
             fRWLock.readLock().unlock();
         }
@@ -134,7 +276,7 @@ public class TransientState {
     public void changeOngoingStateValue(int quark, ITmfStateValue newValue) {
         fRWLock.writeLock().lock();
         try {
-            fOngoingStateInfo.set(quark, newValue);
+            setValue(quark, newValue);
         } finally {
             fRWLock.writeLock().unlock();
         }
@@ -154,8 +296,8 @@ public class TransientState {
     public ITmfStateInterval getOngoingInterval(int quark) {
         fRWLock.readLock().lock();
         try {
-            return new TmfStateInterval(fOngoingStateStartTimes.get(quark), fLatestTime,
-                    quark, fOngoingStateInfo.get(quark));
+            return new TmfStateInterval(getStartTime(quark), fLatestTime,
+                    quark, getValue(quark));
         } finally {
             fRWLock.readLock().unlock();
         }
@@ -178,11 +320,43 @@ public class TransientState {
     public @Nullable ITmfStateInterval getIntervalAt(long time, int quark) {
         fRWLock.readLock().lock();
         try {
-            if (!isActive() || time < fOngoingStateStartTimes.get(quark)) {
+            if (!isActive() || time < getStartTime(quark)) {
                 return null;
             }
-            return new TmfStateInterval(fOngoingStateStartTimes.get(quark),
-                    fLatestTime, quark, fOngoingStateInfo.get(quark));
+            return new TmfStateInterval(fOngoingStateStartTimes[quark],
+                    fLatestTime, quark, getValue(quark));
+        } finally {
+            fRWLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Bulk version of {@link #getIntervalAt}: add to the results the ongoing
+     * intervals of the requested attributes that intersect the time
+     * condition.
+     *
+     * @param quarks
+     *            The quarks of the attributes to look for
+     * @param times
+     *            The time condition
+     * @param results
+     *            The collection to which the matching intervals are added
+     * @throws IndexOutOfBoundsException
+     *             If one of the quarks is out of range
+     */
+    public void doQuery2D(Collection<Integer> quarks, TimeRangeCondition times, Collection<ITmfStateInterval> results) {
+        fRWLock.readLock().lock();
+        try {
+            if (!isActive()) {
+                return;
+            }
+            for (Integer quark : quarks) {
+                long start = getStartTime(quark);
+                /* Like getIntervalAt(), the ongoing state is valid until the end of time */
+                if (times.intersects(start, Long.MAX_VALUE)) {
+                    results.add(new TmfStateInterval(start, fLatestTime, quark, getValue(quark)));
+                }
+            }
         } finally {
             fRWLock.readLock().unlock();
         }
@@ -204,14 +378,21 @@ public class TransientState {
 
         fRWLock.writeLock().lock();
         try {
-            fOngoingStateInfo = new ArrayList<>(size);
-            fOngoingStateStartTimes = new ArrayList<>(size);
-            fStateValueTypes = new ArrayList<>(size);
-
+            int capacity = Math.max(size, INITIAL_CAPACITY);
+            fOngoingStateStartTimes = new long[capacity];
+            fStateValueTypes = new byte[capacity];
+            fOngoingValueTypes = new byte[capacity];
+            fOngoingPrimitiveValues = new long[capacity];
+            fOngoingObjectValues = new @Nullable ITmfStateValue[capacity];
+            fSize = size;
+
+            int quark = 0;
             for (ITmfStateInterval interval : newStateIntervals) {
-                fOngoingStateInfo.add(interval.getStateValue());
-                fOngoingStateStartTimes.add(interval.getStartTime());
-                fStateValueTypes.add(interval.getStateValue().getType());
+                ITmfStateValue value = interval.getStateValue();
+                setValue(quark, value);
+                fOngoingStateStartTimes[quark] = interval.getStartTime();
+                fStateValueTypes[quark] = (byte) value.getType().ordinal();
+                quark++;
             }
         } finally {
             fRWLock.writeLock().unlock();
@@ -232,10 +413,14 @@ public class TransientState {
              * covering for all timestamps). A null interval will then get added
              * at the first state change.
              */
-            fOngoingStateInfo.add(TmfStateValue.nullValue());
-            fStateValueTypes.add(Type.NULL);
-
-            fOngoingStateStartTimes.add(fBackend.getStartTime());
+            ensureCapacity(fSize + 1);
+            int quark = fSize;
+            fSize++;
+            fOngoingValueTypes[quark] = (byte) Type.NULL.ordinal();
+            fOngoingObjectValues[quark] = null;
+            fStateValueTypes[quark] = (byte) Type.NULL.ordinal();
+
+            fOngoingStateStartTimes[quark] = fBackend.getStartTime();
         } finally {
             fRWLock.writeLock().unlock();
         }
@@ -260,13 +445,84 @@ public class TransientState {
      */
     public void processStateChange(long eventTime, ITmfStateValue value, int quark)
             throws TimeRangeException, StateValueTypeException {
+        processStateChange(eventTime, value.getType(), toPrimitive(value), value, quark);
+    }
+
+    /**
+     * Process a state change of an integer value, without a state value
+     * object.
+     *
+     * @param eventTime
+     *            The timestamp associated with this state change
+     * @param value
+     *            The new integer value of this attribute
+     * @param quark
+     *            The quark of the attribute that is being modified
+     * @throws TimeRangeException
+     *             If 'eventTime' is invalid
+     * @throws IndexOutOfBoundsException
+     *             If the quark is out of range
+     * @throws StateValueTypeException
+     *             If the attribute is not of the integer type
+     */
+    public void processStateChange(long eventTime, int value, int quark)
+            throws TimeRangeException, StateValueTypeException {
+        processStateChange(eventTime, Type.INTEGER, value, null, quark);
+    }
+
+    /**
+     * Process a state change of a long value, without a state value object.
+     *
+     * @param eventTime
+     *            The timestamp associated with this state change
+     * @param value
+     *            The new long value of this attribute
+     * @param quark
+     *            The quark of the attribute that is being modified
+     * @throws TimeRangeException
+     *             If 'eventTime' is invalid
+     * @throws IndexOutOfBoundsException
+     *             If the quark is out of range
+     * @throws StateValueTypeException
+     *             If the attribute is not of the long type
+     */
+    public void processStateChange(long eventTime, long value, int quark)
+            throws TimeRangeException, StateValueTypeException {
+        processStateChange(eventTime, Type.LONG, value, null, quark);
+    }
+
+    /**
+     * Process a state change of a double value, without a state value object.
+     *
+     * @param eventTime
+     *            The timestamp associated with this state change
+     * @param value
+     *            The new double value of this attribute
+     * @param quark
+     *            The quark of the attribute that is being modified
+     * @throws TimeRangeException
+     *             If 'eventTime' is invalid
+     * @throws IndexOutOfBoundsException
+     *             If the quark is out of range
+     * @throws StateValueTypeException
+     *             If the attribute is not of the double type
+     */
+    public void processStateChange(long eventTime, double value, int quark)
+            throws TimeRangeException, StateValueTypeException {
+        processStateChange(eventTime, Type.DOUBLE, Double.doubleToLongBits(value), null, quark);
+    }
+
+    private void processStateChange(long eventTime, Type type, long primitive,
+            @Nullable ITmfStateValue value, int quark)
+            throws TimeRangeException, StateValueTypeException {
         if (!this.fIsActive) {
             return;
         }
 
         fRWLock.writeLock().lock();
         try {
-            Type expectedSvType = fStateValueTypes.get(quark);
+            checkQuark(quark);
+            Type expectedSvType = TYPES[fStateValueTypes[quark]];
 
             /*
              * Make sure the state value type we're inserting is the same as the
@@ -277,17 +533,17 @@ public class TransientState {
                  * The value hasn't been used yet, set it to the value we're
                  * currently inserting (which might be null/-1 again).
                  */
-                fStateValueTypes.set(quark, value.getType());
-            } else if ((value.getType() != Type.NULL) && (value.getType() != expectedSvType)) {
+                fStateValueTypes[quark] = (byte) type.ordinal();
+            } else if ((type != Type.NULL) && (type != expectedSvType)) {
                 /*
                  * We authorize inserting null values in any type of attribute,
                  * but for every other types, it needs to match our
                  * expectations!
                  */
-                throw new StateValueTypeException(fBackend.getSSID() + " Quark:" + quark + ", Type:" + value.getType() + ", Expected:" + expectedSvType); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                throw new StateValueTypeException(fBackend.getSSID() + " Quark:" + quark + ", Type:" + type + ", Expected:" + expectedSvType); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
             }
 
-            if (fOngoingStateInfo.get(quark).equals(value)) {
+            if (isOngoingValue(quark, type, primitive, value)) {
                 /*
                  * This is the case where the new value and the one already
                  * present in the Builder are the same. We do not need to create
@@ -296,19 +552,19 @@ public class TransientState {
                 return;
             }
 
-            if (fOngoingStateStartTimes.get(quark) < eventTime) {
+            if (fOngoingStateStartTimes[quark] < eventTime) {
                 /*
                  * These two conditions are necessary to create an interval and
                  * update ongoingStateInfo.
                  */
-                fBackend.insertPastState(fOngoingStateStartTimes.get(quark),
+                fBackend.insertPastState(fOngoingStateStartTimes[quark],
                         eventTime - 1, /* End Time */
                         quark, /* attribute quark */
-                        fOngoingStateInfo.get(quark)); /* StateValue */
+                        getValue(quark)); /* StateValue */
 
-                fOngoingStateStartTimes.set(quark, eventTime);
+                fOngoingStateStartTimes[quark] = eventTime;
             }
-            fOngoingStateInfo.set(quark, value);
+            setValue(quark, type, primitive, value);
 
             /* Update the Transient State's lastestTime, if needed */
             if (fLatestTime < eventTime) {
@@ -335,7 +591,7 @@ public class TransientState {
             if (!this.fIsActive) {
                 return;
             }
-            if (stateInfo.size() > fOngoingStateInfo.size()) {
+            if (stateInfo.size() > fSize) {
                 throw new IllegalArgumentException();
             }
 
@@ -372,8 +628,8 @@ public class TransientState {
 
         fRWLock.writeLock().lock();
         try {
-            for (int i = 0; i < fOngoingStateInfo.size(); i++) {
-                if (fOngoingStateStartTimes.get(i) > endTime) {
+            for (int i = 0; i < fSize; i++) {
+                if (fOngoingStateStartTimes[i] > endTime) {
                     /*
                      * Handle the cases where trace end > timestamp of last
                      * state change. This can happen when inserting "future"
@@ -382,10 +638,10 @@ public class TransientState {
                     continue;
                 }
                 try {
-                    fBackend.insertPastState(fOngoingStateStartTimes.get(i),
+                    fBackend.insertPastState(fOngoingStateStartTimes[i],
                             endTime, /* End Time */
                             i, /* attribute quark */
-                            fOngoingStateInfo.get(i)); /* StateValue */
+                            getValue(i)); /* StateValue */
 
                 } catch (TimeRangeException e) {
                     /*
@@ -396,8 +652,12 @@ public class TransientState {
                 }
             }
 
-            fOngoingStateInfo.clear();
-            fOngoingStateStartTimes.clear();
+            fSize = 0;
+            fOngoingStateStartTimes = new long[0];
+            fStateValueTypes = new byte[0];
+            fOngoingValueTypes = new byte[0];
+            fOngoingPrimitiveValues = new long[0];
+            fOngoingObjectValues = new @Nullable ITmfStateValue[0];
             this.fIsActive = false;
 
         } finally {
@@ -437,10 +697,10 @@ public class TransientState {
             return;
         }
         writer.println("\nAttribute\tStateValue\tValid since time"); //$NON-NLS-1$
-        for (int i = 0; i < fOngoingStateInfo.size(); i++) {
+        for (int i = 0; i < fSize; i++) {
             writer.format("%d\t\t", i); //$NON-NLS-1$
-            writer.print(fOngoingStateInfo.get(i).toString() + "\t\t"); //$NON-NLS-1$
-            writer.println(fOngoingStateStartTimes.get(i).toString());
+            writer.print(getValue(i).toString() + "\t\t"); //$NON-NLS-1$
+            writer.println(fOngoingStateStartTimes[i]);
         }
         writer.println('\n');
         return;
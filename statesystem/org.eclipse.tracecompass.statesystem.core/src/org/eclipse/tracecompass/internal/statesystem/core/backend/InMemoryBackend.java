@@ -16,15 +16,20 @@ package org.eclipse.tracecompass.internal.statesystem.core.backend;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NavigableSet;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.tracecompass.statesystem.core.backend.IStateHistoryBackend;
+import org.eclipse.tracecompass.statesystem.core.backend.TimeRangeCondition;
 import org.eclipse.tracecompass.statesystem.core.exceptions.TimeRangeException;
 import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
 import org.eclipse.tracecompass.statesystem.core.interval.TmfStateInterval;
@@ -183,6 +188,33 @@ public class InMemoryBackend implements IStateHistoryBackend {
         return null;
     }
 
+    @Override
+    public Iterable<@NonNull ITmfStateInterval> query2D(Collection<@NonNull Integer> quarks, TimeRangeCondition times)
+            throws TimeRangeException {
+        if (!checkValidTime(times.getStart()) || !checkValidTime(times.getEnd())) {
+            throw new TimeRangeException(ssid + " Range:" + times + ", Start:" + startTime + ", End:" + latestTime); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        }
+
+        Set<Integer> quarkSet = new HashSet<>(quarks);
+        List<@NonNull ITmfStateInterval> ret = new ArrayList<>();
+
+        /*
+         * Skip all the intervals that end before the range, then do a single
+         * pass on the rest, for all the attributes at once.
+         */
+        synchronized (intervals) {
+            Iterator<ITmfStateInterval> iter = searchforEndTime(intervals, times.getStart());
+            while (iter.hasNext()) {
+                ITmfStateInterval entry = iter.next();
+                if (quarkSet.contains(entry.getAttribute())
+                        && times.intersects(entry.getStartTime(), entry.getEndTime())) {
+                    ret.add(entry);
+                }
+            }
+        }
+        return ret;
+    }
+
     private boolean checkValidTime(long t) {
         if (t >= startTime && t <= latestTime) {
             return true;
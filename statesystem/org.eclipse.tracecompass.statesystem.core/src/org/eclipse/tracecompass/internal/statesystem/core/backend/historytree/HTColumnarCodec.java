@@ -0,0 +1,392 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.statesystem.core.backend.historytree;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.internal.provisional.statesystem.core.statevalue.CustomStateValue;
+import org.eclipse.tracecompass.internal.provisional.statesystem.core.statevalue.SafeByteBufferFactory;
+import org.eclipse.tracecompass.statesystem.core.exceptions.TimeRangeException;
+import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
+import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
+
+/**
+ * Encoder and decoder of the intervals of a node in the columnar formats.
+ *
+ * The intervals are written as parallel columns: first the start times,
+ * relative to the start of the node, then the durations, the attributes, the
+ * value types and finally the values. The integer columns are written as
+ * variable-length integers (7 bits per byte, signed values are zigzag-encoded),
+ * so the small deltas and quarks typical of a node take one or two bytes
+ * instead of eight. Grouping similar values together also makes the section
+ * compress much better than the interleaved classic format.
+ *
+ * The size of the encoded columns is the sum of the sizes of the intervals,
+ * so it can be computed incrementally as intervals are added to a node.
+ */
+public final class HTColumnarCodec {
+
+    private static final Charset CHARSET = Charset.forName("UTF-8"); //$NON-NLS-1$
+
+    private static final String ERR_MSG = "Invalid interval data. Maybe your file is corrupt?"; //$NON-NLS-1$
+
+    /**
+     * <pre>
+     * 1 - byte (compressed or not)
+     * 8 - 2x int (size of the raw columns, size written in the file)
+     * </pre>
+     */
+    public static final int SECTION_HEADER_SIZE = Byte.BYTES + 2 * Integer.BYTES;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_INTEGER = 1;
+    private static final byte TYPE_STRING = 2;
+    private static final byte TYPE_LONG = 3;
+    private static final byte TYPE_DOUBLE = 4;
+    private static final byte TYPE_CUSTOM = 5;
+
+    private HTColumnarCodec() {
+    }
+
+    // ------------------------------------------------------------------------
+    // Sizes
+    // ------------------------------------------------------------------------
+
+    /**
+     * Get the number of bytes an interval takes in the raw (uncompressed)
+     * columns of a node.
+     *
+     * @param interval
+     *            The interval
+     * @param nodeStart
+     *            The start time of the node containing the interval
+     * @return The size of the interval in the columns
+     */
+    public static int getSize(HTInterval interval, long nodeStart) {
+        return varLongSize(zigzag(interval.getStartTime() - nodeStart))
+                + varLongSize(interval.getEndTime() - interval.getStartTime())
+                + varLongSize(zigzag(interval.getAttribute()))
+                + Byte.BYTES
+                + getValueSize(interval.getStateValue());
+    }
+
+    private static int getValueSize(ITmfStateValue value) {
+        switch (value.getType()) {
+        case NULL:
+            return 0;
+        case INTEGER:
+            return varLongSize(zigzag(value.unboxInt()));
+        case LONG:
+            return varLongSize(zigzag(value.unboxLong()));
+        case DOUBLE:
+            return Double.BYTES;
+        case STRING: {
+            int length = value.unboxStr().getBytes(CHARSET).length;
+            return varLongSize(length) + length;
+        }
+        case CUSTOM: {
+            int length = ((CustomStateValue) value).getSerializedSize();
+            return varLongSize(length) + length;
+        }
+        default:
+            throw new IllegalStateException();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Encoding
+    // ------------------------------------------------------------------------
+
+    /**
+     * Write the intervals of a node as raw columns.
+     *
+     * @param intervals
+     *            The intervals of the node, in the order of the node
+     * @param nodeStart
+     *            The start time of the node
+     * @param rawSize
+     *            The size of the columns, the sum of the {@link #getSize} of
+     *            the intervals
+     * @return The columns
+     */
+    public static byte[] encode(List<HTInterval> intervals, long nodeStart, int rawSize) {
+        ByteBuffer buffer = ByteBuffer.allocate(rawSize);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        for (HTInterval interval : intervals) {
+            putVarLong(buffer, zigzag(interval.getStartTime() - nodeStart));
+        }
+        for (HTInterval interval : intervals) {
+            putVarLong(buffer, interval.getEndTime() - interval.getStartTime());
+        }
+        for (HTInterval interval : intervals) {
+            putVarLong(buffer, zigzag(interval.getAttribute()));
+        }
+        for (HTInterval interval : intervals) {
+            buffer.put(getTypeByte(interval.getStateValue()));
+        }
+        for (HTInterval interval : intervals) {
+            putValue(buffer, interval.getStateValue());
+        }
+        if (buffer.hasRemaining()) {
+            throw new IllegalStateException("Wrong size of columns: Actual: " + buffer.position() + ", Expected: " + rawSize); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        return buffer.array();
+    }
+
+    private static void putValue(ByteBuffer buffer, ITmfStateValue value) {
+        switch (value.getType()) {
+        case NULL:
+            break;
+        case INTEGER:
+            putVarLong(buffer, zigzag(value.unboxInt()));
+            break;
+        case LONG:
+            putVarLong(buffer, zigzag(value.unboxLong()));
+            break;
+        case DOUBLE:
+            buffer.putDouble(value.unboxDouble());
+            break;
+        case STRING: {
+            byte[] array = value.unboxStr().getBytes(CHARSET);
+            putVarLong(buffer, array.length);
+            buffer.put(array);
+            break;
+        }
+        case CUSTOM: {
+            CustomStateValue custom = (CustomStateValue) value;
+            int size = custom.getSerializedSize();
+            putVarLong(buffer, size);
+            custom.serialize(SafeByteBufferFactory.wrapWriter(buffer, size));
+            break;
+        }
+        default:
+            throw new IllegalStateException();
+        }
+    }
+
+    private static byte getTypeByte(ITmfStateValue value) {
+        switch (value.getType()) {
+        case NULL:
+            return TYPE_NULL;
+        case INTEGER:
+            return TYPE_INTEGER;
+        case STRING:
+            return TYPE_STRING;
+        case LONG:
+            return TYPE_LONG;
+        case DOUBLE:
+            return TYPE_DOUBLE;
+        case CUSTOM:
+            return TYPE_CUSTOM;
+        default:
+            throw new IllegalStateException();
+        }
+    }
+
+    /**
+     * Compress the raw columns of a node, favoring the speed.
+     *
+     * @param raw
+     *            The raw columns
+     * @return The compressed columns
+     */
+    public static byte[] compress(byte[] raw) {
+        return compress(raw, Deflater.BEST_SPEED);
+    }
+
+    /**
+     * Compress the raw columns of a node with a given compression level. The
+     * level does not change how the columns are decompressed.
+     *
+     * @param raw
+     *            The raw columns
+     * @param level
+     *            The compression level, from {@link Deflater#BEST_SPEED} to
+     *            {@link Deflater#BEST_COMPRESSION}
+     * @return The compressed columns
+     */
+    public static byte[] compress(byte[] raw, int level) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            /* Incompressible data grows by a few bytes per deflate block */
+            byte[] out = new byte[raw.length + raw.length / 1024 + 64];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == out.length) {
+                    byte[] larger = new byte[out.length * 2];
+                    System.arraycopy(out, 0, larger, 0, length);
+                    out = larger;
+                }
+                length += deflater.deflate(out, length, out.length - length);
+            }
+            byte[] compressed = new byte[length];
+            System.arraycopy(out, 0, compressed, 0, length);
+            return compressed;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Decoding
+    // ------------------------------------------------------------------------
+
+    /**
+     * Read the intervals of a node from the columns written in a file.
+     *
+     * @param columns
+     *            The columns, as written in the file
+     * @param compressed
+     *            Whether the columns are compressed
+     * @param rawSize
+     *            The size of the columns before their compression
+     * @param count
+     *            The number of intervals in the node
+     * @param nodeStart
+     *            The start time of the node
+     * @return The intervals, in the order they were written
+     * @throws IOException
+     *             If the columns are not valid
+     */
+    public static List<HTInterval> decode(byte[] columns, boolean compressed, int rawSize, int count, long nodeStart) throws IOException {
+        byte[] raw = (compressed ? inflate(columns, rawSize) : columns);
+        ByteBuffer buffer = ByteBuffer.wrap(raw);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        long[] starts = new long[count];
+        long[] ends = new long[count];
+        int[] quarks = new int[count];
+        byte[] types = new byte[count];
+        try {
+            for (int i = 0; i < count; i++) {
+                starts[i] = nodeStart + unzigzag(getVarLong(buffer));
+            }
+            for (int i = 0; i < count; i++) {
+                ends[i] = starts[i] + getVarLong(buffer);
+            }
+            for (int i = 0; i < count; i++) {
+                quarks[i] = (int) unzigzag(getVarLong(buffer));
+            }
+            buffer.get(types);
+
+            List<HTInterval> intervals = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                intervals.add(new HTInterval(starts[i], ends[i], quarks[i], getValue(buffer, types[i])));
+            }
+            return intervals;
+        } catch (BufferUnderflowException | TimeRangeException e) {
+            throw new IOException(ERR_MSG, e);
+        }
+    }
+
+    private static @NonNull TmfStateValue getValue(ByteBuffer buffer, byte type) throws IOException {
+        switch (type) {
+        case TYPE_NULL:
+            return TmfStateValue.nullValue();
+        case TYPE_INTEGER:
+            return TmfStateValue.newValueInt((int) unzigzag(getVarLong(buffer)));
+        case TYPE_LONG:
+            return TmfStateValue.newValueLong(unzigzag(getVarLong(buffer)));
+        case TYPE_DOUBLE:
+            return TmfStateValue.newValueDouble(buffer.getDouble());
+        case TYPE_STRING: {
+            byte[] array = new byte[(int) getVarLong(buffer)];
+            buffer.get(array);
+            return TmfStateValue.newValueString(new String(array, CHARSET));
+        }
+        case TYPE_CUSTOM: {
+            int size = (int) getVarLong(buffer);
+            return CustomStateValue.readSerializedValue(SafeByteBufferFactory.wrapReader(buffer, size));
+        }
+        default:
+            /* Unknown data, better to not make anything up... */
+            throw new IOException(ERR_MSG);
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed, int rawSize) throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawSize];
+            int length = 0;
+            while (length < rawSize) {
+                int read = inflater.inflate(raw, length, rawSize - length);
+                if (read == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += read;
+            }
+            if (length != rawSize) {
+                throw new IOException(ERR_MSG);
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException(ERR_MSG, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Variable-length integers
+    // ------------------------------------------------------------------------
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int varLongSize(long value) {
+        int size = 1;
+        long remaining = value >>> 7;
+        while (remaining != 0) {
+            size++;
+            remaining >>>= 7;
+        }
+        return size;
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            buffer.put((byte) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        buffer.put((byte) remaining);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException(ERR_MSG);
+    }
+}
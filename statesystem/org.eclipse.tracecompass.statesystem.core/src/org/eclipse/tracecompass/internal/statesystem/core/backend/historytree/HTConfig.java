@@ -13,6 +13,7 @@
 package org.eclipse.tracecompass.internal.statesystem.core.backend.historytree;
 
 import java.io.File;
+import java.io.IOException;
 
 /**
  * Configuration object for the {@link IHistoryTree}.
@@ -21,6 +22,54 @@ import java.io.File;
  */
 public final class HTConfig {
 
+    /**
+     * Format of the intervals in the nodes of the history file
+     */
+    public static enum NodeFormat {
+        /**
+         * Each interval is written with its full start and end times,
+         * attribute, type and value, one after the other
+         */
+        CLASSIC,
+        /**
+         * The intervals are written in columns: the start times relative to
+         * the node start, the durations, the attributes, the types then the
+         * values, as variable-length integers when possible
+         */
+        COLUMNAR,
+        /**
+         * The columns of the {@link #COLUMNAR} format are compressed
+         */
+        COLUMNAR_COMPRESSED;
+
+        /**
+         * Determine a node format from its serialized value.
+         *
+         * @param rep
+         *            The value of the node format in the file header
+         * @return The corresponding node format
+         * @throws IOException
+         *             If the node format is unrecognized
+         */
+        public static NodeFormat fromInt(int rep) throws IOException {
+            NodeFormat[] values = values();
+            if (rep < 0 || rep >= values.length) {
+                throw new IOException("Unknown node format: " + rep); //$NON-NLS-1$
+            }
+            return values[rep];
+        }
+
+        /**
+         * Get the serialized value of this node format. It can then be read
+         * with {@link #fromInt}.
+         *
+         * @return The value of this format in the file header
+         */
+        public int toInt() {
+            return ordinal();
+        }
+    }
+
     private static final int DEFAULT_BLOCKSIZE = 64 * 1024;
     private static final int DEFAULT_MAXCHILDREN = 50;
 
@@ -29,6 +78,7 @@ public final class HTConfig {
     private final int maxChildren;
     private final int providerVersion;
     private final long treeStart;
+    private final NodeFormat nodeFormat;
 
     /**
      * Full constructor.
@@ -47,14 +97,40 @@ public final class HTConfig {
      *            uselessly.
      * @param startTime
      *            The start time of the history
+     * @param nodeFormat
+     *            The format of the intervals in the nodes
      */
     public HTConfig(File newStateFile, int blockSize, int maxChildren,
-            int providerVersion, long startTime) {
+            int providerVersion, long startTime, NodeFormat nodeFormat) {
         this.stateFile = newStateFile;
         this.blockSize = blockSize;
         this.maxChildren = maxChildren;
         this.providerVersion = providerVersion;
         this.treeStart = startTime;
+        this.nodeFormat = nodeFormat;
+    }
+
+    /**
+     * Constructor for the classic node format.
+     *
+     * @param newStateFile
+     *            The name of the history file
+     * @param blockSize
+     *            The size of each "block" on disk. One node will always fit in
+     *            one block.
+     * @param maxChildren
+     *            The maximum number of children allowed per core (non-leaf)
+     *            node.
+     * @param providerVersion
+     *            The version of the state provider. If a file already exists,
+     *            and their versions match, the history file will not be rebuilt
+     *            uselessly.
+     * @param startTime
+     *            The start time of the history
+     */
+    public HTConfig(File newStateFile, int blockSize, int maxChildren,
+            int providerVersion, long startTime) {
+        this(newStateFile, blockSize, maxChildren, providerVersion, startTime, NodeFormat.CLASSIC);
     }
 
     /**
@@ -122,4 +198,13 @@ public final class HTConfig {
     public long getTreeStart() {
         return treeStart;
     }
+
+    /**
+     * Get the format of the intervals in the nodes
+     *
+     * @return The node format
+     */
+    public NodeFormat getNodeFormat() {
+        return nodeFormat;
+    }
 }
@@ -20,12 +20,18 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.Deflater;
 
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.internal.statesystem.core.Activator;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTConfig.NodeFormat;
+import org.eclipse.tracecompass.statesystem.core.backend.TimeRangeCondition;
 import org.eclipse.tracecompass.statesystem.core.exceptions.TimeRangeException;
 import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
 import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
@@ -109,6 +115,18 @@ public abstract class HTNode {
             + 3 * Integer.BYTES
             + Byte.BYTES;
 
+    /**
+     * Fixed part of the error margin of the size of the compressed columns,
+     * for the intervals added since their last measure
+     */
+    private static final int COMPRESSION_MARGIN = 64;
+
+    /**
+     * The compressed columns are measured again when the intervals added since
+     * their last measure take at least 1/REMEASURE_RATIO of a block.
+     */
+    private static final int REMEASURE_RATIO = 32;
+
     // ------------------------------------------------------------------------
     // Attributes
     // ------------------------------------------------------------------------
@@ -133,6 +151,31 @@ public abstract class HTNode {
     /* Vector containing all the intervals contained in this node */
     private final List<HTInterval> fIntervals;
 
+    /* Format of the intervals of this node */
+    private final NodeFormat fFormat;
+
+    /*
+     * Columns of a node read from disk in a columnar format. They are only
+     * decoded in fIntervals when the intervals are first needed.
+     */
+    private volatile byte @Nullable [] fEncodedIntervals = null;
+    private boolean fEncodedCompressed;
+    private int fEncodedCount;
+
+    /*
+     * Size of the compressed columns when they were last measured, and the
+     * size of the raw columns at that time
+     */
+    private int fMeasuredSize = 0;
+    private int fMeasuredRawSize = 0;
+
+    /*
+     * Interval for which the exact size of the compressed columns was checked
+     * by canAddInterval, and the size of the columns with that interval
+     */
+    private @Nullable HTInterval fCheckedInterval = null;
+    private int fCheckedSize = 0;
+
     /* Lock used to protect the accesses to intervals, nodeEnd and such */
     private final ReentrantReadWriteLock fRwl = new ReentrantReadWriteLock(false);
 
@@ -163,6 +206,7 @@ public abstract class HTNode {
         fSizeOfIntervalSection = 0;
         fIsOnDisk = false;
         fIntervals = new ArrayList<>();
+        fFormat = config.getNodeFormat();
     }
 
     /**
@@ -182,16 +226,69 @@ public abstract class HTNode {
      */
     public static final @NonNull HTNode readNode(HTConfig config, FileChannel fc, IHistoryTree.IHTNodeFactory nodeFactory)
             throws IOException {
-        HTNode newNode = null;
-        int res, i;
-
         ByteBuffer buffer = ByteBuffer.allocate(config.getBlockSize());
         buffer.order(ByteOrder.LITTLE_ENDIAN);
         buffer.clear();
-        res = fc.read(buffer);
+        int res = fc.read(buffer);
         assert (res == config.getBlockSize());
         buffer.flip();
 
+        return readNode(config, buffer, nodeFactory);
+    }
+
+    /**
+     * Reader factory method. Build a Node object (of the right type) by reading
+     * a block in the file, positioned at the given offset, without modifying
+     * the position of the channel. Many threads can read nodes from the same
+     * channel concurrently with this method.
+     *
+     * @param config
+     *            Configuration of the History Tree
+     * @param fc
+     *            FileChannel to the history file
+     * @param position
+     *            Position of the start of the node in the file
+     * @param nodeFactory
+     *            The factory to create the nodes for this tree
+     * @return The node object
+     * @throws IOException
+     *             If there was an error reading from the file channel
+     */
+    public static final @NonNull HTNode readNode(HTConfig config, FileChannel fc, long position, IHistoryTree.IHTNodeFactory nodeFactory)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(config.getBlockSize());
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            if (fc.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("End of file reached while reading node at position " + position); //$NON-NLS-1$
+            }
+        }
+        buffer.flip();
+
+        return readNode(config, buffer, nodeFactory);
+    }
+
+    /**
+     * Reader factory method. Build a Node object (of the right type) from the
+     * content of a block of the file.
+     *
+     * @param config
+     *            Configuration of the History Tree
+     * @param buffer
+     *            Little-endian buffer containing the node, positioned at its
+     *            start
+     * @param nodeFactory
+     *            The factory to create the nodes for this tree
+     * @return The node object
+     * @throws IOException
+     *             If the content of the buffer is not a valid node
+     */
+    public static final @NonNull HTNode readNode(HTConfig config, ByteBuffer buffer, IHistoryTree.IHTNodeFactory nodeFactory)
+            throws IOException {
+        HTNode newNode = null;
+        int i;
+
         /* Read the common header part */
         byte typeByte = buffer.get();
         NodeType type = NodeType.fromByte(typeByte);
@@ -225,10 +322,14 @@ public abstract class HTNode {
          * At this point, we should be done reading the header and 'buffer'
          * should only have the intervals left
          */
-        for (i = 0; i < intervalCount; i++) {
-            HTInterval interval = HTInterval.readFrom(buffer);
-            newNode.fIntervals.add(interval);
-            newNode.fSizeOfIntervalSection += interval.getSizeOnDisk();
+        if (newNode.fFormat == NodeFormat.CLASSIC) {
+            for (i = 0; i < intervalCount; i++) {
+                HTInterval interval = HTInterval.readFrom(buffer);
+                newNode.fIntervals.add(interval);
+                newNode.fSizeOfIntervalSection += interval.getSizeOnDisk();
+            }
+        } else {
+            newNode.readColumns(buffer, intervalCount);
         }
 
         /* Assign the node's other information we have read previously */
@@ -238,6 +339,50 @@ public abstract class HTNode {
         return newNode;
     }
 
+    /**
+     * Read the columns of the intervals, they will be decoded when they are
+     * first queried.
+     */
+    private void readColumns(ByteBuffer buffer, int intervalCount) throws IOException {
+        boolean compressed = (buffer.get() != 0);
+        int rawSize = buffer.getInt();
+        int size = buffer.getInt();
+        if (rawSize < 0 || size < 0 || size > buffer.remaining()) {
+            throw new IOException("Invalid size of the intervals of node " + fSequenceNumber); //$NON-NLS-1$
+        }
+        byte[] columns = new byte[size];
+        buffer.get(columns);
+
+        fEncodedCompressed = compressed;
+        fEncodedCount = intervalCount;
+        fSizeOfIntervalSection = rawSize;
+        fMeasuredRawSize = rawSize;
+        fMeasuredSize = size;
+        fEncodedIntervals = columns;
+    }
+
+    /**
+     * Decode the columns read from disk, if that was not done yet.
+     */
+    private void decodeIntervals() {
+        if (fEncodedIntervals == null) {
+            return;
+        }
+        synchronized (fIntervals) {
+            byte[] columns = fEncodedIntervals;
+            if (columns == null) {
+                return;
+            }
+            try {
+                fIntervals.addAll(HTColumnarCodec.decode(columns, fEncodedCompressed, fSizeOfIntervalSection, fEncodedCount, fNodeStart));
+            } catch (IOException e) {
+                Activator.getDefault().logError(e.getMessage(), e);
+                throw new IllegalStateException("Cannot decode the intervals of node " + fSequenceNumber, e); //$NON-NLS-1$
+            }
+            fEncodedIntervals = null;
+        }
+    }
+
     /**
      * Write this node to the given file channel.
      *
@@ -248,6 +393,7 @@ public abstract class HTNode {
      *             If there was an error writing
      */
     public final void writeSelf(FileChannel fc) throws IOException {
+        decodeIntervals();
         /*
          * Yes, we are taking the *read* lock here, because we are reading the
          * information in the node to write it to disk.
@@ -273,8 +419,13 @@ public abstract class HTNode {
             writeSpecificHeader(buffer);
 
             /* Back to us, we write the intervals */
-            fIntervals.forEach(i -> i.writeInterval(buffer));
-            if (blockSize - buffer.position() != getNodeFreeSpace()) {
+            if (fFormat == NodeFormat.CLASSIC) {
+                fIntervals.forEach(i -> i.writeInterval(buffer));
+            } else {
+                writeColumns(buffer);
+            }
+            /* The size of compressed columns is only known once written */
+            if (fFormat != NodeFormat.COLUMNAR_COMPRESSED && blockSize - buffer.position() != getNodeFreeSpace()) {
                 throw new IllegalStateException("Wrong free space: Actual: " + (blockSize - buffer.position()) + ", Expected: " + getNodeFreeSpace()); //$NON-NLS-1$ //$NON-NLS-2$
             }
             /*
@@ -297,6 +448,31 @@ public abstract class HTNode {
         fIsOnDisk = true;
     }
 
+    private void writeColumns(ByteBuffer buffer) {
+        /* Should only be called by methods with the readLock taken */
+        byte[] raw = HTColumnarCodec.encode(fIntervals, fNodeStart, fSizeOfIntervalSection);
+        byte[] columns = raw;
+        boolean compressed = false;
+        if (fFormat == NodeFormat.COLUMNAR_COMPRESSED) {
+            byte[] deflated = HTColumnarCodec.compress(raw);
+            if (HTColumnarCodec.SECTION_HEADER_SIZE + deflated.length > buffer.remaining()) {
+                /* Should not happen, but a better compression may still fit */
+                deflated = HTColumnarCodec.compress(raw, Deflater.BEST_COMPRESSION);
+            }
+            if (deflated.length < raw.length) {
+                columns = deflated;
+                compressed = true;
+            }
+        }
+        if (HTColumnarCodec.SECTION_HEADER_SIZE + columns.length > buffer.remaining()) {
+            throw new IllegalStateException("Intervals do not fit in node " + fSequenceNumber + ": Size: " + columns.length + ", Available: " + buffer.remaining()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        }
+        buffer.put((byte) (compressed ? 1 : 0));
+        buffer.putInt(raw.length);
+        buffer.putInt(columns.length);
+        buffer.put(columns);
+    }
+
     // ------------------------------------------------------------------------
     // Accessors
     // ------------------------------------------------------------------------
@@ -376,10 +552,18 @@ public abstract class HTNode {
      *            Interval to add to this node
      */
     public void addInterval(HTInterval newInterval) {
+        decodeIntervals();
         fRwl.writeLock().lock();
         try {
+            int size = getIntervalSize(newInterval);
+            if (newInterval == fCheckedInterval) {
+                /* The exact size of the columns with this interval is known */
+                fMeasuredSize = fCheckedSize;
+                fMeasuredRawSize = fSizeOfIntervalSection + size;
+            }
+            fCheckedInterval = null;
             /* Just in case, should be checked before even calling this function */
-            assert (newInterval.getSizeOnDisk() <= getNodeFreeSpace());
+            assert (getDataSectionEndOffset(fSizeOfIntervalSection + size) <= fConfig.getBlockSize());
 
             /* Find the insert position to keep the list sorted */
             int index = 0;
@@ -393,13 +577,108 @@ public abstract class HTNode {
             }
 
             fIntervals.add(index, newInterval);
-            fSizeOfIntervalSection += newInterval.getSizeOnDisk();
+            fSizeOfIntervalSection += size;
+
+        } finally {
+            fRwl.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get the number of bytes an interval would take in this node, in the
+     * format of this node before any compression.
+     *
+     * @param interval
+     *            The interval
+     * @return The size of the interval in this node
+     */
+    public int getIntervalSize(HTInterval interval) {
+        if (fFormat == NodeFormat.CLASSIC) {
+            return interval.getSizeOnDisk();
+        }
+        return HTColumnarCodec.getSize(interval, fNodeStart);
+    }
 
+    /**
+     * Check if there is enough room left in this node for an interval. For
+     * compressed nodes, the size of the compressed intervals is estimated from
+     * the last time it was measured. Near the end of the block, where the
+     * estimate could be wrong, the intervals are compressed again to get their
+     * exact size.
+     *
+     * @param interval
+     *            The interval to add
+     * @return If the interval can be added to this node
+     */
+    public boolean canAddInterval(HTInterval interval) {
+        final int blockSize = fConfig.getBlockSize();
+        int size = getIntervalSize(interval);
+        fRwl.writeLock().lock();
+        try {
+            fCheckedInterval = null;
+            int newRawSize = fSizeOfIntervalSection + size;
+            if (fFormat != NodeFormat.COLUMNAR_COMPRESSED) {
+                return getDataSectionEndOffset(newRawSize) <= blockSize;
+            }
+            int columnsOffset = getTotalHeaderSize() + HTColumnarCodec.SECTION_HEADER_SIZE;
+            if (columnsOffset + newRawSize <= blockSize) {
+                /* The columns fit even if they are not compressed */
+                return true;
+            }
+            if (fIsOnDisk) {
+                return false;
+            }
+            if (isEstimateSafe(newRawSize)) {
+                return true;
+            }
+            if (fMeasuredRawSize != fSizeOfIntervalSection) {
+                if (getDataSectionEndOffset(newRawSize) > blockSize &&
+                        fSizeOfIntervalSection - fMeasuredRawSize < blockSize / REMEASURE_RATIO) {
+                    /* Measured recently, the node is full */
+                    return false;
+                }
+                fMeasuredSize = measureCompressedSize(null, fSizeOfIntervalSection);
+                fMeasuredRawSize = fSizeOfIntervalSection;
+                if (isEstimateSafe(newRawSize)) {
+                    return true;
+                }
+            }
+            /* Only the new interval was not measured, check the exact size */
+            int checkedSize = measureCompressedSize(interval, newRawSize);
+            if (columnsOffset + checkedSize > blockSize) {
+                return false;
+            }
+            fCheckedInterval = interval;
+            fCheckedSize = checkedSize;
+            return true;
         } finally {
             fRwl.writeLock().unlock();
         }
     }
 
+    /**
+     * Check if the estimated size of the compressed columns leaves at least as
+     * much room in the block as the size of the intervals added since the last
+     * measure, so that an error of the estimate cannot overflow the block.
+     */
+    private boolean isEstimateSafe(int rawSize) {
+        int freeSpace = fConfig.getBlockSize() - getDataSectionEndOffset(rawSize);
+        return freeSpace >= 0 && freeSpace >= rawSize - fMeasuredRawSize;
+    }
+
+    /**
+     * Get the exact size of the compressed columns of the intervals of this
+     * node, with an additional interval if not null.
+     */
+    private int measureCompressedSize(@Nullable HTInterval newInterval, int rawSize) {
+        List<HTInterval> intervals = fIntervals;
+        if (newInterval != null) {
+            intervals = new ArrayList<>(fIntervals);
+            intervals.add(-Collections.binarySearch(intervals, newInterval, NODE_ORDER) - 1, newInterval);
+        }
+        return HTColumnarCodec.compress(HTColumnarCodec.encode(intervals, fNodeStart, rawSize)).length;
+    }
+
     /**
      * We've received word from the containerTree that newest nodes now exist to
      * our right. (Puts isDone = true and sets the endtime)
@@ -408,6 +687,7 @@ public abstract class HTNode {
      *            The nodeEnd time that the node will have
      */
     public void closeThisNode(long endtime) {
+        decodeIntervals();
         fRwl.writeLock().lock();
         try {
             /**
@@ -450,6 +730,7 @@ public abstract class HTNode {
      */
     public void writeInfoFromNode(List<ITmfStateInterval> stateInfo, long t)
             throws TimeRangeException {
+        decodeIntervals();
         /* This is from a state system query, we are "reading" this node */
         fRwl.readLock().lock();
         try {
@@ -487,6 +768,7 @@ public abstract class HTNode {
      *             If 't' is invalid
      */
     public HTInterval getRelevantInterval(int key, long t) throws TimeRangeException {
+        decodeIntervals();
         fRwl.readLock().lock();
         try {
             for (int i = getStartIndexFor(t); i < fIntervals.size(); i++) {
@@ -505,6 +787,38 @@ public abstract class HTNode {
         }
     }
 
+    /**
+     * Get all the intervals of this node that belong to one of the requested
+     * attributes and that intersect the time condition. This is used by the
+     * bulk queries, which read each node only once for all their attributes
+     * and timestamps.
+     *
+     * @param quarks
+     *            The quarks of the attributes to look for. This collection
+     *            should have a fast {@link Collection#contains} (a Set, for
+     *            example)
+     * @param times
+     *            The time condition the intervals must intersect
+     * @return The matching intervals, in the order of the node
+     */
+    public List<@NonNull HTInterval> getMatchingIntervals(Collection<Integer> quarks, TimeRangeCondition times) {
+        List<@NonNull HTInterval> matching = new ArrayList<>();
+        decodeIntervals();
+        fRwl.readLock().lock();
+        try {
+            for (int i = getStartIndexFor(times.getStart()); i < fIntervals.size(); i++) {
+                HTInterval curInterval = fIntervals.get(i);
+                if (quarks.contains(curInterval.getAttribute())
+                        && times.intersects(curInterval.getStartTime(), curInterval.getEndTime())) {
+                    matching.add(curInterval);
+                }
+            }
+        } finally {
+            fRwl.readLock().unlock();
+        }
+        return matching;
+    }
+
     private int getStartIndexFor(long t) throws TimeRangeException {
         /* Should only be called by methods with the readLock taken */
 
@@ -538,7 +852,30 @@ public abstract class HTNode {
      * @return The offset, within the node, where the Data section ends
      */
     private int getDataSectionEndOffset() {
-        return getTotalHeaderSize() + fSizeOfIntervalSection;
+        return getDataSectionEndOffset(fSizeOfIntervalSection);
+    }
+
+    /**
+     * Get the offset where the Data section would end if its intervals had
+     * the given size before compression. For compressed nodes, the intervals
+     * added since the last measure are assumed to barely compress.
+     */
+    private int getDataSectionEndOffset(int rawSize) {
+        switch (fFormat) {
+        case COLUMNAR:
+            return getTotalHeaderSize() + HTColumnarCodec.SECTION_HEADER_SIZE + rawSize;
+        case COLUMNAR_COMPRESSED: {
+            int unmeasured = rawSize - fMeasuredRawSize;
+            int estimate = fMeasuredSize;
+            if (unmeasured > 0) {
+                estimate += unmeasured + unmeasured / 64 + COMPRESSION_MARGIN;
+            }
+            return getTotalHeaderSize() + HTColumnarCodec.SECTION_HEADER_SIZE + Math.min(rawSize, estimate);
+        }
+        case CLASSIC:
+        default:
+            return getTotalHeaderSize() + rawSize;
+        }
     }
 
     /**
@@ -588,7 +925,7 @@ public abstract class HTNode {
                 fSequenceNumber,
                 (fParentSequenceNumber == -1) ? "Root" : "Parent #" + fParentSequenceNumber,
                 toStringSpecific(),
-                fIntervals.size(),
+                (fEncodedIntervals != null) ? fEncodedCount : fIntervals.size(),
                 getNodeUsagePercent(),
                 fNodeStart,
                 (fIsOnDisk || fNodeEnd != 0) ? fNodeEnd : "...");
@@ -603,6 +940,7 @@ public abstract class HTNode {
     @SuppressWarnings("nls")
     public void debugPrintIntervals(PrintWriter writer) {
         /* Only used for debugging, shouldn't be externalized */
+        decodeIntervals();
         writer.println("Intervals for node #" + fSequenceNumber + ":");
 
         /* Array of children */
@@ -0,0 +1,367 @@
+/*******************************************************************************
+ * Copyright (c) 2017 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.statesystem.core.backend.historytree;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.common.core.log.TraceCompassLog;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.CacheStats;
+
+/**
+ * Cache of history tree nodes, shared by all the history trees that are
+ * opened.
+ *
+ * The cache has a global memory budget, expressed in bytes, and each tree
+ * gets its own {@link Segment} of it. When the budget is exceeded, nodes are
+ * evicted (least-recently used first) from the tree that uses the most memory
+ * above its fair share (the budget divided by the number of open trees), so a
+ * tree that is heavily read cannot evict all the nodes of the others.
+ *
+ * Lookups only lock the segment of their own tree, and the nodes are loaded
+ * from disk outside of any lock. Concurrent misses on the same node wait for
+ * a single load.
+ *
+ * The budget can be set with the {@value #CACHE_SIZE_PROPERTY} system
+ * property, in bytes.
+ */
+public final class HTNodeCache {
+
+    private static final Logger LOGGER = TraceCompassLog.getLogger(HTNodeCache.class);
+
+    /** System property used to configure the size of the cache, in bytes */
+    public static final String CACHE_SIZE_PROPERTY = "org.eclipse.tracecompass.statesystem.core.htNodeCacheSize"; //$NON-NLS-1$
+
+    private static final long MIN_DEFAULT_SIZE = 16L * 1024 * 1024;
+    private static final long MAX_DEFAULT_SIZE = 256L * 1024 * 1024;
+
+    private static final HTNodeCache INSTANCE = new HTNodeCache(getDefaultMaxBytes());
+
+    /**
+     * Function used by a segment to load a node that is not in the cache
+     */
+    @FunctionalInterface
+    public interface INodeLoader {
+        /**
+         * Load the node from disk
+         *
+         * @param seqNumber
+         *            The sequence number of the node to load
+         * @return The node
+         * @throws IOException
+         *             If the node could not be read
+         */
+        @NonNull HTNode load(int seqNumber) throws IOException;
+    }
+
+    private final List<Segment> fSegments = new CopyOnWriteArrayList<>();
+    private final AtomicLong fUsedBytes = new AtomicLong();
+    private final Object fEvictionLock = new Object();
+    private volatile long fMaxBytes;
+
+    /* Statistics of the segments that have been closed */
+    private final AtomicLong fClosedHits = new AtomicLong();
+    private final AtomicLong fClosedMisses = new AtomicLong();
+    private final AtomicLong fClosedEvictions = new AtomicLong();
+
+    /**
+     * Constructor. The history trees use the shared instance returned by
+     * {@link #getInstance()}, other instances are only meant for tests.
+     *
+     * @param maxBytes
+     *            The maximum number of bytes of nodes kept in the cache
+     */
+    @VisibleForTesting
+    public HTNodeCache(long maxBytes) {
+        fMaxBytes = maxBytes;
+    }
+
+    /**
+     * Get the cache shared by all the history trees
+     *
+     * @return The node cache
+     */
+    public static HTNodeCache getInstance() {
+        return INSTANCE;
+    }
+
+    private static long getDefaultMaxBytes() {
+        long size = Long.getLong(CACHE_SIZE_PROPERTY, -1L);
+        if (size > 0) {
+            return size;
+        }
+        return Math.max(MIN_DEFAULT_SIZE, Math.min(MAX_DEFAULT_SIZE, Runtime.getRuntime().maxMemory() / 16));
+    }
+
+    // ------------------------------------------------------------------------
+    // Configuration and statistics
+    // ------------------------------------------------------------------------
+
+    /**
+     * Get the memory budget of this cache
+     *
+     * @return The maximum number of bytes of nodes kept in the cache
+     */
+    public long getMaxBytes() {
+        return fMaxBytes;
+    }
+
+    /**
+     * Change the memory budget of this cache. If the new budget is smaller,
+     * nodes are evicted right away.
+     *
+     * @param maxBytes
+     *            The maximum number of bytes of nodes kept in the cache
+     */
+    public void setMaxBytes(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Negative cache size: " + maxBytes); //$NON-NLS-1$
+        }
+        fMaxBytes = maxBytes;
+        evictIfNeeded();
+    }
+
+    /**
+     * Get the number of bytes currently used by the cached nodes
+     *
+     * @return The number of bytes used
+     */
+    public long getUsedBytes() {
+        return fUsedBytes.get();
+    }
+
+    /**
+     * Get the statistics of the whole cache, for all the trees that were
+     * opened since startup. Only the hit, miss and eviction counts are
+     * filled.
+     *
+     * @return The cache statistics
+     */
+    public CacheStats getStats() {
+        long hits = fClosedHits.get();
+        long misses = fClosedMisses.get();
+        long evictions = fClosedEvictions.get();
+        for (Segment segment : fSegments) {
+            hits += segment.fHits.get();
+            misses += segment.fMisses.get();
+            evictions += segment.fEvictions.get();
+        }
+        return new CacheStats(hits, misses, misses, 0, 0, evictions);
+    }
+
+    // ------------------------------------------------------------------------
+    // Segments
+    // ------------------------------------------------------------------------
+
+    /**
+     * Create the segment of the cache for a new history tree. It must be
+     * closed with {@link Segment#close()} when the tree is closed.
+     *
+     * @param name
+     *            Name of the tree, used for logging
+     * @param nodeSize
+     *            The size in bytes of the nodes of the tree
+     * @param loader
+     *            The function to load the nodes from disk
+     * @return The new segment
+     */
+    public Segment createSegment(String name, int nodeSize, INodeLoader loader) {
+        Segment segment = new Segment(name, nodeSize, loader);
+        fSegments.add(segment);
+        return segment;
+    }
+
+    private void evictIfNeeded() {
+        if (fUsedBytes.get() <= fMaxBytes) {
+            return;
+        }
+        synchronized (fEvictionLock) {
+            while (fUsedBytes.get() > fMaxBytes) {
+                Segment victim = null;
+                long victimExcess = Long.MIN_VALUE;
+                long fairShare = fMaxBytes / Math.max(1, fSegments.size());
+                for (Segment segment : fSegments) {
+                    long excess = segment.fUsedBytes.get() - fairShare;
+                    if (segment.fUsedBytes.get() > 0 && excess > victimExcess) {
+                        victim = segment;
+                        victimExcess = excess;
+                    }
+                }
+                if (victim == null || !victim.evictEldest()) {
+                    /* Nothing left to evict */
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * The part of the cache holding the nodes of one history tree
+     */
+    public final class Segment {
+
+        private final String fName;
+        private final int fNodeSize;
+        private final INodeLoader fLoader;
+
+        /* Access-ordered, the eldest entry is the least recently used */
+        private final Map<Integer, @NonNull HTNode> fNodes = new LinkedHashMap<>(16, 0.75f, true);
+        private final ConcurrentMap<Integer, FutureTask<@NonNull HTNode>> fLoading = new ConcurrentHashMap<>();
+
+        private final AtomicLong fUsedBytes = new AtomicLong();
+        private final AtomicLong fHits = new AtomicLong();
+        private final AtomicLong fMisses = new AtomicLong();
+        private final AtomicLong fEvictions = new AtomicLong();
+
+        /* Only modified while holding the lock on fNodes */
+        private volatile boolean fClosed = false;
+
+        private Segment(String name, int nodeSize, INodeLoader loader) {
+            fName = name;
+            fNodeSize = nodeSize;
+            fLoader = loader;
+        }
+
+        /**
+         * Get a node from the cache, or load it from disk if it is not there.
+         *
+         * @param seqNumber
+         *            The sequence number of the node
+         * @return The node
+         * @throws IOException
+         *             If the node had to be read from disk and there was an
+         *             error doing so
+         */
+        public @NonNull HTNode get(int seqNumber) throws IOException {
+            synchronized (fNodes) {
+                HTNode node = fNodes.get(seqNumber);
+                if (node != null) {
+                    fHits.incrementAndGet();
+                    return node;
+                }
+            }
+            fMisses.incrementAndGet();
+            LOGGER.finest(() -> "[HtNodeCache:CacheMiss] tree=" + fName + ", seqNum=" + seqNumber); //$NON-NLS-1$ //$NON-NLS-2$
+
+            /* Only one thread loads a given node, the others wait for it */
+            FutureTask<@NonNull HTNode> task = new FutureTask<>(() -> fLoader.load(seqNumber));
+            FutureTask<@NonNull HTNode> loading = fLoading.putIfAbsent(seqNumber, task);
+            if (loading == null) {
+                loading = task;
+                task.run();
+            }
+            try {
+                HTNode node = loading.get();
+                if (loading == task) {
+                    put(node);
+                }
+                return node;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IllegalStateException(cause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } finally {
+                if (loading == task) {
+                    fLoading.remove(seqNumber, task);
+                }
+            }
+        }
+
+        /**
+         * Put a node in the cache, for example when it was just written to
+         * disk.
+         *
+         * @param node
+         *            The node to cache
+         */
+        public void put(@NonNull HTNode node) {
+            synchronized (fNodes) {
+                /* Checked under the lock, so close() cannot clear before */
+                if (fClosed) {
+                    return;
+                }
+                if (fNodes.put(node.getSequenceNumber(), node) == null) {
+                    fUsedBytes.addAndGet(fNodeSize);
+                    HTNodeCache.this.fUsedBytes.addAndGet(fNodeSize);
+                }
+            }
+            evictIfNeeded();
+        }
+
+        /**
+         * Get the number of bytes used by the nodes of this segment
+         *
+         * @return The number of bytes used
+         */
+        public long getUsedBytes() {
+            return fUsedBytes.get();
+        }
+
+        /**
+         * Remove all the nodes of this segment from the cache, and remove the
+         * segment from the cache. Should be called when the history tree is
+         * closed.
+         */
+        public void close() {
+            synchronized (fNodes) {
+                fClosed = true;
+                clear();
+            }
+            fSegments.remove(this);
+            fClosedHits.addAndGet(fHits.get());
+            fClosedMisses.addAndGet(fMisses.get());
+            fClosedEvictions.addAndGet(fEvictions.get());
+            LOGGER.fine(() -> "[HtNodeCache:SegmentClosed] tree=" + fName + ", hits=" + fHits.get() + ", misses=" + fMisses.get() + ", evictions=" + fEvictions.get()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+        }
+
+        private void clear() {
+            synchronized (fNodes) {
+                long size = (long) fNodes.size() * fNodeSize;
+                fNodes.clear();
+                fUsedBytes.addAndGet(-size);
+                HTNodeCache.this.fUsedBytes.addAndGet(-size);
+            }
+        }
+
+        private boolean evictEldest() {
+            synchronized (fNodes) {
+                Iterator<@Nullable HTNode> iter = fNodes.values().iterator();
+                if (!iter.hasNext()) {
+                    return false;
+                }
+                iter.next();
+                iter.remove();
+                fUsedBytes.addAndGet(-fNodeSize);
+                HTNodeCache.this.fUsedBytes.addAndGet(-fNodeSize);
+                fEvictions.incrementAndGet();
+                return true;
+            }
+        }
+    }
+}
@@ -12,28 +12,26 @@
 
 package org.eclipse.tracecompass.internal.statesystem.core.backend.historytree;
 
-import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
-
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.List;
 import java.util.logging.Logger;
 
 import org.eclipse.jdt.annotation.NonNull;
-import java.util.Objects;
-import java.util.concurrent.ExecutionException;
-
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.common.core.log.TraceCompassLog;
 import org.eclipse.tracecompass.internal.statesystem.core.Activator;
 import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.IHistoryTree.IHTNodeFactory;
 
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
 
 /**
  * This class abstracts inputs/outputs of the HistoryTree nodes.
@@ -50,62 +48,15 @@ public class HT_IO {
 
     private static final Logger LOGGER = TraceCompassLog.getLogger(HT_IO.class);
 
-    // ------------------------------------------------------------------------
-    // Global cache of nodes
-    // ------------------------------------------------------------------------
-
-    private static final class CacheKey {
-
-        public final HT_IO fStateHistory;
-        public final int fSeqNumber;
-
-        public CacheKey(HT_IO stateHistory,  int seqNumber) {
-            fStateHistory = stateHistory;
-            fSeqNumber = seqNumber;
-        }
-
-        @Override
-        public int hashCode() {
-            return Objects.hash(fStateHistory, fSeqNumber);
-        }
-
-        @Override
-        public boolean equals(@Nullable Object obj) {
-            if (this == obj) {
-                return true;
-            }
-            if (obj == null) {
-                return false;
-            }
-            if (getClass() != obj.getClass()) {
-                return false;
-            }
-            CacheKey other = (CacheKey) obj;
-            return (fStateHistory.equals(other.fStateHistory) &&
-                    fSeqNumber == other.fSeqNumber);
-        }
-    }
-
-    private static final int CACHE_SIZE = 256;
-
-    private static final LoadingCache<CacheKey, HTNode> NODE_CACHE =
-        checkNotNull(CacheBuilder.newBuilder()
-            .maximumSize(CACHE_SIZE)
-            .build(new CacheLoader<CacheKey, HTNode>() {
-                @Override
-                public HTNode load(CacheKey key) throws IOException {
-                    HT_IO io = key.fStateHistory;
-                    int seqNb = key.fSeqNumber;
-
-                    LOGGER.finest(() -> "[HtIo:CacheMiss] seqNum=" + seqNb); //$NON-NLS-1$
-
-                    synchronized (io) {
-                        io.seekFCToNodePos(io.fFileChannelIn, seqNb);
-                        return HTNode.readNode(io.fConfig, io.fFileChannelIn, key.fStateHistory.fNodeFactory);
-                    }
-                }
-            }));
+    /**
+     * System property to enable or disable the memory-mapped reads of
+     * completed history files. They are disabled by default on Windows, where
+     * a mapped file cannot be deleted until the mapping is garbage-collected.
+     */
+    public static final String MMAP_PROPERTY = "org.eclipse.tracecompass.statesystem.core.htMmap"; //$NON-NLS-1$
 
+    private static final boolean MMAP_ENABLED = Boolean.parseBoolean(System.getProperty(MMAP_PROPERTY,
+            String.valueOf(!System.getProperty("os.name", "").startsWith("Windows")))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 
     // ------------------------------------------------------------------------
     // Instance fields
@@ -122,6 +73,17 @@ public class HT_IO {
 
     private final IHTNodeFactory fNodeFactory;
 
+    /* This tree's part of the node cache shared by all trees */
+    private final HTNodeCache.Segment fNodeCache;
+
+    /*
+     * Read-only mappings of the nodes section of the file, once the tree is
+     * complete. A single mapping cannot exceed 2GB, so each one covers a
+     * whole number of nodes.
+     */
+    private final int fNodesPerMapping;
+    private volatile @Nullable List<MappedByteBuffer> fMappings = null;
+
     // ------------------------------------------------------------------------
     // Methods
     // ------------------------------------------------------------------------
@@ -170,6 +132,65 @@ public class HT_IO {
         fFileChannelIn = fFileInputStream.getChannel();
         fFileChannelOut = fFileOutputStream.getChannel();
         fNodeFactory = nodeFactory;
+        fNodeCache = HTNodeCache.getInstance().createSegment(historyTreeFile.getName(), config.getBlockSize(), this::loadNode);
+        fNodesPerMapping = Integer.MAX_VALUE / config.getBlockSize();
+    }
+
+    /**
+     * Map the nodes of the file in memory, so that they are decoded directly
+     * from the mapping afterwards. This must only be called once all the
+     * nodes are written, as the mapped nodes will not see later writes. If
+     * the mapping fails, or is disabled with the {@value #MMAP_PROPERTY}
+     * system property, the nodes keep being read from the file channel.
+     *
+     * @param nodeCount
+     *            The number of nodes in the file
+     */
+    public void mapNodes(int nodeCount) {
+        if (!MMAP_ENABLED || nodeCount <= 0) {
+            return;
+        }
+        long blockSize = fConfig.getBlockSize();
+        try {
+            if (fFileChannelIn.size() < getNodePosition(nodeCount)) {
+                /* Mapping past the end of the file is unspecified */
+                return;
+            }
+            ImmutableList.Builder<MappedByteBuffer> builder = ImmutableList.builder();
+            for (int first = 0; first < nodeCount; first += fNodesPerMapping) {
+                int nbNodes = Math.min(fNodesPerMapping, nodeCount - first);
+                builder.add(fFileChannelIn.map(MapMode.READ_ONLY, getNodePosition(first), nbNodes * blockSize));
+            }
+            fMappings = builder.build();
+            LOGGER.fine(() -> "[HtIo:MappedNodes] file=" + fConfig.getStateFile().getName() + ", nodeCount=" + nodeCount); //$NON-NLS-1$ //$NON-NLS-2$
+        } catch (IOException e) {
+            Activator.getDefault().logWarning("Cannot map history file, reading it through the file channel instead", e); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Read a node from disk, bypassing the cache. If the file is mapped, the
+     * node is decoded from a view of the mapping. Otherwise the read is done
+     * at an absolute position of the file. Either way, concurrent cache misses
+     * do not need to lock anything.
+     */
+    private @NonNull HTNode loadNode(int seqNumber) throws IOException {
+        List<MappedByteBuffer> mappings = fMappings;
+        if (mappings != null) {
+            int index = seqNumber / fNodesPerMapping;
+            if (index < mappings.size()) {
+                int blockSize = fConfig.getBlockSize();
+                int offset = (seqNumber % fNodesPerMapping) * blockSize;
+                ByteBuffer view = mappings.get(index).duplicate();
+                if (offset + blockSize <= view.limit()) {
+                    view.position(offset);
+                    view.limit(offset + blockSize);
+                    ByteBuffer buffer = view.slice().order(ByteOrder.LITTLE_ENDIAN);
+                    return HTNode.readNode(fConfig, buffer, fNodeFactory);
+                }
+            }
+        }
+        return HTNode.readNode(fConfig, fFileChannelIn, getNodePosition(seqNumber), fNodeFactory);
     }
 
     /**
@@ -186,16 +207,11 @@ public class HT_IO {
     public @NonNull HTNode readNode(int seqNumber) throws ClosedChannelException {
         /* Do a cache lookup. If it's not present it will be loaded from disk */
         LOGGER.finest(() -> "[HtIo:CacheLookup] seqNum=" + seqNumber); //$NON-NLS-1$
-        CacheKey key = new CacheKey(this, seqNumber);
         try {
-            return checkNotNull(NODE_CACHE.get(key));
-
-        } catch (ExecutionException e) {
-            /* Get the inner exception that was generated */
-            Throwable cause = e.getCause();
-            if (cause instanceof ClosedChannelException) {
-                throw (ClosedChannelException) cause;
-            }
+            return fNodeCache.get(seqNumber);
+        } catch (ClosedChannelException e) {
+            throw e;
+        } catch (IOException e) {
             /*
              * Other types of IOExceptions shouldn't happen at this point though.
              */
@@ -215,8 +231,7 @@ public class HT_IO {
             int seqNumber = node.getSequenceNumber();
 
             /* "Write-back" the node into the cache */
-            CacheKey key = new CacheKey(this, seqNumber);
-            NODE_CACHE.put(key, node);
+            fNodeCache.put(node);
 
             /* Position ourselves at the start of the node and write it */
             synchronized (this) {
@@ -263,6 +278,9 @@ public class HT_IO {
      * Close all file channels and streams.
      */
     public synchronized void closeFile() {
+        fNodeCache.close();
+        /* The mappings are released when they are garbage-collected */
+        fMappings = null;
         try {
             fFileInputStream.close();
             fFileOutputStream.close();
@@ -297,12 +315,16 @@ public class HT_IO {
      */
     private void seekFCToNodePos(FileChannel fc, int seqNumber)
             throws IOException {
+        fc.position(getNodePosition(seqNumber));
+    }
+
+    private long getNodePosition(int seqNumber) {
         /*
          * Cast to (long) is needed to make sure the result is a long too and
          * doesn't get truncated
          */
-        fc.position(IHistoryTree.TREE_HEADER_SIZE
-                + ((long) seqNumber) * fConfig.getBlockSize());
+        return IHistoryTree.TREE_HEADER_SIZE
+                + ((long) seqNumber) * fConfig.getBlockSize();
     }
 
 }
@@ -19,15 +19,24 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.logging.Logger;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.tracecompass.common.core.log.TraceCompassLog;
 import org.eclipse.tracecompass.internal.statesystem.core.Activator;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTConfig.NodeFormat;
 import org.eclipse.tracecompass.statesystem.core.backend.IStateHistoryBackend;
+import org.eclipse.tracecompass.statesystem.core.backend.TimeRangeCondition;
 import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
 import org.eclipse.tracecompass.statesystem.core.exceptions.TimeRangeException;
 import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
@@ -104,9 +113,44 @@ public class HistoryTreeBackend implements IStateHistoryBackend {
             long startTime,
             int blockSize,
             int maxChildren) throws IOException {
+        this(ssid, newStateFile, providerVersion, startTime, blockSize, maxChildren, NodeFormat.CLASSIC);
+    }
+
+    /**
+     * Constructor for new history files, with a specific format for the
+     * intervals of the nodes.
+     *
+     * @param ssid
+     *            The state system's ID
+     * @param newStateFile
+     *            The filename/location where to store the state history (Should
+     *            end in .ht)
+     * @param providerVersion
+     *            Version of of the state provider. We will only try to reopen
+     *            existing files if this version matches the one in the
+     *            framework.
+     * @param startTime
+     *            The earliest time stamp that will be stored in the history
+     * @param blockSize
+     *            The size of the blocks in the history file. This should be a
+     *            multiple of 4096.
+     * @param maxChildren
+     *            The maximum number of children each core node can have
+     * @param nodeFormat
+     *            The format of the intervals in the nodes
+     * @throws IOException
+     *             Thrown if we can't create the file for some reason
+     */
+    public HistoryTreeBackend(@NonNull String ssid,
+            File newStateFile,
+            int providerVersion,
+            long startTime,
+            int blockSize,
+            int maxChildren,
+            @NonNull NodeFormat nodeFormat) throws IOException {
         fSsid = ssid;
         final HTConfig conf = new HTConfig(newStateFile, blockSize, maxChildren,
-                providerVersion, startTime);
+                providerVersion, startTime, nodeFormat);
         fSht = initializeSHT(conf);
     }
 
@@ -132,7 +176,33 @@ public class HistoryTreeBackend implements IStateHistoryBackend {
      */
     public HistoryTreeBackend(@NonNull String ssid, File newStateFile, int providerVersion, long startTime)
             throws IOException {
-        this(ssid, newStateFile, providerVersion, startTime, 64 * 1024, 50);
+        this(ssid, newStateFile, providerVersion, startTime, NodeFormat.CLASSIC);
+    }
+
+    /**
+     * Constructor for new history files, with a specific format for the
+     * intervals of the nodes and default values for the other configuration
+     * parameters.
+     *
+     * @param ssid
+     *            The state system's id
+     * @param newStateFile
+     *            The filename/location where to store the state history (Should
+     *            end in .ht)
+     * @param providerVersion
+     *            Version of of the state provider. We will only try to reopen
+     *            existing files if this version matches the one in the
+     *            framework.
+     * @param startTime
+     *            The earliest time stamp that will be stored in the history
+     * @param nodeFormat
+     *            The format of the intervals in the nodes
+     * @throws IOException
+     *             Thrown if we can't create the file for some reason
+     */
+    public HistoryTreeBackend(@NonNull String ssid, File newStateFile, int providerVersion, long startTime,
+            @NonNull NodeFormat nodeFormat) throws IOException {
+        this(ssid, newStateFile, providerVersion, startTime, 64 * 1024, 50, nodeFormat);
     }
 
     /**
@@ -309,6 +379,60 @@ public class HistoryTreeBackend implements IStateHistoryBackend {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The history tree is walked breadth-first only once: each node
+     * intersecting the time condition is read a single time, and all the
+     * intervals it holds for the requested attributes are returned. Nodes are
+     * read lazily, as the returned iterable is consumed. If the history file is
+     * closed during the iteration, an {@link IllegalStateException} wrapping a
+     * {@link StateSystemDisposedException} is thrown.
+     */
+    @Override
+    public Iterable<@NonNull ITmfStateInterval> query2D(Collection<@NonNull Integer> quarks, TimeRangeCondition times)
+            throws TimeRangeException, StateSystemDisposedException {
+        checkValidTime(times.getStart());
+        checkValidTime(times.getEnd());
+        if (quarks.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final Set<Integer> quarkSet = (quarks instanceof Set) ? (Set<Integer>) quarks : new HashSet<>(quarks);
+        final int rootSeq = getSHT().getRootNode().getSequenceNumber();
+        return () -> new Iterator<@NonNull ITmfStateInterval>() {
+
+            /* Queue of the sequence numbers of the nodes left to read */
+            private final Deque<Integer> fQueue = new ArrayDeque<>(Collections.singleton(rootSeq));
+            private Iterator<@NonNull HTInterval> fCurrent = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!fCurrent.hasNext() && !fQueue.isEmpty()) {
+                    HTNode currentNode;
+                    try {
+                        currentNode = getSHT().readNode(fQueue.pop());
+                    } catch (ClosedChannelException e) {
+                        throw new IllegalStateException(new StateSystemDisposedException(e));
+                    }
+                    if (currentNode.getNodeType() == HTNode.NodeType.CORE) {
+                        fQueue.addAll(((ParentNode) currentNode).selectNextChildren(times));
+                    }
+                    fCurrent = currentNode.getMatchingIntervals(quarkSet, times).iterator();
+                }
+                return fCurrent.hasNext();
+            }
+
+            @Override
+            public ITmfStateInterval next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return fCurrent.next();
+            }
+        };
+    }
+
     private void checkValidTime(long t) {
         long startTime = getStartTime();
         long endTime = getEndTime();
@@ -11,6 +11,7 @@ package org.eclipse.tracecompass.internal.statesystem.core.backend.historytree;
 
 import java.util.Collection;
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.statesystem.core.backend.TimeRangeCondition;
 import org.eclipse.tracecompass.statesystem.core.exceptions.TimeRangeException;
 
 /**
@@ -93,4 +94,17 @@ public abstract class ParentNode extends HTNode {
      */
     public abstract @NonNull Collection<@NonNull Integer> selectNextChildren(long t);
 
+    /**
+     * Select the sequence numbers of all the children of the current node that
+     * contain at least one of the timestamps of the time condition. This is
+     * the range equivalent of {@link #selectNextChildren(long)}, used by the
+     * bulk queries.
+     *
+     * @param times
+     *            The time condition the children must intersect
+     * @return Collection of sequence numbers of the child nodes that intersect
+     *         the condition, possibly empty
+     */
+    public abstract @NonNull Collection<@NonNull Integer> selectNextChildren(TimeRangeCondition times);
+
 }
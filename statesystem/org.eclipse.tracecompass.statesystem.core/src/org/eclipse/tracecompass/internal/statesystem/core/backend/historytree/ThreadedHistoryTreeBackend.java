@@ -16,17 +16,24 @@ package org.eclipse.tracecompass.internal.statesystem.core.backend.historytree;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.tracecompass.common.core.collect.BufferedBlockingQueue;
 import org.eclipse.tracecompass.internal.statesystem.core.Activator;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTConfig.NodeFormat;
+import org.eclipse.tracecompass.statesystem.core.backend.TimeRangeCondition;
 import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
 import org.eclipse.tracecompass.statesystem.core.exceptions.TimeRangeException;
 import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
 import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
 import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
 
+import com.google.common.collect.Iterables;
+
 /**
  * Variant of the HistoryTreeBackend which runs all the interval-insertion logic
  * in a separate thread.
@@ -123,6 +130,45 @@ public final class ThreadedHistoryTreeBackend extends HistoryTreeBackend
         shtThread.start();
     }
 
+    /**
+     * New State History constructor, with a specific format for the intervals
+     * of the nodes. This version provides default values for blockSize and
+     * maxChildren.
+     *
+     * @param ssid
+     *            The state system's id
+     * @param newStateFile
+     *            The name of the history file that will be created. Should end
+     *            in ".ht"
+     * @param providerVersion
+     *            Version of of the state provider. We will only try to reopen
+     *            existing files if this version matches the one in the
+     *            framework.
+     * @param startTime
+     *            The earliest timestamp stored in the history
+     * @param queueSize
+     *            The size of the interval insertion queue. 2000 - 10000 usually
+     *            works well
+     * @param nodeFormat
+     *            The format of the intervals in the nodes
+     * @throws IOException
+     *             If there was a problem opening the history file for writing
+     */
+    public ThreadedHistoryTreeBackend(@NonNull String ssid,
+            File newStateFile,
+            int providerVersion,
+            long startTime,
+            int queueSize,
+            @NonNull NodeFormat nodeFormat)
+                    throws IOException {
+        super(ssid, newStateFile, providerVersion, startTime, nodeFormat);
+        fEndTime = startTime;
+
+        intervalQueue = new BufferedBlockingQueue<>(queueSize / CHUNK_SIZE, CHUNK_SIZE);
+        shtThread = new Thread(this, "History Tree Thread"); //$NON-NLS-1$
+        shtThread.start();
+    }
+
     /*
      * The Threaded version does not specify an "existing file" constructor,
      * since the history is already built (and we only use the other thread
@@ -288,4 +334,30 @@ public final class ThreadedHistoryTreeBackend extends HistoryTreeBackend
         return super.doSingularQuery(t, attributeQuark);
     }
 
+    @Override
+    public Iterable<@NonNull ITmfStateInterval> query2D(Collection<@NonNull Integer> quarks, TimeRangeCondition times)
+            throws TimeRangeException, StateSystemDisposedException {
+        if (isFinishedBuilding()) {
+            return super.query2D(quarks, times);
+        }
+
+        /*
+         * While building, some of the intervals may still be in the queue.
+         * Same strategy as the singular query: look in the tree, then in the
+         * queue, then in the tree again for the intervals that were inserted
+         * while we were iterating on the queue. The set removes the
+         * duplicates.
+         */
+        Set<@NonNull ITmfStateInterval> intervals = new LinkedHashSet<>();
+        Iterables.addAll(intervals, super.query2D(quarks, times));
+        for (HTInterval interval : intervalQueue) {
+            if (interval.getStartTime() != -1 && quarks.contains(interval.getAttribute())
+                    && times.intersects(interval.getStartTime(), interval.getEndTime())) {
+                intervals.add(interval);
+            }
+        }
+        Iterables.addAll(intervals, super.query2D(quarks, times));
+        return intervals;
+    }
+
 }
@@ -14,14 +14,17 @@
 package org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.classic;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTConfig;
 import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTNode;
 import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.ParentNode;
+import org.eclipse.tracecompass.statesystem.core.backend.TimeRangeCondition;
 import org.eclipse.tracecompass.statesystem.core.exceptions.TimeRangeException;
 
 /**
@@ -224,6 +227,33 @@ public final class CoreNode extends ParentNode {
         }
     }
 
+    @Override
+    public Collection<Integer> selectNextChildren(TimeRangeCondition times) {
+        rwl.readLock().lock();
+        try {
+            List<Integer> next = new ArrayList<>();
+            for (int i = 0; i < nbChildren; i++) {
+                /*
+                 * Sibling nodes are contiguous: a child ends right before the
+                 * next one starts. The latest child ends with its parent, or
+                 * is still open if the parent is not on disk yet.
+                 */
+                long childEnd;
+                if (i < nbChildren - 1) {
+                    childEnd = childStart[i + 1] - 1;
+                } else {
+                    childEnd = isOnDisk() ? getNodeEnd() : Long.MAX_VALUE;
+                }
+                if (times.intersects(childStart[i], childEnd)) {
+                    next.add(children[i]);
+                }
+            }
+            return next;
+        } finally {
+            rwl.readLock().unlock();
+        }
+    }
+
     @Override
     public NodeType getNodeType() {
         return NodeType.CORE;
@@ -27,6 +27,7 @@ import java.util.List;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTConfig;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTConfig.NodeFormat;
 import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTInterval;
 import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTNode;
 import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HT_IO;
@@ -53,7 +54,13 @@ public class HistoryTreeClassic implements IHistoryTree {
     public static final int HISTORY_FILE_MAGIC_NUMBER = 0x05FFA900;
 
     /** File format version. Increment when breaking compatibility. */
-    private static final int FILE_VERSION = 7;
+    private static final int FILE_VERSION = 8;
+
+    /**
+     * Last file format version without the node format in the header. Its
+     * nodes are all in the {@link NodeFormat#CLASSIC} format.
+     */
+    private static final int CLASSIC_FILE_VERSION = 7;
 
     private static final IHTNodeFactory CLASSIC_NODE_FACTORY = new IHTNodeFactory() {
 
@@ -147,6 +154,7 @@ public class HistoryTreeClassic implements IHistoryTree {
         int rootNodeSeqNb, res;
         int bs, maxc;
         long startTime;
+        NodeFormat nodeFormat;
 
         /* Java I/O mumbo jumbo... */
         if (!existingStateFile.exists()) {
@@ -179,8 +187,8 @@ public class HistoryTreeClassic implements IHistoryTree {
                 throw new IOException("Wrong magic number"); //$NON-NLS-1$
             }
 
-            res = buffer.getInt(); /* File format version number */
-            if (res != FILE_VERSION) {
+            int fileVersion = buffer.getInt(); /* File format version number */
+            if (fileVersion != FILE_VERSION && fileVersion != CLASSIC_FILE_VERSION) {
                 throw new IOException("Mismatching History Tree file format versions"); //$NON-NLS-1$
             }
 
@@ -203,8 +211,9 @@ public class HistoryTreeClassic implements IHistoryTree {
             fNodeCount = buffer.getInt();
             rootNodeSeqNb = buffer.getInt();
             startTime = buffer.getLong();
+            nodeFormat = (fileVersion == CLASSIC_FILE_VERSION) ? NodeFormat.CLASSIC : NodeFormat.fromInt(buffer.getInt());
 
-            fConfig = new HTConfig(existingStateFile, bs, maxc, expProviderVersion, startTime);
+            fConfig = new HTConfig(existingStateFile, bs, maxc, expProviderVersion, startTime, nodeFormat);
         }
 
         /*
@@ -213,6 +222,8 @@ public class HistoryTreeClassic implements IHistoryTree {
          * the SHT otherwise?
          */
         fTreeIO = new HT_IO(fConfig, false, CLASSIC_NODE_FACTORY);
+        /* The file is complete, it can be read from a mapping */
+        fTreeIO.mapNodes(fNodeCount);
 
         fLatestBranch = buildLatestBranch(rootNodeSeqNb);
         fTreeEnd = getRootNode().getNodeEnd();
@@ -295,11 +306,17 @@ public class HistoryTreeClassic implements IHistoryTree {
                 /* start time of this history */
                 buffer.putLong(fLatestBranch.get(0).getNodeStart());
 
+                /* format of the intervals in the nodes */
+                buffer.putInt(fConfig.getNodeFormat().toInt());
+
                 buffer.flip();
                 int res = fc.write(buffer);
                 assert (res <= TREE_HEADER_SIZE);
                 /* done writing the file header */
 
+                /* No more nodes will be written, the nodes can be mapped */
+                fTreeIO.mapNodes(fNodeCount);
+
             } catch (IOException e) {
                 /*
                  * If we were able to write so far, there should not be any
@@ -450,7 +467,7 @@ public class HistoryTreeClassic implements IHistoryTree {
         HTNode targetNode = fLatestBranch.get(indexOfNode);
 
         /* Verify if there is enough room in this node to store this interval */
-        if (interval.getSizeOnDisk() > targetNode.getNodeFreeSpace()) {
+        if (!targetNode.canAddInterval(interval)) {
             /* Nope, not enough room. Insert in a new sibling instead. */
             addSiblingNode(indexOfNode);
             tryInsertAtNode(interval, fLatestBranch.size() - 1);
@@ -12,6 +12,7 @@
 
 package org.eclipse.tracecompass.statesystem.core;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.eclipse.jdt.annotation.NonNull;
@@ -433,4 +434,67 @@ public interface ITmfStateSystem {
      */
     @NonNull ITmfStateInterval querySingleState(long t, int attributeQuark)
             throws StateSystemDisposedException;
+
+    /**
+     * Bulk query method, to get all the intervals of many attributes over a
+     * time range. Instead of running one singular or full query per timestamp,
+     * the history is read only once and the intervals of all the requested
+     * attributes are returned together. This is typically what views that
+     * draw many rows over a time range (time graphs, XY charts) want to use.
+     * <p>
+     * If a resolution is specified, only the intervals that contain at least
+     * one of the sampled timestamps (start, start + resolution, ... and end)
+     * are returned, which allows skipping most of the history when zoomed
+     * out.
+     * <p>
+     * The requested range is clamped to the current range of the state
+     * system. The intervals are returned in no particular order, and the
+     * returned iterable may read the history lazily as it is consumed.
+     *
+     * @param quarks
+     *            The quarks of the attributes to query
+     * @param start
+     *            The start of the time range, inclusive
+     * @param end
+     *            The end of the time range, inclusive
+     * @param resolution
+     *            The distance between the sampled timestamps. Use 1 (or less)
+     *            to get all the intervals intersecting the range.
+     * @return The intervals of the requested attributes intersecting the
+     *         sampled range
+     * @throws TimeRangeException
+     *             If start is greater than end
+     * @throws IndexOutOfBoundsException
+     *             If one of the quarks is out of range
+     * @throws StateSystemDisposedException
+     *             If the query is sent after the state system has been disposed
+     * @since 2.2
+     */
+    @NonNull Iterable<@NonNull ITmfStateInterval> query2D(@NonNull Collection<@NonNull Integer> quarks,
+            long start, long end, long resolution) throws StateSystemDisposedException;
+
+    /**
+     * Bulk query method returning all the intervals of the requested
+     * attributes that intersect the time range. Equivalent to
+     * {@link #query2D(Collection, long, long, long)} with a resolution of 1.
+     *
+     * @param quarks
+     *            The quarks of the attributes to query
+     * @param start
+     *            The start of the time range, inclusive
+     * @param end
+     *            The end of the time range, inclusive
+     * @return The intervals of the requested attributes intersecting the range
+     * @throws TimeRangeException
+     *             If start is greater than end
+     * @throws IndexOutOfBoundsException
+     *             If one of the quarks is out of range
+     * @throws StateSystemDisposedException
+     *             If the query is sent after the state system has been disposed
+     * @since 2.2
+     */
+    default @NonNull Iterable<@NonNull ITmfStateInterval> query2D(@NonNull Collection<@NonNull Integer> quarks,
+            long start, long end) throws StateSystemDisposedException {
+        return query2D(quarks, start, end, 1);
+    }
 }
\ No newline at end of file
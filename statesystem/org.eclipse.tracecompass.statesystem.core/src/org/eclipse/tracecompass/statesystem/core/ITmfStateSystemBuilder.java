@@ -16,6 +16,7 @@ import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.tracecompass.statesystem.core.exceptions.StateValueTypeException;
 import org.eclipse.tracecompass.statesystem.core.exceptions.TimeRangeException;
 import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
+import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
 
 /**
  * This is the external interface to build or modify an existing state history.
@@ -130,6 +131,81 @@ public interface ITmfStateSystemBuilder extends ITmfStateSystem {
     void modifyAttribute(long t, @NonNull ITmfStateValue value, int attributeQuark)
             throws StateValueTypeException;
 
+    /**
+     * Modify an attribute with a integer value. Unlike
+     * {@link #modifyAttribute(long, ITmfStateValue, int)}, an implementation
+     * can record the change without creating a state value object.
+     *
+     * @param t
+     *            Timestamp of the state change
+     * @param value
+     *            The integer value we want to assign to the attribute
+     * @param attributeQuark
+     *            Integer value of the quark corresponding to the attribute we
+     *            want to modify
+     * @throws TimeRangeException
+     *             If the requested time is outside of the trace's range
+     * @throws IndexOutOfBoundsException
+     *             If the attribute quark is out of range
+     * @throws StateValueTypeException
+     *             If the attribute is not of the integer type
+     * @since 2.2
+     */
+    default void modifyAttribute(long t, int value, int attributeQuark)
+            throws StateValueTypeException {
+        modifyAttribute(t, TmfStateValue.newValueInt(value), attributeQuark);
+    }
+
+    /**
+     * Modify an attribute with a long value. Unlike
+     * {@link #modifyAttribute(long, ITmfStateValue, int)}, an implementation
+     * can record the change without creating a state value object.
+     *
+     * @param t
+     *            Timestamp of the state change
+     * @param value
+     *            The long value we want to assign to the attribute
+     * @param attributeQuark
+     *            Integer value of the quark corresponding to the attribute we
+     *            want to modify
+     * @throws TimeRangeException
+     *             If the requested time is outside of the trace's range
+     * @throws IndexOutOfBoundsException
+     *             If the attribute quark is out of range
+     * @throws StateValueTypeException
+     *             If the attribute is not of the long type
+     * @since 2.2
+     */
+    default void modifyAttribute(long t, long value, int attributeQuark)
+            throws StateValueTypeException {
+        modifyAttribute(t, TmfStateValue.newValueLong(value), attributeQuark);
+    }
+
+    /**
+     * Modify an attribute with a double value. Unlike
+     * {@link #modifyAttribute(long, ITmfStateValue, int)}, an implementation
+     * can record the change without creating a state value object.
+     *
+     * @param t
+     *            Timestamp of the state change
+     * @param value
+     *            The double value we want to assign to the attribute
+     * @param attributeQuark
+     *            Integer value of the quark corresponding to the attribute we
+     *            want to modify
+     * @throws TimeRangeException
+     *             If the requested time is outside of the trace's range
+     * @throws IndexOutOfBoundsException
+     *             If the attribute quark is out of range
+     * @throws StateValueTypeException
+     *             If the attribute is not of the double type
+     * @since 2.2
+     */
+    default void modifyAttribute(long t, double value, int attributeQuark)
+            throws StateValueTypeException {
+        modifyAttribute(t, TmfStateValue.newValueDouble(value), attributeQuark);
+    }
+
     /**
      * Increment attribute method. Reads the current value of a given integer
      * attribute (this value is right now in the Transient State), and increment
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.statesystem.core.backend;
+
+/**
+ * Format of the intervals in the nodes of a new History Tree file, see
+ * {@link StateHistoryBackendFactory}. The format of an existing file is read
+ * from the file itself.
+ *
+ * @since 2.2
+ */
+public enum HistoryTreeNodeFormat {
+    /**
+     * Each interval is written with its full start and end times, attribute,
+     * type and value, one after the other. This is the default format.
+     */
+    CLASSIC,
+    /**
+     * The intervals are written in columns, with variable-length integers.
+     * The files are smaller, for about the same build time.
+     */
+    COLUMNAR,
+    /**
+     * The columns of the {@link #COLUMNAR} format are compressed. The files
+     * are the smallest, but they take longer to build and to query.
+     */
+    COLUMNAR_COMPRESSED
+}
@@ -14,6 +14,8 @@ package org.eclipse.tracecompass.statesystem.core.backend;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import org.eclipse.jdt.annotation.NonNull;
@@ -181,4 +183,46 @@ public interface IStateHistoryBackend {
     ITmfStateInterval doSingularQuery(long t, int attributeQuark)
             throws TimeRangeException, StateSystemDisposedException;
 
+    /**
+     * Bulk query method, returning all the intervals of the given attributes
+     * that intersect the time condition. Back-ends should override this to
+     * return all the intervals in a single pass over their storage. The
+     * default implementation simply runs singular queries at the sampled
+     * timestamps, jumping over the samples covered by each returned interval.
+     * <p>
+     * The intervals are not returned in any particular order.
+     *
+     * @param quarks
+     *            The quarks of the attributes to query
+     * @param times
+     *            The time range (and sampling resolution) of the query
+     * @return The intervals that match the quarks and intersect the sampled
+     *         timestamps
+     * @throws TimeRangeException
+     *             If the time range is outside of the history
+     * @throws StateSystemDisposedException
+     *             If the state system is disposed while a request is ongoing.
+     * @since 2.2
+     */
+    default @NonNull Iterable<@NonNull ITmfStateInterval> query2D(@NonNull Collection<@NonNull Integer> quarks,
+            @NonNull TimeRangeCondition times) throws TimeRangeException, StateSystemDisposedException {
+        List<@NonNull ITmfStateInterval> intervals = new ArrayList<>();
+        for (Integer quark : quarks) {
+            long t = times.getStart();
+            while (true) {
+                ITmfStateInterval interval = doSingularQuery(t, quark);
+                long coveredUntil = t;
+                if (interval != null) {
+                    intervals.add(interval);
+                    coveredUntil = Math.max(t, interval.getEndTime());
+                }
+                if (coveredUntil >= times.getEnd()) {
+                    break;
+                }
+                t = times.getNextSample(coveredUntil);
+            }
+        }
+        return intervals;
+    }
+
 }
@@ -18,6 +18,7 @@ import java.io.IOException;
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.tracecompass.internal.statesystem.core.backend.InMemoryBackend;
 import org.eclipse.tracecompass.internal.statesystem.core.backend.NullBackend;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTConfig.NodeFormat;
 import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HistoryTreeBackend;
 import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.ThreadedHistoryTreeBackend;
 
@@ -94,6 +95,59 @@ public final class StateHistoryBackendFactory {
         return new HistoryTreeBackend(ssid, stateFile, providerVersion, startTime);
     }
 
+    /**
+     * Create a new backend using a History Tree, with a specific format for
+     * the intervals in its nodes. This backend stores all its intervals on
+     * disk.
+     *
+     * By specifying a 'queueSize' parameter, the implementation that runs in a
+     * separate thread can be used.
+     *
+     * @param ssid
+     *            The state system's id
+     * @param stateFile
+     *            The filename/location where to store the state history (Should
+     *            end in .ht)
+     * @param providerVersion
+     *            Version of of the state provider. We will only try to reopen
+     *            existing files if this version matches the one in the
+     *            framework.
+     * @param startTime
+     *            The earliest time stamp that will be stored in the history
+     * @param queueSize
+     *            The size of the interval insertion queue between the receiver
+     *            and writer threads. 2000 - 10000 usually works well. If 0 is
+     *            specified, no queue is used and the writes happen in the same
+     *            thread.
+     * @param nodeFormat
+     *            The format of the intervals in the nodes of the file
+     * @return The state system backend
+     * @throws IOException
+     *             Thrown if we can't create the file for some reason
+     * @since 2.2
+     */
+    public static IStateHistoryBackend createHistoryTreeBackendNewFile(String ssid,
+            File stateFile, int providerVersion, long startTime, int queueSize,
+            HistoryTreeNodeFormat nodeFormat) throws IOException {
+        NodeFormat format = getNodeFormat(nodeFormat);
+        if (queueSize > 0) {
+            return new ThreadedHistoryTreeBackend(ssid, stateFile, providerVersion, startTime, queueSize, format);
+        }
+        return new HistoryTreeBackend(ssid, stateFile, providerVersion, startTime, format);
+    }
+
+    private static NodeFormat getNodeFormat(HistoryTreeNodeFormat nodeFormat) {
+        switch (nodeFormat) {
+        case COLUMNAR:
+            return NodeFormat.COLUMNAR;
+        case COLUMNAR_COMPRESSED:
+            return NodeFormat.COLUMNAR_COMPRESSED;
+        case CLASSIC:
+        default:
+            return NodeFormat.CLASSIC;
+        }
+    }
+
     /**
      * Create a new History Tree backend, but attempt to open an existing file
      * on disk. If the file cannot be found or recognized, an IOException will
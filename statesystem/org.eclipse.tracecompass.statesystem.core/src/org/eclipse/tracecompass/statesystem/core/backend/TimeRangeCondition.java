@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.statesystem.core.backend;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Time condition used by the bulk ("2D") queries on state history back-ends. It
+ * represents a time range [start, end], optionally sampled with a given
+ * resolution. When sampled, only the timestamps start, start + resolution,
+ * start + 2 * resolution, ... and end are considered relevant, so a back-end
+ * can skip the intervals and nodes that fall between two samples.
+ *
+ * @since 2.2
+ */
+public final class TimeRangeCondition implements Iterable<Long> {
+
+    private final long fStart;
+    private final long fEnd;
+    private final long fResolution;
+
+    /**
+     * Constructor
+     *
+     * @param start
+     *            The start of the time range, inclusive
+     * @param end
+     *            The end of the time range, inclusive
+     * @param resolution
+     *            The distance between two sampled timestamps. A value of 1 or
+     *            less means every timestamp of the range is relevant.
+     * @throws IllegalArgumentException
+     *             If end is smaller than start
+     */
+    public TimeRangeCondition(long start, long end, long resolution) {
+        if (end < start) {
+            throw new IllegalArgumentException("End time " + end + " is before start time " + start); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        fStart = start;
+        fEnd = end;
+        fResolution = Math.max(1, resolution);
+    }
+
+    /**
+     * Get the start of the range
+     *
+     * @return The start time
+     */
+    public long getStart() {
+        return fStart;
+    }
+
+    /**
+     * Get the end of the range
+     *
+     * @return The end time
+     */
+    public long getEnd() {
+        return fEnd;
+    }
+
+    /**
+     * Get the sampling resolution of this condition
+     *
+     * @return The resolution, 1 if every timestamp is relevant
+     */
+    public long getResolution() {
+        return fResolution;
+    }
+
+    /**
+     * Check if the range [low, high] contains at least one of the relevant
+     * timestamps of this condition.
+     *
+     * @param low
+     *            The lower bound of the range to check, inclusive
+     * @param high
+     *            The upper bound of the range to check, inclusive
+     * @return True if the range contains a relevant timestamp
+     */
+    public boolean intersects(long low, long high) {
+        if (high < fStart || low > fEnd || high < low) {
+            return false;
+        }
+        if (fResolution == 1 || low <= fStart || high >= fEnd) {
+            return true;
+        }
+        /* Find the first sample that is at or after 'low' */
+        long next = fStart + ((low - fStart - 1) / fResolution + 1) * fResolution;
+        return next <= high;
+    }
+
+    /**
+     * Get the first relevant timestamp of this condition after a given time.
+     * This lets a query skip all the samples covered by an interval at once.
+     *
+     * @param t
+     *            The time after which to look for a relevant timestamp
+     * @return The smallest relevant timestamp strictly greater than t
+     * @throws NoSuchElementException
+     *             If t is at or after the end of the range
+     */
+    public long getNextSample(long t) {
+        if (t >= fEnd) {
+            throw new NoSuchElementException("No sample after " + t + " in " + this); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        if (t < fStart) {
+            return fStart;
+        }
+        long next = ((t - fStart) / fResolution + 1) * fResolution;
+        return (next >= fEnd - fStart) ? fEnd : fStart + next;
+    }
+
+    /**
+     * Iterate over the relevant timestamps of this condition, in increasing
+     * order. The end of the range is always the last timestamp returned.
+     */
+    @Override
+    public Iterator<Long> iterator() {
+        return new Iterator<Long>() {
+            private long fNext = fStart;
+            private boolean fDone = false;
+
+            @Override
+            public boolean hasNext() {
+                return !fDone;
+            }
+
+            @Override
+            public Long next() {
+                if (fDone) {
+                    throw new NoSuchElementException();
+                }
+                long ret = fNext;
+                if (ret >= fEnd || fEnd - ret <= fResolution) {
+                    fNext = fEnd;
+                    fDone = (ret == fEnd);
+                } else {
+                    fNext = ret + fResolution;
+                }
+                return ret;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "[" + fStart + ", " + fEnd + "] step " + fResolution; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    }
+}
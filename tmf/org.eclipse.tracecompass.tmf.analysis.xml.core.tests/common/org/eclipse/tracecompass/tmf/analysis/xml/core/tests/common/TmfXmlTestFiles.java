@@ -44,12 +44,16 @@ public enum TmfXmlTestFiles {
     CONDITION_FILE("test_xml_files/test_valid/test_conditions.xml"),
     /** A valid file for doubles tests */
     DOUBLES_FILE("test_xml_files/test_valid/test_doubles.xml"),
+    /** A valid file for event handler tests */
+    EVENT_HANDLERS_FILE("test_xml_files/test_valid/test_event_handlers.xml"),
     /** A valid file for pattern tests */
     VALID_PATTERN_FILE("test_xml_files/test_valid/test_valid_pattern.xml"),
     /** A valid pattern file to test the pattern segment **/
     VALID_PATTERN_SEGMENT("test_xml_files/test_valid/test_pattern_segment.xml"),
     /** A valid file for consuming fsm test */
     CONSUMING_FSM_TEST("test_xml_files/test_valid/test_consuming_fsm.xml"),
+    /** A valid file for the dispatch of the events to the fsm scenarios */
+    FSM_SCENARIOS_TEST("test_xml_files/test_valid/test_fsm_scenarios.xml"),
     /** A valid pattern file to test the initialState element */
     INITIAL_STATE_ELEMENT_TEST_FILE_1("test_xml_files/test_valid/test_initialState_element1.xml"),
     /** A valid pattern file to test the initialState element */
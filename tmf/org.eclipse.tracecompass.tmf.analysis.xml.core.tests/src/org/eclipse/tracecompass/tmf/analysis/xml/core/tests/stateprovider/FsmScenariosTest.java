@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.analysis.xml.core.tests.stateprovider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.internal.tmf.analysis.xml.core.pattern.stateprovider.XmlPatternAnalysis;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
+import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
+import org.eclipse.tracecompass.tmf.analysis.xml.core.tests.common.TmfXmlTestFiles;
+import org.eclipse.tracecompass.tmf.analysis.xml.core.tests.module.XmlUtilsTest;
+import org.eclipse.tracecompass.tmf.core.exceptions.TmfAnalysisException;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the dispatch of the events to the active scenarios of an fsm, which are
+ * grouped by their current state. The scenarios must handle the events in the
+ * order they were activated, whatever their state, and only once per event.
+ */
+public class FsmScenariosTest {
+
+    private static final @NonNull String TEST_TRACE = "test_traces/testTrace6.xml";
+
+    private ITmfTrace fTrace;
+    private XmlPatternAnalysis fModule;
+
+    /**
+     * Initializes the trace and the module for the tests
+     *
+     * @throws TmfAnalysisException
+     *             Any exception thrown during module initialization
+     */
+    @Before
+    public void setUp() throws TmfAnalysisException {
+        ITmfTrace trace = XmlUtilsTest.initializeTrace(TEST_TRACE);
+        @NonNull XmlPatternAnalysis module = XmlUtilsTest.initializePatternModule(TmfXmlTestFiles.FSM_SCENARIOS_TEST);
+
+        module.setTrace(trace);
+
+        module.schedule();
+        module.waitForCompletion();
+
+        fTrace = trace;
+        fModule = module;
+    }
+
+    /**
+     * Dispose the module and the trace
+     */
+    @After
+    public void cleanUp() {
+        fTrace.dispose();
+        fModule.dispose();
+    }
+
+    private ITmfStateSystem getStateSystem() {
+        XmlPatternAnalysis module = fModule;
+        assertNotNull(module);
+        ITmfStateSystem ss = module.getStateSystem(module.getId());
+        assertNotNull(ss);
+        return ss;
+    }
+
+    private static void assertValue(ITmfStateSystem ss, String attribute, long time, ITmfStateValue expected) throws AttributeNotFoundException, StateSystemDisposedException {
+        int quark = ss.getQuarkAbsolute(attribute);
+        assertEquals(attribute + " at " + time, expected, ss.querySingleState(time, quark).getStateValue());
+    }
+
+    /**
+     * Test that when scenarios in different states can take the same event,
+     * the scenario activated first consumes it, whichever its state
+     *
+     * @throws StateSystemDisposedException
+     *             Exceptions thrown during state system verification
+     * @throws AttributeNotFoundException
+     *             Exceptions thrown during state system verification
+     */
+    @Test
+    public void testActivationOrder() throws AttributeNotFoundException, StateSystemDisposedException {
+        ITmfStateSystem ss = getStateSystem();
+
+        /* The scenario in state_a was activated first */
+        assertValue(ss, "winner", 5, TmfStateValue.newValueString("A"));
+        assertValue(ss, "winner", 7, TmfStateValue.newValueString("B"));
+        /* The scenario in state_b was activated first */
+        assertValue(ss, "winner", 13, TmfStateValue.newValueString("B"));
+        assertValue(ss, "winner", 15, TmfStateValue.newValueString("A"));
+    }
+
+    /**
+     * Test that a scenario which moves to a state taking the same event does
+     * not handle that event again, while the other scenarios of that state do
+     *
+     * @throws StateSystemDisposedException
+     *             Exceptions thrown during state system verification
+     * @throws AttributeNotFoundException
+     *             Exceptions thrown during state system verification
+     */
+    @Test
+    public void testStateChangeDuringDispatch() throws AttributeNotFoundException, StateSystemDisposedException {
+        ITmfStateSystem ss = getStateSystem();
+
+        assertValue(ss, "moved", 21, TmfStateValue.newValueLong(1));
+        assertValue(ss, "done", 21, TmfStateValue.newValueLong(1));
+        /* The moved scenario takes the next event */
+        assertValue(ss, "moved", 23, TmfStateValue.newValueLong(1));
+        assertValue(ss, "done", 23, TmfStateValue.newValueLong(2));
+    }
+}
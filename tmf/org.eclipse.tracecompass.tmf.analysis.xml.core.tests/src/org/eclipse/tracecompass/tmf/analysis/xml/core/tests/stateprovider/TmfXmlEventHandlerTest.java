@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.analysis.xml.core.tests.stateprovider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.internal.tmf.analysis.xml.core.stateprovider.XmlStateSystemModule;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
+import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
+import org.eclipse.tracecompass.tmf.analysis.xml.core.tests.common.TmfXmlTestFiles;
+import org.eclipse.tracecompass.tmf.analysis.xml.core.tests.module.XmlUtilsTest;
+import org.eclipse.tracecompass.tmf.core.exceptions.TmfAnalysisException;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.junit.Test;
+
+/**
+ * Test the dispatch of the events to the event handlers of an XML state
+ * provider, with wildcard and exact name handlers applying to the same events
+ */
+public class TmfXmlEventHandlerTest {
+
+    private static final @NonNull String testTrace1 = "test_traces/testTrace1.xml";
+
+    private static void assertCount(ITmfStateSystem ss, String attribute, int expected) throws AttributeNotFoundException, StateSystemDisposedException {
+        int quark = ss.getQuarkAbsolute(attribute);
+        assertEquals(attribute, expected, ss.querySingleState(ss.getCurrentEndTime(), quark).getStateValue().unboxInt());
+    }
+
+    /**
+     * Test that each event goes to all the handlers applying to its name,
+     * only once and in the order of their declaration
+     *
+     * @throws TmfAnalysisException
+     *             if it happens, we fail
+     * @throws AttributeNotFoundException
+     *             if it happens, we fail
+     * @throws StateSystemDisposedException
+     *             if it happens, we fail
+     */
+    @Test
+    public void testWildcardAndExactHandlers() throws TmfAnalysisException, AttributeNotFoundException, StateSystemDisposedException {
+        ITmfTrace trace = XmlUtilsTest.initializeTrace(testTrace1);
+        XmlStateSystemModule module = XmlUtilsTest.initializeModule(TmfXmlTestFiles.EVENT_HANDLERS_FILE);
+        try {
+            module.setTrace(trace);
+
+            module.schedule();
+            module.waitForCompletion();
+
+            ITmfStateSystem ss = module.getStateSystem();
+            assertNotNull(ss);
+
+            /* The trace has 2 "test" and 2 "test1" events */
+            assertCount(ss, "prefix", 4);
+            assertCount(ss, "all", 4);
+            assertCount(ss, "exact", 2);
+            assertCount(ss, "exact1", 2);
+            assertEquals(ITmfStateSystem.INVALID_ATTRIBUTE, ss.optQuarkAbsolute("other"));
+
+            /*
+             * The exact name handler of "test" is declared after the wildcard
+             * handler, so its value is the one kept for the "test" events
+             */
+            int quark = ss.getQuarkAbsolute("last");
+            final int[] expectedStarts = { 1, 3, 5, 7, 7 };
+            ITmfStateValue[] expectedValues = { TmfStateValue.newValueString("exact"), TmfStateValue.newValueString("prefix"),
+                    TmfStateValue.newValueString("exact"), TmfStateValue.newValueString("prefix") };
+            XmlUtilsTest.verifyStateIntervals("last", ss, quark, expectedStarts, expectedValues);
+        } finally {
+            module.dispose();
+            trace.dispose();
+        }
+    }
+}
@@ -81,8 +81,19 @@ public class TmfXmlBasicTransition {
     }
 
     private boolean validateEvent(ITmfEvent event) {
-        String eventName = event.getName();
+        return acceptsEvent(event.getName());
+    }
 
+    /**
+     * Validate the event name of this transition, without testing its
+     * conditions. If this returns false, the transition cannot be validated by
+     * any event with this name.
+     *
+     * @param eventName
+     *            The name of the event
+     * @return true if the transition accepts the events with this name
+     */
+    public boolean acceptsEvent(String eventName) {
         if (fAcceptedEvents.isEmpty()) {
             return true;
         }
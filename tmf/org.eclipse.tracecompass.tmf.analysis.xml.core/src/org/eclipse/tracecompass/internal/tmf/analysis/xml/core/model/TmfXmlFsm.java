@@ -11,9 +11,9 @@ package org.eclipse.tracecompass.internal.tmf.analysis.xml.core.model;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
@@ -38,7 +38,17 @@ import com.google.common.collect.ImmutableMap;
 public class TmfXmlFsm {
 
     private final Map<String, TmfXmlState> fStatesMap;
-    private final List<TmfXmlScenario> fActiveScenariosList;
+    /*
+     * The active scenarios, by active state and in the order they were
+     * activated. Only the scenarios whose state has a transition for an event
+     * name are handled for the events with this name.
+     */
+    private final Map<String, TreeMap<Long, TmfXmlScenario>> fActiveScenarios = new HashMap<>();
+    /* The groups of active scenarios that may handle the current event */
+    private final List<TreeMap<Long, TmfXmlScenario>> fAcceptingScenarios = new ArrayList<>();
+    /* Whether a state has a transition for an event name, by state */
+    private final Map<String, Map<String, Boolean>> fAcceptedEvents = new HashMap<>();
+    private long fNbActivatedScenarios = 0;
     private final List<TmfXmlBasicTransition> fPreconditions;
     private final String fId;
     private final ITmfXmlModelFactory fModelFactory;
@@ -159,7 +169,6 @@ public class TmfXmlFsm {
         fAbandonStateId = abandonState;
         fPreconditions = ImmutableList.copyOf(preconditions);
         fStatesMap = ImmutableMap.copyOf(states);
-        fActiveScenariosList = new ArrayList<>();
     }
 
     /**
@@ -301,23 +310,76 @@ public class TmfXmlFsm {
             return false;
         }
 
-        // The event is valid, we can handle the active scenario
-        for (Iterator<TmfXmlScenario> currentItr = fActiveScenariosList.iterator(); currentItr.hasNext();) {
-            TmfXmlScenario scenario = currentItr.next();
-            // Remove inactive scenarios or handle the active ones.
-            if (!scenario.isActive()) {
-                currentItr.remove();
-            } else {
+        // The event is valid, we can handle the active scenarios that may
+        // have a transition for this event, in their activation order
+        String eventName = event.getName();
+        List<TreeMap<Long, TmfXmlScenario>> acceptingScenarios = fAcceptingScenarios;
+        for (Map.Entry<String, TreeMap<Long, TmfXmlScenario>> state : fActiveScenarios.entrySet()) {
+            if (acceptsEvent(state.getKey(), eventName)) {
+                acceptingScenarios.add(state.getValue());
+            }
+        }
+        try {
+            /*
+             * Each group is ordered by activation rank, so the next scenario is
+             * the first one after the last handled rank among the groups. A
+             * scenario moved to another group has an already handled rank, so
+             * it does not handle the event twice.
+             */
+            /* The activation ranks start at 0 */
+            Long rank = -1L;
+            while (true) {
+                Long nextRank = null;
+                TreeMap<Long, TmfXmlScenario> nextScenarios = null;
+                for (TreeMap<Long, TmfXmlScenario> scenarios : acceptingScenarios) {
+                    Long scenarioRank = scenarios.higherKey(rank);
+                    if (scenarioRank != null && (nextRank == null || scenarioRank < nextRank)) {
+                        nextRank = scenarioRank;
+                        nextScenarios = scenarios;
+                    }
+                }
+                if (nextRank == null || nextScenarios == null) {
+                    break;
+                }
+                rank = nextRank;
+                TmfXmlScenario scenario = NonNullUtils.checkNotNull(nextScenarios.get(nextRank));
+                String previousState = scenario.getScenarioInfos().getActiveState();
                 handleScenario(scenario, event);
+                updateActiveScenario(nextRank, scenario, previousState);
                 if (fConsuming && isEventConsumed()) {
                     return true;
                 }
             }
+        } finally {
+            acceptingScenarios.clear();
         }
         // The event is valid but hasn't been consumed. We return true.
         return true;
     }
 
+    /**
+     * Check if a state has a transition that may be taken with the events of
+     * a given name. The result is computed once per state and event name.
+     *
+     * @param stateId
+     *            The state ID
+     * @param eventName
+     *            The event name
+     * @return True if the event may change the state
+     */
+    private boolean acceptsEvent(String stateId, String eventName) {
+        Map<String, Boolean> acceptedEvents = fAcceptedEvents.computeIfAbsent(stateId, id -> new HashMap<>());
+        Boolean accepted = acceptedEvents.get(eventName);
+        if (accepted == null) {
+            TmfXmlState state = fStatesMap.get(stateId);
+            /* An undefined state is reported when the scenario is handled */
+            accepted = (state == null) || state.getTransitionList().stream()
+                    .anyMatch(transition -> transition.acceptsEvent(eventName));
+            acceptedEvents.put(eventName, accepted);
+        }
+        return accepted;
+    }
+
     /**
      * Handle the pending scenario.
      *
@@ -345,9 +407,11 @@ public class TmfXmlFsm {
      * Abandon all ongoing scenarios
      */
     public void dispose() {
-        for (TmfXmlScenario scenario : fActiveScenariosList) {
-            if (scenario.isActive()) {
-                scenario.cancel();
+        for (TreeMap<Long, TmfXmlScenario> scenarios : fActiveScenarios.values()) {
+            for (TmfXmlScenario scenario : scenarios.values()) {
+                if (scenario.isActive()) {
+                    scenario.cancel();
+                }
             }
         }
     }
@@ -382,7 +446,42 @@ public class TmfXmlFsm {
      *            The scenario
      */
     private void addActiveScenario(TmfXmlScenario scenario) {
-        fActiveScenariosList.add(scenario);
+        if (scenario.isActive()) {
+            addActiveScenario(fNbActivatedScenarios++, scenario);
+        }
+    }
+
+    private void addActiveScenario(long rank, TmfXmlScenario scenario) {
+        String state = scenario.getScenarioInfos().getActiveState();
+        fActiveScenarios.computeIfAbsent(state, id -> new TreeMap<>()).put(rank, scenario);
+    }
+
+    /**
+     * Move an active scenario to the scenarios of its new state after it
+     * handled an event, or remove it if it is not active anymore.
+     *
+     * @param rank
+     *            The activation rank of the scenario
+     * @param scenario
+     *            The scenario
+     * @param previousState
+     *            The active state of the scenario before the event
+     */
+    private void updateActiveScenario(long rank, TmfXmlScenario scenario, String previousState) {
+        boolean active = scenario.isActive();
+        if (active && scenario.getScenarioInfos().getActiveState().equals(previousState)) {
+            return;
+        }
+        TreeMap<Long, TmfXmlScenario> scenarios = fActiveScenarios.get(previousState);
+        if (scenarios != null) {
+            scenarios.remove(rank);
+            if (scenarios.isEmpty()) {
+                fActiveScenarios.remove(previousState);
+            }
+        }
+        if (active) {
+            addActiveScenario(rank, scenario);
+        }
     }
 
     /**
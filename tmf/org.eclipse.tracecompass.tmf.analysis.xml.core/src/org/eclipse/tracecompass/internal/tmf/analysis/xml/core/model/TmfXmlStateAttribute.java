@@ -15,8 +15,11 @@ package org.eclipse.tracecompass.internal.tmf.analysis.xml.core.model;
 import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
 import static org.eclipse.tracecompass.common.core.NonNullUtils.nullToEmptyString;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.internal.tmf.analysis.xml.core.Activator;
@@ -79,6 +82,24 @@ public abstract class TmfXmlStateAttribute implements ITmfXmlStateAttribute {
 
     private final IXmlStateSystemContainer fContainer;
 
+    /**
+     * Quarks of a constant attribute, for each start quark. The quarks of an
+     * attribute never change, so they are resolved only once per state system.
+     * The cache is never modified once published, a new one replaces it.
+     */
+    private volatile @Nullable ConstantQuarks fConstantQuarks = null;
+
+    /** Immutable cache of the quarks of a constant attribute */
+    private static final class ConstantQuarks {
+        private final ITmfStateSystem fSs;
+        private final Map<Integer, Integer> fQuarks;
+
+        public ConstantQuarks(ITmfStateSystem ss, Map<Integer, Integer> quarks) {
+            fSs = ss;
+            fQuarks = quarks;
+        }
+    }
+
     /**
      * Constructor
      *
@@ -201,18 +222,30 @@ public abstract class TmfXmlStateAttribute implements ITmfXmlStateAttribute {
         try {
             switch (fType) {
             case CONSTANT: {
-                int quark;
                 if (name == null) {
                     throw new IllegalStateException("Invalid attribute name"); //$NON-NLS-1$
                 }
                 if (name.equals(CURRENT_SCENARIO)) {
                     return checkNotNull(scenarioInfo).getQuark();
                 }
-                if (startQuark == IXmlStateSystemContainer.ROOT_QUARK) {
-                    quark = getQuarkAbsoluteAndAdd(name);
-                } else {
-                    quark = getQuarkRelativeAndAdd(startQuark, name);
+                if (CURRENT_STATE.equals(fName)) {
+                    /* The name depends on the scenario, it cannot be cached */
+                    return getConstantQuark(startQuark, name);
+                }
+                ConstantQuarks cache = fConstantQuarks;
+                Map<Integer, Integer> cachedQuarks = (cache != null && cache.fSs == ss) ? cache.fQuarks : Collections.emptyMap();
+                Integer cached = cachedQuarks.get(startQuark);
+                if (cached != null) {
+                    return cached;
                 }
+                /*
+                 * Concurrent misses may resolve the quark again and replace
+                 * each other's cache, which is harmless
+                 */
+                int quark = getConstantQuark(startQuark, name);
+                Map<Integer, Integer> quarks = new HashMap<>(cachedQuarks);
+                quarks.put(startQuark, quark);
+                fConstantQuarks = new ConstantQuarks(ss, quarks);
                 return quark;
             }
             case EVENTFIELD: {
@@ -352,6 +385,13 @@ public abstract class TmfXmlStateAttribute implements ITmfXmlStateAttribute {
         }
     }
 
+    private int getConstantQuark(int startQuark, String name) throws AttributeNotFoundException {
+        if (startQuark == IXmlStateSystemContainer.ROOT_QUARK) {
+            return getQuarkAbsoluteAndAdd(name);
+        }
+        return getQuarkRelativeAndAdd(startQuark, name);
+    }
+
     @Override
     public String toString() {
         return "TmfXmlStateAttribute " + fType + ": " + fName; //$NON-NLS-1$ //$NON-NLS-2$
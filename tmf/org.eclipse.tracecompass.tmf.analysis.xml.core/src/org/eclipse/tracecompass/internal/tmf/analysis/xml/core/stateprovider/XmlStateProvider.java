@@ -51,6 +51,13 @@ public class XmlStateProvider extends AbstractTmfStateProvider implements IXmlSt
     /** List of all Event Handlers */
     private final List<TmfXmlEventHandler> fEventHandlers = new ArrayList<>();
 
+    /**
+     * The event handlers applying to each event name, in the order of
+     * {@link #fEventHandlers}. It is filled the first time an event name is
+     * seen.
+     */
+    private final Map<String, List<TmfXmlEventHandler>> fHandlersByEvent = new HashMap<>();
+
     /** List of all Locations */
     private final @NonNull Set<@NonNull TmfXmlLocation> fLocations;
 
@@ -175,9 +182,25 @@ public class XmlStateProvider extends AbstractTmfStateProvider implements IXmlSt
 
     @Override
     protected void eventHandle(ITmfEvent event) {
+        String eventName = event.getName();
+        List<TmfXmlEventHandler> handlers = fHandlersByEvent.get(eventName);
+        if (handlers == null) {
+            handlers = getEventHandlers(eventName);
+            fHandlersByEvent.put(eventName, handlers);
+        }
+        for (TmfXmlEventHandler eventHandler : handlers) {
+            eventHandler.applyStateChanges(event);
+        }
+    }
+
+    private List<TmfXmlEventHandler> getEventHandlers(String eventName) {
+        List<TmfXmlEventHandler> handlers = new ArrayList<>();
         for (TmfXmlEventHandler eventHandler : fEventHandlers) {
-            eventHandler.handleEvent(event);
+            if (eventHandler.appliesToEvent(eventName)) {
+                handlers.add(eventHandler);
+            }
         }
+        return handlers.isEmpty() ? Collections.emptyList() : handlers;
     }
 
     @Override
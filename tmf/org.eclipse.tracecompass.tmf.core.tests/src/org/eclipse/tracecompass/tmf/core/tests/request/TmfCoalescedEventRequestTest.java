@@ -23,7 +23,9 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.IllformedLocaleException;
+import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.runtime.FileLocator;
 import org.eclipse.core.runtime.Path;
@@ -351,6 +353,57 @@ public class TmfCoalescedEventRequestTest {
         assertTrue("isCancelled", subRequest2.isCancelled());
     }
 
+    @Test
+    public void testCancelIndependent() throws InterruptedException {
+        TmfCoalescedEventRequest request = new TmfCoalescedEventRequest(ITmfEvent.class, range1, 0, 100, ExecutionType.FOREGROUND, 0);
+        TmfEventRequest subRequest = setupIndependentRequest();
+        request.addRequest(subRequest);
+        request.start();
+
+        Thread thread = getEventHandlerThread(subRequest);
+        assertTrue("isDaemon", thread.isDaemon());
+
+        request.cancel();
+        thread.join(10000);
+        assertFalse("isAlive", thread.isAlive());
+        assertTrue("isCancelled", subRequest.isCancelled());
+    }
+
+    @Test
+    public void testFailIndependent() throws InterruptedException {
+        TmfCoalescedEventRequest request = new TmfCoalescedEventRequest(ITmfEvent.class, range1, 0, 100, ExecutionType.FOREGROUND, 0);
+        TmfEventRequest subRequest = setupIndependentRequest();
+        request.addRequest(subRequest);
+        request.start();
+
+        Thread thread = getEventHandlerThread(subRequest);
+        assertTrue("isDaemon", thread.isDaemon());
+
+        request.fail(new IllformedLocaleException("Hi"));
+        thread.join(10000);
+        assertFalse("isAlive", thread.isAlive());
+        assertTrue("isFailed", subRequest.isFailed());
+    }
+
+    private TmfEventRequest setupIndependentRequest() {
+        return new TmfEventRequestStub(ITmfEvent.class, range1, 100, 200) {
+            @Override
+            public boolean isIndependent() {
+                return true;
+            }
+        };
+    }
+
+    private static Thread getEventHandlerThread(TmfEventRequest request) {
+        String name = "Request " + request.getRequestId() + " Event Handler";
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (name.equals(thread.getName())) {
+                return thread;
+            }
+        }
+        throw new AssertionError("No thread named " + name);
+    }
+
     // ------------------------------------------------------------------------
     // Coalescing
     // ------------------------------------------------------------------------
@@ -477,6 +530,53 @@ public class TmfCoalescedEventRequestTest {
         providers[0].sendRequest(request1);
     }
 
+    private static class TmfTestTriggerSignal3 extends TmfSignal {
+        public TmfTestTriggerSignal3(Object source) {
+            super(source);
+        }
+    }
+
+    Set<Thread> threads1;
+    Set<Thread> threads2;
+
+    /**
+     * @param signal
+     *            the trigger signal
+     */
+    @TmfSignalHandler
+    public void trigger(final TmfTestTriggerSignal3 signal) {
+        requestedEvents1 = new Vector<>();
+        threads1 = ConcurrentHashMap.newKeySet();
+        request1 = new TmfEventRequest(ITmfEvent.class, TmfTimeRange.ETERNITY, 0, NB_EVENTS, ExecutionType.FOREGROUND) {
+            @Override
+            public void handleData(ITmfEvent event) {
+                super.handleData(event);
+                requestedEvents1.add(event);
+                threads1.add(Thread.currentThread());
+            }
+
+            @Override
+            public boolean isIndependent() {
+                return true;
+            }
+        };
+
+        requestedEvents2 = new Vector<>();
+        threads2 = ConcurrentHashMap.newKeySet();
+        request2 = new TmfEventRequest(ITmfEvent.class, TmfTimeRange.ETERNITY, 0, NB_EVENTS, ExecutionType.FOREGROUND) {
+            @Override
+            public void handleData(ITmfEvent event) {
+                super.handleData(event);
+                requestedEvents2.add(event);
+                threads2.add(Thread.currentThread());
+            }
+        };
+
+        providers = TmfProviderManager.getProviders(ITmfEvent.class, TmfTraceStub.class);
+        providers[0].sendRequest(request1);
+        providers[0].sendRequest(request2);
+    }
+
     public void runCoalescedRequest(long startIndex) throws InterruptedException {
 
         fTrace = setupTrace(TEST_TRACE.getFullPath());
@@ -523,6 +623,39 @@ public class TmfCoalescedEventRequestTest {
         runCoalescedRequest(5);
     }
 
+    @Test
+    public void testIndependentRequest() throws InterruptedException {
+
+        fTrace = setupTrace(TEST_TRACE.getFullPath());
+
+        TmfSignalManager.register(this);
+        TmfSignalManager.dispatchSignal(new TmfTestTriggerSignal3(this));
+
+        request1.waitForCompletion();
+        request2.waitForCompletion();
+
+        try {
+            assertEquals("Request1: nbEvents", NB_EVENTS, requestedEvents1.size());
+            assertEquals("Request2: nbEvents", NB_EVENTS, requestedEvents2.size());
+            assertFalse("Request1: isCancelled", request1.isCancelled());
+            assertFalse("Request2: isCancelled", request2.isCancelled());
+
+            // The independent request receives the events in order on its
+            // own thread
+            assertEquals(1, threads1.size());
+            assertEquals(1, threads2.size());
+            assertFalse(threads2.containsAll(threads1));
+            for (int i = 0; i < NB_EVENTS; i++) {
+                assertEquals("Ordered events", i + 1, requestedEvents1.get(i).getTimestamp().getValue());
+                assertEquals("Ordered events", i + 1, requestedEvents2.get(i).getTimestamp().getValue());
+            }
+        } finally {
+            TmfSignalManager.deregister(this);
+            fTrace.dispose();
+            fTrace = null;
+        }
+    }
+
     @Test
     public void testCancelCoalescedRequest() throws InterruptedException {
 
@@ -36,6 +36,7 @@ import org.eclipse.tracecompass.tmf.core.synchronization.SynchronizationAlgorith
 import org.eclipse.tracecompass.tmf.core.synchronization.SynchronizationAlgorithm.SyncQuality;
 import org.eclipse.tracecompass.tmf.core.synchronization.SynchronizationAlgorithmFactory;
 import org.eclipse.tracecompass.tmf.core.synchronization.TimestampTransformFactory;
+import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
 import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
 import org.eclipse.tracecompass.tmf.tests.stubs.event.TmfSyncEventStub;
@@ -223,6 +224,97 @@ public class SyncTest {
         assertEquals("SyncAlgorithmFullyIncremental [Between t1 and t2 [ alpha 1 beta 2.5 ]]", syncAlgo.toString());
     }
 
+    /**
+     * Testing that the parallel fully incremental algorithm gives the same
+     * results as the sequential one
+     */
+    @Test
+    public void testParallelFullyIncremental() {
+        SynchronizationAlgorithm expected = SynchronizationAlgorithmFactory.getFullyIncrementalAlgorithm();
+        SynchronizationAlgorithm syncAlgo = SynchronizationAlgorithmFactory.getParallelFullyIncrementalAlgorithm(2);
+
+        for (SynchronizationAlgorithm algo : new SynchronizationAlgorithm[] { expected, syncAlgo }) {
+            algo.init(fTraces);
+            addSyncMatch(algo, t2, 1, t1, 1);
+            addSyncMatch(algo, t1, 1, t2, 3);
+            addSyncMatch(algo, t2, 2, t1, 3);
+            addSyncMatch(algo, t1, 3, t2, 5);
+            addSyncMatch(algo, t1, 4, t2, 8);
+            addSyncMatch(algo, t2, 4, t1, 5);
+            addSyncMatch(algo, t2, 4, t1, 6);
+            addSyncMatch(algo, t1, 6, t2, 7);
+        }
+        assertEquals(SyncQuality.ACCURATE, syncAlgo.getSynchronizationQuality(t1, t2));
+        assertEquals(expected.toString(), syncAlgo.toString());
+
+        syncAlgo.matchingEnded();
+        assertEquals(expected.getTimestampTransform(t2), syncAlgo.getTimestampTransform(t2));
+        assertEquals(expected.getStats(), syncAlgo.getStats());
+    }
+
+    /**
+     * Testing that an error while a worker updates a convex hull marks its
+     * synchronization as failed, without blocking the matching
+     */
+    @Test
+    public void testParallelFailure() {
+        SynchronizationAlgorithm syncAlgo = SynchronizationAlgorithmFactory.getParallelFullyIncrementalAlgorithm(2);
+        syncAlgo.init(fTraces);
+        addSyncMatch(syncAlgo, t2, 1, t1, 1);
+        addSyncMatch(syncAlgo, t1, 1, t2, 3);
+        addSyncMatch(syncAlgo, t2, 2, t1, 3);
+        addSyncMatch(syncAlgo, t1, 3, t2, 5);
+        addSyncMatch(syncAlgo, t1, 4, t2, 8);
+        addSyncMatch(syncAlgo, t2, 4, t1, 5);
+        assertEquals(SyncQuality.ACCURATE, syncAlgo.getSynchronizationQuality(t1, t2));
+
+        /* A timestamp which cannot be read by the worker */
+        ITmfTimestamp invalid = new TmfTimestamp() {
+            @Override
+            public long getValue() {
+                throw new IllegalStateException("Invalid timestamp");
+            }
+
+            @Override
+            public int getScale() {
+                return ITmfTimestamp.SECOND_SCALE;
+            }
+        };
+        syncAlgo.addMatch(new TmfEventDependency(new TmfSyncEventStub(t2, invalid), new TmfSyncEventStub(t1, invalid)));
+
+        /* The next matches are ignored */
+        addSyncMatch(syncAlgo, t2, 4, t1, 6);
+        addSyncMatch(syncAlgo, t1, 6, t2, 7);
+        syncAlgo.matchingEnded();
+
+        assertEquals(SyncQuality.FAIL, syncAlgo.getSynchronizationQuality(t1, t2));
+        assertEquals(TimestampTransformFactory.getDefaultTransform(), syncAlgo.getTimestampTransform(t2));
+    }
+
+    /**
+     * Testing that disposing the parallel algorithm before the end of the
+     * matching stops the workers, and that the algorithm is still usable
+     */
+    @Test
+    public void testParallelDispose() {
+        SynchronizationAlgorithm expected = SynchronizationAlgorithmFactory.getFullyIncrementalAlgorithm();
+        SynchronizationAlgorithm syncAlgo = SynchronizationAlgorithmFactory.getParallelFullyIncrementalAlgorithm(2);
+        expected.init(fTraces);
+        syncAlgo.init(fTraces);
+        syncAlgo.dispose();
+
+        /* The matches are now processed on this thread */
+        for (SynchronizationAlgorithm algo : new SynchronizationAlgorithm[] { expected, syncAlgo }) {
+            addSyncMatch(algo, t2, 1, t1, 1);
+            addSyncMatch(algo, t1, 1, t2, 3);
+            addSyncMatch(algo, t2, 2, t1, 3);
+            addSyncMatch(algo, t1, 3, t2, 5);
+        }
+        syncAlgo.matchingEnded();
+        assertEquals(expected.toString(), syncAlgo.toString());
+        syncAlgo.dispose();
+    }
+
     private static void addSyncMatch(SynchronizationAlgorithm algo, ITmfTrace sender, long sendTs, ITmfTrace receiver, long receiveTs) {
         algo.addMatch(
                 new TmfEventDependency(
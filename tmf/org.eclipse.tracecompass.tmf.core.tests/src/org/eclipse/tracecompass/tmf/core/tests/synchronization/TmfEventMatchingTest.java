@@ -0,0 +1,246 @@
+/*******************************************************************************
+ * Copyright (c) 2017 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.tests.synchronization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEventField;
+import org.eclipse.tracecompass.tmf.core.event.TmfEvent;
+import org.eclipse.tracecompass.tmf.core.event.TmfEventField;
+import org.eclipse.tracecompass.tmf.core.event.TmfEventType;
+import org.eclipse.tracecompass.tmf.core.event.matching.IEventMatchingKey;
+import org.eclipse.tracecompass.tmf.core.event.matching.ITmfMatchEventDefinition;
+import org.eclipse.tracecompass.tmf.core.event.matching.TmfEventDependency;
+import org.eclipse.tracecompass.tmf.core.event.matching.TmfEventMatches;
+import org.eclipse.tracecompass.tmf.core.event.matching.TmfEventMatching;
+import org.eclipse.tracecompass.tmf.core.event.matching.TmfEventMatching.Direction;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.eclipse.tracecompass.tmf.tests.stubs.trace.TmfTraceStub;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests for the unmatched events of {@link TmfEventMatching}
+ */
+@SuppressWarnings("nls")
+public class TmfEventMatchingTest {
+
+    private static final String SEND = "send";
+    private static final String RECEIVE = "receive";
+    private static final String KEY_FIELD = "key";
+
+    /** The traces the stub definition applies to */
+    private static final Set<ITmfTrace> MATCHED_TRACES = new HashSet<>();
+
+    private TmfTraceStub fTrace1;
+    private TmfTraceStub fTrace2;
+    private TmfEventMatches fMatches;
+    private TmfEventMatching fMatching;
+
+    private static final class KeyStub implements IEventMatchingKey {
+        private final long fKey;
+
+        public KeyStub(long key) {
+            fKey = key;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(fKey);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return (obj instanceof KeyStub) && ((KeyStub) obj).fKey == fKey;
+        }
+    }
+
+    private static final class DefinitionStub implements ITmfMatchEventDefinition {
+        @Override
+        public IEventMatchingKey getEventKey(ITmfEvent event) {
+            Long key = event.getContent().getFieldValue(Long.class, KEY_FIELD);
+            return (key == null) ? null : new KeyStub(key);
+        }
+
+        @Override
+        public boolean canMatchTrace(ITmfTrace trace) {
+            return MATCHED_TRACES.contains(trace);
+        }
+
+        @Override
+        public Direction getDirection(ITmfEvent event) {
+            switch (event.getName()) {
+            case SEND:
+                return Direction.CAUSE;
+            case RECEIVE:
+                return Direction.EFFECT;
+            default:
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Register the stub definition
+     */
+    @BeforeClass
+    public static void registerDefinition() {
+        TmfEventMatching.registerMatchObject(new DefinitionStub());
+    }
+
+    /**
+     * Create the traces and the matching
+     */
+    @Before
+    public void setUp() {
+        fTrace1 = new TmfTraceStub();
+        fTrace1.init("t1");
+        fTrace2 = new TmfTraceStub();
+        fTrace2.init("t2");
+        MATCHED_TRACES.addAll(Arrays.asList(fTrace1, fTrace2));
+
+        fMatches = new TmfEventMatches();
+        fMatching = new TmfEventMatching(Arrays.asList(fTrace1, fTrace2), fMatches);
+    }
+
+    /**
+     * Dispose the traces
+     */
+    @After
+    public void tearDown() {
+        MATCHED_TRACES.clear();
+        fTrace1.dispose();
+        fTrace2.dispose();
+    }
+
+    private static @NonNull ITmfEvent createEvent(@NonNull ITmfTrace trace, long rank, long ts, String name, long key) {
+        ITmfEventField content = new TmfEventField(ITmfEventField.ROOT_FIELD_ID, null,
+                new ITmfEventField[] { new TmfEventField(KEY_FIELD, key, null) });
+        return new TmfEvent(trace, rank, TmfTimestamp.fromNanos(ts), new TmfEventType(name, content), content);
+    }
+
+    private void match(ITmfEvent event) {
+        fMatching.matchEvent(event, event.getTrace(), new NullProgressMonitor());
+    }
+
+    /**
+     * Test that the dependencies hold the matched events themselves by
+     * default, whichever side was waiting for its match
+     */
+    @Test
+    public void testDependencyEvents() {
+        fMatching.initMatching();
+        ITmfEvent send = createEvent(fTrace1, 0, 10, SEND, 1);
+        ITmfEvent receive = createEvent(fTrace2, 0, 20, RECEIVE, 1);
+        match(send);
+        match(receive);
+
+        ITmfEvent receiveFirst = createEvent(fTrace2, 1, 30, RECEIVE, 2);
+        ITmfEvent sendLast = createEvent(fTrace1, 1, 40, SEND, 2);
+        match(receiveFirst);
+        match(sendLast);
+
+        assertEquals(2, fMatches.countMatches());
+        TmfEventDependency dep = fMatches.getMatch(0);
+        assertSame(send, dep.getSourceEvent());
+        assertSame(receive, dep.getDestinationEvent());
+        dep = fMatches.getMatch(1);
+        assertSame(sendLast, dep.getSourceEvent());
+        assertSame(receiveFirst, dep.getDestinationEvent());
+    }
+
+    /**
+     * Test that the compact unmatched events keep the trace, rank and
+     * timestamp of the event in the dependency
+     */
+    @Test
+    public void testCompactDependencyEvents() {
+        fMatching.setCompactUnmatchedEvents(true);
+        fMatching.initMatching();
+        ITmfEvent send = createEvent(fTrace1, 5, 10, SEND, 1);
+        ITmfEvent receive = createEvent(fTrace2, 7, 20, RECEIVE, 1);
+        match(send);
+        match(receive);
+
+        assertEquals(1, fMatches.countMatches());
+        TmfEventDependency dep = fMatches.getMatch(0);
+        ITmfEvent source = dep.getSourceEvent();
+        assertSame(fTrace1, source.getTrace());
+        assertEquals(5, source.getRank());
+        assertEquals(send.getTimestamp(), source.getTimestamp());
+        assertNull(source.getType());
+        /* The event which found its match is passed as is */
+        assertSame(receive, dep.getDestinationEvent());
+    }
+
+    /**
+     * Test that the unmatched events are kept until the end of the matching
+     * by default
+     */
+    @Test
+    public void testNoExpiry() {
+        fMatching.initMatching();
+        match(createEvent(fTrace1, 0, 10, SEND, 1));
+        match(createEvent(fTrace1, 1, Long.MAX_VALUE / 2, SEND, 2));
+        match(createEvent(fTrace2, 0, Long.MAX_VALUE / 2, RECEIVE, 1));
+        assertEquals(1, fMatches.countMatches());
+    }
+
+    /**
+     * Test that the unmatched events older than the timeout on their trace are
+     * forgotten, and that the other traces do not expire them
+     */
+    @Test
+    public void testExpiry() {
+        fMatching.setUnmatchedEventTimeout(100);
+        fMatching.initMatching();
+        match(createEvent(fTrace1, 0, 10, SEND, 1));
+        match(createEvent(fTrace1, 1, 50, SEND, 2));
+
+        /* Time passes on the other trace only, nothing expires */
+        match(createEvent(fTrace2, 0, 1000, SEND, 3));
+        match(createEvent(fTrace2, 1, 1001, RECEIVE, 1));
+        assertEquals(1, fMatches.countMatches());
+
+        /* Event 2 is older than the timeout on its trace */
+        match(createEvent(fTrace1, 2, 200, SEND, 4));
+        match(createEvent(fTrace2, 2, 1002, RECEIVE, 2));
+        assertEquals(1, fMatches.countMatches());
+
+        /* Event 4 is still within the timeout */
+        match(createEvent(fTrace2, 3, 1003, RECEIVE, 4));
+        assertEquals(2, fMatches.countMatches());
+    }
+
+    /**
+     * Test the timeout derived from the start times of the traces
+     */
+    @Test
+    public void testBoundedTimeout() {
+        /* The start times of the traces are not known */
+        assertEquals(-1, fMatching.getBoundedUnmatchedEventTimeout());
+
+        fTrace1.setStartTime(TmfTimestamp.fromNanos(1000));
+        fTrace2.setStartTime(TmfTimestamp.fromNanos(5000));
+        assertEquals(4000 + 10000000000L, fMatching.getBoundedUnmatchedEventTimeout());
+    }
+}
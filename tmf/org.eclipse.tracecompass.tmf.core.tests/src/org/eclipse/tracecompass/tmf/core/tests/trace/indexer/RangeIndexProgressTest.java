@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.tests.trace.indexer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.tracecompass.internal.tmf.core.trace.indexer.RangeIndexProgress;
+import org.eclipse.tracecompass.internal.tmf.core.trace.indexer.RangeIndexProgress.RangeResult;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint.ITmfCheckpoint;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint.TmfCheckpoint;
+import org.eclipse.tracecompass.tmf.core.trace.location.ITmfLocation;
+import org.eclipse.tracecompass.tmf.core.trace.location.TmfLongLocation;
+import org.eclipse.tracecompass.tmf.tests.stubs.trace.TmfTraceStub;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the persistence of the progress of a parallel indexing
+ */
+public class RangeIndexProgressTest {
+
+    private static final int MARK_INTERVAL = 10;
+    private static final List<ITmfLocation> RANGES = Arrays.asList(new TmfLongLocation(0L), new TmfLongLocation(1000L), new TmfLongLocation(2000L));
+
+    private final File fFile = new File(RangeIndexProgress.FILE_NAME);
+    private TmfTraceStub fTrace;
+
+    /**
+     * Setup the test. Make sure the file is deleted.
+     */
+    @Before
+    public void setUp() {
+        fTrace = new TmfTraceStub();
+        fFile.delete();
+    }
+
+    /**
+     * Tear down the test. Make sure the file is deleted.
+     */
+    @After
+    public void tearDown() {
+        fTrace.dispose();
+        fFile.delete();
+    }
+
+    private static RangeResult createResult(int range, long nbEvents) {
+        List<ITmfCheckpoint> marks = new ArrayList<>();
+        for (long i = 0; i < nbEvents; i += MARK_INTERVAL) {
+            marks.add(new TmfCheckpoint(TmfTimestamp.fromNanos(range * 1000 + i), new TmfLongLocation(range * 1000 + i), i));
+        }
+        if (nbEvents == 0) {
+            return new RangeResult(range, 0, null, null, marks);
+        }
+        return new RangeResult(range, nbEvents, TmfTimestamp.fromNanos(range * 1000), TmfTimestamp.fromNanos(range * 1000 + nbEvents - 1), marks);
+    }
+
+    private static void assertResultEquals(RangeResult expected, RangeResult actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getRange(), actual.getRange());
+        assertEquals(expected.getNbEvents(), actual.getNbEvents());
+        assertEquals(expected.getStartTime(), actual.getStartTime());
+        assertEquals(expected.getEndTime(), actual.getEndTime());
+        assertEquals(expected.getMarks().size(), actual.getMarks().size());
+        for (int i = 0; i < expected.getMarks().size(); i++) {
+            ITmfCheckpoint mark = expected.getMarks().get(i);
+            ITmfCheckpoint restored = actual.getMarks().get(i);
+            assertEquals(mark.getLocation(), restored.getLocation());
+            assertEquals(mark.getTimestamp(), restored.getTimestamp());
+            assertEquals(mark.getCheckpointRank(), restored.getCheckpointRank());
+        }
+    }
+
+    private RangeIndexProgress reopen(int markInterval) throws IOException {
+        return RangeIndexProgress.open(fFile, fTrace, markInterval, () -> {
+            fail("The ranges should be restored");
+            return Collections.emptyList();
+        });
+    }
+
+    /**
+     * Test that the ranges and the indexed ranges are restored
+     *
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    @Test
+    public void testResume() throws IOException {
+        RangeResult first = createResult(0, 95);
+        RangeResult last = createResult(2, 0);
+        try (RangeIndexProgress progress = RangeIndexProgress.open(fFile, fTrace, MARK_INTERVAL, () -> RANGES)) {
+            assertEquals(RANGES, progress.getRanges());
+            progress.save(first);
+            progress.save(last);
+        }
+
+        try (RangeIndexProgress progress = reopen(MARK_INTERVAL)) {
+            assertEquals(RANGES, progress.getRanges());
+            assertResultEquals(first, progress.getResult(0));
+            assertNull(progress.getResult(1));
+            assertResultEquals(last, progress.getResult(2));
+        }
+    }
+
+    /**
+     * Test that an incomplete entry at the end of the file is discarded and
+     * that the next entries are still saved
+     *
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    @Test
+    public void testIncompleteEntry() throws IOException {
+        RangeResult first = createResult(0, 42);
+        try (RangeIndexProgress progress = RangeIndexProgress.open(fFile, fTrace, MARK_INTERVAL, () -> RANGES)) {
+            progress.save(first);
+        }
+        try (FileOutputStream out = new FileOutputStream(fFile, true)) {
+            out.write(new byte[] { 0, 0, 1, 0, 0, 0, 0 });
+        }
+
+        RangeResult second = createResult(1, 1000);
+        try (RangeIndexProgress progress = reopen(MARK_INTERVAL)) {
+            assertResultEquals(first, progress.getResult(0));
+            assertNull(progress.getResult(1));
+            progress.save(second);
+        }
+
+        try (RangeIndexProgress progress = reopen(MARK_INTERVAL)) {
+            assertResultEquals(first, progress.getResult(0));
+            assertResultEquals(second, progress.getResult(1));
+            assertNull(progress.getResult(2));
+        }
+    }
+
+    /**
+     * Test that the progress is discarded when the parameters change
+     *
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    @Test
+    public void testOtherInterval() throws IOException {
+        try (RangeIndexProgress progress = RangeIndexProgress.open(fFile, fTrace, MARK_INTERVAL, () -> RANGES)) {
+            progress.save(createResult(0, 42));
+        }
+
+        List<ITmfLocation> ranges = Collections.singletonList(new TmfLongLocation(0L));
+        try (RangeIndexProgress progress = RangeIndexProgress.open(fFile, fTrace, MARK_INTERVAL * 2, () -> ranges)) {
+            assertEquals(ranges, progress.getRanges());
+            assertNull(progress.getResult(0));
+        }
+    }
+}
@@ -21,16 +21,25 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.eclipse.tracecompass.common.core.collect.BufferedBlockingQueue;
+import org.eclipse.tracecompass.internal.tmf.core.Activator;
 import org.eclipse.tracecompass.internal.tmf.core.TmfCoreTracer;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.event.TmfEvent;
 import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest;
 import org.eclipse.tracecompass.tmf.core.request.TmfEventRequest;
 import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
 import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
 
 /**
  * The TMF coalesced event request
  *
+ * The events are given to the sub-requests on the thread reading them, except
+ * for the {@link ITmfEventRequest#isIndependent() independent} sub-requests,
+ * which receive them on their own thread through a bounded queue. The events
+ * are still read only once.
+ *
  * @author Francois Chouinard
  */
 public class TmfCoalescedEventRequest extends TmfEventRequest {
@@ -53,6 +62,12 @@ public class TmfCoalescedEventRequest extends TmfEventRequest {
      */
     private Map<String, Set<ITmfEventRequest>> fRequestsCache = new HashMap<>();
 
+    /**
+     * The dispatchers of the independent sub-requests, created when the
+     * request starts
+     */
+    private final Map<ITmfEventRequest, IndependentDispatcher> fDispatchers = new HashMap<>();
+
     // ------------------------------------------------------------------------
     // Constructor
     // ------------------------------------------------------------------------
@@ -232,11 +247,20 @@ public class TmfCoalescedEventRequest extends TmfEventRequest {
         // dispatch event to relevant requests
         for (ITmfEventRequest request : requests) {
             long start = request.getIndex();
-            if (!request.isCompleted() && index >= start && request.getNbRead() < request.getNbRequested()) {
+            if (request.isCompleted() || index < start) {
+                continue;
+            }
+            IndependentDispatcher dispatcher = fDispatchers.get(request);
+            long nbRead = (dispatcher == null) ? request.getNbRead() : dispatcher.fNbDispatched;
+            if (nbRead < request.getNbRequested()) {
                 ITmfTimestamp ts = data.getTimestamp();
                 if (request.getRange().contains(ts)) {
                     if (request.getDataType().isInstance(data)) {
-                        request.handleData(data);
+                        if (dispatcher == null) {
+                            request.handleData(data);
+                        } else {
+                            dispatcher.dispatch(data);
+                        }
                     }
                 }
             }
@@ -248,6 +272,9 @@ public class TmfCoalescedEventRequest extends TmfEventRequest {
         for (ITmfEventRequest request : fRequests) {
             if (!request.isCompleted()) {
                 request.start();
+                if (request.isIndependent() && !fDispatchers.containsKey(request)) {
+                    fDispatchers.put(request, new IndependentDispatcher(request));
+                }
             }
         }
         super.start();
@@ -255,6 +282,10 @@ public class TmfCoalescedEventRequest extends TmfEventRequest {
 
     @Override
     public synchronized void done() {
+        /* Let the independent requests handle their remaining events */
+        for (IndependentDispatcher dispatcher : fDispatchers.values()) {
+            dispatcher.finish();
+        }
         for (ITmfEventRequest request : fRequests) {
             if (!request.isCompleted()) {
                 request.done();
@@ -265,6 +296,7 @@ public class TmfCoalescedEventRequest extends TmfEventRequest {
 
     @Override
     public void fail(Exception e) {
+        abortDispatchers();
         for (ITmfEventRequest request : fRequests) {
             request.fail(e);
         }
@@ -273,6 +305,7 @@ public class TmfCoalescedEventRequest extends TmfEventRequest {
 
     @Override
     public void cancel() {
+        abortDispatchers();
         for (ITmfEventRequest request : fRequests) {
             if (!request.isCompleted()) {
                 request.cancel();
@@ -281,6 +314,20 @@ public class TmfCoalescedEventRequest extends TmfEventRequest {
         super.cancel();
     }
 
+    /**
+     * Stop the threads of the independent requests without waiting for them
+     * to handle their remaining events
+     */
+    private void abortDispatchers() {
+        List<IndependentDispatcher> dispatchers;
+        synchronized (this) {
+            dispatchers = new ArrayList<>(fDispatchers.values());
+        }
+        for (IndependentDispatcher dispatcher : dispatchers) {
+            dispatcher.abort();
+        }
+    }
+
     @Override
     public synchronized boolean isCompleted() {
         // Firstly, check if coalescing request is completed
@@ -328,6 +375,109 @@ public class TmfCoalescedEventRequest extends TmfEventRequest {
 
     }
 
+    // ------------------------------------------------------------------------
+    // Independent requests
+    // ------------------------------------------------------------------------
+
+    /** Fake event indicating that there are no more events to dispatch */
+    private static class EndEvent extends TmfEvent {
+        public EndEvent() {
+            super(null, ITmfContext.UNKNOWN_RANK, null, null, null);
+        }
+    }
+
+    private static final EndEvent END_EVENT = new EndEvent();
+
+    /**
+     * Gives the events to an independent request on its own thread. The
+     * events are dispatched by the thread reading them.
+     */
+    private static class IndependentDispatcher implements Runnable {
+
+        private static final int QUEUE_SIZE = 127;
+        private static final int CHUNK_SIZE = 127;
+
+        private final ITmfEventRequest fRequest;
+        private final BufferedBlockingQueue<ITmfEvent> fQueue = new BufferedBlockingQueue<>(QUEUE_SIZE, CHUNK_SIZE);
+        private final Thread fThread;
+
+        /** Number of events dispatched, only used by the reading thread */
+        private long fNbDispatched = 0;
+        private boolean fFinished = false;
+        private volatile boolean fAborted = false;
+
+        public IndependentDispatcher(ITmfEventRequest request) {
+            fRequest = request;
+            fThread = new Thread(this, "Request " + request.getRequestId() + " Event Handler"); //$NON-NLS-1$ //$NON-NLS-2$
+            fThread.setDaemon(true);
+            fThread.start();
+        }
+
+        public synchronized void dispatch(ITmfEvent event) {
+            if (!fFinished && !fAborted) {
+                fNbDispatched++;
+                fQueue.put(event);
+            }
+        }
+
+        /**
+         * Wait until the request has handled all the dispatched events
+         */
+        public void finish() {
+            synchronized (this) {
+                if (fFinished) {
+                    return;
+                }
+                fFinished = true;
+                fQueue.put(END_EVENT);
+                fQueue.flushInputBuffer();
+            }
+            if (Thread.currentThread() == fThread) {
+                return;
+            }
+            try {
+                fThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Drop the events not handled yet and let the thread exit, without
+         * waiting for it
+         */
+        public void abort() {
+            /* The queue is drained quickly, unblocking a reader in dispatch() */
+            fAborted = true;
+            synchronized (this) {
+                if (fFinished) {
+                    return;
+                }
+                fFinished = true;
+                fQueue.put(END_EVENT);
+                fQueue.flushInputBuffer();
+            }
+        }
+
+        @Override
+        public void run() {
+            ITmfEvent event = fQueue.take();
+            /* This is a singleton, we want to do != instead of !x.equals */
+            while (event != END_EVENT) {
+                if (!fAborted && !fRequest.isCompleted()) {
+                    try {
+                        fRequest.handleData(event);
+                    } catch (RuntimeException e) {
+                        /* Keep emptying the queue so the reader is not blocked */
+                        Activator.logError("Error handling event in request " + fRequest.getRequestId(), e); //$NON-NLS-1$
+                        fRequest.fail(e);
+                    }
+                }
+                event = fQueue.take();
+            }
+        }
+    }
+
     // ------------------------------------------------------------------------
     // Object
     // ------------------------------------------------------------------------
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2014 Ericsson
+ * Copyright (c) 2009, 2017 Ericsson
  *
  * All rights reserved. This program and the accompanying materials are
  * made available under the terms of the Eclipse Public License v1.0 which
@@ -16,29 +16,39 @@ package org.eclipse.tracecompass.internal.tmf.core.request;
 
 import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
 
-import java.util.Queue;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.internal.tmf.core.TmfCoreTracer;
 import org.eclipse.tracecompass.internal.tmf.core.component.TmfEventThread;
 import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest.ExecutionType;
 
 /**
- * The request scheduler works with 5 slots with a specific time. It has 4 slots
- * for foreground requests and 1 slot for background requests, and it passes
- * through all the slots (foreground first and background after).
- *
- * Example: if we have one foreground and one background request, the foreground
- * request will be executed four times more often than the background request.
+ * The request scheduler runs several requests of a provider concurrently,
+ * each one with its own context, up to a maximum number of active requests.
+ * <p>
+ * Foreground requests have priority: when all the slots are taken, a
+ * foreground request suspends a running background request, as long as
+ * another background request keeps running. The suspended request resumes
+ * when a slot is available. There is no time-based preemption, a running
+ * request keeps its slot until it completes or is suspended for a foreground
+ * request.
+ * <p>
+ * To avoid starving background requests, one background request is started
+ * after every 4 foreground requests when both are waiting.
+ * <p>
+ * The executor keeps the number of waiting requests and the time they waited
+ * before being started.
  *
  * @author Francois Chouinard
  * @author Simon Delisle
- * @version 1.1
+ * @version 1.2
  */
 public class TmfRequestExecutor implements Executor {
 
@@ -46,9 +56,14 @@ public class TmfRequestExecutor implements Executor {
     // Constants
     // ------------------------------------------------------------------------
 
-    private static final long REQUEST_TIME = 100;
     private static final int FOREGROUND_SLOT = 4;
 
+    /**
+     * Default maximum number of active requests. There are at least 2 so a
+     * long request does not block all the others.
+     */
+    private static final int DEFAULT_MAX_ACTIVE = Math.max(2, Runtime.getRuntime().availableProcessors());
+
     // ------------------------------------------------------------------------
     // Attributes
     // ------------------------------------------------------------------------
@@ -56,19 +71,22 @@ public class TmfRequestExecutor implements Executor {
     // The request executor
     private final ExecutorService fExecutor = Executors.newCachedThreadPool();
     private final String fExecutorName;
+    private final int fMaxActive;
 
-    // The request queues
-    private final Queue<TmfEventThread> fForegroundTasks = new ArrayBlockingQueue<>(10);
-    private final Queue<TmfEventThread> fBackgroundTasks = new ArrayBlockingQueue<>(10);
-
-    // The tasks
-    private TmfEventThread fActiveTask;
+    // The request queues, including the suspended requests
+    private final Deque<ScheduledThread> fForegroundTasks = new ArrayDeque<>();
+    private final Deque<ScheduledThread> fBackgroundTasks = new ArrayDeque<>();
 
-    private Timer fTimer;
-    private TimerTask fTimerTask;
+    // The running tasks
+    private final Set<ScheduledThread> fActiveTasks = new LinkedHashSet<>();
 
     private int fForegroundCycle = 0;
 
+    // Metrics
+    private long fNbStarted = 0;
+    private long fTotalWaitTime = 0;
+    private long fMaxWaitTime = 0;
+
     // ------------------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------------------
@@ -77,6 +95,17 @@ public class TmfRequestExecutor implements Executor {
      * Default constructor
      */
     public TmfRequestExecutor() {
+        this(DEFAULT_MAX_ACTIVE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param maxActive
+     *            the maximum number of requests running at the same time
+     */
+    public TmfRequestExecutor(int maxActive) {
+        fMaxActive = Math.max(1, maxActive);
         // We know the canonical name is not null because we use ExecutorService only
         String canonicalName = checkNotNull(fExecutor.getClass().getCanonicalName());
         fExecutorName = canonicalName.substring(canonicalName.lastIndexOf('.') + 1);
@@ -103,23 +132,52 @@ public class TmfRequestExecutor implements Executor {
         return fExecutor.isTerminated();
     }
 
-    // ------------------------------------------------------------------------
-    // Operations
-    // ------------------------------------------------------------------------
+    /**
+     * Get the number of requests of a given priority waiting for a slot,
+     * including the suspended ones
+     *
+     * @param priority
+     *            the priority of the requests
+     * @return the number of waiting requests
+     */
+    public synchronized int getQueueDepth(ExecutionType priority) {
+        return (priority == ExecutionType.FOREGROUND) ? fForegroundTasks.size() : fBackgroundTasks.size();
+    }
 
     /**
-     * Initialize the executor
+     * @return the number of requests currently running
      */
-    public void init() {
-        if (fTimer != null) {
-            return;
-        }
-        // Initialize the timer for the schedSwitch
-        fTimerTask = new SchedSwitch();
-        fTimer = new Timer(true);
-        fTimer.schedule(fTimerTask, 0, REQUEST_TIME);
+    public synchronized int getNbActiveTasks() {
+        return fActiveTasks.size();
+    }
+
+    /**
+     * @return the number of requests that were started
+     */
+    public synchronized long getNbStartedTasks() {
+        return fNbStarted;
+    }
+
+    /**
+     * @return the average time, in nanoseconds, the requests waited before
+     *         being started
+     */
+    public synchronized long getAverageWaitTime() {
+        return (fNbStarted == 0) ? 0 : fTotalWaitTime / fNbStarted;
+    }
+
+    /**
+     * @return the longest time, in nanoseconds, a request waited before being
+     *         started
+     */
+    public synchronized long getMaxWaitTime() {
+        return fMaxWaitTime;
     }
 
+    // ------------------------------------------------------------------------
+    // Operations
+    // ------------------------------------------------------------------------
+
     @Override
     public synchronized void execute(final Runnable command) {
 
@@ -129,109 +187,32 @@ public class TmfRequestExecutor implements Executor {
             return;
         }
 
-        // Wrap the thread in a MyThread
-        TmfEventThread thread = (TmfEventThread) command;
-        TmfEventThread wrapper = new TmfEventThread(thread) {
-            @Override
-            public void run() {
-                try {
-                    command.run();
-                } finally {
-                    scheduleNext();
-                }
-            }
-        };
+        ScheduledThread wrapper = new ScheduledThread((TmfEventThread) command);
+        if (isShutdown()) {
+            wrapper.cancel();
+            return;
+        }
 
         // Add the thread to the appropriate queue
-        ExecutionType priority = thread.getExecType();
-
-        if (priority == ExecutionType.FOREGROUND) {
-            if (!fForegroundTasks.offer(wrapper)) {
-                wrapper.cancel();
-            }
+        if (wrapper.getExecType() == ExecutionType.FOREGROUND) {
+            fForegroundTasks.offer(wrapper);
         } else {
-            if (!fBackgroundTasks.offer(wrapper)) {
-                wrapper.cancel();
-            }
-        }
-    }
-
-    /**
-     * Timer task to trigger scheduleNext()
-     */
-    private class SchedSwitch extends TimerTask {
-
-        SchedSwitch() {
-        }
-
-        @Override
-        public void run() {
-            scheduleNext();
-        }
-    }
-
-    /**
-     * Executes the next pending request, if applicable.
-     */
-    protected synchronized void scheduleNext() {
-        if (!isShutdown()) {
-            if (fActiveTask == null) {
-                schedule();
-            } else if (fActiveTask.getExecType() == ExecutionType.FOREGROUND) {
-                if (fActiveTask.getThread().isCompleted()) {
-                    fActiveTask = null;
-                    schedule();
-                } else {
-                    if (hasTasks()) {
-                        fActiveTask.getThread().suspend();
-                        if (!fForegroundTasks.offer(fActiveTask)) {
-                            fActiveTask.cancel();
-                            fActiveTask = null;
-                        }
-                        schedule();
-                    }
-                }
-
-            } else if (fActiveTask.getExecType() == ExecutionType.BACKGROUND) {
-                if (fActiveTask.getThread().isCompleted()) {
-                    fActiveTask = null;
-                    schedule();
-                } else {
-                    if (hasTasks()) {
-                        fActiveTask.getThread().suspend();
-                        if (!fBackgroundTasks.offer(fActiveTask)) {
-                            fActiveTask.cancel();
-                            fActiveTask = null;
-                        }
-                        schedule();
-                    }
-                }
-            }
+            fBackgroundTasks.offer(wrapper);
         }
+        schedule();
     }
 
     /**
      * Stops the executor
      */
     public synchronized void stop() {
-        if (fTimerTask != null) {
-            fTimerTask.cancel();
+        for (ScheduledThread task : fActiveTasks) {
+            task.cancel();
         }
+        fActiveTasks.clear();
 
-        if (fTimer != null) {
-            fTimer.cancel();
-        }
-
-        if (fActiveTask != null) {
-            fActiveTask.cancel();
-        }
-
-        while ((fActiveTask = fForegroundTasks.poll()) != null) {
-            fActiveTask.cancel();
-        }
-        while ((fActiveTask = fBackgroundTasks.poll()) != null) {
-            fActiveTask.cancel();
-        }
+        cancelAll(fForegroundTasks);
+        cancelAll(fBackgroundTasks);
 
         fExecutor.shutdown();
         if (TmfCoreTracer.isComponentTraced()) {
@@ -243,59 +224,120 @@ public class TmfRequestExecutor implements Executor {
     // Helper methods
     // ------------------------------------------------------------------------
 
+    private static void cancelAll(Deque<ScheduledThread> tasks) {
+        ScheduledThread task;
+        while ((task = tasks.poll()) != null) {
+            task.cancel();
+            /* Let a suspended thread see the cancellation and exit */
+            if (task.getThread().isPaused()) {
+                task.getThread().resume();
+            }
+        }
+    }
+
     /**
-     * Determine which type of request (foreground or background) we schedule
-     * next
+     * Called by a task when it has completed, to release its slot
+     */
+    private synchronized void taskCompleted(ScheduledThread task) {
+        fActiveTasks.remove(task);
+        schedule();
+    }
+
+    /**
+     * Start the waiting requests while there are free slots, then let the
+     * waiting foreground requests take the slots of running background
+     * requests.
      */
     private void schedule() {
-        if (!fForegroundTasks.isEmpty()) {
-            scheduleNextForeground();
-        } else {
-            scheduleNextBackground();
+        if (isShutdown()) {
+            return;
+        }
+        while (fActiveTasks.size() < fMaxActive) {
+            ScheduledThread next = pollNext();
+            if (next == null) {
+                return;
+            }
+            start(next);
+        }
+        while (!fForegroundTasks.isEmpty()) {
+            ScheduledThread background = getPreemptibleTask();
+            if (background == null) {
+                return;
+            }
+            background.getThread().suspend();
+            fActiveTasks.remove(background);
+            fBackgroundTasks.addFirst(background);
+            start(checkNotNull(fForegroundTasks.poll()));
         }
     }
 
     /**
-     * Schedule the next foreground request
+     * Determine which request (foreground or background) we schedule next
      */
-    private void scheduleNextForeground() {
-        if (fForegroundCycle < FOREGROUND_SLOT || fBackgroundTasks.isEmpty()) {
+    private @Nullable ScheduledThread pollNext() {
+        if (!fForegroundTasks.isEmpty() && (fForegroundCycle < FOREGROUND_SLOT || fBackgroundTasks.isEmpty())) {
             ++fForegroundCycle;
-            fActiveTask = fForegroundTasks.poll();
-            executefActiveTask();
-        } else {
-            fActiveTask = null;
-            scheduleNextBackground();
+            return fForegroundTasks.poll();
         }
+        fForegroundCycle = 0;
+        return fBackgroundTasks.poll();
     }
 
     /**
-     * Schedule the next background request
+     * Get a running background request that can be suspended. The last one
+     * is never suspended, so background requests always progress.
      */
-    private void scheduleNextBackground() {
-        fForegroundCycle = 0;
-        if (!fBackgroundTasks.isEmpty()) {
-            fActiveTask = fBackgroundTasks.poll();
-            executefActiveTask();
+    private @Nullable ScheduledThread getPreemptibleTask() {
+        ScheduledThread candidate = null;
+        int nbBackground = 0;
+        for (ScheduledThread task : fActiveTasks) {
+            if (task.getExecType() == ExecutionType.BACKGROUND) {
+                nbBackground++;
+                candidate = task;
+            }
         }
+        return (nbBackground > 1) ? candidate : null;
     }
 
     /**
-     * Execute or resume the active task
+     * Execute or resume a task
      */
-    private void executefActiveTask() {
-        if (fActiveTask.getThread().isPaused()) {
-            fActiveTask.getThread().resume();
-        } else {
-            fExecutor.execute(fActiveTask);
+    private void start(ScheduledThread task) {
+        fActiveTasks.add(task);
+        if (task.getThread().isPaused()) {
+            task.getThread().resume();
+            return;
+        }
+        long waitTime = System.nanoTime() - task.fQueuedTime;
+        fNbStarted++;
+        fTotalWaitTime += waitTime;
+        fMaxWaitTime = Math.max(fMaxWaitTime, waitTime);
+        if (TmfCoreTracer.isRequestTraced()) {
+            TmfCoreTracer.traceRequest(task.getRequest().getRequestId(), "SCHEDULED after waiting " + waitTime / 1000000 + " ms, " //$NON-NLS-1$ //$NON-NLS-2$
+                    + fForegroundTasks.size() + " FG and " + fBackgroundTasks.size() + " BG waiting"); //$NON-NLS-1$ //$NON-NLS-2$
         }
+        fExecutor.execute(task);
     }
 
     /**
-     * Check if the scheduler has tasks
+     * Wrapper of a request thread, releasing its slot when it completes
      */
-    private boolean hasTasks() {
-        return !(fForegroundTasks.isEmpty() && fBackgroundTasks.isEmpty());
+    private class ScheduledThread extends TmfEventThread {
+
+        private final long fQueuedTime = System.nanoTime();
+
+        public ScheduledThread(TmfEventThread thread) {
+            super(thread);
+        }
+
+        @Override
+        public void run() {
+            try {
+                getThread().run();
+            } finally {
+                taskCompleted(this);
+            }
+        }
     }
 
     // ------------------------------------------------------------------------
@@ -17,9 +17,18 @@ import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNullCont
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.stream.Collectors;
 
@@ -27,6 +36,7 @@ import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
 import org.eclipse.tracecompass.statesystem.core.backend.IStateHistoryBackend;
+import org.eclipse.tracecompass.statesystem.core.backend.TimeRangeCondition;
 import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
 import org.eclipse.tracecompass.statesystem.core.exceptions.TimeRangeException;
 import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
@@ -218,27 +228,196 @@ public class PartialHistoryBackend implements IStateHistoryBackend {
 
         /* Reload the previous checkpoint */
         long checkpointTime = fCheckpoints.floorKey(t);
-        fInnerHistory.doQuery(currentStateInfo, checkpointTime);
+        fPartialSS.takeQueryLock();
+        try {
+            reloadCheckpoint(currentStateInfo, checkpointTime);
+            replayEvents(checkpointTime, t);
+
+            /*
+             * Now the partial state system should have the ongoing time we are
+             * looking for. However, the method expects a List of *state
+             * intervals*, not state values, so we'll create intervals with a
+             * dummy end time.
+             */
+            for (int i = 0; i < currentStateInfo.size(); i++) {
+                long start = 0;
+                start = ((ITmfStateSystem) fPartialSS).getOngoingStartTime(i);
+                ITmfStateValue val = ((ITmfStateSystem) fPartialSS).queryOngoingState(i);
+
+                ITmfStateInterval interval = new TmfStateInterval(start, t, i, checkNotNull(val));
+                currentStateInfo.set(i, interval);
+            }
+        } finally {
+            fPartialSS.releaseQueryLock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The partial history only knows the states at the checkpoints. The
+     * sampled timestamps are split in runs which are not separated by a
+     * checkpoint. For each run, the partial state system is re-seeded from
+     * the inner history at the checkpoint before it, then the events up to
+     * the last sample of the run are replayed in a single request. The
+     * intervals closed by the replayed events are collected as they pass, and
+     * the states still ongoing are read once the run is replayed. The end time
+     * of an interval which ended between two runs is not known exactly, it is
+     * set to just before the start of the state at the next checkpoint, and
+     * the states still ongoing at the end of the range end at its last sample.
+     */
+    @Override
+    public Iterable<@NonNull ITmfStateInterval> query2D(Collection<@NonNull Integer> quarks, TimeRangeCondition times)
+            throws TimeRangeException, StateSystemDisposedException {
+        /* Wait for required steps to be done */
+        waitForCheckpoints();
+        fPartialSS.getUpstreamSS().waitUntilBuilt();
+
+        if (!checkValidTime(times.getStart()) || !checkValidTime(times.getEnd())) {
+            throw new TimeRangeException(fSSID + " Range:" + times + ", Start:" + getStartTime() + ", End:" + getEndTime()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        }
+
+        final ITmfStateSystem partialSS = fPartialSS;
+        final int nbAttributes = partialSS.getNbAttributes();
+        final Set<Integer> quarkSet = new HashSet<>(quarks);
+        List<@NonNull ITmfStateInterval> intervals = new ArrayList<>();
+        /* The intervals ongoing at the last sample of the previous run, per quark */
+        Map<Integer, @NonNull ITmfStateInterval> pending = new HashMap<>();
+        /* The intervals closed by the replayed events, filled by the provider's thread */
+        Queue<@NonNull ITmfStateInterval> closed = new ConcurrentLinkedQueue<>();
+
+        fPartialSS.takeQueryLock();
+        try {
+            fPartialSS.setReplayListener(interval -> {
+                if (quarkSet.contains(interval.getAttribute())) {
+                    closed.add(interval);
+                }
+            });
+            long currentTime = Long.MIN_VALUE;
+            long runStart = times.getStart();
+            while (true) {
+                /*
+                 * Extend the run until a checkpoint falls strictly between two
+                 * samples: reloading it is then cheaper than replaying up to
+                 * it.
+                 */
+                long runEnd = runStart;
+                Long nextCheckpoint = fCheckpoints.higherKey(runStart);
+                while (runEnd < times.getEnd()) {
+                    long next = times.getNextSample(runEnd);
+                    if (nextCheckpoint != null && nextCheckpoint < next) {
+                        break;
+                    }
+                    runEnd = next;
+                }
+
+                long checkpointTime = fCheckpoints.floorKey(runStart);
+                if (checkpointTime > currentTime) {
+                    List<@Nullable ITmfStateInterval> stateInfo = new ArrayList<>(Collections.nCopies(nbAttributes, null));
+                    reloadCheckpoint(stateInfo, checkpointTime);
+                    currentTime = checkpointTime;
+                    closeSkippedStates(pending, stateInfo, intervals);
+                }
+                replayEvents(currentTime, runEnd);
+                currentTime = runEnd;
+
+                for (ITmfStateInterval interval = closed.poll(); interval != null; interval = closed.poll()) {
+                    Integer quark = interval.getAttribute();
+                    ITmfStateInterval previous = pending.get(quark);
+                    if (previous != null && previous.getStartTime() == interval.getStartTime()) {
+                        /* This state was ongoing at the end of the previous run */
+                        pending.remove(quark);
+                        intervals.add(interval);
+                    } else if (times.intersects(interval.getStartTime(), interval.getEndTime())) {
+                        intervals.add(interval);
+                    }
+                }
+
+                for (Integer quark : quarks) {
+                    long start = partialSS.getOngoingStartTime(quark);
+                    ITmfStateValue val = partialSS.queryOngoingState(quark);
+                    pending.put(quark, new TmfStateInterval(start, runEnd, quark, val));
+                }
+
+                if (runEnd >= times.getEnd()) {
+                    break;
+                }
+                runStart = times.getNextSample(runEnd);
+            }
+        } finally {
+            fPartialSS.setReplayListener(null);
+            fPartialSS.releaseQueryLock();
+        }
+        intervals.addAll(pending.values());
+        return intervals;
+    }
+
+    /**
+     * Close the pending intervals whose state ended before a reloaded
+     * checkpoint. Their end was not replayed, so it is set to just before the
+     * start of the state at the checkpoint.
+     */
+    private static void closeSkippedStates(Map<Integer, @NonNull ITmfStateInterval> pending,
+            List<@Nullable ITmfStateInterval> stateInfo, List<@NonNull ITmfStateInterval> intervals) {
+        Iterator<@NonNull ITmfStateInterval> iter = pending.values().iterator();
+        while (iter.hasNext()) {
+            ITmfStateInterval previous = iter.next();
+            ITmfStateInterval next = stateInfo.get(previous.getAttribute());
+            if (next != null && next.getStartTime() != previous.getStartTime()) {
+                intervals.add(new TmfStateInterval(previous.getStartTime(),
+                        Math.max(previous.getEndTime(), next.getStartTime() - 1), previous.getAttribute(), previous.getStateValue()));
+                iter.remove();
+            }
+        }
+    }
+
+    /**
+     * Set the ongoing state of the partial state system to the state of the
+     * inner history at a checkpoint. The query lock must be held.
+     *
+     * @param stateInfo
+     *            The list to fill with the state at the checkpoint, of the
+     *            size of the number of attributes
+     * @param checkpointTime
+     *            The time of the checkpoint
+     */
+    private void reloadCheckpoint(List<@Nullable ITmfStateInterval> stateInfo, long checkpointTime)
+            throws StateSystemDisposedException {
+        fInnerHistory.doQuery(stateInfo, checkpointTime);
 
         /*
          * Set the initial contents of the partial state system (which is the
          * contents of the query at the checkpoint).
          */
         List<@NonNull ITmfStateInterval> filledStateInfo =
-                checkNotNullContents(currentStateInfo.stream()).collect(Collectors.toList());
-
-        fPartialSS.takeQueryLock();
+                checkNotNullContents(stateInfo.stream()).collect(Collectors.toList());
         fPartialSS.replaceOngoingState(filledStateInfo);
+    }
 
+    /**
+     * Send the events in (from, to] to the partial state provider, and wait
+     * for the partial state system to be up to date. The query lock must be
+     * held.
+     *
+     * @param from
+     *            The time up to which the partial state system is already up
+     *            to date. Events at this exact time are not sent again.
+     * @param to
+     *            The target time
+     */
+    private void replayEvents(long from, long to) {
+        if (to <= from) {
+            return;
+        }
         /* Send an event request to update the state system to the target time. */
         TmfTimeRange range = new TmfTimeRange(
                 /*
-                 * The state at the checkpoint already includes any state change
-                 * caused by the event(s) happening exactly at 'checkpointTime',
-                 * if any. We must not include those events in the query.
+                 * The state at 'from' already includes any state change caused
+                 * by the event(s) happening exactly at that time, if any. We
+                 * must not include those events in the query.
                  */
-                TmfTimestamp.fromNanos(checkpointTime + 1),
-                TmfTimestamp.fromNanos(t));
+                TmfTimestamp.fromNanos(from + 1),
+                TmfTimestamp.fromNanos(to));
         ITmfEventRequest request = new PartialStateSystemRequest(fPartialInput, range);
         fPartialInput.getTrace().sendRequest(request);
 
@@ -247,22 +426,6 @@ public class PartialHistoryBackend implements IStateHistoryBackend {
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
-
-        /*
-         * Now the partial state system should have the ongoing time we are
-         * looking for. However, the method expects a List of *state intervals*,
-         * not state values, so we'll create intervals with a dummy end time.
-         */
-        for (int i = 0; i < currentStateInfo.size(); i++) {
-            long start = 0;
-            start = ((ITmfStateSystem) fPartialSS).getOngoingStartTime(i);
-            ITmfStateValue val = ((ITmfStateSystem) fPartialSS).queryOngoingState(i);
-
-            ITmfStateInterval interval = new TmfStateInterval(start, t, i, checkNotNull(val));
-            currentStateInfo.set(i, interval);
-        }
-
-        fPartialSS.releaseQueryLock();
     }
 
     /**
@@ -13,16 +13,20 @@ package org.eclipse.tracecompass.internal.tmf.core.statesystem.backends.partial;
 
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.internal.statesystem.core.AttributeTree;
 import org.eclipse.tracecompass.internal.statesystem.core.StateSystem;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.NullBackend;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
-import org.eclipse.tracecompass.statesystem.core.backend.StateHistoryBackendFactory;
 import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
 import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.tracecompass.statesystem.core.interval.TmfStateInterval;
+import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
 
 /**
  * State system interface-like extension to use with partial state histories.
@@ -47,6 +51,9 @@ public class PartialStateSystem extends StateSystem {
      */
     private StateSystem realStateSystem = null;
 
+    /** The back-end, which only passes on the intervals to a listener */
+    private final ReplayBackend replayBackend;
+
     /**
      * Constructor
      */
@@ -54,8 +61,14 @@ public class PartialStateSystem extends StateSystem {
         /*
          * We use a Null back end here : we only use this state system for its
          * "ongoing" values, so no need to save the changes that are inserted.
+         * Bulk queries can still listen to them while they replay events.
          */
-        super(StateHistoryBackendFactory.createNullBackend("partial")); //$NON-NLS-1$
+        this(new ReplayBackend());
+    }
+
+    private PartialStateSystem(ReplayBackend backend) {
+        super(backend);
+        replayBackend = backend;
     }
 
     /**
@@ -116,6 +129,18 @@ public class PartialStateSystem extends StateSystem {
         queryLock.unlock();
     }
 
+    /**
+     * Set the listener receiving the intervals that the state changes close
+     * while events are replayed. It is called on the thread of the state
+     * provider. The query lock must be held.
+     *
+     * @param listener
+     *            The listener, or null to discard the intervals again
+     */
+    public void setReplayListener(@Nullable Consumer<@NonNull ITmfStateInterval> listener) {
+        replayBackend.listener = listener;
+    }
+
     @Override
     public AttributeTree getAttributeTree() {
         waitUntilReady();
@@ -160,4 +185,25 @@ public class PartialStateSystem extends StateSystem {
         }
     }
 
+    /**
+     * Null back-end passing on the intervals it receives to the replay
+     * listener, if there is one.
+     */
+    private static class ReplayBackend extends NullBackend {
+
+        private volatile @Nullable Consumer<@NonNull ITmfStateInterval> listener = null;
+
+        public ReplayBackend() {
+            super("partial"); //$NON-NLS-1$
+        }
+
+        @Override
+        public void insertPastState(long stateStartTime, long stateEndTime,
+                int quark, ITmfStateValue value) {
+            Consumer<@NonNull ITmfStateInterval> l = listener;
+            if (l != null) {
+                l.accept(new TmfStateInterval(stateStartTime, stateEndTime, quark, value));
+            }
+        }
+    }
 }
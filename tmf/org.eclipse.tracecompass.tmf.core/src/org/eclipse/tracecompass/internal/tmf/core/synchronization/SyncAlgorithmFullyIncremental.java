@@ -15,16 +15,27 @@ package org.eclipse.tracecompass.internal.tmf.core.synchronization;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.math.MathContext;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.common.core.NonNullUtils;
+import org.eclipse.tracecompass.internal.tmf.core.Activator;
 import org.eclipse.tracecompass.internal.tmf.core.synchronization.graph.SyncSpanningTree;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
 import org.eclipse.tracecompass.tmf.core.event.matching.TmfEventDependency;
@@ -57,32 +68,114 @@ public class SyncAlgorithmFullyIncremental extends SynchronizationAlgorithm {
 
     private static final MathContext fMc = MathContext.DECIMAL128;
 
+    /**
+     * Maximum number of matches waiting to be processed by the worker of a
+     * convex hull, before the matching waits for the worker to catch up
+     */
+    private static final int MAX_PENDING_MATCHES = 10000;
+
     /** @Serial */
     private final List<ConvexHull> fSyncs;
 
     private transient SyncSpanningTree fTree = null;
 
+    /** Index of the convex hulls by pair of hosts */
+    private transient @Nullable Map<String, ConvexHull> fSyncsByHosts = null;
+
+    /**
+     * Number of threads processing the matches, or 0 to process them on the
+     * thread adding the matches
+     */
+    private final transient int fNbThreads;
+
+    private transient @Nullable ExecutorService fExecutor = null;
+
     /**
      * Initialization of the attributes
      */
     public SyncAlgorithmFullyIncremental() {
+        this(0);
+    }
+
+    /**
+     * Constructor for a synchronization processing the matches in parallel.
+     * The matches between each pair of hosts are independent, so each convex
+     * hull is updated by a worker thread, in the order of the matches, while
+     * the matching goes on. The results are the same as the sequential
+     * algorithm.
+     *
+     * @param nbThreads
+     *            The number of threads updating the convex hulls, or 0 to
+     *            update them on the thread adding the matches
+     */
+    public SyncAlgorithmFullyIncremental(int nbThreads) {
         fSyncs = new LinkedList<>();
+        fNbThreads = nbThreads;
     }
 
     /**
      * Function called after all matching has been done, to do any post-match
-     * treatment. For this class, it calculates stats, while the data is
-     * available
+     * treatment. For this class, it waits for the pending matches and
+     * calculates stats, while the data is available
      */
     @Override
     public void matchingEnded() {
+        awaitPendingMatches();
+        shutdownExecutor();
         getStats();
     }
 
+    /**
+     * Stop the worker threads, if the matching was not ended, dropping the
+     * matches that were not processed yet. The algorithm can still be queried
+     * afterwards, and processes the next matches on the thread adding them.
+     */
+    @Override
+    public void dispose() {
+        ExecutorService executor = fExecutor;
+        if (executor == null) {
+            return;
+        }
+        for (ConvexHull traceSync : fSyncs) {
+            traceSync.cancelPendingMatches();
+        }
+        executor.shutdown();
+        /* Wait for the matches being processed */
+        for (ConvexHull traceSync : fSyncs) {
+            traceSync.awaitPendingMatches();
+        }
+        fExecutor = null;
+    }
+
+    private void shutdownExecutor() {
+        ExecutorService executor = fExecutor;
+        if (executor != null) {
+            executor.shutdown();
+            fExecutor = null;
+        }
+    }
+
     @Override
     public void init(Collection<ITmfTrace> traces) {
         ITmfTrace[] traceArr = traces.toArray(new ITmfTrace[traces.size()]);
+        awaitPendingMatches();
+        shutdownExecutor();
+        if (fNbThreads > 0) {
+            /*
+             * Idle threads stop, so a pool which is never shut down does not
+             * leak them
+             */
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(fNbThreads, fNbThreads, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                Thread thread = new Thread(r, "Trace synchronization"); //$NON-NLS-1$
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.allowCoreThreadTimeOut(true);
+            fExecutor = executor;
+        }
         fSyncs.clear();
+        fSyncsByHosts = null;
+        invalidateSyncGraph();
         /* Create a convex hull for all trace pairs */
         // FIXME: is it necessary to make ConvexHull for every pairs up-front?
         // The ConvexHull seems to be created on the fly in processMatch().
@@ -90,12 +183,45 @@ public class SyncAlgorithmFullyIncremental extends SynchronizationAlgorithm {
             for (int j = i + 1; j < traceArr.length; j++) {
                 if (!traceArr[i].getHostId().equals(traceArr[j].getHostId())) {
                     ConvexHull algo = new ConvexHull(traceArr[i], traceArr[j]);
-                    fSyncs.add(algo);
+                    addHull(algo);
                 }
             }
         }
     }
 
+    private void addHull(ConvexHull algo) {
+        fSyncs.add(algo);
+        getSyncsByHosts().put(getHostsKey(algo.getReferenceHost(), algo.getOtherHost()), algo);
+    }
+
+    private Map<String, ConvexHull> getSyncsByHosts() {
+        Map<String, ConvexHull> syncsByHosts = fSyncsByHosts;
+        if (syncsByHosts == null) {
+            syncsByHosts = new HashMap<>();
+            for (ConvexHull traceSync : fSyncs) {
+                syncsByHosts.put(getHostsKey(traceSync.getReferenceHost(), traceSync.getOtherHost()), traceSync);
+            }
+            fSyncsByHosts = syncsByHosts;
+        }
+        return syncsByHosts;
+    }
+
+    private static String getHostsKey(String host1, String host2) {
+        return (host1.compareTo(host2) > 0) ? host2 + '\0' + host1 : host1 + '\0' + host2;
+    }
+
+    /**
+     * Wait for the workers to process all the pending matches
+     */
+    private void awaitPendingMatches() {
+        if (fExecutor == null) {
+            return;
+        }
+        for (ConvexHull traceSync : fSyncs) {
+            traceSync.awaitPendingMatches();
+        }
+    }
+
     @Override
     protected void processMatch(TmfEventDependency match) {
         ITmfTrace trace1 = match.getSourceEvent().getTrace();
@@ -109,17 +235,21 @@ public class SyncAlgorithmFullyIncremental extends SynchronizationAlgorithm {
         }
 
         /* Check if a convex hull algorithm already exists for these 2 hosts */
-        ConvexHull algo = null;
-        for (ConvexHull traceSync : fSyncs) {
-            if (traceSync.isForHosts(host1, host2)) {
-                algo = traceSync;
-            }
-        }
+        ConvexHull algo = getSyncsByHosts().get(getHostsKey(host1, host2));
         if (algo == null) {
             algo = new ConvexHull(trace1, trace2);
-            fSyncs.add(algo);
+            addHull(algo);
+        }
+
+        /* Initialize data depending on the which hull the match is part of */
+        boolean upper = host1.compareTo(host2) > 0;
+        SyncPoint p = upper ? new SyncPoint(match.getDestinationEvent(), match.getSourceEvent()) : new SyncPoint(match.getSourceEvent(), match.getDestinationEvent());
+        ExecutorService executor = fExecutor;
+        if (executor == null) {
+            algo.processMatch(p, upper);
+        } else {
+            algo.submitMatch(p, upper, executor);
         }
-        algo.processMatch(match);
         invalidateSyncGraph();
     }
 
@@ -154,11 +284,12 @@ public class SyncAlgorithmFullyIncremental extends SynchronizationAlgorithm {
      * @return The synchronization spanning tree for this synchronization
      */
     private SyncSpanningTree getSyncTree() {
+        awaitPendingMatches();
         if (fTree == null) {
             fTree = new SyncSpanningTree(getRootNode());
             for (ConvexHull traceSync : fSyncs) {
                 SyncQuality q = traceSync.getQuality();
-                if (q == SyncQuality.ACCURATE || q == SyncQuality.APPROXIMATE || q == SyncQuality.FAIL) {
+                if (!traceSync.isFailed() && (q == SyncQuality.ACCURATE || q == SyncQuality.APPROXIMATE || q == SyncQuality.FAIL)) {
                     String from = traceSync.getReferenceHost();
                     String to = traceSync.getOtherHost();
                     fTree.addSynchronization(from, to, traceSync.getTimestampTransform(to), traceSync.getAccuracy());
@@ -170,10 +301,10 @@ public class SyncAlgorithmFullyIncremental extends SynchronizationAlgorithm {
 
     @Override
     public SyncQuality getSynchronizationQuality(ITmfTrace trace1, ITmfTrace trace2) {
-        for (ConvexHull traceSync : fSyncs) {
-            if (traceSync.isForHosts(trace1.getHostId(), trace2.getHostId())) {
-                return traceSync.getQuality();
-            }
+        awaitPendingMatches();
+        ConvexHull traceSync = getSyncsByHosts().get(getHostsKey(trace1.getHostId(), trace2.getHostId()));
+        if (traceSync != null) {
+            return traceSync.getQuality();
         }
         return SyncQuality.ABSENT;
     }
@@ -191,6 +322,7 @@ public class SyncAlgorithmFullyIncremental extends SynchronizationAlgorithm {
          * sync tree changes synchronization formula. The stats should use the
          * tree instead
          */
+        awaitPendingMatches();
         Map<String, Map<String, Object>> statmap = new LinkedHashMap<>();
         for (ConvexHull traceSync : fSyncs) {
             statmap.put(traceSync.getReferenceHost() + " <==> " + traceSync.getOtherHost(), traceSync.getStats()); //$NON-NLS-1$
@@ -200,9 +332,15 @@ public class SyncAlgorithmFullyIncremental extends SynchronizationAlgorithm {
 
     @Override
     public String toString() {
+        awaitPendingMatches();
         return getClass().getSimpleName() + ' ' + fSyncs.toString();
     }
 
+    private void writeObject(ObjectOutputStream stream) throws IOException {
+        awaitPendingMatches();
+        stream.defaultWriteObject();
+    }
+
     /**
      * This is the actual synchronization algorithm between two traces using
      * convex hull
@@ -226,14 +364,15 @@ public class SyncAlgorithmFullyIncremental extends SynchronizationAlgorithm {
 
         /**
          * The list of meaningful points on the upper hull (received by the
-         * reference trace, below in a graph)
+         * reference trace, below in a graph). Points are only added and
+         * removed at the end, and accessed by index.
          */
-        private transient LinkedList<SyncPoint> fUpperBoundList = new LinkedList<>();
+        private transient ArrayList<SyncPoint> fUpperBoundList = new ArrayList<>();
         /**
          * The list of meaninful points on the lower hull (sent by the reference
          * trace, above in a graph)
          */
-        private transient LinkedList<SyncPoint> fLowerBoundList = new LinkedList<>();
+        private transient ArrayList<SyncPoint> fLowerBoundList = new ArrayList<>();
 
         /** Points forming the line with maximum slope */
         private transient SyncPoint[] fLmax = new SyncPoint[2];
@@ -242,6 +381,13 @@ public class SyncAlgorithmFullyIncremental extends SynchronizationAlgorithm {
 
         private transient Map<String, Object> fStats = new LinkedHashMap<>();
 
+        /** Matches waiting for the worker, in order, guarded by itself */
+        private transient ArrayDeque<PendingMatch> fPendingMatches = new ArrayDeque<>();
+        /** Whether a worker is processing the pending matches */
+        private transient boolean fScheduled = false;
+        /** Whether the processing of a match failed */
+        private transient boolean fFailed = false;
+
         /**
          * Initialization of the attributes
          *
@@ -275,30 +421,133 @@ public class SyncAlgorithmFullyIncremental extends SynchronizationAlgorithm {
             fQuality = SyncQuality.ABSENT; // default quality
         }
 
-        protected void processMatch(TmfEventDependency match) {
+        /**
+         * Queue a match to be processed by a worker. The matches of a hull are
+         * processed one at a time, in the order they were submitted.
+         */
+        public void submitMatch(SyncPoint p, boolean upper, Executor executor) {
+            synchronized (fPendingMatches) {
+                if (fFailed) {
+                    return;
+                }
+                while (fPendingMatches.size() >= MAX_PENDING_MATCHES) {
+                    try {
+                        fPendingMatches.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                fPendingMatches.addLast(new PendingMatch(p, upper));
+                if (fScheduled) {
+                    return;
+                }
+                fScheduled = true;
+            }
+            executor.execute(this::processPendingMatches);
+        }
+
+        private void processPendingMatches() {
+            while (true) {
+                PendingMatch match;
+                synchronized (fPendingMatches) {
+                    match = fPendingMatches.pollFirst();
+                    if (match == null) {
+                        fScheduled = false;
+                        fPendingMatches.notifyAll();
+                        return;
+                    }
+                    if (fPendingMatches.size() == MAX_PENDING_MATCHES - 1) {
+                        fPendingMatches.notifyAll();
+                    }
+                }
+                try {
+                    processMatch(match.fPoint, match.fUpper);
+                } catch (RuntimeException | Error e) {
+                    fail(e);
+                    return;
+                }
+            }
+        }
 
-            LinkedList<SyncPoint> boundList, otherBoundList;
+        /**
+         * Mark the synchronization of this hull as failed after an error while
+         * processing a match. The state of the hull may be inconsistent, so it
+         * is not used to synchronize the traces, and the next matches are
+         * ignored.
+         */
+        private void fail(Throwable e) {
+            Activator.logError("Error while synchronizing " + fReferenceHostName + " and " + fOtherHostName, e); //$NON-NLS-1$ //$NON-NLS-2$
+            synchronized (fPendingMatches) {
+                fFailed = true;
+                setQuality(SyncQuality.FAIL);
+                fPendingMatches.clear();
+                fScheduled = false;
+                fPendingMatches.notifyAll();
+            }
+        }
+
+        /**
+         * Whether the processing of a match failed, so this hull must not be
+         * used
+         */
+        public boolean isFailed() {
+            synchronized (fPendingMatches) {
+                return fFailed;
+            }
+        }
+
+        public void cancelPendingMatches() {
+            synchronized (fPendingMatches) {
+                fPendingMatches.clear();
+                fPendingMatches.notifyAll();
+            }
+        }
+
+        public void awaitPendingMatches() {
+            synchronized (fPendingMatches) {
+                while (fScheduled) {
+                    try {
+                        fPendingMatches.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Add a match to the hull
+         *
+         * @param p
+         *            The point of the match, the x axis is the time on the
+         *            reference host
+         * @param upper
+         *            Whether the point is on the upper hull, ie the message
+         *            was received by the reference host
+         */
+        protected void processMatch(SyncPoint p, boolean upper) {
+
+            List<SyncPoint> boundList, otherBoundList;
 
             SyncPoint[] line, otherLine;
-            SyncPoint p;
             int inversionFactor = 1;
             boolean qualify = false;
             fNbMatches++;
 
             /* Initialize data depending on the which hull the match is part of */
-            if (match.getSourceEvent().getTrace().getHostId().compareTo(match.getDestinationEvent().getTrace().getHostId()) > 0) {
+            if (upper) {
                 boundList = fUpperBoundList;
                 otherBoundList = fLowerBoundList;
                 line = fLmin;
                 otherLine = fLmax;
-                p = new SyncPoint(match.getDestinationEvent(), match.getSourceEvent());
                 inversionFactor = 1;
             } else {
                 boundList = fLowerBoundList;
                 otherBoundList = fUpperBoundList;
                 line = fLmax;
                 otherLine = fLmin;
-                p = new SyncPoint(match.getSourceEvent(), match.getDestinationEvent());
                 inversionFactor = -1;
             }
 
@@ -393,7 +642,7 @@ public class SyncAlgorithmFullyIncremental extends SynchronizationAlgorithm {
          * Verify if the line should be adjusted to be more accurate give the
          * hull
          */
-        private void adjustBound(SyncPoint[] line, LinkedList<SyncPoint> otherBoundList, int inversionFactor) {
+        private void adjustBound(SyncPoint[] line, List<SyncPoint> otherBoundList, int inversionFactor) {
             SyncPoint minPoint = null, nextPoint;
             boolean finishedSearch = false;
 
@@ -440,18 +689,18 @@ public class SyncAlgorithmFullyIncremental extends SynchronizationAlgorithm {
          * When a point qualifies to be in a hull, we verify if any of the
          * existing points need to be removed from the hull
          */
-        private void removeUselessPoints(final SyncPoint p, final LinkedList<SyncPoint> boundList, final int inversionFactor) {
+        private void removeUselessPoints(final SyncPoint p, final List<SyncPoint> boundList, final int inversionFactor) {
 
             boolean checkRemove = true;
 
             while (checkRemove && boundList.size() >= 2) {
-                if (p.crossProduct(boundList.get(boundList.size() - 2), boundList.getLast()) * inversionFactor > 0) {
-                    boundList.removeLast();
+                if (p.crossProduct(boundList.get(boundList.size() - 2), boundList.get(boundList.size() - 1)) * inversionFactor > 0) {
+                    boundList.remove(boundList.size() - 1);
                 } else {
                     checkRemove = false;
                 }
             }
-            boundList.addLast(p);
+            boundList.add(p);
         }
 
         public ITmfTimestampTransform getTimestampTransform(String hostId) {
@@ -517,20 +766,17 @@ public class SyncAlgorithmFullyIncremental extends SynchronizationAlgorithm {
             return fOtherHost;
         }
 
-        public boolean isForHosts(String hostId1, String hostId2) {
-            return ((fReferenceHost.equals(hostId1) && fOtherHost.equals(hostId2)) || (fReferenceHost.equals(hostId2) && fOtherHost.equals(hostId1)));
-        }
-
         private void readObject(ObjectInputStream stream)
                 throws IOException, ClassNotFoundException {
             stream.defaultReadObject();
 
             /* Initialize transient fields */
-            fUpperBoundList = new LinkedList<>();
-            fLowerBoundList = new LinkedList<>();
+            fUpperBoundList = new ArrayList<>();
+            fLowerBoundList = new ArrayList<>();
             fLmax = new SyncPoint[2];
             fLmin = new SyncPoint[2];
             fStats = new LinkedHashMap<>();
+            fPendingMatches = new ArrayDeque<>();
         }
 
         @Override
@@ -547,6 +793,19 @@ public class SyncAlgorithmFullyIncremental extends SynchronizationAlgorithm {
 
     }
 
+    /**
+     * A match waiting to be added to a convex hull
+     */
+    private static final class PendingMatch {
+        private final SyncPoint fPoint;
+        private final boolean fUpper;
+
+        public PendingMatch(SyncPoint point, boolean upper) {
+            fPoint = point;
+            fUpper = upper;
+        }
+    }
+
     /**
      * Private class representing a point to synchronize on a graph. The x axis
      * is the timestamp of the event from the reference trace while the y axis
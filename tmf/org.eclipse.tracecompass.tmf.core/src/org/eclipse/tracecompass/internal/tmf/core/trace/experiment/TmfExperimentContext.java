@@ -33,6 +33,12 @@ import org.eclipse.tracecompass.tmf.core.trace.TmfContext;
  * <p>
  * The last trace refers to the trace from which the last event was "consumed"
  * at the experiment level.
+ * <p>
+ * The traces with a next event are kept in a binary heap ordered by the
+ * timestamp of that event, so the next trace to read from is found in
+ * logarithmic time in the number of traces. The timestamps are compared as
+ * nanoseconds, the events are only compared when they have the same value in
+ * nanoseconds. Events with the same timestamp are ordered by trace index.
  */
 public final class TmfExperimentContext extends TmfContext {
 
@@ -53,6 +59,14 @@ public final class TmfExperimentContext extends TmfContext {
     private final List<ITmfEvent> fEvents;
     private int fLastTraceRead;
 
+    /** Heap of the indexes of the traces that have an event */
+    private final int[] fHeap;
+    /** Position of each trace in the heap, -1 if it has no event */
+    private final int[] fHeapPositions;
+    /** Timestamp in nanoseconds of the event of each trace */
+    private final long[] fTimes;
+    private int fHeapSize = 0;
+
     // ------------------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------------------
@@ -68,12 +82,15 @@ public final class TmfExperimentContext extends TmfContext {
         fLastTraceRead = NO_TRACE;
         fContexts = new ArrayList<>(nbTraces);
         fEvents = new ArrayList<>(nbTraces);
-
+        fHeap = new int[nbTraces];
+        fHeapPositions = new int[nbTraces];
+        fTimes = new long[nbTraces];
 
         /* Initialize the arrays to the requested size */
         for (int i = 0; i < nbTraces; i++) {
             fContexts.add(null);
             fEvents.add(null);
+            fHeapPositions[i] = -1;
         }
     }
 
@@ -144,8 +161,33 @@ public final class TmfExperimentContext extends TmfContext {
      * @param event
      *            The event at the context in the trace
      */
-    public void setEvent(int traceIndex, ITmfEvent event) {
+    public void setEvent(int traceIndex, @Nullable ITmfEvent event) {
         fEvents.set(traceIndex, event);
+        int position = fHeapPositions[traceIndex];
+        if (event == null) {
+            if (position >= 0) {
+                removeFromHeap(position);
+            }
+            return;
+        }
+        fTimes[traceIndex] = event.getTimestamp().toNanos();
+        if (position < 0) {
+            position = fHeapSize++;
+            fHeap[position] = traceIndex;
+            fHeapPositions[traceIndex] = position;
+        }
+        siftDown(siftUp(position));
+    }
+
+    /**
+     * Get the index of the trace whose event is the earliest, which is the
+     * next event of the experiment.
+     *
+     * @return The index of the trace, or {@link #NO_TRACE} if no trace has an
+     *         event
+     */
+    public int getNextTrace() {
+        return (fHeapSize == 0) ? NO_TRACE : fHeap[0];
     }
 
     /**
@@ -168,6 +210,78 @@ public final class TmfExperimentContext extends TmfContext {
         fLastTraceRead = newIndex;
     }
 
+    // ------------------------------------------------------------------------
+    // Heap operations
+    // ------------------------------------------------------------------------
+
+    private boolean isBefore(int trace, int other) {
+        long time = fTimes[trace];
+        long otherTime = fTimes[other];
+        if (time != otherTime) {
+            return time < otherTime;
+        }
+        ITmfEvent event = fEvents.get(trace);
+        ITmfEvent otherEvent = fEvents.get(other);
+        if (event != null && otherEvent != null) {
+            int cmp = event.getTimestamp().compareTo(otherEvent.getTimestamp());
+            if (cmp != 0) {
+                return cmp < 0;
+            }
+        }
+        return trace < other;
+    }
+
+    private void place(int position, int trace) {
+        fHeap[position] = trace;
+        fHeapPositions[trace] = position;
+    }
+
+    private int siftUp(int start) {
+        int position = start;
+        int trace = fHeap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!isBefore(trace, fHeap[parent])) {
+                break;
+            }
+            place(position, fHeap[parent]);
+            position = parent;
+        }
+        place(position, trace);
+        return position;
+    }
+
+    private void siftDown(int start) {
+        int position = start;
+        int trace = fHeap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= fHeapSize) {
+                break;
+            }
+            if (child + 1 < fHeapSize && isBefore(fHeap[child + 1], fHeap[child])) {
+                child++;
+            }
+            if (!isBefore(fHeap[child], trace)) {
+                break;
+            }
+            place(position, fHeap[child]);
+            position = child;
+        }
+        place(position, trace);
+    }
+
+    private void removeFromHeap(int position) {
+        int removed = fHeap[position];
+        fHeapPositions[removed] = -1;
+        fHeapSize--;
+        if (position == fHeapSize) {
+            return;
+        }
+        fHeap[position] = fHeap[fHeapSize];
+        siftDown(siftUp(position));
+    }
+
     // ------------------------------------------------------------------------
     // Object
     // ------------------------------------------------------------------------
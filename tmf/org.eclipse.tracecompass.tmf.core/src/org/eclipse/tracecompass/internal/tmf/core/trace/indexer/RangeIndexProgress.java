@@ -0,0 +1,334 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.tmf.core.trace.indexer;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.internal.tmf.core.Activator;
+import org.eclipse.tracecompass.internal.tmf.core.TmfCoreTracer;
+import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfPersistentlyIndexable;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint.ITmfCheckpoint;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint.TmfCheckpoint;
+import org.eclipse.tracecompass.tmf.core.trace.location.ITmfLocation;
+
+/**
+ * Persistent progress of the parallel indexing of a trace.
+ *
+ * The file starts with the locations of the ranges the trace is split in,
+ * followed by the result of each range as soon as it is indexed, so that an
+ * interrupted indexing only reads the ranges that are not done yet. Each
+ * entry is prefixed by its length, an incomplete entry at the end of the file
+ * is discarded.
+ */
+public class RangeIndexProgress implements Closeable {
+
+    /** The name of the progress file, in the supplementary files directory */
+    public static final String FILE_NAME = "checkpoint_ranges.idx"; //$NON-NLS-1$
+
+    private static final int VERSION = 1;
+    private static final int TIMESTAMP_SIZE = Long.BYTES + Integer.BYTES;
+
+    /**
+     * The result of the indexing of a range
+     */
+    public static final class RangeResult {
+        private final int fRange;
+        private final long fNbEvents;
+        private final @Nullable ITmfTimestamp fStartTime;
+        private final @Nullable ITmfTimestamp fEndTime;
+        private final List<ITmfCheckpoint> fMarks;
+
+        /**
+         * Constructor
+         *
+         * @param range
+         *            the index of the range
+         * @param nbEvents
+         *            the number of events in the range
+         * @param startTime
+         *            the timestamp of the first event, null if the range is
+         *            empty
+         * @param endTime
+         *            the timestamp of the last event, null if the range is
+         *            empty
+         * @param marks
+         *            the positions of the events at regular intervals in the
+         *            range, the rank of a mark being the index of the event
+         *            in the range
+         */
+        public RangeResult(int range, long nbEvents, @Nullable ITmfTimestamp startTime, @Nullable ITmfTimestamp endTime, List<ITmfCheckpoint> marks) {
+            fRange = range;
+            fNbEvents = nbEvents;
+            fStartTime = startTime;
+            fEndTime = endTime;
+            fMarks = marks;
+        }
+
+        /**
+         * @return the index of the range
+         */
+        public int getRange() {
+            return fRange;
+        }
+
+        /**
+         * @return the number of events in the range
+         */
+        public long getNbEvents() {
+            return fNbEvents;
+        }
+
+        /**
+         * @return the timestamp of the first event, null if the range is empty
+         */
+        public @Nullable ITmfTimestamp getStartTime() {
+            return fStartTime;
+        }
+
+        /**
+         * @return the timestamp of the last event, null if the range is empty
+         */
+        public @Nullable ITmfTimestamp getEndTime() {
+            return fEndTime;
+        }
+
+        /**
+         * @return the positions of the events at regular intervals in the
+         *         range
+         */
+        public List<ITmfCheckpoint> getMarks() {
+            return fMarks;
+        }
+    }
+
+    private final File fFile;
+    private final ITmfPersistentlyIndexable fTrace;
+    private final List<ITmfLocation> fRanges;
+    private final @Nullable RangeResult[] fResults;
+    private @Nullable FileOutputStream fOut;
+
+    private RangeIndexProgress(File file, ITmfPersistentlyIndexable trace, List<ITmfLocation> ranges) {
+        fFile = file;
+        fTrace = trace;
+        fRanges = ranges;
+        fResults = new RangeResult[ranges.size()];
+    }
+
+    /**
+     * Open the progress file of a trace, or create it if it does not exist
+     * or was written with other parameters.
+     *
+     * @param file
+     *            the progress file
+     * @param trace
+     *            the trace
+     * @param markInterval
+     *            the number of events between two marks of a range
+     * @param ranges
+     *            supplies the locations of the ranges when the file is
+     *            created
+     * @return the progress
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    public static RangeIndexProgress open(File file, ITmfPersistentlyIndexable trace, int markInterval, Supplier<List<ITmfLocation>> ranges) throws IOException {
+        if (file.exists()) {
+            RangeIndexProgress progress = tryRestore(file, trace, markInterval);
+            if (progress != null) {
+                return progress;
+            }
+        }
+        RangeIndexProgress progress = new RangeIndexProgress(file, trace, ranges.get());
+        FileOutputStream out = new FileOutputStream(file, false);
+        progress.fOut = out;
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES * 3 + progress.fRanges.size() * (Integer.BYTES + ITmfCheckpoint.MAX_SERIALIZE_SIZE));
+        header.putInt(VERSION);
+        header.putInt(markInterval);
+        header.putInt(progress.fRanges.size());
+        ByteBuffer location = ByteBuffer.allocate(ITmfCheckpoint.MAX_SERIALIZE_SIZE);
+        for (ITmfLocation range : progress.fRanges) {
+            location.clear();
+            range.serialize(location);
+            location.flip();
+            header.putInt(location.remaining());
+            header.put(location);
+        }
+        out.write(header.array(), 0, header.position());
+        return progress;
+    }
+
+    private static @Nullable RangeIndexProgress tryRestore(File file, ITmfPersistentlyIndexable trace, int markInterval) {
+        long validLength = 0;
+        RangeIndexProgress progress = null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != VERSION || in.readInt() != markInterval) {
+                return null;
+            }
+            int nbRanges = in.readInt();
+            if (nbRanges < 0) {
+                return null;
+            }
+            validLength = Integer.BYTES * 3;
+            List<ITmfLocation> ranges = new ArrayList<>(nbRanges);
+            for (int i = 0; i < nbRanges; i++) {
+                byte[] location = readEntry(in);
+                ranges.add(trace.restoreLocation(ByteBuffer.wrap(location)));
+                validLength += Integer.BYTES + location.length;
+            }
+            progress = new RangeIndexProgress(file, trace, ranges);
+            while (true) {
+                byte[] entry = readEntry(in);
+                RangeResult result = progress.deserialize(ByteBuffer.wrap(entry));
+                progress.fResults[result.getRange()] = result;
+                validLength += Integer.BYTES + entry.length;
+            }
+        } catch (EOFException e) {
+            /* End of the file or incomplete entry, keep what was read */
+        } catch (IOException | RuntimeException e) {
+            Activator.logError(MessageFormat.format(Messages.IOErrorReadingHeader, file), e);
+            return null;
+        }
+        if (progress == null) {
+            return null;
+        }
+        try {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) { //$NON-NLS-1$
+                raf.setLength(validLength);
+            }
+            progress.fOut = new FileOutputStream(file, true);
+        } catch (IOException e) {
+            Activator.logError(MessageFormat.format(Messages.ErrorOpeningIndex, file), e);
+            return null;
+        }
+        TmfCoreTracer.traceIndexer("Restored indexing progress " + file + " ranges: " + progress.fRanges.size()); //$NON-NLS-1$ //$NON-NLS-2$
+        return progress;
+    }
+
+    private static byte[] readEntry(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Invalid entry length " + length); //$NON-NLS-1$
+        }
+        byte[] entry = new byte[length];
+        in.readFully(entry);
+        return entry;
+    }
+
+    /**
+     * Get the locations where the ranges start
+     *
+     * @return the start locations of the ranges, in trace order
+     */
+    public List<ITmfLocation> getRanges() {
+        return Collections.unmodifiableList(fRanges);
+    }
+
+    /**
+     * Get the result of a range that was already indexed
+     *
+     * @param range
+     *            the index of the range
+     * @return the result, or null if the range is not indexed yet
+     */
+    public synchronized @Nullable RangeResult getResult(int range) {
+        return fResults[range];
+    }
+
+    /**
+     * Save the result of a range
+     *
+     * @param result
+     *            the result
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    public synchronized void save(RangeResult result) throws IOException {
+        fResults[result.getRange()] = result;
+        FileOutputStream out = fOut;
+        if (out == null) {
+            return;
+        }
+        int checkpointSize = fTrace.getCheckpointSize();
+        ByteBuffer entry = ByteBuffer.allocate(Integer.BYTES * 3 + Long.BYTES + TIMESTAMP_SIZE * 2 + result.getMarks().size() * checkpointSize);
+        /* Leave room for the length of the entry */
+        entry.position(Integer.BYTES);
+        entry.putInt(result.getRange());
+        entry.putLong(result.getNbEvents());
+        ITmfTimestamp startTime = result.getStartTime();
+        ITmfTimestamp endTime = result.getEndTime();
+        if (startTime != null && endTime != null) {
+            TmfTimestamp.serialize(entry, startTime);
+            TmfTimestamp.serialize(entry, endTime);
+        }
+        entry.putInt(result.getMarks().size());
+        for (ITmfCheckpoint mark : result.getMarks()) {
+            mark.serialize(entry);
+        }
+        entry.putInt(0, entry.position() - Integer.BYTES);
+        out.write(entry.array(), 0, entry.position());
+    }
+
+    private RangeResult deserialize(ByteBuffer entry) {
+        int range = entry.getInt();
+        long nbEvents = entry.getLong();
+        ITmfTimestamp startTime = null;
+        ITmfTimestamp endTime = null;
+        if (nbEvents > 0) {
+            startTime = TmfTimestamp.create(entry);
+            endTime = TmfTimestamp.create(entry);
+        }
+        int nbMarks = entry.getInt();
+        List<ITmfCheckpoint> marks = new ArrayList<>(nbMarks);
+        for (int i = 0; i < nbMarks; i++) {
+            ITmfLocation location = fTrace.restoreLocation(entry);
+            ITmfTimestamp timestamp = TmfTimestamp.create(entry);
+            marks.add(new TmfCheckpoint(timestamp, location, entry));
+        }
+        return new RangeResult(range, nbEvents, startTime, endTime, marks);
+    }
+
+    /**
+     * Close the progress file and delete it, once the index is complete
+     */
+    public synchronized void delete() {
+        close();
+        fFile.delete();
+    }
+
+    @Override
+    public synchronized void close() {
+        FileOutputStream out = fOut;
+        fOut = null;
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                Activator.logError(MessageFormat.format(Messages.IOErrorClosingIndex, fFile), e);
+            }
+        }
+    }
+}
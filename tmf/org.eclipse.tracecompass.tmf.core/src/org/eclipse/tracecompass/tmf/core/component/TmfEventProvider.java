@@ -134,7 +134,6 @@ public abstract class TmfEventProvider extends TmfComponent implements ITmfEvent
     public void init(String name, Class<? extends ITmfEvent> type) {
         super.init(name);
         fType = type;
-        fExecutor.init();
 
         fSignalDepth = 0;
 
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.event;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Interface for events to implement to read their integer payload fields as
+ * primitive values, without building the event content.
+ *
+ * @author Matthew Khouzam
+ * @since 2.3
+ */
+@NonNullByDefault
+public interface ITmfLongFieldProvider {
+
+    /**
+     * Get the value of an integer field of the event payload.
+     *
+     * @param fieldName
+     *            Name of the payload field
+     * @param defaultValue
+     *            Value to return if the event has no integer field with that
+     *            name
+     * @return Value of the field, or the default value
+     */
+    long getFieldLongValue(String fieldName, long defaultValue);
+}
@@ -14,8 +14,12 @@ package org.eclipse.tracecompass.tmf.core.event.matching;
 
 import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
 
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -24,21 +28,23 @@ import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.osgi.util.NLS;
 import org.eclipse.tracecompass.internal.tmf.core.Activator;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.event.TmfEvent;
 import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest;
 import org.eclipse.tracecompass.tmf.core.request.TmfEventRequest;
+import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
 import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
 import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
 import org.eclipse.tracecompass.tmf.core.trace.experiment.TmfExperiment;
 
-import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Multimap;
-import com.google.common.collect.Table;
 
 /**
  * Abstract class to extend to match certain type of events in a trace
@@ -49,6 +55,20 @@ public class TmfEventMatching implements ITmfEventMatching {
 
     private static final Set<ITmfMatchEventDefinition> MATCH_DEFINITIONS = new HashSet<>();
 
+    /**
+     * Default time after which an event which has not been matched is
+     * forgotten. Unmatched events are kept until the end of the matching by
+     * default.
+     */
+    private static final long DEFAULT_UNMATCHED_TIMEOUT = -1;
+
+    /**
+     * Margin added to the clock offset between the traces in the bounded
+     * timeout of the unmatched events. It must be longer than the latency
+     * between an event and its match.
+     */
+    private static final long UNMATCHED_TIMEOUT_MARGIN = 10000000000L;
+
     /**
      * The array of traces to match
      */
@@ -62,14 +82,80 @@ public class TmfEventMatching implements ITmfEventMatching {
     private final Multimap<ITmfTrace, ITmfMatchEventDefinition> fMatchMap = HashMultimap.create();
 
     /**
-     * Hashtables for unmatches incoming events
+     * Unmatched incoming events, per trace
      */
-    private final Table<ITmfTrace, IEventMatchingKey, ITmfEvent> fUnmatchedIn = HashBasedTable.create();
+    private final Map<ITmfTrace, UnmatchedEvents> fUnmatchedIn = new HashMap<>();
+
+    /**
+     * Unmatched outgoing events, per trace
+     */
+    private final Map<ITmfTrace, UnmatchedEvents> fUnmatchedOut = new HashMap<>();
+
+    private long fUnmatchedTimeout = DEFAULT_UNMATCHED_TIMEOUT;
+
+    private boolean fCompactUnmatched = false;
+
+    /**
+     * Record of an event waiting for its match. In compact mode, the event
+     * itself and its payload are not kept, only its timestamp and rank.
+     */
+    private static final class UnmatchedEvent {
+        private final IEventMatchingKey fKey;
+        private final ITmfTimestamp fTimestamp;
+        private final long fRank;
+        private final @Nullable ITmfEvent fEvent;
+
+        public UnmatchedEvent(IEventMatchingKey key, ITmfEvent event, boolean compact) {
+            fKey = key;
+            fTimestamp = event.getTimestamp();
+            fRank = event.getRank();
+            fEvent = compact ? null : event;
+        }
+
+        public ITmfEvent toEvent(ITmfTrace trace) {
+            ITmfEvent event = fEvent;
+            if (event != null) {
+                return event;
+            }
+            return new TmfEvent(trace, fRank, fTimestamp, null, null);
+        }
+    }
 
     /**
-     * Hashtables for unmatches outgoing events
+     * The unmatched events of one trace in one direction, with the order in
+     * which they were added to expire the oldest ones
      */
-    private final Table<ITmfTrace, IEventMatchingKey, ITmfEvent> fUnmatchedOut = HashBasedTable.create();
+    private static final class UnmatchedEvents {
+        private final Map<IEventMatchingKey, UnmatchedEvent> fEvents = new HashMap<>();
+        private final Deque<UnmatchedEvent> fByTime = new ArrayDeque<>();
+
+        public @Nullable UnmatchedEvent remove(IEventMatchingKey key) {
+            return fEvents.remove(key);
+        }
+
+        public void add(UnmatchedEvent event, boolean expire) {
+            if (fEvents.putIfAbsent(event.fKey, event) == null && expire) {
+                fByTime.addLast(event);
+            }
+        }
+
+        /**
+         * Forget the events older than a time. Events which were matched in
+         * the meantime may still be in the queue, they are simply dropped.
+         */
+        public void expire(long before) {
+            UnmatchedEvent oldest = fByTime.peekFirst();
+            while (oldest != null && oldest.fTimestamp.toNanos() < before) {
+                fByTime.removeFirst();
+                fEvents.remove(oldest.fKey, oldest);
+                oldest = fByTime.peekFirst();
+            }
+        }
+
+        public int size() {
+            return fEvents.size();
+        }
+    }
 
     /**
      * Enum for cause and effect types of event
@@ -160,6 +246,70 @@ public class TmfEventMatching implements ITmfEventMatching {
         return ImmutableList.copyOf(fMatchMap.get(trace));
     }
 
+    /**
+     * Set the time after which an event which has not been matched is
+     * forgotten. The time is measured on the trace of the event, so it should
+     * be longer than the expected clock offset between the traces. Forgetting
+     * old unmatched events keeps the memory usage bounded on long traces.
+     *
+     * @param timeout
+     *            The timeout in nanoseconds, or a negative value to keep the
+     *            unmatched events until the end of the matching, which is the
+     *            default
+     * @since 2.3
+     */
+    public void setUnmatchedEventTimeout(long timeout) {
+        fUnmatchedTimeout = timeout;
+    }
+
+    /**
+     * Get a timeout for the unmatched events derived from the traces to
+     * match. The traces are expected to be recorded at the same time, so the
+     * difference between their start times bounds the offset between their
+     * clocks. The timeout is this difference plus a margin of 10 seconds for
+     * the latency between an event and its match.
+     *
+     * @return The timeout in nanoseconds, to pass to
+     *         {@link #setUnmatchedEventTimeout(long)}, or a negative value if
+     *         the start time of a trace is not known
+     * @since 2.3
+     */
+    public long getBoundedUnmatchedEventTimeout() {
+        long minStart = Long.MAX_VALUE;
+        long maxStart = Long.MIN_VALUE;
+        for (ITmfTrace trace : getIndividualTraces()) {
+            ITmfTimestamp start = trace.getStartTime();
+            if (start.equals(TmfTimestamp.BIG_BANG) || start.equals(TmfTimestamp.BIG_CRUNCH)) {
+                return DEFAULT_UNMATCHED_TIMEOUT;
+            }
+            minStart = Math.min(minStart, start.toNanos());
+            maxStart = Math.max(maxStart, start.toNanos());
+        }
+        if (minStart > maxStart) {
+            return DEFAULT_UNMATCHED_TIMEOUT;
+        }
+        return maxStart - minStart + UNMATCHED_TIMEOUT_MARGIN;
+    }
+
+    /**
+     * Set whether to keep only a compact record of the events waiting for
+     * their match, instead of the events themselves. This reduces the memory
+     * used by the unmatched events, but in the dependencies passed to the
+     * processing unit, the event which was waiting for its match is then a
+     * lightweight {@link TmfEvent} with only the trace, rank and timestamp of
+     * the original event, without type nor content. Its rank may be unknown,
+     * so it should not be used to identify the event. Only enable it if the
+     * processing unit needs nothing else, like the synchronization
+     * algorithms. It is disabled by default.
+     *
+     * @param compact
+     *            Whether to keep compact records of the unmatched events
+     * @since 2.3
+     */
+    public void setCompactUnmatchedEvents(boolean compact) {
+        fCompactUnmatched = compact;
+    }
+
     /**
      * Method that initializes any data structure for the event matching. It
      * also assigns to each trace an event matching definition instance that
@@ -202,13 +352,25 @@ public class TmfEventMatching implements ITmfEventMatching {
         int i = 0;
         for (ITmfTrace trace : getIndividualTraces()) {
             b.append("Trace " + i++ + ":" + cr + //$NON-NLS-1$ //$NON-NLS-2$
-                    "  " + fUnmatchedIn.row(trace).size() + " unmatched incoming events" + cr + //$NON-NLS-1$ //$NON-NLS-2$
-                    "  " + fUnmatchedOut.row(trace).size() + " unmatched outgoing events" + cr); //$NON-NLS-1$ //$NON-NLS-2$
+                    "  " + countUnmatched(fUnmatchedIn, trace) + " unmatched incoming events" + cr + //$NON-NLS-1$ //$NON-NLS-2$
+                    "  " + countUnmatched(fUnmatchedOut, trace) + " unmatched outgoing events" + cr); //$NON-NLS-1$ //$NON-NLS-2$
         }
 
         return b.toString();
     }
 
+    private static void expireUnmatched(Map<ITmfTrace, UnmatchedEvents> unmatched, ITmfTrace trace, long before) {
+        UnmatchedEvents events = unmatched.get(trace);
+        if (events != null) {
+            events.expire(before);
+        }
+    }
+
+    private static int countUnmatched(Map<ITmfTrace, UnmatchedEvents> unmatched, ITmfTrace trace) {
+        UnmatchedEvents events = unmatched.get(trace);
+        return (events == null) ? 0 : events.size();
+    }
+
     /**
      * Matches one event
      *
@@ -242,7 +404,7 @@ public class TmfEventMatching implements ITmfEventMatching {
         if (eventKey == null) {
             return;
         }
-        Table<ITmfTrace, IEventMatchingKey, ITmfEvent> unmatchedTbl, companionTbl;
+        Map<ITmfTrace, UnmatchedEvents> unmatchedTbl, companionTbl;
 
         /* Point to the appropriate table */
         switch (evType) {
@@ -258,16 +420,24 @@ public class TmfEventMatching implements ITmfEventMatching {
             return;
         }
 
+        ITmfTrace eventTrace = event.getTrace();
+        boolean expire = fUnmatchedTimeout >= 0;
+        if (expire) {
+            /* Forget the stale unmatched events of this trace */
+            long before = event.getTimestamp().toNanos() - fUnmatchedTimeout;
+            expireUnmatched(fUnmatchedIn, eventTrace, before);
+            expireUnmatched(fUnmatchedOut, eventTrace, before);
+        }
+
         boolean found = false;
         TmfEventDependency dep = null;
         /* Search for the event in the companion table */
-        for (ITmfTrace mTrace : getIndividualTraces()) {
-            if (companionTbl.contains(mTrace, eventKey)) {
+        for (Map.Entry<ITmfTrace, UnmatchedEvents> entry : companionTbl.entrySet()) {
+            /* Remove the element from the companion table */
+            UnmatchedEvent companion = entry.getValue().remove(eventKey);
+            if (companion != null) {
                 found = true;
-                ITmfEvent companionEvent = companionTbl.get(mTrace, eventKey);
-
-                /* Remove the element from the companion table */
-                companionTbl.remove(mTrace, eventKey);
+                ITmfEvent companionEvent = companion.toEvent(entry.getKey());
 
                 /* Create the dependency object */
                 switch (evType) {
@@ -303,9 +473,7 @@ public class TmfEventMatching implements ITmfEventMatching {
              * events as value for the unmatched table. Not necessary right now
              * though
              */
-            if (!unmatchedTbl.contains(event.getTrace(), eventKey)) {
-                unmatchedTbl.put(event.getTrace(), eventKey, event);
-            }
+            unmatchedTbl.computeIfAbsent(eventTrace, t -> new UnmatchedEvents()).add(new UnmatchedEvent(eventKey, event, fCompactUnmatched), expire);
         }
     }
 
@@ -79,6 +79,22 @@ public interface ITmfEventRequest {
         return 0;
     }
 
+    /**
+     * Indicates if the request can receive its events on its own thread when
+     * it is coalesced with other requests. The events are then given to the
+     * request through a bounded queue, in order, so a slow request does not
+     * delay the other requests of the same pass. Such a request must not rely
+     * on being called on the thread of the event provider, nor on the
+     * progress of the other requests.
+     *
+     * @return true if the events can be dispatched to the request on its own
+     *         thread
+     * @since 2.3
+     */
+    default boolean isIndependent() {
+        return false;
+    }
+
     /**
      * @return the index of the first event requested
      */
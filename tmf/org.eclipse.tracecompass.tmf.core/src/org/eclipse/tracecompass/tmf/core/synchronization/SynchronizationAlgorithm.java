@@ -63,6 +63,17 @@ public abstract class SynchronizationAlgorithm extends TmfEventMatches implement
         processMatch(match);
     }
 
+    /**
+     * Release the resources used to process the matches, like worker threads,
+     * if the matching did not end normally. The results obtained so far can
+     * still be queried afterwards. The default implementation does nothing.
+     *
+     * @since 2.3
+     */
+    public void dispose() {
+        // Do nothing
+    }
+
     /**
      * Function for synchronization algorithm to do something with the received
      * match
@@ -48,4 +48,21 @@ public final class SynchronizationAlgorithmFactory {
     public static SynchronizationAlgorithm getFullyIncrementalAlgorithm() {
         return new SyncAlgorithmFullyIncremental();
     }
+
+    /**
+     * Returns the fully incremental convex hull synchronization algorithm,
+     * where the convex hull of each pair of hosts is updated by a worker
+     * thread while the events are being matched. The result is the same as
+     * {@link #getFullyIncrementalAlgorithm()}, it is faster when many hosts
+     * communicate with each other.
+     *
+     * @param nbThreads
+     *            The number of threads updating the convex hulls
+     * @return The {@link SynchronizationAlgorithm} implementing the fully
+     *         incremental convex hull synchronization algorithm
+     * @since 2.3
+     */
+    public static SynchronizationAlgorithm getParallelFullyIncrementalAlgorithm(int nbThreads) {
+        return new SyncAlgorithmFullyIncremental(nbThreads);
+    }
 }
@@ -18,8 +18,8 @@ import java.util.Collection;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.tracecompass.internal.tmf.core.Activator;
+import org.eclipse.tracecompass.internal.tmf.core.synchronization.SyncAlgorithmFullyIncremental;
 import org.eclipse.tracecompass.tmf.core.component.TmfComponent;
-import org.eclipse.tracecompass.tmf.core.event.matching.ITmfEventMatching;
 import org.eclipse.tracecompass.tmf.core.event.matching.TmfEventMatching;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
 
@@ -121,8 +121,21 @@ public abstract class SynchronizationManager extends TmfComponent {
 
     private static SynchronizationAlgorithm synchronize(final File syncFile,
             final Collection<@NonNull ITmfTrace> traces, SynchronizationAlgorithm syncAlgo) {
-        ITmfEventMatching matching = new TmfEventMatching(traces, syncAlgo);
-        matching.matchEvents();
+        TmfEventMatching matching = new TmfEventMatching(traces, syncAlgo);
+        /*
+         * Forget the packets which were never received, so the memory used by
+         * the unmatched events stays bounded on long traces
+         */
+        matching.setUnmatchedEventTimeout(matching.getBoundedUnmatchedEventTimeout());
+        if (syncAlgo instanceof SyncAlgorithmFullyIncremental) {
+            /* Only the traces and timestamps of the matches are used */
+            matching.setCompactUnmatchedEvents(true);
+        }
+        try {
+            matching.matchEvents();
+        } finally {
+            syncAlgo.dispose();
+        }
 
         SynchronizationBackend syncBackend;
         try {
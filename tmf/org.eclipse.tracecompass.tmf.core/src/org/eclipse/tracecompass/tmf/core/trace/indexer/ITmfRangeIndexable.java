@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.trace.indexer;
+
+import java.util.List;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.tmf.core.exceptions.TmfTraceException;
+import org.eclipse.tracecompass.tmf.core.trace.location.ITmfLocation;
+
+/**
+ * A trace implementing this interface can be split in ranges which are read
+ * concurrently, so that its index can be built in parallel. The progress of
+ * the indexing is persisted per range, so an interrupted indexing resumes
+ * where it stopped.
+ *
+ * @since 2.3
+ */
+public interface ITmfRangeIndexable extends ITmfPersistentlyIndexable {
+
+    /**
+     * Split the trace in ranges of similar size. The ranges must always be
+     * the same for a given trace and number of ranges, and the first one
+     * must start at the beginning of the trace.
+     *
+     * @param nbRanges
+     *            the maximum number of ranges
+     * @return the locations where the ranges start, in trace order, or an
+     *         empty list if the trace cannot be split
+     */
+    List<ITmfLocation> getRangeLocations(int nbRanges);
+
+    /**
+     * Create a reader for a range of the trace. The reader must be
+     * independent of the other readers and of the trace contexts, so that
+     * the ranges can be read concurrently.
+     *
+     * @param start
+     *            the start location of the range, as returned by
+     *            {@link #getRangeLocations(int)}
+     * @param end
+     *            the start location of the next range, or null to read until
+     *            the end of the trace
+     * @return the reader, positioned before the first event of the range
+     * @throws TmfTraceException
+     *             if the trace cannot be read
+     */
+    ITmfRangeReader createRangeReader(ITmfLocation start, @Nullable ITmfLocation end) throws TmfTraceException;
+}
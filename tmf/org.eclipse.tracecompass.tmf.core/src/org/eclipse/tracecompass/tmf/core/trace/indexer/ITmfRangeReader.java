@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.trace.indexer;
+
+import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
+import org.eclipse.tracecompass.tmf.core.trace.location.ITmfLocation;
+
+/**
+ * Lightweight reader of a range of a trace, used to index the range. It only
+ * gives the location and timestamp of the events, without parsing them.
+ *
+ * @see ITmfRangeIndexable
+ * @since 2.3
+ */
+public interface ITmfRangeReader extends AutoCloseable {
+
+    /**
+     * Move to the next event of the range
+     *
+     * @return true if there is an event, false at the end of the range
+     */
+    boolean next();
+
+    /**
+     * Position the reader before an event of the range, the next call to
+     * {@link #next()} reads this event.
+     *
+     * @param location
+     *            the location of the event, as returned by
+     *            {@link #getLocation()}
+     */
+    void seek(ITmfLocation location);
+
+    /**
+     * Get the location of the current event. Seeking the trace to this
+     * location returns this event.
+     *
+     * @return the location of the current event
+     */
+    ITmfLocation getLocation();
+
+    /**
+     * Get the timestamp of the current event
+     *
+     * @return the timestamp of the current event
+     */
+    ITmfTimestamp getTimestamp();
+
+    @Override
+    void close();
+}
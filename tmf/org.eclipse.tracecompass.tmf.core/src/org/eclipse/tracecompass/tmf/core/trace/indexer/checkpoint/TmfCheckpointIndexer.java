@@ -13,6 +13,16 @@
 
 package org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -22,9 +32,12 @@ import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.tracecompass.internal.tmf.core.Activator;
 import org.eclipse.tracecompass.internal.tmf.core.Messages;
 import org.eclipse.tracecompass.internal.tmf.core.TmfCoreTracer;
+import org.eclipse.tracecompass.internal.tmf.core.trace.indexer.RangeIndexProgress;
+import org.eclipse.tracecompass.internal.tmf.core.trace.indexer.RangeIndexProgress.RangeResult;
 import org.eclipse.tracecompass.internal.tmf.core.trace.indexer.TmfMemoryIndex;
 import org.eclipse.tracecompass.tmf.core.component.TmfEventProvider;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.exceptions.TmfTraceException;
 import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest;
 import org.eclipse.tracecompass.tmf.core.request.TmfEventRequest;
 import org.eclipse.tracecompass.tmf.core.signal.TmfTraceUpdatedSignal;
@@ -33,7 +46,11 @@ import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
 import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTraceCompleteness;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTraceKnownSize;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfRangeIndexable;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfRangeReader;
 import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfTraceIndexer;
 import org.eclipse.tracecompass.tmf.core.trace.location.ITmfLocation;
 
@@ -49,6 +66,10 @@ import org.eclipse.tracecompass.tmf.core.trace.location.ITmfLocation;
  * <p>
  * Locating a specific checkpoint is trivial for both rank (rank % interval) and
  * timestamp (bsearch in the array). *
+ * <p>
+ * A complete trace implementing {@link ITmfRangeIndexable} is split in ranges
+ * which are indexed in parallel. The progress is saved per range, so an
+ * interrupted indexing resumes with the ranges that are not done.
  *
  * @see ITmfTrace
  * @see ITmfEvent
@@ -57,6 +78,19 @@ import org.eclipse.tracecompass.tmf.core.trace.location.ITmfLocation;
  */
 public class TmfCheckpointIndexer implements ITmfTraceIndexer {
 
+    // ------------------------------------------------------------------------
+    // Constants
+    // ------------------------------------------------------------------------
+
+    /**
+     * The number of positions recorded per checkpoint interval when indexing
+     * ranges, a checkpoint is located by reading from the position before it
+     */
+    private static final int MARKS_PER_CHECKPOINT = 16;
+
+    /** The number of ranges per indexing thread, to balance the load */
+    private static final int RANGES_PER_THREAD = 4;
+
     // ------------------------------------------------------------------------
     // Attributes
     // ------------------------------------------------------------------------
@@ -81,6 +115,11 @@ public class TmfCheckpointIndexer implements ITmfTraceIndexer {
      */
     private ITmfEventRequest fIndexingRequest = null;
 
+    /**
+     * The job indexing the ranges of the trace
+     */
+    private Job fRangeIndexingJob = null;
+
     /** Whether or not the index was built once */
     private boolean fBuiltOnce;
 
@@ -131,6 +170,15 @@ public class TmfCheckpointIndexer implements ITmfTraceIndexer {
         if ((fIndexingRequest != null) && !fIndexingRequest.isCompleted()) {
             fIndexingRequest.cancel();
         }
+        /*
+         * The range indexing job checks for cancellation while holding the
+         * lock, so it does not touch the index once it is disposed.
+         */
+        synchronized (this) {
+            if (fRangeIndexingJob != null) {
+                fRangeIndexingJob.cancel();
+            }
+        }
 
         fTraceIndex.dispose();
     }
@@ -180,8 +228,42 @@ public class TmfCheckpointIndexer implements ITmfTraceIndexer {
         fBuiltOnce = true;
         job.schedule();
 
-        // Build a background request for all the trace data. The index is
-        // updated as we go by readNextEvent().
+        // Index the ranges of the trace in parallel if it was not indexed yet
+        if (indexingOffset == 0 && isRangeIndexable()) {
+            TmfRangeIndexingJob rangeJob = new TmfRangeIndexingJob(job, indexingTimeRange);
+            synchronized (this) {
+                fRangeIndexingJob = rangeJob;
+            }
+            rangeJob.schedule();
+            if (waitForCompletion) {
+                try {
+                    rangeJob.join();
+                } catch (final InterruptedException e) {
+                }
+            }
+            return;
+        }
+
+        sendIndexingRequest(indexingOffset, indexingTimeRange, job);
+        if (waitForCompletion) {
+            try {
+                fIndexingRequest.waitForCompletion();
+            } catch (final InterruptedException e) {
+            }
+        }
+    }
+
+    private boolean isRangeIndexable() {
+        if (!(fTrace instanceof ITmfRangeIndexable)) {
+            return false;
+        }
+        /* The ranges of a live trace would change as it grows */
+        return !(fTrace instanceof ITmfTraceCompleteness) || ((ITmfTraceCompleteness) fTrace).isComplete();
+    }
+
+    // Build a background request for all the trace data. The index is
+    // updated as we go by readNextEvent().
+    private void sendIndexingRequest(final long indexingOffset, final TmfTimeRange indexingTimeRange, final TmfIndexingJob job) {
         fIndexingRequest = new TmfEventRequest(ITmfEvent.class,
                 indexingTimeRange, indexingOffset, ITmfEventRequest.ALL_DATA,
                 ITmfEventRequest.ExecutionType.BACKGROUND) {
@@ -222,14 +304,7 @@ public class TmfCheckpointIndexer implements ITmfTraceIndexer {
             }
         };
 
-        // Submit the request and wait for completion if required
         fTrace.sendRequest(fIndexingRequest);
-        if (waitForCompletion) {
-            try {
-                fIndexingRequest.waitForCompletion();
-            } catch (final InterruptedException e) {
-            }
-        }
     }
 
     /**
@@ -347,6 +422,228 @@ public class TmfCheckpointIndexer implements ITmfTraceIndexer {
         return fTraceIndex;
     }
 
+    /**
+     * Job indexing the ranges of a {@link ITmfRangeIndexable} trace in
+     * parallel. Each range is read once to count its events and record the
+     * position of an event at regular intervals. Once the ranks of the ranges
+     * are known, the checkpoints are located from the closest recorded
+     * positions and inserted in order.
+     */
+    private final class TmfRangeIndexingJob extends Job {
+        private final TmfIndexingJob fMonitoringJob;
+        private final TmfTimeRange fRange;
+        private final int fMarkInterval;
+        private boolean fFallback = false;
+
+        private TmfRangeIndexingJob(TmfIndexingJob monitoringJob, TmfTimeRange range) {
+            super("Indexing ranges of " + fTrace.getName()); //$NON-NLS-1$
+            fMonitoringJob = monitoringJob;
+            fRange = range;
+            fMarkInterval = Math.max(1, fCheckpointInterval / MARKS_PER_CHECKPOINT);
+            setSystem(true);
+        }
+
+        @Override
+        protected IStatus run(final IProgressMonitor monitor) {
+            ITmfRangeIndexable trace = (ITmfRangeIndexable) fTrace;
+            int nbThreads = Runtime.getRuntime().availableProcessors();
+            File file = new File(TmfTraceManager.getSupplementaryFileDir(fTrace) + RangeIndexProgress.FILE_NAME);
+            ExecutorService pool = Executors.newFixedThreadPool(nbThreads, r -> {
+                Thread thread = new Thread(r, "Trace indexer"); //$NON-NLS-1$
+                thread.setDaemon(true);
+                return thread;
+            });
+            RangeIndexProgress progress = null;
+            try {
+                progress = RangeIndexProgress.open(file, trace, fMarkInterval, () -> trace.getRangeLocations(nbThreads * RANGES_PER_THREAD));
+                List<ITmfLocation> ranges = progress.getRanges();
+                if (ranges.isEmpty()) {
+                    /* The trace cannot be split, read it sequentially */
+                    progress.delete();
+                    progress = null;
+                    fFallback = true;
+                    sendIndexingRequest(0, fRange, fMonitoringJob);
+                    fIndexingRequest.waitForCompletion();
+                    return Status.OK_STATUS;
+                }
+                TmfCoreTracer.traceIndexer("Indexing " + ranges.size() + " ranges"); //$NON-NLS-1$ //$NON-NLS-2$
+
+                List<Future<RangeResult>> results = new ArrayList<>(ranges.size());
+                for (int i = 0; i < ranges.size(); i++) {
+                    RangeResult result = progress.getResult(i);
+                    if (result != null) {
+                        results.add(CompletableFuture.completedFuture(result));
+                    } else {
+                        final int range = i;
+                        final RangeIndexProgress rangeProgress = progress;
+                        results.add(pool.submit(() -> indexRange(trace, ranges, range, rangeProgress, monitor)));
+                    }
+                }
+
+                /*
+                 * Locate the checkpoints of each range once its first rank is
+                 * known, and insert them in order as soon as they are located
+                 */
+                List<Future<List<ITmfCheckpoint>>> checkpoints = new ArrayList<>(ranges.size());
+                RangeMerger merger = new RangeMerger();
+                long rank = 0;
+                for (int i = 0; i < ranges.size(); i++) {
+                    RangeResult result = results.get(i).get();
+                    if (result == null || monitor.isCanceled()) {
+                        return Status.CANCEL_STATUS;
+                    }
+                    final int range = i;
+                    final long startRank = rank;
+                    checkpoints.add(pool.submit(() -> locateCheckpoints(trace, ranges, range, result, startRank)));
+                    rank += result.getNbEvents();
+                    while (merger.fNbRanges < checkpoints.size() && checkpoints.get(merger.fNbRanges).isDone()) {
+                        if (!merger.merge(checkpoints.get(merger.fNbRanges).get(), results.get(merger.fNbRanges).get(), monitor)) {
+                            return Status.CANCEL_STATUS;
+                        }
+                    }
+                }
+                while (merger.fNbRanges < checkpoints.size()) {
+                    if (!merger.merge(checkpoints.get(merger.fNbRanges).get(), results.get(merger.fNbRanges).get(), monitor)) {
+                        return Status.CANCEL_STATUS;
+                    }
+                }
+
+                synchronized (TmfCheckpointIndexer.this) {
+                    if (monitor.isCanceled()) {
+                        return Status.CANCEL_STATUS;
+                    }
+                    fTraceIndex.setTimeRange(fTrace.getTimeRange());
+                    fTraceIndex.setNbEvents(fTrace.getNbEvents());
+                }
+                progress.delete();
+                progress = null;
+                TmfCoreTracer.traceIndexer("Build index from ranges completed. nbEvents: " + fTraceIndex.getNbEvents() + " time range: " + fTraceIndex.getTimeRange()); //$NON-NLS-1$ //$NON-NLS-2$
+            } catch (IOException e) {
+                fMonitoringJob.setException(e);
+            } catch (ExecutionException e) {
+                fMonitoringJob.setException((e.getCause() instanceof Exception) ? (Exception) e.getCause() : e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Status.CANCEL_STATUS;
+            } finally {
+                pool.shutdownNow();
+                if (progress != null) {
+                    progress.close();
+                }
+                if (!fFallback) {
+                    fMonitoringJob.cancel();
+                    fIsIndexing = false;
+                }
+            }
+            return Status.OK_STATUS;
+        }
+
+        /**
+         * Read a range, counting its events and recording the position of an
+         * event every fMarkInterval events
+         */
+        private RangeResult indexRange(ITmfRangeIndexable trace, List<ITmfLocation> ranges, int range, RangeIndexProgress progress, IProgressMonitor monitor) throws IOException, TmfTraceException {
+            ITmfLocation end = (range + 1 < ranges.size()) ? ranges.get(range + 1) : null;
+            List<ITmfCheckpoint> marks = new ArrayList<>();
+            long nbEvents = 0;
+            ITmfTimestamp startTime = null;
+            ITmfTimestamp endTime = null;
+            try (ITmfRangeReader reader = trace.createRangeReader(ranges.get(range), end)) {
+                while (reader.next()) {
+                    endTime = reader.getTimestamp();
+                    if (startTime == null) {
+                        startTime = endTime;
+                    }
+                    if (nbEvents % fMarkInterval == 0) {
+                        if (monitor.isCanceled()) {
+                            return null;
+                        }
+                        marks.add(new TmfCheckpoint(endTime, reader.getLocation(), nbEvents));
+                    }
+                    nbEvents++;
+                }
+            }
+            RangeResult result = new RangeResult(range, nbEvents, startTime, endTime, marks);
+            progress.save(result);
+            return result;
+        }
+
+        /**
+         * Locate the checkpoints of a range, reading from the recorded
+         * position before each checkpoint
+         */
+        private List<ITmfCheckpoint> locateCheckpoints(ITmfRangeIndexable trace, List<ITmfLocation> ranges, int range, RangeResult result, long startRank) throws TmfTraceException {
+            List<ITmfCheckpoint> checkpoints = new ArrayList<>();
+            long endRank = startRank + result.getNbEvents();
+            long position = (startRank + fCheckpointInterval - 1) / fCheckpointInterval;
+            ITmfRangeReader reader = null;
+            try {
+                for (; position * fCheckpointInterval < endRank; position++) {
+                    long index = position * fCheckpointInterval - startRank;
+                    ITmfCheckpoint mark = result.getMarks().get((int) (index / fMarkInterval));
+                    long skip = index % fMarkInterval;
+                    if (skip == 0) {
+                        checkpoints.add(new TmfCheckpoint(mark.getTimestamp(), mark.getLocation(), position));
+                        continue;
+                    }
+                    if (reader == null) {
+                        ITmfLocation end = (range + 1 < ranges.size()) ? ranges.get(range + 1) : null;
+                        reader = trace.createRangeReader(ranges.get(range), end);
+                    }
+                    reader.seek(mark.getLocation());
+                    for (long i = 0; i <= skip; i++) {
+                        reader.next();
+                    }
+                    checkpoints.add(new TmfCheckpoint(reader.getTimestamp(), reader.getLocation(), position));
+                }
+            } finally {
+                if (reader != null) {
+                    reader.close();
+                }
+            }
+            return checkpoints;
+        }
+    }
+
+    /**
+     * Inserts the checkpoints of the ranges in order and updates the trace
+     * attributes accordingly
+     */
+    private final class RangeMerger {
+        private int fNbRanges = 0;
+        private long fNbEvents = 0;
+        private ITmfTimestamp fStartTime = null;
+        private ITmfTimestamp fEndTime = null;
+
+        public boolean merge(List<ITmfCheckpoint> checkpoints, RangeResult result, IProgressMonitor monitor) {
+            synchronized (TmfCheckpointIndexer.this) {
+                if (monitor.isCanceled()) {
+                    return false;
+                }
+                for (ITmfCheckpoint checkpoint : checkpoints) {
+                    // Add new entry at proper location (if empty)
+                    if (fTraceIndex.size() == checkpoint.getCheckpointRank()) {
+                        fTraceIndex.insert(checkpoint);
+                    }
+                }
+            }
+            fNbRanges++;
+            ITmfTimestamp startTime = result.getStartTime();
+            ITmfTimestamp endTime = result.getEndTime();
+            if (startTime == null || endTime == null) {
+                return true;
+            }
+            fNbEvents += result.getNbEvents();
+            if (fStartTime == null) {
+                fStartTime = startTime;
+            }
+            fEndTime = endTime;
+            // Set the trace attributes that depend on indexing
+            fTrace.broadcast(new TmfTraceUpdatedSignal(TmfCheckpointIndexer.this, fTrace, new TmfTimeRange(fStartTime, fEndTime), fNbEvents));
+            return true;
+        }
+    }
+
     private final class TmfIndexingJob extends Job {
         private Exception fException = null;
         private final ITmfTraceKnownSize fTraceWithSize;